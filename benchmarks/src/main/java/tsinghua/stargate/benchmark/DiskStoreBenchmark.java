@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.conf.StarGateConf;
+import tsinghua.stargate.exception.StarGateException;
+import tsinghua.stargate.storage.impl.BlockStoreDiskImpl;
+
+/**
+ * Measures storing and loading blocks through the {@link BlockStoreDiskImpl
+ * disk store}, as done for inputs and results that are not kept in memory.
+ * The files live in a fresh directory under {@code java.io.tmpdir}, so the
+ * results depend on the file system backing it.
+ *
+ * <p>
+ * Run with {@code java -jar benchmarks/target/benchmarks.jar
+ * DiskStoreBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiskStoreBenchmark {
+
+  private static final String BLOCK = "bench-block";
+
+  @Param({"65536", "16777216"})
+  private int size;
+
+  private Path root;
+  private BlockStoreDiskImpl store;
+  private ByteBuffer data;
+  private String readPath;
+
+  @Setup
+  public void setup() throws IOException, StarGateException {
+    Configuration conf = new StarGateConf();
+    root = Files.createTempDirectory("stargate-bench");
+    conf.set(NameSpace.LOCAL_DIR, root.toString());
+    store = new BlockStoreDiskImpl(conf);
+    data = ByteBuffer.allocate(size);
+    readPath = store.writeHashFile("bench-read", data.duplicate());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    store.stop();
+    Files.deleteIfExists(root);
+  }
+
+  /** Store a block, then delete it as the store appends to existing files. */
+  @Benchmark
+  public String writeAndDelete() throws StarGateException {
+    String path = store.writeHashFile(BLOCK, data.duplicate());
+    store.delete(path);
+    return path;
+  }
+
+  /** Load a stored block. */
+  @Benchmark
+  public ByteBuffer read() throws StarGateException {
+    return store.readBytes(readPath);
+  }
+}
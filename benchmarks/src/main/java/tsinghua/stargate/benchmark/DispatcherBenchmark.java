@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.StarGateConf;
+import tsinghua.stargate.event.AbstractEvent;
+import tsinghua.stargate.event.AsyncDispatcher;
+import tsinghua.stargate.event.EventHandler;
+
+/**
+ * Measures the hand-off of events from the posting threads to the handler
+ * thread of the {@link AsyncDispatcher}, which every task goes through
+ * several times on its way from submission to exit.
+ *
+ * <p>
+ * Run with {@code java -jar benchmarks/target/benchmarks.jar
+ * DispatcherBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatcherBenchmark {
+
+  private static final int BATCH = 1000;
+
+  private final AtomicLong handled = new AtomicLong();
+  private AsyncDispatcher dispatcher;
+  private EventHandler<PingEvent> handler;
+  private long posted;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setup() {
+    Configuration conf = new StarGateConf();
+    conf.setBoolean("stargate.dispatcher.exit-on-error", false);
+    dispatcher = new AsyncDispatcher();
+    dispatcher.register(PingEventType.class,
+        (EventHandler<PingEvent>) event -> handled.incrementAndGet());
+    dispatcher.init(conf);
+    dispatcher.start();
+    handler = dispatcher.getEventHandler();
+  }
+
+  @TearDown
+  public void tearDown() {
+    dispatcher.stop();
+  }
+
+  /** Post one event and wait for it to be handled. */
+  @Benchmark
+  public long roundTrip() {
+    handler.handle(new PingEvent());
+    return await(++posted);
+  }
+
+  /** Post a burst of events and wait for the last one to be handled. */
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public long burst() {
+    for (int i = 0; i < BATCH; i++) {
+      handler.handle(new PingEvent());
+    }
+    posted += BATCH;
+    return await(posted);
+  }
+
+  private long await(long count) {
+    long seen;
+    while ((seen = handled.get()) < count) {
+      Thread.yield();
+    }
+    return seen;
+  }
+
+  enum PingEventType {
+    PING
+  }
+
+  static class PingEvent extends AbstractEvent<PingEventType> {
+
+    PingEvent() {
+      super(PingEventType.PING);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tsinghua.stargate.rpc.message.GetApplicationReportResponse;
+import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
+import tsinghua.stargate.rpc.message.entity.ApplicationId;
+import tsinghua.stargate.rpc.message.entity.ApplicationReport;
+import tsinghua.stargate.rpc.message.entity.ApplicationResourceUsageReport;
+import tsinghua.stargate.rpc.message.entity.ApplicationState;
+import tsinghua.stargate.rpc.message.entity.Worker;
+import tsinghua.stargate.rpc.message.thrift.GetApplicationReportResponseThriftImpl;
+import tsinghua.stargate.rpc.thrift.message.GetApplicationReportResponseThrift;
+import tsinghua.stargate.util.ReflectionUtils;
+
+/**
+ * Measures the cost of creating and (de)serializing RPC messages, using an
+ * application report as the representative payload.
+ *
+ * <p>
+ * Run with {@code java -jar benchmarks/target/benchmarks.jar MessageBenchmark
+ * -prof gc} to report bytes allocated per operation next to ops/sec.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBenchmark {
+
+  private final TSerializer serializer =
+      new TSerializer(new TCompactProtocol.Factory());
+  private final TDeserializer deserializer =
+      new TDeserializer(new TCompactProtocol.Factory());
+
+  private ApplicationId appId;
+  private ApplicationResourceUsageReport usageReport;
+  private byte[] reportBytes;
+
+  @Setup
+  public void setup() throws TException {
+    appId = ApplicationId.newInstance(System.currentTimeMillis(), 1);
+    usageReport = ApplicationResourceUsageReport.newInstance(Worker.FPGA,
+        "card-0", AcceleratorResource.newInstance("loopback", 1024, 0, 250));
+    reportBytes = serializer.serialize(buildReport().getThrift());
+  }
+
+  /** Create an empty message through the message factory. */
+  @Benchmark
+  public GetApplicationReportResponse newMessage() {
+    return ReflectionUtils.get().getMsg(GetApplicationReportResponse.class);
+  }
+
+  /** Build a full report and merge it into its thrift struct. */
+  @Benchmark
+  public GetApplicationReportResponseThrift buildReport() {
+    ApplicationReport report =
+        ReflectionUtils.get().getMsg(ApplicationReport.class);
+    report.setApplicationState(ApplicationState.RUNNING);
+    report.setApplicationId(appId);
+    report.setStartTime(1L);
+    report.setFinishTime(2L);
+    report.setDiagnostics("");
+    report.setApplicationResourceUsageReport(usageReport);
+    GetApplicationReportResponse response =
+        GetApplicationReportResponse.newInstance(report);
+    return ((GetApplicationReportResponseThriftImpl) response).getThrift();
+  }
+
+  /** Build a report and serialize it as the server does for each reply. */
+  @Benchmark
+  public byte[] serializeReport() throws TException {
+    return serializer.serialize(buildReport());
+  }
+
+  /** Deserialize a report and read its state as a polling client does. */
+  @Benchmark
+  public ApplicationState deserializeReport() throws TException {
+    GetApplicationReportResponseThrift thrift =
+        new GetApplicationReportResponseThrift();
+    deserializer.deserialize(thrift, reportBytes);
+    return new GetApplicationReportResponseThriftImpl(thrift)
+        .getApplicationReport().getApplicationState();
+  }
+}
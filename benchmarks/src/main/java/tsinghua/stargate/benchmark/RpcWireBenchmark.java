@@ -0,0 +1,219 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.benchmark;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.rpc.ApplicationStarGateProtocol;
+import tsinghua.stargate.rpc.message.GetApplicationReportRequest;
+import tsinghua.stargate.rpc.message.GetApplicationReportResponse;
+import tsinghua.stargate.rpc.message.GetBlockDataRequest;
+import tsinghua.stargate.rpc.message.GetBlockDataResponse;
+import tsinghua.stargate.rpc.message.GetCardReportsRequest;
+import tsinghua.stargate.rpc.message.GetCardReportsResponse;
+import tsinghua.stargate.rpc.message.GetNewApplicationRequest;
+import tsinghua.stargate.rpc.message.GetNewApplicationResponse;
+import tsinghua.stargate.rpc.message.OpenLocalChannelRequest;
+import tsinghua.stargate.rpc.message.OpenLocalChannelResponse;
+import tsinghua.stargate.rpc.message.PutBlockDataRequest;
+import tsinghua.stargate.rpc.message.PutBlockDataResponse;
+import tsinghua.stargate.rpc.message.SubmitApplicationRequest;
+import tsinghua.stargate.rpc.message.SubmitApplicationResponse;
+import tsinghua.stargate.rpc.thrift.ApplicationStarGateProtocolClientThriftImpl;
+import tsinghua.stargate.rpc.thrift.ApplicationStarGateProtocolService;
+import tsinghua.stargate.rpc.thrift.ApplicationStarGateProtocolServiceThriftImpl;
+import tsinghua.stargate.rpc.thrift.ThriftRpcEngine;
+import tsinghua.stargate.rpc.wire.WireCodec;
+import tsinghua.stargate.rpc.wire.WireProtocol;
+import tsinghua.stargate.rpc.wire.WireTransport;
+import tsinghua.stargate.rpc.workhorse.RpcServer;
+
+/**
+ * Compares round trips to a loopback Thrift server for every combination of
+ * wire protocol, frame compression and payload size. The payload travels in
+ * the request for {@code put} and in the response for {@code get}.
+ *
+ * <p>
+ * Throughput is reported in ops/sec, and latency percentiles come from the
+ * sample-time mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RpcWireBenchmark {
+
+  @Param({ "COMPACT", "BINARY", "JSON" })
+  public String protocol;
+
+  @Param({ "NONE", "LZ4", "ZSTD" })
+  public String codec;
+
+  @Param({ "256", "1048576" })
+  public int payloadSize;
+
+  private RpcServer server;
+  private TTransport transport;
+  private ApplicationStarGateProtocol client;
+  private ByteBuffer payload;
+
+  @Setup
+  public void setup() throws Exception {
+    payload = newPayload(payloadSize);
+
+    Configuration conf = new Configuration();
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    server = new ThriftRpcEngine().getServer(conf,
+        new InetSocketAddress("127.0.0.1", port), 100, 1, 4,
+        ApplicationStarGateProtocol.class,
+        new ApplicationStarGateProtocolService.Processor<>(
+            new ApplicationStarGateProtocolServiceThriftImpl(
+                new EchoProtocol(payload))));
+    server.start();
+
+    transport = new WireTransport(new TSocket("127.0.0.1", port),
+        WireCodec.of(codec), 1024, NameSpace.DEFAULT_RPC_THRIFT_FRAME_LENGTH_MAX,
+        NameSpace.DEFAULT_RPC_THRIFT_MESSAGE_LENGTH_MAX);
+    openWithRetry(transport);
+    client = new ApplicationStarGateProtocolClientThriftImpl(
+        new ApplicationStarGateProtocolService.Client(
+            WireProtocol.of(protocol).getFactory().getProtocol(transport)));
+  }
+
+  @TearDown
+  public void tearDown() {
+    transport.close();
+    server.stop();
+  }
+
+  @Benchmark
+  public long put() throws Exception {
+    return client.putBlockData(PutBlockDataRequest.newInstance("bench", 0,
+        payload.remaining(), payload.duplicate(), true)).getReceived();
+  }
+
+  @Benchmark
+  public ByteBuffer get() throws Exception {
+    return client.getBlockData(
+        GetBlockDataRequest.newInstance("bench", 0, payload.remaining()))
+        .getData();
+  }
+
+  /** Text-like payload, roughly as compressible as launch contexts are. */
+  private static ByteBuffer newPayload(int size) {
+    byte[] line = "stargate.resource.path=/tmp/stargate/block-00000001\n"
+        .getBytes(StandardCharsets.UTF_8);
+    byte[] bytes = new byte[size];
+    for (int i = 0; i < size; i++) {
+      bytes[i] = line[i % line.length];
+    }
+    return ByteBuffer.wrap(bytes);
+  }
+
+  private static void openWithRetry(TTransport transport)
+      throws TTransportException, InterruptedException {
+    for (int i = 0;; i++) {
+      try {
+        transport.open();
+        return;
+      } catch (TTransportException e) {
+        if (i == 50) {
+          throw e;
+        }
+        Thread.sleep(100);
+      }
+    }
+  }
+
+  /** Answers the block data RPCs without touching a block store. */
+  private static class EchoProtocol implements ApplicationStarGateProtocol {
+
+    private final ByteBuffer payload;
+
+    EchoProtocol(ByteBuffer payload) {
+      this.payload = payload;
+    }
+
+    @Override
+    public PutBlockDataResponse putBlockData(PutBlockDataRequest request) {
+      return PutBlockDataResponse.newInstance(request.getData().remaining());
+    }
+
+    @Override
+    public GetBlockDataResponse getBlockData(GetBlockDataRequest request) {
+      return GetBlockDataResponse.newInstance(payload.remaining(),
+          payload.duplicate());
+    }
+
+    @Override
+    public GetNewApplicationResponse getNewApplication(
+        GetNewApplicationRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SubmitApplicationResponse submitApplication(
+        SubmitApplicationRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public GetApplicationReportResponse getApplicationReport(
+        GetApplicationReportRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public OpenLocalChannelResponse openLocalChannel(
+        OpenLocalChannelRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public GetCardReportsResponse getCardReports(
+        GetCardReportsRequest request) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of moving a request through {@link IOUtils} to a card and
+ * back, i.e. staging heap buffers into the temporary direct buffers of
+ * {@link BufferUtils}, against a {@link LoopbackDispatcher} instead of a card.
+ *
+ * <p>
+ * Lives in the io package to reach the package-private utilities. No card is
+ * needed, but the utilities load the JNI library of the daemon, so run with
+ * {@code java -Djava.library.path=core/src/main/native/out -jar
+ * benchmarks/target/benchmarks.jar IOBenchmark}, which the
+ * {@code dev/run-benchmarks.sh} script does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IOBenchmark {
+
+  private static final int CORE = 0;
+  private static final long TIMEOUT = 0;
+
+  /** Bytes of a request, a record and a typical input block. */
+  @Param({"4096", "1048576"})
+  private int size;
+
+  /** Whether the application hands in heap or direct buffers. */
+  @Param({"true", "false"})
+  private boolean direct;
+
+  private final FpgaDescriptor fd = new FpgaDescriptor();
+  private NativeDispatcher nd;
+  private ByteBuffer src;
+  private ByteBuffer dst;
+
+  @Setup
+  public void setup() {
+    nd = new LoopbackDispatcher(1, size);
+    src = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    dst = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    for (int i = 0; i < size; i++) {
+      src.put(i, (byte) i);
+    }
+  }
+
+  /** Take and return a temporary direct buffer, as each heap transfer does. */
+  @Benchmark
+  public ByteBuffer temporaryBuffer() {
+    ByteBuffer buf = BufferUtils.getTemporaryDirectBuffer(size);
+    BufferUtils.offerFirstTemporaryDirectBuffer(buf);
+    return buf;
+  }
+
+  /** Send a request to a core. */
+  @Benchmark
+  public int write() throws IOException {
+    src.clear();
+    return IOUtils.write(fd, src, nd, CORE, 0, true, TIMEOUT);
+  }
+
+  /** Send a request to a core and read its result back. */
+  @Benchmark
+  public int roundTrip() throws IOException {
+    src.clear();
+    dst.clear();
+    IOUtils.write(fd, src, nd, CORE, 0, true, TIMEOUT);
+    return IOUtils.read(fd, dst, nd, CORE, TIMEOUT);
+  }
+}
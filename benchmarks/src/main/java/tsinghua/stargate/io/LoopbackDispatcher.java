@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.io;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+import sun.misc.Unsafe;
+
+import tsinghua.stargate.exception.StarGateRuntimeException;
+
+/**
+ * A pure-Java stand-in for a card whose cores echo back what was written to
+ * them, so that the paths staging buffers for the native dispatchers can be
+ * measured without a card. Writes copy into a per-core buffer and reads copy
+ * it back out, each as one memory copy from or to the native address given.
+ */
+class LoopbackDispatcher implements NativeDispatcher {
+
+  private static final Unsafe UNSAFE;
+  private static final long BYTE_ARRAY_OFFSET;
+
+  static {
+    try {
+      Field field = Unsafe.class.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      UNSAFE = (Unsafe) field.get(null);
+      BYTE_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+    } catch (Exception e) {
+      throw new StarGateRuntimeException(e);
+    }
+  }
+
+  private final byte[][] cores;
+  private final int[] lengths;
+
+  /**
+   * @param numCores the number of cores of the card
+   * @param capacity the most bytes a core holds
+   */
+  LoopbackDispatcher(int numCores, int capacity) {
+    this.cores = new byte[numCores][capacity];
+    this.lengths = new int[numCores];
+  }
+
+  @Override
+  public int read(FpgaDescriptor fd, int channel, long address, int len,
+      long timeout) throws IOException {
+    int size = Math.min(len, lengths[channel]);
+    UNSAFE.copyMemory(cores[channel], BYTE_ARRAY_OFFSET, null, address, size);
+    return size;
+  }
+
+  @Override
+  public int write(FpgaDescriptor fd, int channel, long address, int len,
+      int off, boolean last, long timeout) throws IOException {
+    int size = Math.min(len, cores[channel].length);
+    UNSAFE.copyMemory(null, address, cores[channel], BYTE_ARRAY_OFFSET, size);
+    lengths[channel] = size;
+    return size;
+  }
+
+  @Override
+  public int read(FpgaDescriptor fd, int channel, long address)
+      throws IOException {
+    return read(fd, channel, address, lengths[channel], 0);
+  }
+
+  @Override
+  public int write(FpgaDescriptor fd, int channel, long address)
+      throws IOException {
+    throw new IOException("Writes of unknown length are not supported");
+  }
+
+  @Override
+  public void close(FpgaDescriptor fd, int flag) throws IOException {
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.scheduler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tsinghua.stargate.api.RecordReader;
+import tsinghua.stargate.api.StarGateApp;
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.conf.StarGateConf;
+import tsinghua.stargate.rpc.message.entity.ServiceData;
+import tsinghua.stargate.rpc.message.entity.Worker;
+import tsinghua.stargate.task.Task;
+import tsinghua.stargate.task.TaskEvent;
+import tsinghua.stargate.task.TaskId;
+import tsinghua.stargate.task.TaskState;
+import tsinghua.stargate.task.TaskTimeline;
+import tsinghua.stargate.util.Utils;
+
+/**
+ * Measures the cost of ordering queues and tasks under the fair share policy
+ * with many tasks queued, as done by every scheduling round.
+ *
+ * <p>
+ * Lives in the scheduler package to build queues the way the
+ * {@link FairScheduler} does. Run with {@code java -jar
+ * benchmarks/target/benchmarks.jar FairShareBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FairShareBenchmark {
+
+  private static final String WORKLOAD = "loopback";
+  private static final String CARD_ID = "fpga-bench";
+
+  /** Number of queued tasks, spread evenly over the queues. */
+  @Param({"10000"})
+  private int numTasks;
+
+  @Param({"10", "100"})
+  private int numQueues;
+
+  private final Comparator<Schedulable> policy = new FairShareComparator();
+  private List<Schedulable> queues = new ArrayList<>();
+  private List<Schedulable> tasks = new ArrayList<>();
+
+  @Setup
+  public void setup() {
+    Configuration conf = new StarGateConf();
+    conf.set(NameSpace.ACCELERATOR_IDS, CARD_ID);
+    conf.set(NameSpace.ACCELERATOR_TYPE_PREFIX + CARD_ID, "FPGA");
+    conf.set(NameSpace.ACCELERATOR_CORE_IDS_PREFIX + CARD_ID, "0,1,2,3");
+    conf.set(NameSpace.ACCELERATOR_CORE_WORKLOADS_PREFIX + CARD_ID,
+        "loopback,loopback,loopback,loopback");
+    conf.set(NameSpace.ACCELERATOR_CORE_MEMORY_PREFIX + CARD_ID,
+        "64,64,64,64");
+    conf.set(NameSpace.ACCELERATOR_CORE_FREQUENCY_PREFIX + CARD_ID,
+        "200,200,200,200");
+    // Queue every task without limiting the admitted ones
+    conf.set(NameSpace.ACCELERATOR_QUEUE_MAX_RUNNING, "-1");
+
+    FairScheduler scheduler = new FairScheduler(null);
+    scheduler.loadResources(conf);
+    scheduler.init(conf);
+    QueueManager queueManager = new QueueManager(scheduler);
+    queueManager.init();
+
+    for (int i = 0; i < numQueues; i++) {
+      queues.add(queueManager
+          .getLeafQueue(Utils.getQueueName(WORKLOAD, "app" + i), true));
+    }
+    for (int i = 0; i < numTasks; i++) {
+      SchedulableLeafQueue queue =
+          (SchedulableLeafQueue) queues.get(i % numQueues);
+      SchedulableTask task = new SchedulableTask(null, scheduler, queue,
+          new QueuedTask(new TaskId("app", null, WORKLOAD, i)));
+      queue.admitAcceleratorTask(task);
+      tasks.add(task);
+    }
+  }
+
+  /** Order the leaf queues as their parent does every round. */
+  @Benchmark
+  public List<Schedulable> sortQueues() {
+    List<Schedulable> sorted = new ArrayList<>(queues);
+    sorted.sort(policy);
+    return sorted;
+  }
+
+  /** Order all queued tasks as if they shared one queue. */
+  @Benchmark
+  public List<Schedulable> sortTasks() {
+    List<Schedulable> sorted = new ArrayList<>(tasks);
+    sorted.sort(policy);
+    return sorted;
+  }
+
+  /** Compare two of the queues once. */
+  @Benchmark
+  public int compareQueues() {
+    return policy.compare(queues.get(0), queues.get(numQueues - 1));
+  }
+
+  /** A task that only carries the identity seen by the scheduler. */
+  private static class QueuedTask implements Task {
+
+    private final TaskId taskId;
+    private final TaskTimeline timeline = new TaskTimeline();
+
+    QueuedTask(TaskId taskId) {
+      this.taskId = taskId;
+    }
+
+    @Override
+    public String getWorkload() {
+      return WORKLOAD;
+    }
+
+    @Override
+    public TaskId getTaskId() {
+      return taskId;
+    }
+
+    @Override
+    public void handle(TaskEvent event) {
+    }
+
+    @Override
+    public TaskState run() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void createBlockData(ServiceData inSD, ServiceData outSD) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void createDependencies(Map<String, String> launchResources,
+        Map<String, String> launchEnvironments,
+        Map<String, String> launchProcessors) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void createProcessor(Worker worker, int cardId, int coreId,
+        StarGateApp sga, RecordReader recordReader) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getDiagnostics() {
+      return null;
+    }
+
+    @Override
+    public boolean preempt() {
+      return false;
+    }
+
+    @Override
+    public int getRemainingBlocks() {
+      return 0;
+    }
+
+    @Override
+    public TaskTimeline getTimeline() {
+      return timeline;
+    }
+  }
+}
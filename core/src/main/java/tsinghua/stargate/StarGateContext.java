@@ -42,6 +42,10 @@ public class StarGateContext extends Log {
   private ServiceData inServiceData;
   private ServiceData outServiceData;
   private Map<String, String> resources;
+  private long deadline;
+  private int priority;
+  private int cores;
+  private int cards;
 
   private static Client client;
   private Application app;
@@ -63,43 +67,15 @@ public class StarGateContext extends Log {
     inServiceData = sgConf.getInSD();
     outServiceData = sgConf.getOutSD();
     resources = sgConf.getResource();
+    deadline = sgConf.getDeadline();
+    priority = sgConf.getPriority();
+    cores = sgConf.getCores();
+    cards = sgConf.getCards();
   }
 
   public StarGateContext waitForCompletion() throws StarGateException {
-    // Construct a client for accessing StarGateDaemon.
-    if (null == client) {
-      createAndStartClient();
-    }
-
-    // Create a new StarGateDaemon application.
-    try {
-      app = client.createApplication();
-      appId = app.getNewApplicationResponse().getApplicationId();
-      appLaunchContext = createLaunchContext();
-      appSubmissionContext = createSubmissionContext(app, appLaunchContext);
-    } catch (StarGateException e) {
-      // TODO: Add more debug information
-      error("Failed to build remote application");
-      throw new StarGateRuntimeException(e);
-    } catch (IOException e) {
-      error("Failed to build remote application");
-      throw new StarGateRuntimeException(e);
-    } catch (TException e) {
-      error("Failed to build remote application");
-      throw new StarGateRuntimeException(e);
-    }
-
-    // Submit the new StarGateDaemon application.
-    try {
-      client.submitApplication(appSubmissionContext);
-      report = client.getApplicationReport(appId);
-    } catch (IOException e) {
-      error("Failed to contact StarGate for application {}.", appId, e);
-      throw new StarGateException(e);
-    } catch (TException e) {
-      error("Failed to contact StarGate for application {}.", appId, e);
-      throw new StarGateException(e);
-    }
+    submit();
+    report = getApplicationReport();
 
     // Poll the report of this new StarGateDaemon application.
     boolean poll = true;
@@ -141,28 +117,87 @@ public class StarGateContext extends Log {
 
         try {
           Thread.sleep(POLL_TIME_INTERVAL_MILLIS);
-          report = client.getApplicationReport(appId);
         } catch (InterruptedException e) {
           error("Interrupted while getting application report for {}", appId,
               e);
           Thread.currentThread().interrupt();
-        } catch (TException e) {
-          error("Failed to get application report for {}.", appId, e);
-          throw new StarGateException(e);
-        } catch (IOException e) {
-          error("Failed to get application report for {}.", appId, e);
-          throw new StarGateException(e);
         }
+        report = getApplicationReport();
       }
     }
 
     return this;
   }
 
-  // Create and start RPC client proxy
-  private static void createAndStartClient() {
+  /**
+   * Create and submit the application to StarGateDaemon without waiting for
+   * it to finish, e.g. to submit many applications at once. Follow it with
+   * {@link #getApplicationReport()} to learn what became of it.
+   *
+   * @return the id of the submitted application
+   * @throws StarGateException if StarGateDaemon could not be contacted
+   */
+  public ApplicationId submit() throws StarGateException {
+    // Construct a client for accessing StarGateDaemon.
+    createAndStartClient();
+
+    // Create a new StarGateDaemon application.
+    try {
+      app = client.createApplication(workload, inServiceData);
+      appId = app.getNewApplicationResponse().getApplicationId();
+      appLaunchContext = createLaunchContext();
+      appSubmissionContext = createSubmissionContext(app, appLaunchContext);
+    } catch (StarGateException e) {
+      // TODO: Add more debug information
+      error("Failed to build remote application");
+      throw new StarGateRuntimeException(e);
+    } catch (IOException e) {
+      error("Failed to build remote application");
+      throw new StarGateRuntimeException(e);
+    } catch (TException e) {
+      error("Failed to build remote application");
+      throw new StarGateRuntimeException(e);
+    }
+
+    // Submit the new StarGateDaemon application.
+    try {
+      client.submitApplication(appSubmissionContext);
+    } catch (IOException e) {
+      error("Failed to contact StarGate for application {}.", appId, e);
+      throw new StarGateException(e);
+    } catch (TException e) {
+      error("Failed to contact StarGate for application {}.", appId, e);
+      throw new StarGateException(e);
+    }
+    return appId;
+  }
+
+  /**
+   * Retrieve the current report of the submitted application.
+   *
+   * @return the report of the application
+   * @throws StarGateException if StarGateDaemon could not be contacted
+   */
+  public ApplicationReport getApplicationReport() throws StarGateException {
+    try {
+      report = client.getApplicationReport(appId);
+    } catch (TException e) {
+      error("Failed to get application report for {}.", appId, e);
+      throw new StarGateException(e);
+    } catch (IOException e) {
+      error("Failed to get application report for {}.", appId, e);
+      throw new StarGateException(e);
+    }
+    return report;
+  }
+
+  // Create and start RPC client proxy, shared by all contexts
+  private static synchronized void createAndStartClient() {
+    if (null != client) {
+      return;
+    }
     StarGateConf conf = new StarGateConf();
-    client = Client.create();
+    client = Client.create(conf);
     client.init(conf);
     client.start();
   }
@@ -191,6 +226,10 @@ public class StarGateContext extends Log {
     asc.setApplicationId(appId);
     asc.setApplicationLaunchContext(launchContext);
     asc.setAcceleratorResource(AcceleratorResourceUtils.newInstance(workload));
+    asc.setDeadline(deadline);
+    asc.setPriority(priority);
+    asc.setCores(cores);
+    asc.setCards(cards);
     return asc;
   }
 
@@ -29,6 +29,7 @@ import tsinghua.stargate.conf.StarGateConf;
 import tsinghua.stargate.event.AsyncDispatcher;
 import tsinghua.stargate.event.Dispatcher;
 import tsinghua.stargate.event.EventHandler;
+import tsinghua.stargate.metrics.MetricsService;
 import tsinghua.stargate.rpc.message.entity.ApplicationId;
 import tsinghua.stargate.scheduler.FairScheduler;
 import tsinghua.stargate.scheduler.SchedulableTask;
@@ -85,6 +86,8 @@ public class StarGateDaemon extends CompositeService {
 
   private AppManager appManager;
 
+  private MetricsService metricsService;
+
   public StarGateDaemon() {
     super("StarGateDaemon");
   }
@@ -97,6 +100,9 @@ public class StarGateDaemon extends CompositeService {
 
     context = new DaemonContextImpl();
 
+    metricsService = new MetricsService();
+    addService(metricsService);
+
     dispatcher = createDispatcher();
     addService((Service) dispatcher);
     context.setDispatcher(dispatcher);
@@ -49,6 +49,14 @@ public interface AcceleratorRequest {
    */
   int getCoreId();
 
+  /**
+   * get the cores granted to a task spanning several accelerator cards
+   *
+   * @return the allocated core id indexed by accelerator card id, a single
+   *         entry unless the task is gang scheduled
+   */
+  Map<Integer, Integer> getGangCores();
+
   RecordReader getRecordReader();
 
 }
@@ -39,6 +39,10 @@ public interface AcceleratorResponse {
   /** Returns handler process state. */
   StarGateAppState getHandlerState();
 
-  /** Get the final result buffers will be setted to task output. */
+  /**
+   * Get the result segments of the request, which are written to the task
+   * output one after another, from the position to the limit of each, without
+   * being copied where the result store allows it.
+   */
   Collection<ByteBuffer> getOutputResult();
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The framing of a batch of records sent to an accelerator in one transfer,
+ * as coalesced by {@link BatchingHandler}.
+ *
+ * <p>
+ * A batch is a 32-bit record count followed by the records, each a 32-bit
+ * byte length and that many bytes, zero-padded to a multiple of 4 bytes so
+ * that every length starts on a 32-bit word. All integers are little-endian.
+ * A kernel answers a batch with a batch in the same format, holding one
+ * record per request record in the same order; a record may be empty.
+ */
+public final class BatchFormat {
+
+  /** The byte order of the counts and lengths of a batch. */
+  public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  /** The size of the record count heading a batch. */
+  public static final int HEADER_LENGTH = 4;
+
+  private BatchFormat() {
+  }
+
+  /**
+   * The bytes a record takes in a batch.
+   *
+   * @param recordLength the length of the record
+   * @return the length of the record with its length and padding
+   */
+  public static int encodedLength(int recordLength) {
+    return 4 + ((recordLength + 3) & ~3);
+  }
+
+  /**
+   * Write records as a batch, from the position of each record to its limit.
+   *
+   * @param records the records
+   * @param dst the buffer to write to, with room for the header and every
+   *          {@link #encodedLength(int) encoded record}
+   */
+  public static void encode(List<ByteBuffer> records, ByteBuffer dst) {
+    ByteOrder order = dst.order();
+    dst.order(ORDER).putInt(records.size());
+    for (ByteBuffer record : records) {
+      int length = record.remaining();
+      dst.putInt(length);
+      dst.put(record.duplicate());
+      for (int i = length; (i & 3) != 0; i++) {
+        dst.put((byte) 0);
+      }
+    }
+    dst.order(order);
+  }
+
+  /**
+   * Read the records of a batch, from its position to its limit.
+   *
+   * @param batch the batch
+   * @return views of the records in the batch, in order
+   * @throws IOException if the batch is malformed
+   */
+  public static List<ByteBuffer> decode(ByteBuffer batch) throws IOException {
+    ByteBuffer in = batch.duplicate().order(ORDER);
+    if (in.remaining() < HEADER_LENGTH) {
+      throw new IOException("Truncated batch of " + in.remaining() + " bytes");
+    }
+    int count = in.getInt();
+    if (count < 0) {
+      throw new IOException("Malformed batch of " + count + " records");
+    }
+    List<ByteBuffer> records = new ArrayList<>(Math.min(count, 1024));
+    for (int i = 0; i < count; i++) {
+      if (in.remaining() < 4) {
+        throw new IOException("Truncated batch at record " + i);
+      }
+      int length = in.getInt();
+      if (length < 0 || in.remaining() < length) {
+        throw new IOException(
+            "Malformed length " + length + " of record " + i);
+      }
+      ByteBuffer record = in.slice();
+      record.limit(length);
+      records.add(record);
+      in.position(Math.min(in.limit(), in.position() + ((length + 3) & ~3)));
+    }
+    return records;
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import tsinghua.stargate.metrics.Histogram;
+import tsinghua.stargate.metrics.MetricsRegistry;
+import tsinghua.stargate.util.ThreadUtils;
+
+/**
+ * Coalesces small records into batches, so that many records share one DMA
+ * round trip through an {@link AcceleratorHandler}.
+ *
+ * <p>
+ * A batch is sent once it holds {@code maxRecords} records or
+ * {@code maxBatchBytes} bytes, or {@code lingerMicros} after its first record
+ * was submitted, whichever comes first. Batches are framed as described by
+ * {@link BatchFormat}, and the records of the response complete the futures
+ * returned by {@link #submit(ByteBuffer)} in order. A StarGateApp would
+ * typically wrap {@link AcceleratorRequest#getClient()}, submit the records
+ * of its input and wait for all of the futures.
+ *
+ * <p>
+ * Full batches are sent by the thread submitting the record that fills them,
+ * and lingering batches by a sender thread of the batching handler, so that a
+ * slow handler never holds up the batches of other batching handlers.
+ *
+ * <p>
+ * The handler stays owned by the caller: closing a batching handler sends
+ * what is pending but leaves the handler open.
+ */
+public class BatchingHandler implements Closeable {
+
+  /** Hands the batches that linger without filling up to their senders. */
+  private static final ScheduledExecutorService LINGER_TIMER =
+      ThreadUtils.getExecutor().newDaemonScheduledThreadPool("BatchLinger", 1);
+
+  private static final Histogram BATCH_RECORDS = MetricsRegistry.get()
+      .histogram("stargate_batch_records",
+          "Records coalesced into one accelerator transfer");
+
+  private final AcceleratorHandler handler;
+  private final int maxRecords;
+  private final int maxBatchBytes;
+  private final long lingerMicros;
+  /** Sends the batches that linger, one at a time. */
+  private final ExecutorService sender =
+      ThreadUtils.getExecutor().newDaemonCachedThreadPool("BatchSender", 1);
+
+  /** Guards the handler and the transfer buffers. */
+  private final Object transferLock = new Object();
+  private ByteBuffer sendBuffer;
+  private final ByteBuffer receiveBuffer;
+
+  private List<Pending> pending = new ArrayList<>();
+  private int pendingBytes = BatchFormat.HEADER_LENGTH;
+  private ScheduledFuture<?> lingerFlush;
+  private boolean closed = false;
+
+  /**
+   * @param handler the handler to send the batches through
+   * @param maxRecords the most records in a batch
+   * @param maxBatchBytes the most bytes in a batch, unless a single record is
+   *          larger
+   * @param lingerMicros how long a batch waits for more records
+   * @param maxResponseBytes the most bytes in the response to a batch
+   */
+  public BatchingHandler(AcceleratorHandler handler, int maxRecords,
+      int maxBatchBytes, long lingerMicros, int maxResponseBytes) {
+    this.handler = handler;
+    this.maxRecords = maxRecords;
+    this.maxBatchBytes = maxBatchBytes;
+    this.lingerMicros = lingerMicros;
+    this.sendBuffer = ByteBuffer.allocateDirect(maxBatchBytes);
+    this.receiveBuffer = ByteBuffer.allocateDirect(maxResponseBytes);
+  }
+
+  /**
+   * Add a record, from its position to its limit, to the next batch. The
+   * record must not be changed until its future completes.
+   *
+   * @param record the record
+   * @return the future of the response to the record, failing with the
+   *         exception of the handler if the batch cannot be transferred
+   */
+  public CompletableFuture<ByteBuffer> submit(ByteBuffer record) {
+    Pending next = new Pending(record);
+    List<Pending> full = null;
+    List<Pending> filled = null;
+    synchronized (this) {
+      if (closed) {
+        next.future.completeExceptionally(
+            new IOException("Batching handler is closed"));
+        return next.future;
+      }
+      int length = BatchFormat.encodedLength(record.remaining());
+      if (!pending.isEmpty() && pendingBytes + length > maxBatchBytes) {
+        full = takePending();
+      }
+      pending.add(next);
+      pendingBytes += length;
+      if (pending.size() >= maxRecords || pendingBytes >= maxBatchBytes) {
+        filled = takePending();
+      } else if (pending.size() == 1) {
+        lingerFlush = LINGER_TIMER.schedule(this::handOff, lingerMicros,
+            TimeUnit.MICROSECONDS);
+      }
+    }
+    transfer(full);
+    transfer(filled);
+    return next.future;
+  }
+
+  /** Send the pending records without waiting for the batch to fill up. */
+  public void flush() {
+    List<Pending> batch;
+    synchronized (this) {
+      batch = takePending();
+    }
+    transfer(batch);
+  }
+
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+    }
+    flush();
+    sender.shutdown();
+  }
+
+  /** Run on the linger timer, which must not wait for the handler. */
+  private void handOff() {
+    try {
+      sender.execute(this::flush);
+    } catch (RejectedExecutionException e) {
+      // Closed, and close() sent what was pending
+    }
+  }
+
+  private List<Pending> takePending() {
+    if (lingerFlush != null) {
+      lingerFlush.cancel(false);
+      lingerFlush = null;
+    }
+    List<Pending> batch = pending;
+    pending = new ArrayList<>();
+    pendingBytes = BatchFormat.HEADER_LENGTH;
+    return batch;
+  }
+
+  private void transfer(List<Pending> batch) {
+    if (batch == null || batch.isEmpty()) {
+      return;
+    }
+    BATCH_RECORDS.record(batch.size());
+    List<ByteBuffer> records = new ArrayList<>(batch.size());
+    int length = BatchFormat.HEADER_LENGTH;
+    for (Pending next : batch) {
+      records.add(next.record);
+      length += BatchFormat.encodedLength(next.record.remaining());
+    }
+
+    List<ByteBuffer> responses;
+    try {
+      synchronized (transferLock) {
+        if (sendBuffer.capacity() < length) {
+          // A single record larger than a batch
+          sendBuffer = ByteBuffer.allocateDirect(length);
+        }
+        sendBuffer.clear();
+        BatchFormat.encode(records, sendBuffer);
+        sendBuffer.flip();
+        handler.send(sendBuffer);
+
+        receiveBuffer.clear();
+        handler.receive(receiveBuffer);
+        receiveBuffer.flip();
+        responses = copy(BatchFormat.decode(receiveBuffer));
+      }
+      if (responses.size() != batch.size()) {
+        throw new IOException("Accelerator answered " + responses.size()
+            + " records to a batch of " + batch.size());
+      }
+    } catch (IOException | RuntimeException e) {
+      for (Pending next : batch) {
+        next.future.completeExceptionally(e);
+      }
+      return;
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      batch.get(i).future.complete(responses.get(i));
+    }
+  }
+
+  /** Copy the records out of the receive buffer, which is reused. */
+  private static List<ByteBuffer> copy(List<ByteBuffer> records) {
+    List<ByteBuffer> copies = new ArrayList<>(records.size());
+    for (ByteBuffer record : records) {
+      ByteBuffer copy = ByteBuffer.allocate(record.remaining());
+      copy.put(record).flip();
+      copies.add(copy);
+    }
+    return copies;
+  }
+
+  private static class Pending {
+
+    private final ByteBuffer record;
+    private final CompletableFuture<ByteBuffer> future =
+        new CompletableFuture<>();
+
+    Pending(ByteBuffer record) {
+      this.record = record;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.api;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * A result segment of primitive values in direct memory, in the native byte
+ * order, so that a StarGateApp can fill it through a typed view and hand it to
+ * an {@link AcceleratorResponse} without copying or formatting the values.
+ *
+ * <p>
+ * The segment holds the values put through its view, i.e. the bytes up to the
+ * position of the view.
+ */
+public final class ResultBuffer {
+
+  private final ByteBuffer bytes;
+  private final Buffer view;
+  private final int valueSize;
+
+  private ResultBuffer(ByteBuffer bytes, Buffer view, int valueSize) {
+    this.bytes = bytes;
+    this.view = view;
+    this.valueSize = valueSize;
+  }
+
+  private static ByteBuffer allocate(int capacity, int valueSize) {
+    return ByteBuffer.allocateDirect(capacity * valueSize)
+        .order(ByteOrder.nativeOrder());
+  }
+
+  public static ResultBuffer allocateFloats(int capacity) {
+    ByteBuffer bytes = allocate(capacity, Float.BYTES);
+    return new ResultBuffer(bytes, bytes.asFloatBuffer(), Float.BYTES);
+  }
+
+  public static ResultBuffer allocateInts(int capacity) {
+    ByteBuffer bytes = allocate(capacity, Integer.BYTES);
+    return new ResultBuffer(bytes, bytes.asIntBuffer(), Integer.BYTES);
+  }
+
+  public static ResultBuffer allocateLongs(int capacity) {
+    ByteBuffer bytes = allocate(capacity, Long.BYTES);
+    return new ResultBuffer(bytes, bytes.asLongBuffer(), Long.BYTES);
+  }
+
+  public static ResultBuffer allocateBytes(int capacity) {
+    ByteBuffer bytes = allocate(capacity, Byte.BYTES);
+    return new ResultBuffer(bytes,
+        bytes.duplicate().order(ByteOrder.nativeOrder()), Byte.BYTES);
+  }
+
+  public FloatBuffer asFloats() {
+    return as(FloatBuffer.class);
+  }
+
+  public IntBuffer asInts() {
+    return as(IntBuffer.class);
+  }
+
+  public LongBuffer asLongs() {
+    return as(LongBuffer.class);
+  }
+
+  public ByteBuffer asBytes() {
+    return as(ByteBuffer.class);
+  }
+
+  private <T extends Buffer> T as(Class<T> type) {
+    if (!type.isInstance(view)) {
+      throw new IllegalStateException(
+          "Not a result buffer of " + type.getSimpleName());
+    }
+    return type.cast(view);
+  }
+
+  /**
+   * Get the bytes of the values put so far, sharing the memory of this buffer.
+   *
+   * @return a native-order view of the bytes from 0 to the position of the
+   *         typed view
+   */
+  public ByteBuffer toByteBuffer() {
+    ByteBuffer result = bytes.duplicate().order(bytes.order());
+    result.clear().limit(view.position() * valueSize);
+    return result;
+  }
+}
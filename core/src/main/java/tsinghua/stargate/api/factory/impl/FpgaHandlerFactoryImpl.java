@@ -17,14 +17,17 @@
 package tsinghua.stargate.api.factory.impl;
 
 import java.io.IOException;
-import java.nio.channels.ByteChannel;
 
 import tsinghua.stargate.api.AcceleratorHandler;
 import tsinghua.stargate.api.factory.AcceleratorHandlerFactory;
 import tsinghua.stargate.api.impl.AcceleratorHandlerImpl;
+import tsinghua.stargate.io.FpgaChannelPool;
 import tsinghua.stargate.io.ModuleConfig;
-import tsinghua.stargate.util.FpgaUtils;
 
+/**
+ * Creates handlers over FPGA channels leased from the {@link FpgaChannelPool},
+ * so that closing a handler keeps the device open for the next request.
+ */
 public class FpgaHandlerFactoryImpl implements AcceleratorHandlerFactory {
 
   private static final FpgaHandlerFactoryImpl self = new FpgaHandlerFactoryImpl();
@@ -37,17 +40,18 @@ public class FpgaHandlerFactoryImpl implements AcceleratorHandlerFactory {
   }
 
   @Override
-  synchronized public AcceleratorHandler getClient(int cardId, int coreId)
+  public AcceleratorHandler getClient(int cardId, int coreId)
       throws IOException {
-    ByteChannel channel = FpgaUtils.newByteChannel(cardId, coreId);
-    return new AcceleratorHandlerImpl(channel);
+    FpgaChannelPool pool = FpgaChannelPool.get();
+    return new AcceleratorHandlerImpl(pool.lease(cardId, coreId, null), pool);
   }
 
   @Override
-  synchronized public AcceleratorHandler getClient(int cardId, int coreId,
-                                                   ModuleConfig config) throws IOException {
-    ByteChannel channel = FpgaUtils.newByteChannel(cardId, coreId, config);
-    return new AcceleratorHandlerImpl(channel);
+  public AcceleratorHandler getClient(int cardId, int coreId,
+      ModuleConfig config) throws IOException {
+    FpgaChannelPool pool = FpgaChannelPool.get();
+    return new AcceleratorHandlerImpl(pool.lease(cardId, coreId, config),
+        pool);
   }
 
   @Override
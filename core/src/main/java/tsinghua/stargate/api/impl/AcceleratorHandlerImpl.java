@@ -22,18 +22,30 @@ import java.nio.channels.ByteChannel;
 
 import tsinghua.stargate.api.AcceleratorHandler;
 import tsinghua.stargate.io.FpgaChannel;
+import tsinghua.stargate.io.FpgaChannelPool;
 
 public class AcceleratorHandlerImpl implements AcceleratorHandler {
 
   private ByteChannel channel;
+  /** The pool the channel is leased from, null if it is owned. */
+  private FpgaChannelPool pool;
 
   public AcceleratorHandlerImpl(ByteChannel channel) {
     this.channel = channel;
   }
 
+  public AcceleratorHandlerImpl(FpgaChannel channel, FpgaChannelPool pool) {
+    this.channel = channel;
+    this.pool = pool;
+  }
+
   @Override
   public void reset(int cardId, int coreId) throws IOException {
-    FpgaChannel.reset(cardId);
+    if (channel instanceof FpgaChannel) {
+      ((FpgaChannel) channel).reset();
+    } else {
+      FpgaChannel.reset(cardId);
+    }
   }
 
   @Override
@@ -58,6 +70,12 @@ public class AcceleratorHandlerImpl implements AcceleratorHandler {
 
   @Override
   public void close() throws IOException {
-    channel.close();
+    if (pool != null) {
+      // Keep the device open for the next request of the core
+      pool.release((FpgaChannel) channel);
+      pool = null;
+    } else {
+      channel.close();
+    }
   }
 }
@@ -17,6 +17,7 @@
 package tsinghua.stargate.api.impl;
 
 import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.Map;
 
 import tsinghua.stargate.api.AcceleratorHandler;
@@ -40,6 +41,8 @@ public class AcceleratorRequestImpl implements AcceleratorRequest {
 
   private RecordReader recordReader;
 
+  private Map<Integer, Integer> gangCores;
+
   public AcceleratorRequestImpl(AcceleratorHandler client,
       Map<String, ByteBuffer> buffers) {
     this.client = client;
@@ -52,6 +55,14 @@ public class AcceleratorRequestImpl implements AcceleratorRequest {
     this.coreId = coreId;
     this.buffers = buffers;
     this.recordReader = recordReader;
+    this.gangCores = Collections.singletonMap(cardId, coreId);
+  }
+
+  public AcceleratorRequestImpl(int cardId, int coreId,
+      Map<String, ByteBuffer> buffers, RecordReader recordReader,
+      Map<Integer, Integer> gangCores) {
+    this(cardId, coreId, buffers, recordReader);
+    this.gangCores = gangCores;
   }
 
   @Override
@@ -74,6 +85,11 @@ public class AcceleratorRequestImpl implements AcceleratorRequest {
     return coreId;
   }
 
+  @Override
+  public Map<Integer, Integer> getGangCores() {
+    return gangCores;
+  }
+
   @Override
   public RecordReader getRecordReader() {
     return recordReader;
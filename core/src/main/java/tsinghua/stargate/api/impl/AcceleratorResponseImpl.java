@@ -17,9 +17,11 @@
 package tsinghua.stargate.api.impl;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 
 import tsinghua.stargate.api.AcceleratorResponse;
+import tsinghua.stargate.api.ResultBuffer;
 import tsinghua.stargate.api.StarGateAppState;
 
 /**
@@ -38,6 +40,21 @@ public class AcceleratorResponseImpl implements AcceleratorResponse {
     this.buffers = buffers;
   }
 
+  /**
+   * Respond with typed result segments, handed over without copying.
+   *
+   * @param state the state of handling the request
+   * @param results the result segments, in the order they are written
+   */
+  public AcceleratorResponseImpl(StarGateAppState state,
+      ResultBuffer... results) {
+    this.state = state;
+    this.buffers = new ArrayList<>(results.length);
+    for (ResultBuffer result : results) {
+      buffers.add(result.toByteBuffer());
+    }
+  }
+
   public AcceleratorResponseImpl(StarGateAppState state) {
     this.state = state;
   }
@@ -68,7 +68,9 @@ public class AppManager extends Log {
 
     DaemonApp daemonApp = new DaemonAppImpl(daemonAppId, taskManager, context,
         resource, userAppId, worker, inputServiceData, outputServiceData,
-        processors, environments, resources);
+        processors, environments, resources, submissionContext.getDeadline(),
+        submissionContext.getPriority(), submissionContext.getCores(),
+        submissionContext.getCards());
 
     if (context.getDaemonApps().putIfAbsent(daemonAppId, daemonApp) != null) {
       warn("Found duplicated application {}", daemonAppId);
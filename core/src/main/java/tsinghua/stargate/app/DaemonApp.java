@@ -20,6 +20,7 @@ package tsinghua.stargate.app;
 import tsinghua.stargate.event.EventHandler;
 import tsinghua.stargate.rpc.message.entity.ApplicationId;
 import tsinghua.stargate.rpc.message.entity.ApplicationReport;
+import tsinghua.stargate.rpc.message.entity.ServiceData;
 import tsinghua.stargate.task.Task;
 import tsinghua.stargate.task.TaskId;
 
@@ -53,4 +54,28 @@ public interface DaemonApp extends EventHandler<DaemonAppEvent> {
    * @return the {@link Task} corresponding to the {@link TaskId}
    */
   Task getAcceleratorTask(TaskId taskId);
+
+  /**
+   * @return milliseconds after submission by which the application should be
+   *         done, or 0 if it has no deadline
+   */
+  long getDeadline();
+
+  /** @return the priority class of the application, larger is more urgent */
+  int getPriority();
+
+  /**
+   * @return the number of accelerator cores each task asks for, 0 for all free
+   *         cores serving the workload
+   */
+  int getCores();
+
+  /**
+   * @return the number of accelerator cards each task spans, tasks spanning
+   *         more than one card are gang scheduled
+   */
+  int getCards();
+
+  /** @return the input data of the application, or {@code null} if unset */
+  ServiceData getInputServiceData();
 }
@@ -42,6 +42,10 @@ public class DaemonAppImpl extends Log implements DaemonApp {
   private final Map<String, String> resources;
   private final Map<String, String> environments;
   private final Map<String, String> processors;
+  private final long deadline;
+  private final int priority;
+  private final int cores;
+  private final int cards;
 
   private final Map<TaskId, Task> tasks = new LinkedHashMap<TaskId, Task>();
   private final ReadLock readLock;
@@ -59,7 +63,8 @@ public class DaemonAppImpl extends Log implements DaemonApp {
       DaemonContext context, AcceleratorResource acceleratorResource,
       String userAppId, Worker worker, ServiceData inputServiceData,
       ServiceData outputServiceData, Map<String, String> processors,
-      Map<String, String> environments, Map<String, String> resources) {
+      Map<String, String> environments, Map<String, String> resources,
+      long deadline, int priority, int cores, int cards) {
     this.anmAppId = applicationId;
     this.taskManager = taskManager;
     this.acceleratorResource = acceleratorResource;
@@ -72,6 +77,10 @@ public class DaemonAppImpl extends Log implements DaemonApp {
     this.processors = processors;
     this.resources = resources;
     this.environments = environments;
+    this.deadline = deadline;
+    this.priority = priority;
+    this.cores = cores;
+    this.cards = cards;
 
     ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     this.readLock = lock.readLock();
@@ -96,6 +105,9 @@ public class DaemonAppImpl extends Log implements DaemonApp {
     if (currentTask != null) {
       taskId = currentTask.getTaskId().getId();
     }
+    if (currentTask != null) {
+      appReport.setPhaseTimes(currentTask.getTimeline().getPhaseTimes());
+    }
     if (taskId != null) {
       ApplicationResourceUsageReport resourceUsageReport =
           context.getScheduler().getTaskResourceUsageReport(taskId);
@@ -175,6 +187,31 @@ public class DaemonAppImpl extends Log implements DaemonApp {
     }
   }
 
+  @Override
+  public long getDeadline() {
+    return deadline;
+  }
+
+  @Override
+  public int getPriority() {
+    return priority;
+  }
+
+  @Override
+  public int getCores() {
+    return cores;
+  }
+
+  @Override
+  public int getCards() {
+    return cards;
+  }
+
+  @Override
+  public ServiceData getInputServiceData() {
+    return inputServiceData;
+  }
+
   @Override
   public Task getAcceleratorTask(TaskId taskId) {
     this.readLock.lock();
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.classloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import tsinghua.stargate.Log;
+import tsinghua.stargate.api.StarGateApp;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.metrics.Counter;
+import tsinghua.stargate.metrics.MetricsRegistry;
+import tsinghua.stargate.util.ReflectionUtils;
+
+/**
+ * Daemon-wide cache of the class loaders of application jars, so that the
+ * tasks of an application submitted again run with classes that are already
+ * loaded, initialized and compiled.
+ *
+ * <p>
+ * A class loader is keyed by the URLs of its jars and the checksums of their
+ * contents, so a jar rebuilt in place gets a new class loader. Class loaders
+ * in use by a task are reference counted and never evicted; beyond
+ * {@link NameSpace#TASK_CLASSLOADER_CACHE_SIZE} the least recently used of the
+ * others are closed. Each class loader can also keep a pool of idle
+ * {@link StarGateApp} instances, for applications whose instances may be
+ * reused by later tasks. `AppClassLoaderCache` class is implemented by
+ * employing `The Singleton Pattern`.
+ */
+public final class AppClassLoaderCache extends Log {
+
+  private static final AppClassLoaderCache SELF = new AppClassLoaderCache();
+
+  private static final Counter HITS = MetricsRegistry.get().counter(
+      "stargate_classloader_cache_hits_total",
+      "Tasks that reused a cached application class loader");
+  private static final Counter MISSES = MetricsRegistry.get().counter(
+      "stargate_classloader_cache_misses_total",
+      "Tasks that created an application class loader");
+
+  /** Class loaders by their key, in the order they were last acquired. */
+  private final LinkedHashMap<Key, Entry> entries =
+      new LinkedHashMap<>(16, 0.75f, true);
+  /** Checksums of local jars, recomputed only when a jar changes. */
+  private final Map<File, Checksum> checksums = new HashMap<>();
+
+  private int capacity = NameSpace.DEFAULT_TASK_CLASSLOADER_CACHE_SIZE;
+  private int appPoolSize = NameSpace.DEFAULT_TASK_APP_POOL_SIZE;
+
+  private AppClassLoaderCache() {
+  }
+
+  public static AppClassLoaderCache get() {
+    return SELF;
+  }
+
+  /**
+   * Set the limits of the cache, evicting the class loaders beyond them.
+   *
+   * @param capacity the number of idle class loaders to keep
+   * @param appPoolSize the number of idle {@link StarGateApp} instances to
+   *          keep per class and class loader, 0 to create one per task
+   */
+  public synchronized void configure(int capacity, int appPoolSize) {
+    this.capacity = capacity;
+    this.appPoolSize = appPoolSize;
+    evict();
+  }
+
+  /**
+   * Acquire a class loader of the given jars, creating it if none is cached.
+   * Every acquired class loader must be {@link #release(Entry) released} once
+   * the task using it is done.
+   *
+   * @param urls the URLs of the jars
+   * @param parent the parent of the class loader
+   * @return the cache entry of the class loader
+   */
+  public synchronized Entry acquire(URL[] urls, ClassLoader parent) {
+    Key key = new Key(urls, parent);
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      MISSES.inc();
+      entry = new Entry(new MutableURLClassLoader(urls, parent));
+      entries.put(key, entry);
+      debug("Cached class loader of {}", Arrays.toString(urls));
+    } else {
+      HITS.inc();
+    }
+    entry.refCount++;
+    evict();
+    return entry;
+  }
+
+  /**
+   * Release a class loader acquired by {@link #acquire(URL[], ClassLoader)}.
+   *
+   * @param entry the cache entry of the class loader
+   */
+  public synchronized void release(Entry entry) {
+    if (entry.refCount > 0) {
+      entry.refCount--;
+    }
+    evict();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /** Close the least recently used idle class loaders beyond the capacity. */
+  private void evict() {
+    Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+    while (entries.size() > capacity && it.hasNext()) {
+      Map.Entry<Key, Entry> next = it.next();
+      Entry entry = next.getValue();
+      if (entry.refCount > 0) {
+        continue;
+      }
+      it.remove();
+      entry.close();
+      debug("Evicted class loader of {}", next.getKey().urls);
+    }
+  }
+
+  private synchronized long checksum(URL url) {
+    File file;
+    try {
+      if (!"file".equals(url.getProtocol())) {
+        return 0;
+      }
+      file = new File(url.toURI());
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return 0;
+    }
+    long length = file.length();
+    long lastModified = file.lastModified();
+    Checksum checksum = checksums.get(file);
+    if (checksum != null && checksum.length == length
+        && checksum.lastModified == lastModified) {
+      return checksum.value;
+    }
+
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = Files.newInputStream(file.toPath())) {
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        crc.update(buffer, 0, n);
+      }
+    } catch (IOException e) {
+      warn("Failed to checksum {}: {}", file, e.getMessage());
+      return 0;
+    }
+    checksums.put(file, new Checksum(length, lastModified, crc.getValue()));
+    return crc.getValue();
+  }
+
+  /** A cached class loader with the idle application instances it loaded. */
+  public final class Entry {
+
+    private final MutableURLClassLoader classLoader;
+    private final Map<String, Deque<StarGateApp>> idleApps = new HashMap<>();
+    private int refCount;
+
+    private Entry(MutableURLClassLoader classLoader) {
+      this.classLoader = classLoader;
+    }
+
+    public ClassLoader getClassLoader() {
+      return classLoader;
+    }
+
+    /**
+     * Take an idle instance of a {@link StarGateApp} class from the pool, or
+     * create one if there is none.
+     *
+     * @param className the name of the class
+     * @return an instance that is not in use by another task
+     */
+    public StarGateApp borrowApp(String className) {
+      synchronized (AppClassLoaderCache.this) {
+        Deque<StarGateApp> apps = idleApps.get(className);
+        if (apps != null && !apps.isEmpty()) {
+          return apps.pop();
+        }
+      }
+      return (StarGateApp) ReflectionUtils.get().getInstance(className,
+          classLoader);
+    }
+
+    /**
+     * Return an instance taken by {@link #borrowApp(String)} to the pool, or
+     * drop it if the pool is full.
+     *
+     * @param className the name of the class
+     * @param app the instance
+     */
+    public void returnApp(String className, StarGateApp app) {
+      synchronized (AppClassLoaderCache.this) {
+        Deque<StarGateApp> apps =
+            idleApps.computeIfAbsent(className, k -> new ArrayDeque<>());
+        if (apps.size() < appPoolSize) {
+          apps.push(app);
+        }
+      }
+    }
+
+    private void close() {
+      idleApps.clear();
+      ReflectionUtils.get().evict(classLoader);
+      try {
+        classLoader.close();
+      } catch (IOException e) {
+        warn("Failed to close class loader: {}", e.getMessage());
+      }
+    }
+  }
+
+  private final class Key {
+
+    private final List<URL> urls;
+    private final List<Long> sums = new ArrayList<>();
+    private final ClassLoader parent;
+
+    private Key(URL[] urls, ClassLoader parent) {
+      this.urls = Arrays.asList(urls);
+      this.parent = parent;
+      for (URL url : urls) {
+        sums.add(checksum(url));
+      }
+    }
+
+    @Override
+    public int hashCode() {
+      // URL#hashCode resolves host names, so hash their string forms
+      int hash = System.identityHashCode(parent);
+      for (URL url : urls) {
+        hash = 31 * hash + url.toString().hashCode();
+      }
+      return 31 * hash + sums.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) other;
+      if (parent != that.parent || urls.size() != that.urls.size()
+          || !sums.equals(that.sums)) {
+        return false;
+      }
+      for (int i = 0; i < urls.size(); i++) {
+        if (!urls.get(i).toString().equals(that.urls.get(i).toString())) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final class Checksum {
+
+    private final long length;
+    private final long lastModified;
+    private final long value;
+
+    private Checksum(long length, long lastModified, long value) {
+      this.length = length;
+      this.lastModified = lastModified;
+      this.value = value;
+    }
+  }
+}
@@ -18,16 +18,22 @@
 package tsinghua.stargate.client;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 import org.apache.thrift.TException;
 
 import tsinghua.stargate.client.impl.ClientImpl;
+import tsinghua.stargate.client.impl.ClusterClientImpl;
+import tsinghua.stargate.conf.Configuration;
 import tsinghua.stargate.exception.StarGateException;
 import tsinghua.stargate.rpc.message.GetNewApplicationResponse;
 import tsinghua.stargate.rpc.message.entity.ApplicationId;
 import tsinghua.stargate.rpc.message.entity.ApplicationReport;
 import tsinghua.stargate.rpc.message.entity.ApplicationState;
 import tsinghua.stargate.rpc.message.entity.ApplicationSubmissionContext;
+import tsinghua.stargate.rpc.message.entity.CardReport;
+import tsinghua.stargate.rpc.message.entity.ServiceData;
 import tsinghua.stargate.service.AbstractService;
 
 /** Abstraction to create a client. */
@@ -46,6 +52,21 @@ public abstract class Client extends AbstractService {
     return new ClientImpl();
   }
 
+  /**
+   * Create a client for the daemons configured in {@code conf}, i.e. a
+   * {@link ClusterClientImpl} if {@code stargate.rpc.cluster.addresses} lists
+   * several daemons and a {@link ClientImpl} otherwise.
+   *
+   * @param conf a configuration profiler
+   * @return a new {@code Client} instance
+   */
+  public static Client create(Configuration conf) {
+    if (ClusterClientImpl.getAddresses(conf).size() > 1) {
+      return new ClusterClientImpl();
+    }
+    return create();
+  }
+
   /**
    * Obtain a {@link Application app} standing for a new application, which
    * contains {@link ApplicationSubmissionContext ApplicationSubmissionContext}
@@ -56,6 +77,20 @@ public abstract class Client extends AbstractService {
   public abstract Application createApplication()
       throws StarGateException, IOException, TException;
 
+  /**
+   * Obtain a {@link Application app} standing for a new application which
+   * runs {@code workload} over {@code input}. A client talking to several
+   * daemons uses them to pick the daemon creating the application.
+   *
+   * @param workload the workload the application runs
+   * @param input the input of the application, or {@code null}
+   * @return {@code Application} built for a new application
+   */
+  public Application createApplication(String workload, ServiceData input)
+      throws StarGateException, IOException, TException {
+    return createApplication();
+  }
+
   public abstract ApplicationState submitApplication(
       ApplicationSubmissionContext appSubmissionContext)
       throws StarGateException, IOException, TException;
@@ -76,4 +111,40 @@ public abstract class Client extends AbstractService {
    */
   public abstract ApplicationReport getApplicationReport(ApplicationId appId)
       throws StarGateException, IOException, TException;
+
+  /**
+   * Push {@code data} into the in-heap block store of {@code StarGateDaemon}
+   * under {@code path}, splitting it into chunks bounded by the RPC frame.
+   *
+   * <p>
+   * An application whose input {@code ServiceData} has the {@code IN_HEAP}
+   * store type and a path being a prefix of {@code path} consumes the block
+   * directly from memory.
+   *
+   * @param path the path identifying the block
+   * @param data the bytes of the block, from position to limit
+   */
+  public abstract void putBlockData(String path, ByteBuffer data)
+      throws StarGateException, IOException, TException;
+
+  /**
+   * Pull the block identified by {@code path}, e.g. the result of an
+   * application stored {@code IN_HEAP}, from {@code StarGateDaemon}.
+   *
+   * @param path the path identifying the block
+   * @return the bytes of the block, or {@code null} if it does not exist
+   */
+  public abstract ByteBuffer getBlockData(String path)
+      throws StarGateException, IOException, TException;
+
+  /**
+   * Retrieve the {@link CardReport reports} of the accelerator cards from
+   * {@code StarGateDaemon}.
+   *
+   * @param workload the workload the cards should host, or {@code null} for
+   *          all cards
+   * @return the reports of the cards
+   */
+  public abstract List<CardReport> getCardReports(String workload)
+      throws StarGateException, IOException, TException;
 }
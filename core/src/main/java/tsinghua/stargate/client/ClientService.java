@@ -21,6 +21,9 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.thrift.TException;
@@ -32,13 +35,18 @@ import tsinghua.stargate.app.DaemonApp;
 import tsinghua.stargate.conf.Configuration;
 import tsinghua.stargate.conf.NameSpace;
 import tsinghua.stargate.exception.StarGateException;
+import tsinghua.stargate.io.CoreCounters;
 import tsinghua.stargate.rpc.ApplicationStarGateProtocol;
 import tsinghua.stargate.rpc.RPC;
+import tsinghua.stargate.rpc.local.LocalServer;
 import tsinghua.stargate.rpc.message.*;
 import tsinghua.stargate.rpc.message.entity.*;
+import tsinghua.stargate.rpc.thrift.ApplicationStarGateProtocolService;
+import tsinghua.stargate.rpc.thrift.ApplicationStarGateProtocolServiceThriftImpl;
 import tsinghua.stargate.rpc.workhorse.RpcServer;
 import tsinghua.stargate.scheduler.AcceleratorReport;
 import tsinghua.stargate.service.AbstractService;
+import tsinghua.stargate.storage.impl.BlockStoreMemoryImpl;
 import tsinghua.stargate.util.ReflectionUtils;
 import tsinghua.stargate.util.Utils;
 
@@ -54,6 +62,7 @@ public class ClientService extends AbstractService
   private Configuration conf;
   private long timestamp;
   private RpcServer server;
+  private LocalServer localServer;
   private DaemonContext context;
 
   public ClientService(DaemonContext context, AppManager appManager) {
@@ -67,6 +76,8 @@ public class ClientService extends AbstractService
     info("Init service '{}'", this.getClass().getSimpleName());
     this.conf = conf;
     this.server = getServer();
+    this.localServer = getLocalServer();
+    this.localServer.init(conf);
     super.serviceInit(conf);
   }
 
@@ -85,15 +96,24 @@ public class ClientService extends AbstractService
         workerThreads, ApplicationStarGateProtocol.class, this);
   }
 
+  LocalServer getLocalServer() {
+    return new LocalServer(new ApplicationStarGateProtocolService.Processor<>(
+        new ApplicationStarGateProtocolServiceThriftImpl(this)));
+  }
+
   @Override
   protected void serviceStart() throws Exception {
     this.server.start();
+    this.localServer.start();
     info("Successfully started service '{}'", this.getClass().getSimpleName());
     super.serviceStart();
   }
 
   @Override
   protected void serviceStop() throws Exception {
+    if (this.localServer != null) {
+      this.localServer.stop();
+    }
     if (this.server != null) {
       this.server.stop();
     }
@@ -163,6 +183,18 @@ public class ClientService extends AbstractService
           Worker.valueOf(NameSpace.DEFAULT_ACCELERATOR_WORKER.toUpperCase()));
     }
 
+    long retryAfter = context.getScheduler().getRetryAfter(
+        resource.getAcceleratorWorkload(), launchContext.getUserAppId());
+    if (retryAfter > 0) {
+      warn("Reject application {} (userAppId: {}) since the queue of "
+          + "workload {} is full, retry after {} ms",
+          submissionContext.getApplicationId(), launchContext.getUserAppId(),
+          resource.getAcceleratorWorkload(), retryAfter);
+      response.setApplicationState(ApplicationState.REJECT);
+      response.setRetryAfter(retryAfter);
+      return response;
+    }
+
     appManager.submitApplication(submissionContext);
 
     info(
@@ -190,6 +222,74 @@ public class ClientService extends AbstractService
     return response;
   }
 
+  @Override
+  public PutBlockDataResponse putBlockData(PutBlockDataRequest request)
+      throws StarGateException, IOException, TException {
+    long received = getMemoryStore().writeChunk(request.getPath(),
+        request.getUploadId(), request.getOffset(), request.getCapacity(),
+        request.getData(), request.isLast());
+    return PutBlockDataResponse.newInstance(received);
+  }
+
+  @Override
+  public GetBlockDataResponse getBlockData(GetBlockDataRequest request)
+      throws StarGateException, IOException, TException {
+    String path = request.getPath();
+    BlockStoreMemoryImpl memoryStore = getMemoryStore();
+    long capacity = memoryStore.size(path);
+    ByteBuffer data = capacity < 0 ? ByteBuffer.allocate(0)
+        : memoryStore.readChunk(path, request.getOffset(),
+            request.getLength());
+    return GetBlockDataResponse.newInstance(capacity, data);
+  }
+
+  @Override
+  public OpenLocalChannelResponse openLocalChannel(
+      OpenLocalChannelRequest request)
+      throws StarGateException, IOException, TException {
+    return OpenLocalChannelResponse
+        .newInstance(localServer.open(request.getCapacity()));
+  }
+
+  @Override
+  public GetCardReportsResponse getCardReports(GetCardReportsRequest request)
+      throws StarGateException, IOException, TException {
+    String workload = request.getWorkload();
+    List<CardReport> reports = new ArrayList<>();
+    for (Object cardId : context.getScheduler().getNodeAccelerators()
+        .keySet()) {
+      CardReport report = getCardReport((String) cardId);
+      if (workload == null || hostsWorkload(report, workload)) {
+        reports.add(report);
+      }
+    }
+    return GetCardReportsResponse.newInstance(reports);
+  }
+
+  private boolean hostsWorkload(CardReport report, String workload) {
+    for (AcceleratorResource resource : report.getTotalCapability()) {
+      if (workload.equals(resource.getAcceleratorWorkload())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private BlockStoreMemoryImpl getMemoryStore() {
+    return context.getBlockManagerService().getBlockManager().getMemoryStore();
+  }
+
+  private List<CoreReport> getCoreReports(AcceleratorReport acceleratorReport) {
+    List<CoreReport> reports = new ArrayList<>();
+    for (CoreCounters counters : acceleratorReport.getCoreCounters()) {
+      reports.add(CoreReport.newInstance(counters.getCoreId(),
+          counters.getBusyTime(), counters.getDmaTime(),
+          counters.getBytesSent(), counters.getBytesReceived(),
+          counters.getNumRequests(), counters.getNumReprograms()));
+    }
+    return reports;
+  }
+
   public CardReport getCardReport(String cardId) throws StarGateException {
     AcceleratorReport acceleratorReport =
         context.getScheduler().getCardReport(cardId);
@@ -198,8 +298,12 @@ public class ClientService extends AbstractService
       report.setCardId(cardId);
       report.setHttpAddress(Utils.getLocalHostLANAddress().getHostAddress());
       report.setNumTasks(acceleratorReport.getNum());
+      report.setNumPreemptions(acceleratorReport.getNumPreemptions());
+      report.setPreemptionWastedTime(
+          acceleratorReport.getPreemptionWastedTime());
       report.setUsedCapability(acceleratorReport.getUsed().getAllResources());
       report.setTotalCapability(acceleratorReport.getTotal().getAllResources());
+      report.setCoreReports(getCoreReports(acceleratorReport));
     } catch (SocketException e) {
       error("get local ip exception");
       throw new StarGateException(e);
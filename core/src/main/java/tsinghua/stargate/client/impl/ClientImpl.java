@@ -18,56 +18,175 @@
 package tsinghua.stargate.client.impl;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
 
 import org.apache.thrift.TException;
+import org.apache.thrift.transport.TTransportException;
+
+import com.google.common.annotations.VisibleForTesting;
 
 import tsinghua.stargate.client.Application;
 import tsinghua.stargate.client.Client;
 import tsinghua.stargate.client.proxy.ClientProxy;
 import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
 import tsinghua.stargate.exception.StarGateException;
+import tsinghua.stargate.exception.StarGateRejectedException;
 import tsinghua.stargate.exception.StarGateRuntimeException;
 import tsinghua.stargate.rpc.ApplicationStarGateProtocol;
+import tsinghua.stargate.rpc.local.LocalChannel;
+import tsinghua.stargate.rpc.local.LocalProtocolClient;
 import tsinghua.stargate.rpc.message.*;
 import tsinghua.stargate.rpc.message.entity.ApplicationId;
 import tsinghua.stargate.rpc.message.entity.ApplicationReport;
 import tsinghua.stargate.rpc.message.entity.ApplicationState;
 import tsinghua.stargate.rpc.message.entity.ApplicationSubmissionContext;
+import tsinghua.stargate.rpc.message.entity.CardReport;
+import tsinghua.stargate.rpc.thrift.ApplicationStarGateProtocolClientThriftImpl;
 import tsinghua.stargate.rpc.workhorse.RpcManager;
 import tsinghua.stargate.util.ReflectionUtils;
+import tsinghua.stargate.util.Utils;
 
 /** The implementation of {@link Client Client}. */
 public class ClientImpl extends Client {
 
   private ApplicationStarGateProtocol sgdClient;
+  private ApplicationStarGateProtocol rpcClient;
+  private LocalProtocolClient localClient;
+  private int chunkSize;
 
   public ClientImpl() {
     super("ClientImpl");
   }
 
+  /** Package-scoped constructor for testing over the given protocol. */
+  @VisibleForTesting
+  ClientImpl(ApplicationStarGateProtocol protocol, int chunkSize) {
+    this();
+    this.rpcClient = protocol;
+    this.sgdClient = protocol;
+    this.chunkSize = chunkSize;
+  }
+
   @Override
   protected void serviceInit(Configuration conf) throws Exception {
     info("Init service '{}'", this.getClass().getSimpleName());
+    chunkSize = conf.getInt(NameSpace.RPC_DATA_CHUNK_SIZE,
+        NameSpace.DEFAULT_RPC_DATA_CHUNK_SIZE);
     super.serviceInit(conf);
   }
 
   @Override
   protected void serviceStart() throws Exception {
-    sgdClient =
+    rpcClient =
         ClientProxy.createProxy(getConfig(), ApplicationStarGateProtocol.class);
+    sgdClient = rpcClient;
+    maybeOpenLocalChannel(getConfig());
     info("Successfully started service '{}'", this.getClass().getSimpleName());
     super.serviceStart();
   }
 
   @Override
   protected void serviceStop() throws Exception {
-    if (sgdClient != null) {
-      RpcManager.stopProxy(sgdClient);
+    closeLocalChannel(sgdClient);
+    if (rpcClient != null) {
+      RpcManager.stopProxy(rpcClient);
     }
     info("Successfully stopped service '{}'", this.getClass().getSimpleName());
     super.serviceStop();
   }
 
+  /**
+   * Switch to a shared-memory channel if {@code StarGateDaemon} runs on this
+   * host and accepts one, keeping the socket RPC otherwise.
+   */
+  private void maybeOpenLocalChannel(Configuration conf) {
+    if (!conf.getBoolean(NameSpace.RPC_LOCAL_ENABLED,
+        NameSpace.DEFAULT_RPC_LOCAL_ENABLED)) {
+      return;
+    }
+    InetSocketAddress address = conf.getSocketAddr(
+        NameSpace.RPC_SERVER_ADDRESS, NameSpace.DEFAULT_RPC_SERVER_ADDRESS,
+        NameSpace.DEFAULT_RPC_SERVER_PORT);
+    if (!Utils.isLocalAddress(address.getAddress())) {
+      return;
+    }
+
+    int ringSize = conf.getInt(NameSpace.RPC_LOCAL_RING_SIZE,
+        NameSpace.DEFAULT_RPC_LOCAL_RING_SIZE);
+    int timeout = conf.getInt(NameSpace.RPC_CLIENT_SOCKET_TIMEOUT,
+        NameSpace.DEFAULT_CLIENT_RPC_SOCKET_TIMEOUT);
+    try {
+      String path = rpcClient
+          .openLocalChannel(OpenLocalChannelRequest.newInstance(ringSize))
+          .getPath();
+      if (path == null) {
+        info("StarGateDaemon refused a local channel, using socket");
+        return;
+      }
+      localClient = new LocalProtocolClient(LocalChannel.open(path), timeout);
+      sgdClient = new ApplicationStarGateProtocolClientThriftImpl(localClient);
+      info("Talking to StarGateDaemon through local channel {}", path);
+    } catch (Exception e) {
+      warn("Failed to open a local channel, using socket", e);
+    }
+  }
+
+  /** A call on the {@code StarGateDaemon} protocol. */
+  private interface Call<T> {
+    T call(ApplicationStarGateProtocol protocol)
+        throws StarGateException, IOException, TException;
+  }
+
+  /**
+   * Run {@code call} on the current protocol. If the local channel fails, it
+   * is dropped and the call is repeated over the socket, unless it timed out
+   * and the daemon may have handled it already.
+   */
+  private <T> T invoke(Call<T> call)
+      throws StarGateException, IOException, TException {
+    ApplicationStarGateProtocol protocol = getProtocol();
+    if (protocol == rpcClient) {
+      return call.call(protocol);
+    }
+    try {
+      return call.call(protocol);
+    } catch (TTransportException e) {
+      warn("Local channel failed, falling back to socket", e);
+      closeLocalChannel(protocol);
+      if (e.getType() == TTransportException.TIMED_OUT) {
+        throw e;
+      }
+      return call.call(rpcClient);
+    }
+  }
+
+  /**
+   * Return the protocol to use, reopening the local channel if the daemon
+   * closed it since the last call, e.g. for being idle.
+   */
+  private synchronized ApplicationStarGateProtocol getProtocol() {
+    if (localClient != null && localClient.isClosed()) {
+      info("Local channel was closed, reopening it");
+      closeLocalChannel(sgdClient);
+      maybeOpenLocalChannel(getConfig());
+    }
+    return sgdClient;
+  }
+
+  /** Go back to the socket if {@code failed} is still the protocol in use. */
+  private synchronized void closeLocalChannel(
+      ApplicationStarGateProtocol failed) {
+    if (localClient != null && sgdClient == failed) {
+      localClient.close();
+      localClient = null;
+      sgdClient = rpcClient;
+    }
+  }
+
   @Override
   public Application createApplication()
       throws StarGateException, IOException, TException {
@@ -85,7 +204,7 @@ public class ClientImpl extends Client {
         || request.getAppState() == null) {
       request.setAppState(ApplicationState.NEW);
     }
-    return sgdClient.getNewApplication(request);
+    return invoke(protocol -> protocol.getNewApplication(request));
   }
 
   @Override
@@ -108,7 +227,15 @@ public class ClientImpl extends Client {
         ReflectionUtils.get().getMsg(SubmitApplicationRequest.class);
     request.setAppSubmissionContext(appSubmissionContext);
 
-    SubmitApplicationResponse response = sgdClient.submitApplication(request);
+    SubmitApplicationResponse response =
+        invoke(protocol -> protocol.submitApplication(request));
+    if (response.getApplicationState() == ApplicationState.REJECT) {
+      throw new StarGateRejectedException(
+          "StarGateDaemon rejected application "
+              + appSubmissionContext.getApplicationId() + ", retry after "
+              + response.getRetryAfter() + " ms",
+          response.getRetryAfter());
+    }
     return response.getApplicationState();
   }
 
@@ -120,7 +247,70 @@ public class ClientImpl extends Client {
     GetApplicationReportRequest request =
         ReflectionUtils.get().getMsg(GetApplicationReportRequest.class);
     request.setApplicationId(appId);
-    response = sgdClient.getApplicationReport(request);
+    response = invoke(protocol -> protocol.getApplicationReport(request));
     return response.getApplicationReport();
   }
-}
\ No newline at end of file
+
+  @Override
+  public void putBlockData(String path, ByteBuffer data)
+      throws StarGateException, IOException, TException {
+    ByteBuffer source = data.duplicate();
+    long capacity = source.remaining();
+    String uploadId = UUID.randomUUID().toString();
+    long offset = 0;
+    do {
+      int length = (int) Math.min(chunkSize, capacity - offset);
+      ByteBuffer chunk = source.slice();
+      chunk.limit(length);
+      source.position(source.position() + length);
+      if (!chunk.hasArray()) {
+        // Thrift protocols only serialize heap buffers
+        ByteBuffer heap = ByteBuffer.allocate(length);
+        heap.put(chunk);
+        heap.flip();
+        chunk = heap;
+      }
+
+      boolean last = offset + length == capacity;
+      PutBlockDataRequest request = PutBlockDataRequest.newInstance(path,
+          uploadId, offset, capacity, chunk, last);
+      offset = invoke(protocol -> protocol.putBlockData(request)).getReceived();
+    } while (offset < capacity);
+  }
+
+  @Override
+  public ByteBuffer getBlockData(String path)
+      throws StarGateException, IOException, TException {
+    GetBlockDataRequest request =
+        GetBlockDataRequest.newInstance(path, 0, chunkSize);
+    GetBlockDataResponse response =
+        invoke(protocol -> protocol.getBlockData(request));
+    long capacity = response.getCapacity();
+    if (capacity < 0) {
+      return null;
+    }
+
+    ByteBuffer block = ByteBuffer.allocate((int) capacity);
+    block.put(response.getData());
+    while (block.hasRemaining()) {
+      request.setOffset(block.position());
+      ByteBuffer chunk =
+          invoke(protocol -> protocol.getBlockData(request)).getData();
+      if (chunk == null || !chunk.hasRemaining()) {
+        throw new StarGateException("Block " + path + " was truncated at "
+            + block.position() + " of " + capacity + " bytes");
+      }
+      block.put(chunk);
+    }
+    block.flip();
+    return block;
+  }
+
+  @Override
+  public List<CardReport> getCardReports(String workload)
+      throws StarGateException, IOException, TException {
+    GetCardReportsRequest request = GetCardReportsRequest.newInstance(workload);
+    return invoke(protocol -> protocol.getCardReports(request))
+        .getCardReports();
+  }
+}
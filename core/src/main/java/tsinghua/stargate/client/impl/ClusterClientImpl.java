@@ -0,0 +1,299 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.client.impl;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.thrift.TException;
+
+import com.google.common.base.Splitter;
+
+import tsinghua.stargate.client.Application;
+import tsinghua.stargate.client.Client;
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.conf.StarGateConf;
+import tsinghua.stargate.exception.StarGateException;
+import tsinghua.stargate.exception.StarGateRuntimeException;
+import tsinghua.stargate.rpc.message.entity.ApplicationId;
+import tsinghua.stargate.rpc.message.entity.ApplicationReport;
+import tsinghua.stargate.rpc.message.entity.ApplicationState;
+import tsinghua.stargate.rpc.message.entity.ApplicationSubmissionContext;
+import tsinghua.stargate.rpc.message.entity.BlockStoreType;
+import tsinghua.stargate.rpc.message.entity.CardReport;
+import tsinghua.stargate.rpc.message.entity.ServiceData;
+import tsinghua.stargate.util.PathUtils;
+
+/**
+ * A {@link Client Client} balancing applications over the
+ * {@code StarGateDaemon}s listed in {@code stargate.rpc.cluster.addresses}.
+ *
+ * <p>
+ * Every daemon is reached through its own {@link ClientImpl}. Before creating
+ * an application, the card reports of all daemons are aggregated, at most once
+ * per {@code stargate.rpc.cluster.report.interval}, and the application is
+ * created on a daemon with an idle core hosting its workload, preferring one
+ * holding its input. All later calls for the application go to that daemon.
+ */
+public class ClusterClientImpl extends Client {
+
+  private static final Splitter ADDRESS_SPLITTER =
+      Splitter.on(',').trimResults().omitEmptyStrings();
+
+  private final Map<String, Client> daemons = new LinkedHashMap<>();
+
+  /** The daemon each application was created on. */
+  private final ConcurrentMap<ApplicationId, Client> owners =
+      new ConcurrentHashMap<>();
+
+  /** The daemon each pushed block was stored on. */
+  private final ConcurrentMap<String, String> blockLocations =
+      new ConcurrentHashMap<>();
+
+  /**
+   * The daemon the blocks of each directory are stored on, so that an
+   * application reading the directory finds all of them on its daemon.
+   */
+  private final ConcurrentMap<String, String> dirLocations =
+      new ConcurrentHashMap<>();
+
+  private Map<String, DaemonLoad> loads = new LinkedHashMap<>();
+  private long reportInterval;
+  private long reportTime;
+
+  public ClusterClientImpl() {
+    super("ClusterClientImpl");
+  }
+
+  /**
+   * Get the addresses of the daemons listed in
+   * {@code stargate.rpc.cluster.addresses}.
+   *
+   * @param conf a configuration profiler
+   * @return the addresses of the daemons
+   */
+  public static List<String> getAddresses(Configuration conf) {
+    String addresses = conf.get(NameSpace.RPC_CLUSTER_ADDRESSES);
+    if (addresses == null) {
+      return new ArrayList<>();
+    }
+    return ADDRESS_SPLITTER.splitToList(addresses);
+  }
+
+  @Override
+  protected void serviceInit(Configuration conf) throws Exception {
+    info("Init service '{}'", this.getClass().getSimpleName());
+    reportInterval = conf.getInt(NameSpace.RPC_CLUSTER_REPORT_INTERVAL,
+        NameSpace.DEFAULT_RPC_CLUSTER_REPORT_INTERVAL);
+    for (String address : getAddresses(conf)) {
+      // Keep the caller's timeouts, chunk size, wire and channel settings
+      StarGateConf daemonConf = new StarGateConf(conf);
+      daemonConf.set(NameSpace.RPC_SERVER_ADDRESS, address);
+      Client client = Client.create();
+      client.init(daemonConf);
+      daemons.put(address, client);
+    }
+    super.serviceInit(conf);
+  }
+
+  @Override
+  protected void serviceStart() throws Exception {
+    for (Client client : daemons.values()) {
+      client.start();
+    }
+    info("Successfully started service '{}' over {} daemons",
+        this.getClass().getSimpleName(), daemons.size());
+    super.serviceStart();
+  }
+
+  @Override
+  protected void serviceStop() throws Exception {
+    for (Client client : daemons.values()) {
+      client.stop();
+    }
+    info("Successfully stopped service '{}'", this.getClass().getSimpleName());
+    super.serviceStop();
+  }
+
+  @Override
+  public Application createApplication()
+      throws StarGateException, IOException, TException {
+    return createApplication(null, null);
+  }
+
+  @Override
+  public Application createApplication(String workload, ServiceData input)
+      throws StarGateException, IOException, TException {
+    String address = selectDaemon(workload, input, true);
+    Client client = daemons.get(address);
+    Application app = client.createApplication();
+    ApplicationId appId = app.getNewApplicationResponse().getApplicationId();
+    owners.put(appId, client);
+    info("Created application {} on StarGateDaemon {}", appId, address);
+    return app;
+  }
+
+  @Override
+  public ApplicationState submitApplication(
+      ApplicationSubmissionContext appSubmissionContext)
+      throws StarGateException, IOException, TException {
+    return getOwner(appSubmissionContext.getApplicationId())
+        .submitApplication(appSubmissionContext);
+  }
+
+  @Override
+  public ApplicationReport getApplicationReport(ApplicationId appId)
+      throws StarGateException, IOException, TException {
+    return getOwner(appId).getApplicationReport(appId);
+  }
+
+  private Client getOwner(ApplicationId appId) {
+    Client client = owners.get(appId);
+    if (client == null) {
+      throw new StarGateRuntimeException(
+          "Application " + appId + " was not created by this client");
+    }
+    return client;
+  }
+
+  @Override
+  public void putBlockData(String path, ByteBuffer data)
+      throws StarGateException, IOException, TException {
+    int slash = path.lastIndexOf(PathUtils.SEPARATOR);
+    String dir = slash < 0 ? path : path.substring(0, slash);
+    String address = dirLocations.computeIfAbsent(dir,
+        key -> selectDaemon(null, null, false));
+    daemons.get(address).putBlockData(path, data);
+    blockLocations.put(path, address);
+  }
+
+  @Override
+  public ByteBuffer getBlockData(String path)
+      throws StarGateException, IOException, TException {
+    String address = blockLocations.get(path);
+    if (address != null) {
+      return daemons.get(address).getBlockData(path);
+    }
+    // Results are stored on whichever daemon ran the application
+    for (Client client : daemons.values()) {
+      ByteBuffer block = client.getBlockData(path);
+      if (block != null) {
+        return block;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public List<CardReport> getCardReports(String workload)
+      throws StarGateException, IOException, TException {
+    List<CardReport> reports = new ArrayList<>();
+    for (Client client : daemons.values()) {
+      reports.addAll(client.getCardReports(workload));
+    }
+    return reports;
+  }
+
+  /**
+   * Select the daemon to create an application of {@code workload} on, or to
+   * store the blocks of a directory on if {@code workload} is {@code null}.
+   * Only applications, given as {@code task}, count towards the load of the
+   * daemon until the next reports arrive.
+   */
+  private synchronized String selectDaemon(String workload,
+      ServiceData input, boolean task) {
+    long now = System.currentTimeMillis();
+    if (now - reportTime >= reportInterval) {
+      loads = getLoads();
+      reportTime = now;
+    }
+
+    DaemonLoad load = DaemonLoad.select(loads.values(), workload,
+        getLocalDaemons(input));
+    if (load == null) {
+      String address = daemons.keySet().iterator().next();
+      warn("No reachable StarGateDaemon hosts workload {}, falling back to {}",
+          workload, address);
+      return address;
+    }
+    if (task) {
+      load.assign(workload);
+    }
+    return load.getAddress();
+  }
+
+  private Map<String, DaemonLoad> getLoads() {
+    Map<String, DaemonLoad> fresh = new LinkedHashMap<>();
+    for (Map.Entry<String, Client> daemon : daemons.entrySet()) {
+      String address = daemon.getKey();
+      try {
+        fresh.put(address,
+            new DaemonLoad(address, daemon.getValue().getCardReports(null)));
+      } catch (StarGateException | IOException | TException e) {
+        warn("Failed to get card reports from StarGateDaemon {}", address, e);
+      }
+    }
+    return fresh;
+  }
+
+  /**
+   * Get the addresses of the daemons holding {@code input}, i.e. the one the
+   * in-heap blocks under its path were pushed to, or those running on the host
+   * named in its path.
+   */
+  private Set<String> getLocalDaemons(ServiceData input) {
+    Set<String> local = new HashSet<>();
+    if (input == null || input.getStorePath() == null) {
+      return local;
+    }
+
+    String path = input.getStorePath();
+    if (input.getStoreType() == BlockStoreType.IN_HEAP) {
+      for (Map.Entry<String, String> dir : dirLocations.entrySet()) {
+        if (dir.getKey().startsWith(path)) {
+          local.add(dir.getValue());
+        }
+      }
+      return local;
+    }
+
+    String host;
+    try {
+      host = URI.create(path).getHost();
+    } catch (IllegalArgumentException e) {
+      return local;
+    }
+    if (host != null) {
+      for (DaemonLoad load : loads.values()) {
+        if (load.isOn(host)) {
+          local.add(load.getAddress());
+        }
+      }
+    }
+    return local;
+  }
+}
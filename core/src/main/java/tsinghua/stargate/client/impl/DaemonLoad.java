@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.client.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
+import tsinghua.stargate.rpc.message.entity.CardReport;
+
+/**
+ * The load of one {@code StarGateDaemon} as seen by {@link ClusterClientImpl},
+ * summarized from the {@link CardReport reports} of its cards.
+ */
+class DaemonLoad {
+
+  private final String address;
+  private final String host;
+  private final Set<String> hostAddresses = new HashSet<>();
+
+  /** Number of cores hosting each workload. */
+  private final Map<String, Integer> totalCores = new HashMap<>();
+
+  /** Number of idle cores hosting each workload. */
+  private final Map<String, Integer> freeCores = new HashMap<>();
+
+  private int numTasks;
+
+  DaemonLoad(String address, List<CardReport> reports) {
+    this.address = address;
+    int colon = address.lastIndexOf(':');
+    this.host = colon < 0 ? address : address.substring(0, colon);
+    for (CardReport report : reports) {
+      hostAddresses.add(report.getHttpAddress());
+      numTasks += Math.max(report.getNumTasks(), 0);
+
+      Set<Integer> usedCores = new HashSet<>();
+      for (AcceleratorResource used : report.getUsedCapability()) {
+        usedCores.add(used.getAcceleratorCoreId());
+      }
+      for (AcceleratorResource core : report.getTotalCapability()) {
+        String workload = core.getAcceleratorWorkload();
+        add(totalCores, workload, 1);
+        add(freeCores, workload,
+            usedCores.contains(core.getAcceleratorCoreId()) ? 0 : 1);
+      }
+    }
+  }
+
+  private static void add(Map<String, Integer> cores, String workload,
+      int delta) {
+    Integer num = cores.get(workload);
+    cores.put(workload, (num == null ? 0 : num) + delta);
+  }
+
+  private static int count(Map<String, Integer> cores, String workload) {
+    if (workload == null) {
+      int sum = 0;
+      for (int num : cores.values()) {
+        sum += num;
+      }
+      return sum;
+    }
+    Integer num = cores.get(workload);
+    return num == null ? 0 : num;
+  }
+
+  /**
+   * Select the daemon to run {@code workload}. Daemons with an idle core
+   * hosting the workload come first, then daemons holding the input, then
+   * those with more idle cores. Among busy daemons the one with the fewest
+   * tasks per core wins.
+   *
+   * @param loads the loads of the daemons
+   * @param workload the workload to run, or {@code null} for any
+   * @param local the addresses of the daemons holding the input
+   * @return the selected daemon, or {@code null} if none hosts the workload
+   */
+  static DaemonLoad select(Collection<DaemonLoad> loads, String workload,
+      Set<String> local) {
+    DaemonLoad best = null;
+    for (DaemonLoad load : loads) {
+      if (load.getTotalCores(workload) == 0) {
+        continue;
+      }
+      if (best == null || load.compareTo(best, workload, local) < 0) {
+        best = load;
+      }
+    }
+    return best;
+  }
+
+  private int compareTo(DaemonLoad other, String workload, Set<String> local) {
+    int free = getFreeCores(workload);
+    int otherFree = other.getFreeCores(workload);
+    if ((free > 0) != (otherFree > 0)) {
+      return free > 0 ? -1 : 1;
+    }
+    boolean isLocal = local.contains(address);
+    if (isLocal != local.contains(other.address)) {
+      return isLocal ? -1 : 1;
+    }
+    if (free != otherFree) {
+      return free > otherFree ? -1 : 1;
+    }
+    // Compare numTasks / totalCores without dividing
+    return Long.compare((long) numTasks * other.getTotalCores(workload),
+        (long) other.numTasks * getTotalCores(workload));
+  }
+
+  /**
+   * Account for a task of {@code workload} sent to this daemon until the next
+   * reports arrive, so that a burst of submissions is spread out.
+   *
+   * @param workload the workload of the task, or {@code null} for any
+   */
+  void assign(String workload) {
+    numTasks++;
+    if (workload != null && count(freeCores, workload) > 0) {
+      add(freeCores, workload, -1);
+    }
+  }
+
+  /**
+   * Whether this daemon runs on {@code host}, given as a name or an address.
+   *
+   * @param host the name or address of a host
+   * @return {@code true} if this daemon runs on {@code host}
+   */
+  boolean isOn(String host) {
+    return this.host.equals(host) || hostAddresses.contains(host);
+  }
+
+  String getAddress() {
+    return address;
+  }
+
+  int getNumTasks() {
+    return numTasks;
+  }
+
+  int getTotalCores(String workload) {
+    return count(totalCores, workload);
+  }
+
+  int getFreeCores(String workload) {
+    return count(freeCores, workload);
+  }
+}
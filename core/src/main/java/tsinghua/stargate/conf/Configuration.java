@@ -156,6 +156,33 @@ public class Configuration extends Log implements Serializable {
     }
   }
 
+  /** A new configuration loading the default resources. */
+  public Configuration() {
+  }
+
+  /**
+   * A new configuration with the same resources and settings as
+   * {@code other}. Later changes to either configuration do not affect the
+   * other.
+   *
+   * @param other the configuration to copy
+   */
+  @SuppressWarnings("unchecked")
+  public Configuration(Configuration other) {
+    synchronized (other) {
+      resources = (ArrayList<Resource>) other.resources.clone();
+      if (other.properties != null) {
+        properties = (Properties) other.properties.clone();
+      }
+      finalParameters = new HashSet<>(other.finalParameters);
+    }
+    objectSettings = new ConcurrentHashMap<>(other.objectSettings);
+    quietmode = other.quietmode;
+    allowNullValueProperties = other.allowNullValueProperties;
+    loadDefaults = other.loadDefaults;
+    classLoader = other.classLoader;
+  }
+
   /**
    * Add a default resource. Resources are loaded in the order of the resources
    * added.
@@ -186,6 +213,20 @@ public class Configuration extends Log implements Serializable {
     addResourceObject(new Resource(name));
   }
 
+  /**
+   * Add a configuration resource.
+   *
+   * The properties of this resource will override properties of previously
+   * added resources, unless they were marked <a href="#Final">final</a>.
+   *
+   * @param file file-path of resource to be added, the local filesystem is
+   *          examined directly to find the resource, without referring to the
+   *          classpath.
+   */
+  public void addResource(Path file) {
+    addResourceObject(new Resource(file));
+  }
+
   /**
    * Reload configuration from previously added resources.
    *
@@ -25,6 +25,19 @@ public class NameSpace {
   ////////////////////////////////////////////////
   private static final String STARGATE_PREFIX = "stargate.";
 
+  /** Local directory for scratch files, e.g. shared-memory rings. */
+  public static final String LOCAL_DIR = STARGATE_PREFIX + "local.dir";
+  public static final String DEFAULT_LOCAL_DIR = "/tmp/stargate";
+
+  /**
+   * Run tasks and RPC workers on virtual threads, one per job, when the JVM
+   * supports them (Java 21 or later). Tasks doing FPGA I/O gain nothing yet, as
+   * the channels pin their carrier threads during DMA.
+   */
+  public static final String VIRTUAL_THREADS_ENABLED =
+      STARGATE_PREFIX + "virtual.threads.enabled";
+  public static final boolean DEFAULT_VIRTUAL_THREADS_ENABLED = false;
+
   ////////////////////////////////////////////////
   ////////////////////////////////////////////////
   /// Application Configurations
@@ -45,6 +58,33 @@ public class NameSpace {
   static final String APP_SERVICEDATA_OUTPUT =
       APP_PREFIX + "servicedata.output";
 
+  /**
+   * Relative deadline in milliseconds of the submitted application, counted
+   * from its submission. Non-positive means no deadline.
+   */
+  static final String APP_DEADLINE = APP_PREFIX + "deadline-ms";
+  public static final long DEFAULT_APP_DEADLINE = 0L;
+
+  /** Priority class of the submitted application, larger is more urgent. */
+  static final String APP_PRIORITY = APP_PREFIX + "priority";
+  public static final int DEFAULT_APP_PRIORITY = 0;
+
+  /**
+   * Number of identical accelerator cores a task asks for, its data blocks are
+   * partitioned across them and processed concurrently. 0 asks for all free
+   * cores serving the workload.
+   */
+  static final String APP_CORES = APP_PREFIX + "cores";
+  public static final int DEFAULT_APP_CORES = 1;
+
+  /**
+   * Number of accelerator cards a task spans. A task spanning more than one
+   * card is gang scheduled: it gets one core on each of that many cards at
+   * once, or waits.
+   */
+  static final String APP_CARDS = APP_PREFIX + "cards";
+  public static final int DEFAULT_APP_CARDS = 1;
+
   ////////////////////////////////////////////////
   ////////////////////////////////////////////////
   /// RPC Configurations
@@ -135,8 +175,68 @@ public class NameSpace {
       RPC_PREFIX + "thrift.frame.length.max";
   // 16 MB
   public static final int DEFAULT_RPC_THRIFT_FRAME_LENGTH_MAX = 16777216;
+
+  /** Wire protocol used by clients: compact, binary or json. */
+  public static final String RPC_THRIFT_PROTOCOL =
+      RPC_PREFIX + "thrift.protocol";
+  public static final String DEFAULT_RPC_THRIFT_PROTOCOL = "compact";
+
+  /** Frame compression used by clients: none, lz4 or zstd. */
+  public static final String RPC_THRIFT_COMPRESSION_CODEC =
+      RPC_PREFIX + "thrift.compression.codec";
+  public static final String DEFAULT_RPC_THRIFT_COMPRESSION_CODEC = "none";
+
+  /** Frames smaller than this many bytes are never compressed. */
+  public static final String RPC_THRIFT_COMPRESSION_THRESHOLD =
+      RPC_PREFIX + "thrift.compression.threshold";
+  // 64 KB
+  public static final int DEFAULT_RPC_THRIFT_COMPRESSION_THRESHOLD = 65536;
+
+  /** Message size after decompression, which may exceed the frame size. */
+  public static final String RPC_THRIFT_MESSAGE_LENGTH_MAX =
+      RPC_PREFIX + "thrift.message.length.max";
+  // 256 MB
+  public static final int DEFAULT_RPC_THRIFT_MESSAGE_LENGTH_MAX = 268435456;
+
+  /** Size of chunks shipped by the block data RPCs, below the frame size. */
+  public static final String RPC_DATA_CHUNK_SIZE =
+      RPC_PREFIX + "data.chunk.size";
+  // 4 MB
+  public static final int DEFAULT_RPC_DATA_CHUNK_SIZE = 4194304;
   // -- End of Apache Thrift RPC --
 
+  // -- Beginning of RPC Local Transport --
+  /** Whether clients on the daemon host talk through shared memory. */
+  public static final String RPC_LOCAL_ENABLED = RPC_PREFIX + "local.enabled";
+  public static final boolean DEFAULT_RPC_LOCAL_ENABLED = false;
+
+  /** Capacity of each shared-memory ring, larger than a data chunk. */
+  public static final String RPC_LOCAL_RING_SIZE =
+      RPC_PREFIX + "local.ring.size";
+  // 8 MB
+  public static final int DEFAULT_RPC_LOCAL_RING_SIZE = 8388608;
+
+  /** How long the daemon keeps an idle shared-memory channel open. */
+  public static final String RPC_LOCAL_IDLE_TIMEOUT =
+      RPC_PREFIX + "local.idle.timeout";
+  public static final int DEFAULT_RPC_LOCAL_IDLE_TIMEOUT = 600000; // 10 min
+  // -- End of RPC Local Transport --
+
+  // -- Beginning of RPC Cluster --
+  /**
+   * Comma separated socket addresses of the StarGateDaemons a client balances
+   * submissions over. With fewer than two, only {@code RPC_SERVER_ADDRESS} is
+   * used.
+   */
+  public static final String RPC_CLUSTER_ADDRESSES =
+      RPC_PREFIX + "cluster.addresses";
+
+  /** How long a client reuses the card reports of the daemons. */
+  public static final String RPC_CLUSTER_REPORT_INTERVAL =
+      RPC_PREFIX + "cluster.report.interval";
+  public static final int DEFAULT_RPC_CLUSTER_REPORT_INTERVAL = 1000; // 1s
+  // -- End of RPC Cluster --
+
   ////////////////////////////////////////////////
   ////////////////////////////////////////////////
   /// Scheduler Configurations
@@ -149,6 +249,56 @@ public class NameSpace {
       SCHEDULER_PREFIX + "interval";
   public static final int DEFAULT_SCHEDULING_INTERVAL = 1000;
 
+  /**
+   * Policy ordering queues and tasks: "fair" for weighted fair sharing, "edf"
+   * for priority classes and earliest deadline first.
+   */
+  public static final String SCHEDULING_POLICY = SCHEDULER_PREFIX + "policy";
+  public static final String DEFAULT_SCHEDULING_POLICY = "fair";
+
+  /**
+   * How long in milliseconds a task may wait under the "edf" policy before it
+   * is scheduled ahead of higher priority and earlier deadline tasks.
+   */
+  public static final String SCHEDULING_STARVATION_THRESHOLD =
+      SCHEDULER_PREFIX + "starvation.threshold-ms";
+  public static final long DEFAULT_SCHEDULING_STARVATION_THRESHOLD = 60000L;
+
+  /**
+   * Whether a waiting task may reclaim a core from a running task of a lower
+   * priority. The core is handed over at the next request boundary of the
+   * running task, whose remaining blocks are requeued.
+   */
+  public static final String SCHEDULING_PREEMPTION_ENABLED =
+      SCHEDULER_PREFIX + "preemption.enabled";
+  public static final boolean DEFAULT_SCHEDULING_PREEMPTION_ENABLED = false;
+
+  /** How many times a single task may be preempted before it is immune. */
+  public static final String SCHEDULING_PREEMPTION_MAX_PER_TASK =
+      SCHEDULER_PREFIX + "preemption.max-per-task";
+  public static final int DEFAULT_SCHEDULING_PREEMPTION_MAX_PER_TASK = 3;
+
+  /**
+   * Path of the allocation file defining the weights, min and max shares,
+   * policies and admission limits of queues. Unset for none.
+   */
+  public static final String SCHEDULING_ALLOCATION_FILE =
+      SCHEDULER_PREFIX + "allocation.file";
+
+  /** How often in milliseconds the allocation file is checked for changes. */
+  public static final String SCHEDULING_ALLOCATION_RELOAD_INTERVAL =
+      SCHEDULER_PREFIX + "allocation.reload-interval-ms";
+  public static final long DEFAULT_SCHEDULING_ALLOCATION_RELOAD_INTERVAL =
+      10000L;
+
+  /**
+   * Half-life in milliseconds of the hardware time fair sharing charges to
+   * queues. 0 to never forget past usage.
+   */
+  public static final String SCHEDULING_USAGE_HALF_LIFE =
+      SCHEDULER_PREFIX + "usage.half-life-ms";
+  public static final long DEFAULT_SCHEDULING_USAGE_HALF_LIFE = 60000L;
+
   ////////////////////////////////////////////////
   ////////////////////////////////////////////////
   /// Storage Configurations
@@ -182,6 +332,20 @@ public class NameSpace {
       STORAGE_PREFIX + "thread.count";
   public static final int DEFAULT_STORAGE_THREAD_COUNT = 4;
 
+  /**
+   * Bytes the memory store may hold in blocks and pending uploads before it
+   * refuses uploads, non-positive for the maximum memory of the JVM.
+   */
+  public static final String STORAGE_MEMORY_CAPACITY =
+      STORAGE_PREFIX + "memory.capacity";
+  public static final long DEFAULT_STORAGE_MEMORY_CAPACITY = -1;
+
+  /** How long an upload may go without a chunk before it is dropped. */
+  public static final String STORAGE_MEMORY_UPLOAD_TIMEOUT =
+      STORAGE_PREFIX + "memory.upload.timeout";
+  public static final long DEFAULT_STORAGE_MEMORY_UPLOAD_TIMEOUT =
+      600000; // 10 min
+
   ////////////////////////////////////////////////
   ////////////////////////////////////////////////
   /// Task Configurations
@@ -193,6 +357,28 @@ public class NameSpace {
   public static final String TASK_THREAD_COUNT = TASK_PREFIX + "thread.count";
   public static final int DEFAULT_TASK_THREAD_COUNT = 20;
 
+  /**
+   * File to append the phase timeline of every finished task to, in the
+   * Chrome trace event format. Tracing is off if unset.
+   */
+  public static final String TASK_TRACE_FILE = TASK_PREFIX + "trace.file";
+
+  /**
+   * Number of idle application class loaders to keep, so that resubmitted
+   * applications run with their classes already loaded.
+   */
+  public static final String TASK_CLASSLOADER_CACHE_SIZE =
+      TASK_PREFIX + "classloader.cache.size";
+  public static final int DEFAULT_TASK_CLASSLOADER_CACHE_SIZE = 16;
+
+  /**
+   * Number of idle StarGateApp instances to keep per class and class loader
+   * for reuse by later tasks. Off by default, as only stateless applications
+   * can be reused.
+   */
+  public static final String TASK_APP_POOL_SIZE = TASK_PREFIX + "app.pool.size";
+  public static final int DEFAULT_TASK_APP_POOL_SIZE = 0;
+
   ////////////////////////////////////////////////
   ////////////////////////////////////////////////
   /// Accelerator Configurations
@@ -225,6 +411,19 @@ public class NameSpace {
       ACCELERATOR_WORKLOAD_PREFIX + "weight";
 
   public static final float DEFAULT_ACCELERATOR_WORKLOAD_WEIGHT = 1.0f;
+
+  /** Bitstream that configures a core for the suffixed workload. */
+  public static final String ACCELERATOR_WORKLOAD_BITSTREAM_PREFIX =
+      ACCELERATOR_WORKLOAD_PREFIX + "bitstream.";
+
+  /**
+   * Estimated cost in milliseconds of reprogramming a core for the suffixed
+   * workload. A core is only reprogrammed once the accumulated waiting time of
+   * the pending tasks of that workload exceeds this cost.
+   */
+  public static final String ACCELERATOR_WORKLOAD_RECONFIG_COST_PREFIX =
+      ACCELERATOR_WORKLOAD_PREFIX + "reconfig.cost-ms.";
+  public static final long DEFAULT_ACCELERATOR_WORKLOAD_RECONFIG_COST = 2000L;
   // -- End of accelerator workload, i.e., workload --
 
   // -- Beginning of physical accelerator --
@@ -252,5 +451,101 @@ public class NameSpace {
   public static final String ACCELERATOR_CORE_FREQUENCY_PREFIX =
       ACCELERATOR_CORE_PREFIX + "frequency-Mb.";
   public static final int DEFAULT_ACCELERATOR_CORE_FREQUENCY = 200;
+
+  /** Whether the cores of the suffixed accelerator can be reprogrammed. */
+  public static final String ACCELERATOR_CORE_RECONFIGURABLE_PREFIX =
+      ACCELERATOR_CORE_PREFIX + "reconfigurable.";
+  public static final boolean DEFAULT_ACCELERATOR_CORE_RECONFIGURABLE = false;
+
+  /**
+   * NUMA node the suffixed accelerator is attached to. Discovered from the
+   * PCIe location of the accelerator if unset.
+   */
+  public static final String ACCELERATOR_NUMA_NODE_PREFIX =
+      ACCELERATOR_PREFIX + "numa-node.";
+
+  /**
+   * PCIe location of the suffixed accelerator, e.g. "0000:81:00.0", used to
+   * discover its NUMA node. Asked from the driver for FPGAs if unset.
+   */
+  public static final String ACCELERATOR_PCI_ADDRESS_PREFIX =
+      ACCELERATOR_PREFIX + "pci-address.";
+
+  /**
+   * Number of NUMA nodes to emulate on hosts with a single one, accelerators
+   * being spread over them by index. 0 for the topology of the host.
+   */
+  public static final String ACCELERATOR_NUMA_EMULATED_NODES =
+      ACCELERATOR_PREFIX + "numa.emulated-nodes";
+  public static final int DEFAULT_ACCELERATOR_NUMA_EMULATED_NODES = 0;
   // -- End of physical accelerator --
+
+  // -- Beginning of accelerator reconfiguration --
+  /**
+   * Emulated reprogramming delay in milliseconds. A non-negative value replaces
+   * the real bitstream download with a sleep, which is useful for testing the
+   * reconfiguration policy without FPGA boards.
+   */
+  public static final String ACCELERATOR_RECONFIG_EMULATED_DELAY =
+      ACCELERATOR_PREFIX + "reconfig.emulated.delay-ms";
+  public static final long DEFAULT_ACCELERATOR_RECONFIG_EMULATED_DELAY = -1L;
+  // -- End of accelerator reconfiguration --
+
+  // -- Beginning of accelerator channel --
+  /**
+   * Number of idle FPGA channels kept open for later requests of the same
+   * core and module configuration. 0 closes a channel after every request.
+   */
+  public static final String ACCELERATOR_CHANNEL_POOL_SIZE =
+      ACCELERATOR_PREFIX + "channel.pool.size";
+  public static final int DEFAULT_ACCELERATOR_CHANNEL_POOL_SIZE = 16;
+  // -- End of accelerator channel --
+
+  // -- Beginning of accelerator queue --
+  private static final String ACCELERATOR_QUEUE_PREFIX =
+      ACCELERATOR_PREFIX + "queue.";
+
+  /**
+   * How many tasks of a leaf queue are admitted to compete for cores. Suffix a
+   * queue, e.g. ".loopback.app", or a workload, e.g. ".loopback", to override
+   * it for that queue or every queue of that workload. 0 admits as many tasks
+   * as there are cores hosting the workload, a negative value admits all.
+   */
+  public static final String ACCELERATOR_QUEUE_MAX_RUNNING =
+      ACCELERATOR_QUEUE_PREFIX + "max-running";
+  public static final int DEFAULT_ACCELERATOR_QUEUE_MAX_RUNNING = 0;
+
+  /**
+   * How many tasks of a leaf queue are parked beyond the admitted ones before
+   * submissions are rejected, a negative value parks all. Suffixed like
+   * {@link #ACCELERATOR_QUEUE_MAX_RUNNING}.
+   */
+  public static final String ACCELERATOR_QUEUE_MAX_PENDING =
+      ACCELERATOR_QUEUE_PREFIX + "max-pending";
+  public static final int DEFAULT_ACCELERATOR_QUEUE_MAX_PENDING = -1;
+
+  /** The least time in milliseconds a rejected submission is told to wait. */
+  public static final String ACCELERATOR_QUEUE_RETRY_AFTER =
+      ACCELERATOR_QUEUE_PREFIX + "retry-after-ms";
+  public static final long DEFAULT_ACCELERATOR_QUEUE_RETRY_AFTER = 1000L;
+  // -- End of accelerator queue --
+
+  ////////////////////////////////////////////////
+  ////////////////////////////////////////////////
+  /// Metrics Configurations
+  ////////////////////////////////////////////////
+  ////////////////////////////////////////////////
+  private static final String METRICS_PREFIX = STARGATE_PREFIX + "metrics.";
+
+  /** Register the metrics of the daemon as a JMX MBean. */
+  public static final String METRICS_JMX_ENABLED =
+      METRICS_PREFIX + "jmx.enabled";
+  public static final boolean DEFAULT_METRICS_JMX_ENABLED = true;
+
+  /**
+   * Port of the HTTP endpoint serving the metrics as Prometheus text on
+   * /metrics. Negative for no endpoint, 0 for any free port.
+   */
+  public static final String METRICS_HTTP_PORT = METRICS_PREFIX + "http.port";
+  public static final int DEFAULT_METRICS_HTTP_PORT = -1;
 }
@@ -38,8 +38,7 @@ public class StarGateConf extends Configuration {
   }
 
   public StarGateConf(Configuration conf) {
-    if (!(conf instanceof StarGateConf))
-      this.reloadConfiguration();
+    super(conf);
   }
 
   public StarGateConf setAppName(String appName) {
@@ -118,6 +117,42 @@ public class StarGateConf extends Configuration {
     return (Map<String, String>) getObject(NameSpace.APP_RESOURCES);
   }
 
+  public StarGateConf setDeadline(long deadlineMs) {
+    set(NameSpace.APP_DEADLINE, Long.toString(deadlineMs));
+    return this;
+  }
+
+  public long getDeadline() {
+    return getLong(NameSpace.APP_DEADLINE, NameSpace.DEFAULT_APP_DEADLINE);
+  }
+
+  public StarGateConf setPriority(int priority) {
+    setInt(NameSpace.APP_PRIORITY, priority);
+    return this;
+  }
+
+  public int getPriority() {
+    return getInt(NameSpace.APP_PRIORITY, NameSpace.DEFAULT_APP_PRIORITY);
+  }
+
+  public StarGateConf setCores(int cores) {
+    setInt(NameSpace.APP_CORES, cores);
+    return this;
+  }
+
+  public int getCores() {
+    return getInt(NameSpace.APP_CORES, NameSpace.DEFAULT_APP_CORES);
+  }
+
+  public StarGateConf setCards(int cards) {
+    setInt(NameSpace.APP_CARDS, cards);
+    return this;
+  }
+
+  public int getCards() {
+    return getInt(NameSpace.APP_CARDS, NameSpace.DEFAULT_APP_CARDS);
+  }
+
   public BlockManager getBlockManager() {
     return new BlockManagerImpl(new Configuration());
   }
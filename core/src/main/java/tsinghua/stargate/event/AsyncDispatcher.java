@@ -26,6 +26,9 @@ import tsinghua.stargate.annotation.InterfaceAudience.Public;
 import tsinghua.stargate.annotation.InterfaceStability.Evolving;
 import tsinghua.stargate.conf.Configuration;
 import tsinghua.stargate.exception.StarGateRuntimeException;
+import tsinghua.stargate.metrics.Counter;
+import tsinghua.stargate.metrics.Histogram;
+import tsinghua.stargate.metrics.MetricsRegistry;
 import tsinghua.stargate.service.AbstractService;
 import tsinghua.stargate.util.ShutdownHookManager;
 
@@ -33,6 +36,12 @@ import tsinghua.stargate.util.ShutdownHookManager;
 @Evolving
 public class AsyncDispatcher extends AbstractService implements Dispatcher {
 
+  private static final Histogram DISPATCH_LATENCY = MetricsRegistry.get()
+      .histogram("stargate_dispatcher_dispatch_latency_us",
+          "Time taken by handlers to handle an event");
+  private static final Counter EVENTS = MetricsRegistry.get().counter(
+      "stargate_dispatcher_events_total", "Events dispatched");
+
   private final BlockingQueue<Event> eventQueue;
   private volatile boolean stopped;
   private Thread eventHandlingThread;
@@ -48,6 +57,8 @@ public class AsyncDispatcher extends AbstractService implements Dispatcher {
     this.stopped = false;
     this.eventQueue = eventQueue;
     this.eventDispatchers = new HashMap<>();
+    MetricsRegistry.get().gauge("stargate_dispatcher_queue_depth",
+        "Events waiting in the event queue", eventQueue::size);
   }
 
   Runnable createThread() {
@@ -114,6 +125,7 @@ public class AsyncDispatcher extends AbstractService implements Dispatcher {
 
     Class type = event.getType().getDeclaringClass();
 
+    long start = System.nanoTime();
     try {
       EventHandler handler = this.eventDispatchers.get(type);
       if (handler == null) {
@@ -128,6 +140,9 @@ public class AsyncDispatcher extends AbstractService implements Dispatcher {
         info("Exiting, bye...");
         System.exit(-1);
       }
+    } finally {
+      DISPATCH_LATENCY.recordSince(start);
+      EVENTS.inc();
     }
 
   }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.exception;
+
+/**
+ * `StarGateRejectedException` is thrown when {@code StarGateDaemon} turns an
+ * application down since its queue is full. It carries how long to wait before
+ * submitting the application again.
+ */
+public class StarGateRejectedException extends StarGateException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final long retryAfter;
+
+  public StarGateRejectedException(String msg, long retryAfter) {
+    super(msg);
+    this.retryAfter = retryAfter;
+  }
+
+  /**
+   * Get how long in milliseconds to wait before retrying the submission.
+   *
+   * @return the wait before retrying
+   */
+  public long getRetryAfter() {
+    return retryAfter;
+  }
+}
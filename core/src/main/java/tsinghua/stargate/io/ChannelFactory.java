@@ -26,7 +26,7 @@ class ChannelFactory {
   static FpgaChannel newFpgaChannel(int id, int core, int off, boolean last,
       int readTimeout, int writeTimeout) throws IOException {
     FpgaDescriptor fd = open(id);
-    return FpgaChannelImpl.open(fd, null, core, off, last, readTimeout,
+    return FpgaChannelImpl.open(fd, null, id, core, off, last, readTimeout,
         writeTimeout);
   }
 
@@ -39,7 +39,7 @@ class ChannelFactory {
   static FpgaChannel newFpgaChannel(int id, int core, ModuleConfig config)
       throws IOException {
     FpgaDescriptor fd = open(id, config);
-    return FpgaChannelImpl.open(fd, null, core, config);
+    return FpgaChannelImpl.open(fd, null, id, core, config);
   }
 
   // Open a Xilinx OpenCL device.
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.io;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hardware counters of one accelerator core, shared by every channel and task
+ * using the core. Counters only grow, readers take differences between two
+ * reads to get the usage over an interval.
+ *
+ * <p>
+ * {@code busyTime} is the time requests held the core, of which
+ * {@code dmaTime} went to moving data through {@link FpgaChannel}s. The rest
+ * of the busy time is compute, and the time the core was not busy is idle.
+ */
+public final class CoreCounters {
+
+  private static final ConcurrentMap<Long, CoreCounters> CORES =
+      new ConcurrentHashMap<>();
+
+  /** Value of {@code requestStart} while no request holds the core. */
+  private static final long IDLE = Long.MIN_VALUE;
+
+  private final int cardId;
+  private final int coreId;
+
+  private final LongAdder busyTime = new LongAdder();
+  private final LongAdder dmaTime = new LongAdder();
+  private final LongAdder bytesSent = new LongAdder();
+  private final LongAdder bytesReceived = new LongAdder();
+  private final LongAdder numRequests = new LongAdder();
+  private final LongAdder numReprograms = new LongAdder();
+  /** {@link System#nanoTime()} the running request started at, or IDLE. */
+  private volatile long requestStart = IDLE;
+
+  private CoreCounters(int cardId, int coreId) {
+    this.cardId = cardId;
+    this.coreId = coreId;
+  }
+
+  /**
+   * Get the counters of a core, created on first use.
+   *
+   * @param cardId the index of the card
+   * @param coreId the id of the core in the card
+   * @return the counters of the core
+   */
+  public static CoreCounters get(int cardId, int coreId) {
+    long key = ((long) cardId << 32) | (coreId & 0xffffffffL);
+    CoreCounters counters = CORES.get(key);
+    if (counters == null) {
+      counters = CORES.computeIfAbsent(key,
+          k -> new CoreCounters(cardId, coreId));
+    }
+    return counters;
+  }
+
+  public int getCardId() {
+    return cardId;
+  }
+
+  public int getCoreId() {
+    return coreId;
+  }
+
+  /**
+   * Mark the core held by a request, until the request is accounted by
+   * {@link #recordRequest(long)}.
+   *
+   * @param start the {@link System#nanoTime()} the request started at
+   */
+  public void startRequest(long start) {
+    requestStart = start;
+  }
+
+  /**
+   * Account a request processed by the core.
+   *
+   * @param nanos how long in nanoseconds the request held the core
+   */
+  public void recordRequest(long nanos) {
+    numRequests.increment();
+    busyTime.add(nanos);
+    requestStart = IDLE;
+  }
+
+  /**
+   * Account bytes written to the core.
+   *
+   * @param bytes the number of bytes written
+   * @param nanos how long in nanoseconds the write took
+   */
+  public void recordSend(long bytes, long nanos) {
+    bytesSent.add(Math.max(bytes, 0));
+    dmaTime.add(nanos);
+  }
+
+  /**
+   * Account bytes read from the core.
+   *
+   * @param bytes the number of bytes read
+   * @param nanos how long in nanoseconds the read took
+   */
+  public void recordReceive(long bytes, long nanos) {
+    bytesReceived.add(Math.max(bytes, 0));
+    dmaTime.add(nanos);
+  }
+
+  /** Account a new bitstream downloaded to the core. */
+  public void recordReprogram() {
+    numReprograms.increment();
+  }
+
+  /** @return nanoseconds the core was held by requests */
+  public long getBusyTime() {
+    return busyTime.sum();
+  }
+
+  /**
+   * @param now the current {@link System#nanoTime()}
+   * @return nanoseconds the core was held by requests, including the time
+   *         the running request has held it so far
+   */
+  public long getBusyTime(long now) {
+    long start = requestStart;
+    long busy = busyTime.sum();
+    return start == IDLE ? busy : busy + Math.max(now - start, 0);
+  }
+
+  /** @return nanoseconds spent moving data to and from the core */
+  public long getDmaTime() {
+    return dmaTime.sum();
+  }
+
+  public long getBytesSent() {
+    return bytesSent.sum();
+  }
+
+  public long getBytesReceived() {
+    return bytesReceived.sum();
+  }
+
+  public long getNumRequests() {
+    return numRequests.sum();
+  }
+
+  public long getNumReprograms() {
+    return numReprograms.sum();
+  }
+}
@@ -265,6 +265,20 @@ public class Fpga implements Serializable {
       return this.name[pos];
     }
 
+    /**
+     * Returns the location of the FPGA whose id is {@code id}.
+     *
+     * @return the location of the FPGA, or {@code null} if no FPGA has the id
+     */
+    public String getLocationById(int id) {
+      for (int pos = 0; pos < this.numFpgas; pos++) {
+        if (this.id[pos] == id) {
+          return this.name[pos];
+        }
+      }
+      return null;
+    }
+
     /**
      * Sets the location of the FPGA at position {@code pos}.
      *
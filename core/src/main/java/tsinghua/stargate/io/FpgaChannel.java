@@ -162,6 +162,14 @@ public abstract class FpgaChannel extends AbstractInterruptibleChannel
     }
   }
 
+  /**
+   * Reset the FPGA through the device this channel holds open, instead of
+   * opening it again like {@link #reset(int)}.
+   *
+   * @throws IOException If an I/O error occurs
+   */
+  public abstract void reset() throws IOException;
+
   // Set the configuration of a Xilinx OpenCL device.
   public static void setConfigOp(int id, Object obj) throws IOException {
 //    FpgaDispatcherImpl.setConfigOp(id, (ModuleConfig) obj);
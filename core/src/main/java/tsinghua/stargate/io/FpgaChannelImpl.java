@@ -21,27 +21,43 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 
+import tsinghua.stargate.metrics.Counter;
+import tsinghua.stargate.metrics.Histogram;
+import tsinghua.stargate.metrics.MetricsRegistry;
+
 /** The implementation of {@link FpgaChannel FpgaChannel}. */
 public class FpgaChannelImpl extends FpgaChannel {
 
+  private static final Counter BYTES_SENT = MetricsRegistry.get().counter(
+      "stargate_fpga_sent_bytes_total", "Bytes written to FPGA channels");
+  private static final Counter BYTES_RECEIVED = MetricsRegistry.get().counter(
+      "stargate_fpga_received_bytes_total", "Bytes read from FPGA channels");
+  private static final Histogram DMA_LATENCY = MetricsRegistry.get()
+      .histogram("stargate_fpga_dma_latency_us",
+          "Time taken by a read or write of an FPGA channel");
+
   private final FpgaDescriptor fd;
   private final FpgaDispatcher nd;
   private final Object parent;
   private final NativeThreadSet threads = new NativeThreadSet(2);
   private final Object lock = new Object();
+  private final int card;
   private int core;
+  private CoreCounters counters;
   private int off;
   private boolean last;
   private int readTimeout;
   private int writeTimeout;
   private ModuleConfig config;
 
-  private FpgaChannelImpl(FpgaDescriptor fd, Object parent, int core, int off,
-      boolean last, int readTimeout, int writeTimeout) {
+  private FpgaChannelImpl(FpgaDescriptor fd, Object parent, int card,
+      int core, int off, boolean last, int readTimeout, int writeTimeout) {
     this.fd = fd;
     this.nd = new FpgaDispatcherImpl();
     this.parent = parent;
+    this.card = card;
     this.core = core;
+    this.counters = CoreCounters.get(card, core);
     this.off = off;
     this.last = last;
     this.readTimeout = readTimeout;
@@ -49,24 +65,26 @@ public class FpgaChannelImpl extends FpgaChannel {
   }
 
   // Constructor for Xilinx OpenCL FPGA
-  private FpgaChannelImpl(FpgaDescriptor fd, Object parent, int core,
-      ModuleConfig config) {
+  private FpgaChannelImpl(FpgaDescriptor fd, Object parent, int card,
+      int core, ModuleConfig config) {
     this.fd = fd;
     this.nd = new FpgaDispatcherImpl();
     this.parent = parent;
+    this.card = card;
     this.core = core;
+    this.counters = CoreCounters.get(card, core);
     this.config = config;
   }
 
-  public static FpgaChannel open(FpgaDescriptor fd, Object parent, int core,
-      int off, boolean last, int readTimeout, int writeTimeout) {
-    return new FpgaChannelImpl(fd, parent, core, off, last, readTimeout,
+  public static FpgaChannel open(FpgaDescriptor fd, Object parent, int card,
+      int core, int off, boolean last, int readTimeout, int writeTimeout) {
+    return new FpgaChannelImpl(fd, parent, card, core, off, last, readTimeout,
         writeTimeout);
   }
 
-  public static FpgaChannel open(FpgaDescriptor fd, Object parent, int core,
-      ModuleConfig config) {
-    return new FpgaChannelImpl(fd, parent, core, config);
+  public static FpgaChannel open(FpgaDescriptor fd, Object parent, int card,
+      int core, ModuleConfig config) {
+    return new FpgaChannelImpl(fd, parent, card, core, config);
   }
 
   private void ensureOpen() throws IOException {
@@ -96,6 +114,7 @@ public class FpgaChannelImpl extends FpgaChannel {
     synchronized (this.lock) {
       int size = 0;
       int index = -1;
+      long start = System.nanoTime();
 
       try {
         this.begin();
@@ -114,6 +133,10 @@ public class FpgaChannelImpl extends FpgaChannel {
       } finally {
         this.threads.remove(index);
         this.end(size > 0);
+        long elapsed = System.nanoTime() - start;
+        counters.recordReceive(size, elapsed);
+        BYTES_RECEIVED.add(Math.max(size, 0));
+        DMA_LATENCY.record(elapsed / 1000);
         assert IOStatus.check(size);
       }
     }
@@ -125,6 +148,7 @@ public class FpgaChannelImpl extends FpgaChannel {
     synchronized (this.lock) {
       int size = 0;
       int index = -1;
+      long start = System.nanoTime();
 
       byte code;
       try {
@@ -143,15 +167,28 @@ public class FpgaChannelImpl extends FpgaChannel {
       } finally {
         this.threads.remove(index);
         this.end(size > 0);
+        long elapsed = System.nanoTime() - start;
+        counters.recordSend(size, elapsed);
+        BYTES_SENT.add(Math.max(size, 0));
+        DMA_LATENCY.record(elapsed / 1000);
         assert IOStatus.check(size);
       }
       return code;
     }
   }
 
+  @Override
+  public void reset() throws IOException {
+    this.ensureOpen();
+    synchronized (this.lock) {
+      IOUtils.reset(this.fd, this.nd);
+    }
+  }
+
   @Override
   public void setCore(int core) throws IOException {
     this.core = core;
+    this.counters = CoreCounters.get(card, core);
   }
 
   @Override
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.io;
+
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Objects;
+
+import tsinghua.stargate.Log;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.metrics.Counter;
+import tsinghua.stargate.metrics.MetricsRegistry;
+
+/**
+ * Daemon-wide pool of open {@link FpgaChannel FPGA channels}, so that the
+ * requests of a core do not open and close the device, and load its
+ * bitstream, every time.
+ *
+ * <p>
+ * Channels are pooled per card, core and {@link ModuleConfig}, as the native
+ * device context is configured when it is opened. A leased channel is used by
+ * one request at a time and goes back to the pool when {@link #release
+ * released}; beyond {@link NameSpace#ACCELERATOR_CHANNEL_POOL_SIZE} the idle
+ * channels released the longest ago are closed. Reprogramming a core
+ * {@link #invalidate(int, int) invalidates} its channels. `FpgaChannelPool` class
+ * is implemented by employing `The Singleton Pattern`.
+ */
+public final class FpgaChannelPool extends Log {
+
+  private static final FpgaChannelPool SELF =
+      new FpgaChannelPool(FpgaChannelPool::open);
+
+  private static final Counter HITS = MetricsRegistry.get().counter(
+      "stargate_channel_pool_hits_total",
+      "Requests that reused an open FPGA channel");
+  private static final Counter MISSES = MetricsRegistry.get().counter(
+      "stargate_channel_pool_misses_total",
+      "Requests that opened an FPGA channel");
+
+  private final Opener opener;
+
+  /** Idle channels, the one released the longest ago first. */
+  private final LinkedList<Idle> idle = new LinkedList<>();
+  /** Keys of the leased channels that may go back to the pool. */
+  private final Map<FpgaChannel, Key> leased = new IdentityHashMap<>();
+
+  private int capacity = NameSpace.DEFAULT_ACCELERATOR_CHANNEL_POOL_SIZE;
+
+  FpgaChannelPool(Opener opener) {
+    this.opener = opener;
+  }
+
+  public static FpgaChannelPool get() {
+    return SELF;
+  }
+
+  private static FpgaChannel open(int card, int core, ModuleConfig config)
+      throws IOException {
+    return config == null ? FpgaChannel.open(card, core)
+        : FpgaChannel.open(card, core, config);
+  }
+
+  /**
+   * Set the number of idle channels to keep, closing those beyond it.
+   *
+   * @param capacity the number of idle channels, 0 to close every channel
+   *          once released
+   */
+  public void configure(int capacity) {
+    synchronized (this) {
+      this.capacity = capacity;
+    }
+    evict();
+  }
+
+  /**
+   * Lease an open channel to a core, opening one if none is idle.
+   *
+   * @param card the FPGA card identification
+   * @param core the index of sub-channel
+   * @param config the module configuration, null for a Riffa channel
+   * @return a channel used by nobody else until it is released
+   * @throws IOException if a channel cannot be opened
+   */
+  public FpgaChannel lease(int card, int core, ModuleConfig config)
+      throws IOException {
+    Key key = new Key(card, core, config == null ? null : config.copy());
+    FpgaChannel channel = takeIdle(key);
+    if (channel != null) {
+      HITS.inc();
+      if (config == null) {
+        // Restore what a fresh Riffa channel starts with
+        channel.setOff(0);
+        channel.setLast(true);
+      }
+    } else {
+      MISSES.inc();
+      channel = opener.open(card, core, config);
+    }
+    synchronized (this) {
+      leased.put(channel, key);
+    }
+    return channel;
+  }
+
+  /**
+   * Give a leased channel back to the pool, or close it if it was closed by
+   * an interrupt, has been invalidated, or the pool is full.
+   *
+   * @param channel a channel leased by {@link #lease(int, int, ModuleConfig)}
+   * @throws IOException if the channel cannot be closed
+   */
+  public void release(FpgaChannel channel) throws IOException {
+    Key key;
+    synchronized (this) {
+      key = leased.remove(channel);
+      if (key != null && channel.isOpen() && capacity > 0) {
+        idle.addLast(new Idle(key, channel));
+        channel = null;
+      }
+    }
+    if (channel != null) {
+      channel.close();
+    }
+    evict();
+  }
+
+  /**
+   * Close the idle channels of a core, and the leased ones once released, as
+   * their device contexts are stale after the core is reprogrammed. The
+   * channels of the other cores of the card are kept.
+   *
+   * @param card the FPGA card identification
+   * @param core the index of sub-channel
+   */
+  public void invalidate(int card, int core) {
+    LinkedList<FpgaChannel> stale = new LinkedList<>();
+    synchronized (this) {
+      for (Iterator<Idle> it = idle.iterator(); it.hasNext();) {
+        Idle next = it.next();
+        if (next.key.card == card && next.key.core == core) {
+          it.remove();
+          stale.add(next.channel);
+        }
+      }
+      leased.values()
+          .removeIf(key -> key.card == card && key.core == core);
+    }
+    closeAll(stale);
+  }
+
+  /** Close every idle channel. */
+  public void close() {
+    LinkedList<FpgaChannel> stale = new LinkedList<>();
+    synchronized (this) {
+      for (Idle next : idle) {
+        stale.add(next.channel);
+      }
+      idle.clear();
+    }
+    closeAll(stale);
+  }
+
+  synchronized int getIdleCount() {
+    return idle.size();
+  }
+
+  /** Take the idle channel of a key released the most recently. */
+  private synchronized FpgaChannel takeIdle(Key key) {
+    Iterator<Idle> it = idle.descendingIterator();
+    while (it.hasNext()) {
+      Idle next = it.next();
+      if (next.key.equals(key)) {
+        it.remove();
+        return next.channel;
+      }
+    }
+    return null;
+  }
+
+  private void evict() {
+    LinkedList<FpgaChannel> evicted = new LinkedList<>();
+    synchronized (this) {
+      while (idle.size() > capacity) {
+        evicted.add(idle.removeFirst().channel);
+      }
+    }
+    closeAll(evicted);
+  }
+
+  private void closeAll(Iterable<FpgaChannel> channels) {
+    for (FpgaChannel channel : channels) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        warn("Failed to close FPGA channel: {}", e.getMessage());
+      }
+    }
+  }
+
+  /** Opens the channels of the pool. */
+  interface Opener {
+
+    FpgaChannel open(int card, int core, ModuleConfig config)
+        throws IOException;
+  }
+
+  private static final class Key {
+
+    private final int card;
+    private final int core;
+    private final ModuleConfig config;
+
+    private Key(int card, int core, ModuleConfig config) {
+      this.card = card;
+      this.core = core;
+      this.config = config;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(card, core, config);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) other;
+      return card == that.card && core == that.core
+          && Objects.equals(config, that.config);
+    }
+  }
+
+  private static final class Idle {
+
+    private final Key key;
+    private final FpgaChannel channel;
+
+    private Idle(Key key, FpgaChannel channel) {
+      this.key = key;
+      this.channel = channel;
+    }
+  }
+}
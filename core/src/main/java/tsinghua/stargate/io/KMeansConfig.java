@@ -16,6 +16,8 @@
 
 package tsinghua.stargate.io;
 
+import java.util.Objects;
+
 public class KMeansConfig extends ModuleConfig {
 
   private int writeOverTime;
@@ -146,6 +148,33 @@ public class KMeansConfig extends ModuleConfig {
     return this.accelerateBitFile;
   }
 
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof KMeansConfig)) {
+      return false;
+    }
+    KMeansConfig that = (KMeansConfig) other;
+    return Objects.equals(getType(), that.getType())
+        && writeOverTime == that.writeOverTime
+        && readOverTime == that.readOverTime && writeSize == that.writeSize
+        && readSize == that.readSize && inDataType == that.inDataType
+        && outDataType == that.outDataType
+        && minNclusters == that.minNclusters
+        && maxNclusters == that.maxNclusters
+        && Float.compare(threshold, that.threshold) == 0
+        && Objects.equals(inFileName, that.inFileName)
+        && Objects.equals(outFileName, that.outFileName) && line == that.line
+        && row == that.row
+        && Objects.equals(accelerateBitFile, that.accelerateBitFile);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getType(), writeOverTime, readOverTime, writeSize,
+        readSize, inDataType, outDataType, minNclusters, maxNclusters,
+        threshold, inFileName, outFileName, line, row, accelerateBitFile);
+  }
+
   @Override public String toString() {
     return "KMeansConfig{" +
         "writeOverTime=" + writeOverTime +
@@ -16,7 +16,9 @@
 
 package tsinghua.stargate.io;
 
-public abstract class ModuleConfig {
+import tsinghua.stargate.exception.StarGateRuntimeException;
+
+public abstract class ModuleConfig implements Cloneable {
 
   public enum DATATYPE {
     FILETYPE(0),
@@ -51,6 +53,9 @@ public abstract class ModuleConfig {
 
   public String type;
 
+  /** Path of the bitstream that has to be loaded for this module. */
+  private String accelerateBitPath;
+
   public void setType(String type) {
     this.type = type;
   }
@@ -59,6 +64,28 @@ public abstract class ModuleConfig {
     return type;
   }
 
+  public void setAccelerateBitPath(String path) {
+    this.accelerateBitPath = path;
+  }
+
+  public String getAccelerateBitPath() {
+    return accelerateBitPath;
+  }
+
+  /**
+   * Copy this configuration, so that it can be kept while the original is
+   * changed for later requests.
+   *
+   * @return a copy of this configuration
+   */
+  public ModuleConfig copy() {
+    try {
+      return (ModuleConfig) clone();
+    } catch (CloneNotSupportedException e) {
+      throw new StarGateRuntimeException(e);
+    }
+  }
+
   public abstract void setWriteSize(int size);
 
   public abstract void setReadSize(int size);
@@ -16,6 +16,8 @@
 
 package tsinghua.stargate.io;
 
+import java.util.Objects;
+
 public class RiffaConfig extends ModuleConfig {
 
   public int writeOverTime;
@@ -79,4 +81,23 @@ public class RiffaConfig extends ModuleConfig {
   public int getLast() {
     return this.last;
   }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof RiffaConfig)) {
+      return false;
+    }
+    RiffaConfig that = (RiffaConfig) other;
+    return Objects.equals(getType(), that.getType())
+        && writeOverTime == that.writeOverTime
+        && readOverTime == that.readOverTime && writeSize == that.writeSize
+        && readSize == that.readSize && destoff == that.destoff
+        && last == that.last;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getType(), writeOverTime, readOverTime, writeSize,
+        readSize, destoff, last);
+  }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count. Updates are striped over cells by
+ * {@link LongAdder}, so concurrent updaters do not contend on one word.
+ */
+public class Counter extends Metric {
+
+  private final LongAdder count = new LongAdder();
+
+  Counter(String name, String help, String labelName, String labelValue) {
+    super(name, help, labelName, labelValue);
+  }
+
+  public void inc() {
+    count.increment();
+  }
+
+  public void add(long delta) {
+    count.add(delta);
+  }
+
+  public long get() {
+    return count.sum();
+  }
+
+  @Override
+  String getType() {
+    return "counter";
+  }
+
+  @Override
+  void writeSamples(Appendable out) throws IOException {
+    writeSample(out, "", null, get());
+  }
+
+  @Override
+  void putAttributes(Map<String, Long> attributes) {
+    attributes.put(getAttributeName(""), get());
+  }
+}
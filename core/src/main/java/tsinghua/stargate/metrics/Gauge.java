@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/** A value sampled when the metrics are exported, e.g. a queue depth. */
+public class Gauge extends Metric {
+
+  private final LongSupplier supplier;
+
+  Gauge(String name, String help, String labelName, String labelValue,
+      LongSupplier supplier) {
+    super(name, help, labelName, labelValue);
+    this.supplier = supplier;
+  }
+
+  public long get() {
+    return supplier.getAsLong();
+  }
+
+  @Override
+  String getType() {
+    return "gauge";
+  }
+
+  @Override
+  void writeSamples(Appendable out) throws IOException {
+    writeSample(out, "", null, get());
+  }
+
+  @Override
+  void putAttributes(Map<String, Long> attributes) {
+    attributes.put(getAttributeName(""), get());
+  }
+}
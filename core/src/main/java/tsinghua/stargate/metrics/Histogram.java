@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A distribution of non-negative values, e.g. latencies in microseconds.
+ *
+ * <p>
+ * Like an HDR histogram, values are counted in log-linear buckets: every power
+ * of two is split into {@value #SUB_BUCKETS} buckets of equal width, so a
+ * recorded value is known within 1/{@value #SUB_BUCKETS} of itself whatever
+ * its magnitude. Recording is a few shifts and three atomic adds.
+ */
+public class Histogram extends Metric {
+
+  /** Buckets per power of two, a power of two itself. */
+  static final int SUB_BUCKETS = 8;
+  private static final int SUB_BITS =
+      Integer.numberOfTrailingZeros(SUB_BUCKETS);
+  private static final int NUM_BUCKETS =
+      SUB_BUCKETS + (Long.SIZE - 1 - SUB_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  Histogram(String name, String help, String labelName, String labelValue) {
+    super(name, help, labelName, labelValue);
+  }
+
+  /**
+   * Record a value, negative values being recorded as 0.
+   *
+   * @param value the value to record
+   */
+  public void record(long value) {
+    value = Math.max(value, 0);
+    buckets.incrementAndGet(bucketOf(value));
+    count.increment();
+    sum.add(value);
+    long current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * Record the time elapsed since {@code startNanos} in microseconds.
+   *
+   * @param startNanos a start time given by {@link System#nanoTime()}
+   */
+  public void recordSince(long startNanos) {
+    record((System.nanoTime() - startNanos) / 1000);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Get the value below which {@code percentile} percent of the recorded
+   * values fall, as the upper bound of the bucket holding it.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the value at the percentile, or 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long total = 0;
+    long[] counts = new long[NUM_BUCKETS];
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    long rank = (long) Math.ceil(total * Math.min(percentile, 100) / 100);
+    long seen = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      seen += counts[i];
+      if (counts[i] > 0 && seen >= rank) {
+        return Math.min(upperBoundOf(i), getMax());
+      }
+    }
+    return 0;
+  }
+
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BITS;
+    int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+  }
+
+  /** @return the largest value counted in bucket {@code index} */
+  static long upperBoundOf(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+    int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+    long lower = (long) (SUB_BUCKETS + sub) << shift;
+    return lower + (1L << shift) - 1;
+  }
+
+  @Override
+  String getType() {
+    return "histogram";
+  }
+
+  @Override
+  void writeSamples(Appendable out) throws IOException {
+    // Only buckets that ever counted a value are written
+    long cumulative = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      long bucket = buckets.get(i);
+      if (bucket > 0) {
+        cumulative += bucket;
+        writeSample(out, "_bucket", "le=\"" + upperBoundOf(i) + "\"",
+            cumulative);
+      }
+    }
+    writeSample(out, "_bucket", "le=\"+Inf\"", cumulative);
+    writeSample(out, "_sum", null, getSum());
+    writeSample(out, "_count", null, cumulative);
+  }
+
+  @Override
+  void putAttributes(Map<String, Long> attributes) {
+    attributes.put(getAttributeName("_count"), getCount());
+    attributes.put(getAttributeName("_max"), getMax());
+    attributes.put(getAttributeName("_p50"), getValueAtPercentile(50));
+    attributes.put(getAttributeName("_p99"), getValueAtPercentile(99));
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A named measurement of the daemon, optionally qualified by one label, e.g.
+ * {@code stargate_task_state_duration_us{state="RUNNING"}}.
+ *
+ * <p>
+ * Metrics are updated on hot paths, so updates never lock. Reads used for
+ * exporting are not atomic across the values of a metric.
+ */
+public abstract class Metric {
+
+  private final String name;
+  private final String help;
+  private final String labels;
+
+  Metric(String name, String help, String labelName, String labelValue) {
+    this.name = name;
+    this.help = help;
+    this.labels = labelName == null ? ""
+        : labelName + "=\"" + escape(labelValue) + "\"";
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getHelp() {
+    return help;
+  }
+
+  /** @return the label of the metric as {@code name="value"}, or "" */
+  public String getLabels() {
+    return labels;
+  }
+
+  /** @return the unique key of the metric in a {@link MetricsRegistry} */
+  String getKey() {
+    return labels.isEmpty() ? name : name + "{" + labels + "}";
+  }
+
+  /** @return the Prometheus type of the metric */
+  abstract String getType();
+
+  /**
+   * Write the samples of the metric in the Prometheus text format.
+   *
+   * @param out where to write the samples
+   * @throws IOException if writing fails
+   */
+  abstract void writeSamples(Appendable out) throws IOException;
+
+  /**
+   * Put the values of the metric to export as JMX attributes.
+   *
+   * @param attributes the attributes, indexed by attribute name
+   */
+  abstract void putAttributes(Map<String, Long> attributes);
+
+  void writeSample(Appendable out, String suffix, String extraLabel,
+      long value) throws IOException {
+    out.append(name).append(suffix);
+    if (!labels.isEmpty() || extraLabel != null) {
+      out.append('{').append(labels);
+      if (extraLabel != null) {
+        out.append(labels.isEmpty() ? "" : ",").append(extraLabel);
+      }
+      out.append('}');
+    }
+    out.append(' ').append(Long.toString(value)).append('\n');
+  }
+
+  String getAttributeName(String suffix) {
+    return getKey().replace('"', '\'') + suffix;
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"")
+        .replace("\n", "\\n");
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Exposes every metric of a {@link MetricsRegistry} as a read-only JMX
+ * attribute. Histograms are exposed by their count, max, p50 and p99.
+ */
+public class MetricsMBean implements DynamicMBean {
+
+  private final MetricsRegistry registry;
+
+  public MetricsMBean(MetricsRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public Object getAttribute(String attribute)
+      throws AttributeNotFoundException {
+    Long value = registry.getAttributes().get(attribute);
+    if (value == null) {
+      throw new AttributeNotFoundException("No metric " + attribute);
+    }
+    return value;
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    Map<String, Long> values = registry.getAttributes();
+    AttributeList list = new AttributeList();
+    for (String attribute : attributes) {
+      Long value = values.get(attribute);
+      if (value != null) {
+        list.add(new Attribute(attribute, value));
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute)
+      throws AttributeNotFoundException {
+    throw new AttributeNotFoundException(
+        "Metric " + attribute.getName() + " is read-only");
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature)
+      throws MBeanException, ReflectionException {
+    throw new ReflectionException(
+        new NoSuchMethodException(actionName), "Metrics have no operations");
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    List<MBeanAttributeInfo> infos = new ArrayList<>();
+    for (String attribute : registry.getAttributes().keySet()) {
+      infos.add(new MBeanAttributeInfo(attribute, Long.class.getName(),
+          attribute, true, false, false));
+    }
+    return new MBeanInfo(getClass().getName(), "StarGate daemon metrics",
+        infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+  }
+}
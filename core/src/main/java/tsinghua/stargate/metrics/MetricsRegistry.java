@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * The metrics of the daemon. `MetricsRegistry` class is implemented by
+ * employing `The Singleton Pattern`, so that any component can look up its
+ * metrics once, typically into static fields, and update them lock-free.
+ *
+ * <p>
+ * Metrics are exported through {@link MetricsMBean JMX} and as text in the
+ * Prometheus exposition format by {@link MetricsService}.
+ */
+public final class MetricsRegistry {
+
+  private static final MetricsRegistry SELF = new MetricsRegistry();
+
+  private final ConcurrentMap<String, Metric> metrics =
+      new ConcurrentHashMap<>();
+
+  private MetricsRegistry() {
+  }
+
+  public static MetricsRegistry get() {
+    return SELF;
+  }
+
+  public Counter counter(String name, String help) {
+    return counter(name, help, null, null);
+  }
+
+  /**
+   * Get the counter with the given name and label, created on first use.
+   *
+   * @param name the name of the counter, e.g. stargate_blocks_read_total
+   * @param help what the counter counts
+   * @param labelName the name of the label, or {@code null} for none
+   * @param labelValue the value of the label
+   * @return the counter
+   */
+  public Counter counter(String name, String help, String labelName,
+      String labelValue) {
+    return register(new Counter(name, help, labelName, labelValue));
+  }
+
+  public Histogram histogram(String name, String help) {
+    return histogram(name, help, null, null);
+  }
+
+  /**
+   * Get the histogram with the given name and label, created on first use.
+   *
+   * @param name the name of the histogram, with the unit of its values, e.g.
+   *          stargate_rpc_client_call_latency_us
+   * @param help what the histogram measures
+   * @param labelName the name of the label, or {@code null} for none
+   * @param labelValue the value of the label
+   * @return the histogram
+   */
+  public Histogram histogram(String name, String help, String labelName,
+      String labelValue) {
+    return register(new Histogram(name, help, labelName, labelValue));
+  }
+
+  /**
+   * Register a gauge sampled when metrics are exported. A gauge registered
+   * again under the same name replaces the former one, e.g. when a service is
+   * recreated.
+   *
+   * @param name the name of the gauge
+   * @param help what the gauge measures
+   * @param supplier the source of the values of the gauge
+   */
+  public void gauge(String name, String help, LongSupplier supplier) {
+    Gauge gauge = new Gauge(name, help, null, null, supplier);
+    metrics.put(gauge.getKey(), gauge);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T extends Metric> T register(T metric) {
+    Metric registered = metrics.putIfAbsent(metric.getKey(), metric);
+    if (registered == null) {
+      return metric;
+    }
+    if (registered.getClass() != metric.getClass()) {
+      throw new IllegalArgumentException("Metric " + metric.getKey()
+          + " is already registered as a " + registered.getType());
+    }
+    return (T) registered;
+  }
+
+  /** @return the metrics sorted by name, so that families are contiguous */
+  List<Metric> getMetrics() {
+    List<Metric> sorted = new ArrayList<>(metrics.values());
+    sorted.sort(Comparator.comparing(Metric::getName)
+        .thenComparing(Metric::getLabels));
+    return sorted;
+  }
+
+  /**
+   * Write all metrics in the Prometheus text exposition format.
+   *
+   * @param out where to write the metrics
+   * @throws IOException if writing fails
+   */
+  public void writeText(Appendable out) throws IOException {
+    String family = null;
+    for (Metric metric : getMetrics()) {
+      if (!metric.getName().equals(family)) {
+        family = metric.getName();
+        out.append("# HELP ").append(family).append(' ')
+            .append(metric.getHelp()).append('\n');
+        out.append("# TYPE ").append(family).append(' ')
+            .append(metric.getType()).append('\n');
+      }
+      metric.writeSamples(out);
+    }
+  }
+
+  /** @return the values of all metrics, indexed by JMX attribute name */
+  Map<String, Long> getAttributes() {
+    Map<String, Long> attributes = new LinkedHashMap<>();
+    for (Metric metric : getMetrics()) {
+      metric.putAttributes(attributes);
+    }
+    return attributes;
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.service.AbstractService;
+import tsinghua.stargate.util.ThreadUtils;
+
+/**
+ * Exports the {@link MetricsRegistry metrics} of the daemon through JMX and an
+ * HTTP endpoint serving them as Prometheus text on {@code /metrics}.
+ */
+public class MetricsService extends AbstractService {
+
+  static final String OBJECT_NAME = "tsinghua.stargate:type=Metrics";
+  private static final String CONTENT_TYPE =
+      "text/plain; version=0.0.4; charset=utf-8";
+
+  private final MetricsRegistry registry;
+
+  private boolean jmxEnabled;
+  private int httpPort;
+  private ObjectName objectName;
+  private HttpServer httpServer;
+  private ExecutorService httpExecutor;
+
+  public MetricsService() {
+    this(MetricsRegistry.get());
+  }
+
+  MetricsService(MetricsRegistry registry) {
+    super("MetricsService");
+    this.registry = registry;
+  }
+
+  @Override
+  protected void serviceInit(Configuration conf) throws Exception {
+    info("Init service '{}'", this.getClass().getSimpleName());
+    jmxEnabled = conf.getBoolean(NameSpace.METRICS_JMX_ENABLED,
+        NameSpace.DEFAULT_METRICS_JMX_ENABLED);
+    httpPort = conf.getInt(NameSpace.METRICS_HTTP_PORT,
+        NameSpace.DEFAULT_METRICS_HTTP_PORT);
+    super.serviceInit(conf);
+  }
+
+  @Override
+  protected void serviceStart() throws Exception {
+    if (jmxEnabled) {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      objectName = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(objectName)) {
+        // Left behind by a daemon stopped in the same JVM
+        server.unregisterMBean(objectName);
+      }
+      server.registerMBean(new MetricsMBean(registry), objectName);
+      info("Registered metrics as JMX MBean {}", OBJECT_NAME);
+    }
+    if (httpPort >= 0) {
+      httpServer = HttpServer.create(new InetSocketAddress(httpPort), 0);
+      httpServer.createContext("/metrics", this::scrape);
+      httpExecutor =
+          ThreadUtils.getExecutor().newDaemonCachedThreadPool("Metrics", 1);
+      httpServer.setExecutor(httpExecutor);
+      httpServer.start();
+      info("Serving metrics on http://{}:{}/metrics",
+          httpServer.getAddress().getHostString(),
+          httpServer.getAddress().getPort());
+    }
+    info("Successfully started service '{}'", this.getClass().getSimpleName());
+    super.serviceStart();
+  }
+
+  @Override
+  protected void serviceStop() throws Exception {
+    if (httpServer != null) {
+      httpServer.stop(0);
+      httpExecutor.shutdownNow();
+      httpServer = null;
+    }
+    if (objectName != null) {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      objectName = null;
+    }
+    info("Successfully stopped service '{}'", this.getClass().getSimpleName());
+    super.serviceStop();
+  }
+
+  /** @return the address of the HTTP endpoint, or null if not serving */
+  public InetSocketAddress getHttpAddress() {
+    return httpServer == null ? null : httpServer.getAddress();
+  }
+
+  private void scrape(HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      StringBuilder text = new StringBuilder(4096);
+      registry.writeText(text);
+      byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+}
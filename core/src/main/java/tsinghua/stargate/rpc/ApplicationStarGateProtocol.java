@@ -26,6 +26,7 @@ import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
 import tsinghua.stargate.rpc.message.entity.ApplicationId;
 import tsinghua.stargate.rpc.message.entity.ApplicationLaunchContext;
 import tsinghua.stargate.rpc.message.entity.ApplicationReport;
+import tsinghua.stargate.rpc.message.entity.CardReport;
 
 /**
  * Protocol between applications and {@code StarGateDaemon ANM} which is an API
@@ -116,4 +117,77 @@ public interface ApplicationStarGateProtocol {
       GetApplicationReportRequest request)
       throws StarGateException, IOException, TException;
 
+  /**
+   * Method for client to push a chunk of input data into ANM.
+   *
+   * <p>
+   * Client splits a block into chunks no larger than the RPC frame and sends
+   * them in order via {@link PutBlockDataRequest PutBlockDataRequest}. ANM
+   * assembles the chunks in memory and, on receiving the last one, publishes
+   * the block into its in-heap block store, so that an application whose input
+   * {@code ServiceData} is {@code IN_HEAP} can consume it without touching disk.
+   *
+   * @param request containing a chunk of block data
+   * @return response containing the number of bytes received so far
+   * @throws StarGateException
+   * @throws IOException
+   * @throws TException
+   * @see #getBlockData(GetBlockDataRequest)
+   */
+  PutBlockDataResponse putBlockData(PutBlockDataRequest request)
+      throws StarGateException, IOException, TException;
+
+  /**
+   * Method for client to pull a chunk of a block, e.g. the result of an
+   * application, from the in-heap block store of ANM.
+   *
+   * @param request identifying the block and the range to be read
+   * @return response containing the requested bytes and the block size
+   * @throws StarGateException
+   * @throws IOException
+   * @throws TException
+   * @see #putBlockData(PutBlockDataRequest)
+   */
+  GetBlockDataResponse getBlockData(GetBlockDataRequest request)
+      throws StarGateException, IOException, TException;
+
+  /**
+   * Method for client on the same host as ANM to set up a shared-memory
+   * channel.
+   *
+   * <p>
+   * ANM creates a memory-mapped file under {@code stargate.local.dir} holding
+   * a request ring and a response ring, and serves this protocol over it. The
+   * client maps the returned file and sends subsequent calls through it
+   * instead of the socket. ANM responds without a path if it refuses the
+   * channel, in which case the client keeps using the socket.
+   *
+   * @param request containing the capacity of the rings
+   * @return response containing the path of the channel
+   * @throws StarGateException
+   * @throws IOException
+   * @throws TException
+   */
+  OpenLocalChannelResponse openLocalChannel(OpenLocalChannelRequest request)
+      throws StarGateException, IOException, TException;
+
+  /**
+   * Method for client to get the reports of the accelerator cards managed by
+   * ANM.
+   *
+   * <p>
+   * ANM responds with a {@link CardReport CardReport} for each card hosting
+   * the workload given in {@link GetCardReportsRequest GetCardReportsRequest},
+   * or for every card if no workload is given. Clients talking to several ANMs
+   * use these reports to decide where to submit an application.
+   *
+   * @param request to retrieve reports for the cards
+   * @return response containing the reports of the cards
+   * @throws StarGateException
+   * @throws IOException
+   * @throws TException
+   */
+  GetCardReportsResponse getCardReports(GetCardReportsRequest request)
+      throws StarGateException, IOException, TException;
+
 }
@@ -16,19 +16,54 @@
 
 package tsinghua.stargate.rpc.factory.impl.thrift;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 import tsinghua.stargate.conf.Configuration;
 import tsinghua.stargate.exception.StarGateRuntimeException;
 import tsinghua.stargate.rpc.factory.MessageFactory;
+import tsinghua.stargate.rpc.message.GetApplicationReportRequest;
+import tsinghua.stargate.rpc.message.GetApplicationReportResponse;
+import tsinghua.stargate.rpc.message.GetBlockDataRequest;
+import tsinghua.stargate.rpc.message.GetBlockDataResponse;
+import tsinghua.stargate.rpc.message.GetCardReportsRequest;
+import tsinghua.stargate.rpc.message.GetCardReportsResponse;
+import tsinghua.stargate.rpc.message.GetNewApplicationRequest;
+import tsinghua.stargate.rpc.message.GetNewApplicationResponse;
+import tsinghua.stargate.rpc.message.OpenLocalChannelRequest;
+import tsinghua.stargate.rpc.message.OpenLocalChannelResponse;
+import tsinghua.stargate.rpc.message.PutBlockDataRequest;
+import tsinghua.stargate.rpc.message.PutBlockDataResponse;
+import tsinghua.stargate.rpc.message.SubmitApplicationRequest;
+import tsinghua.stargate.rpc.message.SubmitApplicationResponse;
+import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
+import tsinghua.stargate.rpc.message.entity.ApplicationId;
+import tsinghua.stargate.rpc.message.entity.ApplicationLaunchContext;
+import tsinghua.stargate.rpc.message.entity.ApplicationReport;
+import tsinghua.stargate.rpc.message.entity.ApplicationResourceUsageReport;
+import tsinghua.stargate.rpc.message.entity.ApplicationSubmissionContext;
+import tsinghua.stargate.rpc.message.entity.CardReport;
+import tsinghua.stargate.rpc.message.entity.CoreReport;
+import tsinghua.stargate.rpc.message.entity.ServiceData;
 import tsinghua.stargate.util.ReflectionUtils;
 
 /**
  * The singleton implementation of the {@link MessageFactory MessageFactory},
  * which mainly targets for creating those thrift-serializable protocol objects.
+ *
+ * <p>
+ * Every message type is bound to a {@link Supplier Supplier} generated from
+ * the default constructor of its thrift implementation through
+ * {@link LambdaMetafactory LambdaMetafactory}. The built-in messages are
+ * registered once when the factory is created, so {@code getMsg()} is a map
+ * lookup followed by a plain constructor call, with no reflection on the
+ * request path. Other message types are registered on first use.
  */
 public class MessageFactoryThriftImpl implements MessageFactory {
 
@@ -36,18 +71,43 @@ public class MessageFactoryThriftImpl implements MessageFactory {
 
   private static final String IMPL_THRIFT_CLASS_SUFFIX = "ThriftImpl";
 
+  /** Messages and entities registered when the factory is created. */
+  private static final Class<?>[] BUILTIN_MESSAGES = new Class<?>[] {
+      GetNewApplicationRequest.class, GetNewApplicationResponse.class,
+      SubmitApplicationRequest.class, SubmitApplicationResponse.class,
+      GetApplicationReportRequest.class, GetApplicationReportResponse.class,
+      PutBlockDataRequest.class, PutBlockDataResponse.class,
+      GetBlockDataRequest.class, GetBlockDataResponse.class,
+      OpenLocalChannelRequest.class, OpenLocalChannelResponse.class,
+      GetCardReportsRequest.class, GetCardReportsResponse.class,
+      AcceleratorResource.class, ApplicationId.class,
+      ApplicationLaunchContext.class, ApplicationReport.class,
+      ApplicationResourceUsageReport.class, ApplicationSubmissionContext.class,
+      CardReport.class, CoreReport.class, ServiceData.class };
+
+  private static final MethodType SUPPLIER_TYPE =
+      MethodType.methodType(Supplier.class);
+
+  private static final MethodType GET_TYPE =
+      MethodType.methodType(Object.class);
+
   private volatile static MessageFactoryThriftImpl self;
 
+  private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
   private Configuration conf = new Configuration();
 
   /**
-   * A cache used for storing the {@code Class} object and its
-   * {@code Constructor} object pairs.
+   * A registry used for storing the {@code Class} object and the
+   * {@code Supplier} creating its thrift implementation.
    */
-  private ConcurrentMap<Class<?>, Constructor<?>> cache =
+  private ConcurrentMap<Class<?>, Supplier<?>> registry =
       new ConcurrentHashMap<>();
 
   private MessageFactoryThriftImpl() {
+    for (Class<?> clazz : BUILTIN_MESSAGES) {
+      registry.put(clazz, newSupplier(clazz));
+    }
   }
 
   /**
@@ -68,49 +128,70 @@ public class MessageFactoryThriftImpl implements MessageFactory {
   }
 
   /**
-   * Create a new instance of the given {@code Class} object via invoking the
-   * default constructor. In case of searching the constructor every time, a
-   * cache is employed.
+   * Create a new instance of the given {@code Class} object via the
+   * registered {@code Supplier}. A class seen for the first time is
+   * registered before use.
    *
    * @param clazz the specific {@code Class} object
    * @return a new instance of the given {@code Class} object
    */
   @SuppressWarnings("unchecked")
   public <T> T getMsg(Class<T> clazz) {
-    Constructor<?> constructor = cache.get(clazz);
-    if (constructor == null) {
-      Class<?> thriftClazz;
-      try {
-        thriftClazz = conf.getClassByName(getThriftImplClassName(clazz,
-            IMPL_THRIFT_PACKAGE_SUFFIX, IMPL_THRIFT_CLASS_SUFFIX));
-      } catch (ClassNotFoundException e) {
-        throw new StarGateRuntimeException(
-            "Failed to load class: [" + getThriftImplClassName(clazz,
-                IMPL_THRIFT_PACKAGE_SUFFIX, IMPL_THRIFT_CLASS_SUFFIX) + "]",
-            e);
-      }
-      try {
-        constructor = thriftClazz.getConstructor();
-        constructor.setAccessible(true);
-        cache.putIfAbsent(clazz, constructor);
-      } catch (NoSuchMethodException e) {
-        throw new StarGateRuntimeException(
-            "Could not find the default constructor of class: ["
-                + getThriftImplClassName(clazz, IMPL_THRIFT_PACKAGE_SUFFIX,
-                    IMPL_THRIFT_CLASS_SUFFIX)
-                + "]",
-            e);
+    Supplier<?> supplier = registry.get(clazz);
+    if (supplier == null) {
+      supplier = newSupplier(clazz);
+      Supplier<?> existing = registry.putIfAbsent(clazz, supplier);
+      if (existing != null) {
+        supplier = existing;
       }
     }
+    return (T) supplier.get();
+  }
+
+  /**
+   * Bind the default constructor of the thrift implementation of
+   * {@code clazz} to a {@code Supplier}.
+   *
+   * @param clazz the specific {@code Class} object
+   * @return a {@code Supplier} creating new thrift implementation instances
+   */
+  private Supplier<?> newSupplier(Class<?> clazz) {
+    String implName = getThriftImplClassName(clazz, IMPL_THRIFT_PACKAGE_SUFFIX,
+        IMPL_THRIFT_CLASS_SUFFIX);
+    Class<?> thriftClazz;
+    try {
+      thriftClazz = conf.getClassByName(implName);
+    } catch (ClassNotFoundException e) {
+      throw new StarGateRuntimeException(
+          "Failed to load class: [" + implName + "]", e);
+    }
+
+    MethodHandle constructor;
     try {
-      Object instance = constructor.newInstance();
-      return (T) instance;
-    } catch (InvocationTargetException e) {
-      throw new StarGateRuntimeException(e);
-    } catch (IllegalAccessException e) {
-      throw new StarGateRuntimeException(e);
-    } catch (InstantiationException e) {
-      throw new StarGateRuntimeException(e);
+      constructor = lookup.findConstructor(thriftClazz,
+          MethodType.methodType(void.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new StarGateRuntimeException(
+          "Could not find the default constructor of class: [" + implName
+              + "]",
+          e);
+    }
+
+    try {
+      CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+          SUPPLIER_TYPE, GET_TYPE, constructor, constructor.type());
+      return (Supplier<?>) site.getTarget().invoke();
+    } catch (Throwable e) {
+      // The implementation is not visible to this class loader, so fall back
+      // to invoking the constructor handle directly.
+      final MethodHandle handle = constructor.asType(GET_TYPE);
+      return () -> {
+        try {
+          return handle.invokeExact();
+        } catch (Throwable t) {
+          throw new StarGateRuntimeException(t);
+        }
+      };
     }
   }
 
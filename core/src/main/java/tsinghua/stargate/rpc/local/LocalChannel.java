@@ -0,0 +1,214 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+import java.util.UUID;
+
+import tsinghua.stargate.Log;
+
+/**
+ * A duplex channel between a client and the {@code StarGateDaemon} on the
+ * same host, backed by a memory-mapped file holding two {@link MappedRing
+ * rings}: one carrying requests to the daemon and one carrying responses back.
+ *
+ * <p>
+ * The daemon {@link #create(File, int) creates} the file and hands its path
+ * to the client through the socket RPC; the client then {@link #open(String)
+ * opens} the same file. The directory and the file are private to the user
+ * running the daemon, so only clients running as that user can use channels.
+ */
+public class LocalChannel extends Log {
+
+  private static final int MAGIC = 0x53474c43; // "SGLC"
+  private static final int FILE_HEADER = 64;
+  private static final String FILE_PREFIX = "stargate-channel-";
+  private static final String FILE_SUFFIX = ".ring";
+  private static final Set<PosixFilePermission> DIR_PERMISSIONS =
+      PosixFilePermissions.fromString("rwx------");
+  private static final Set<PosixFilePermission> FILE_PERMISSIONS =
+      PosixFilePermissions.fromString("rw-------");
+
+  private final File file;
+  private final MappedByteBuffer mapped;
+  private final MappedRing requests;
+  private final MappedRing responses;
+  private final boolean owner;
+
+  // Set once the mapping is released, after which the rings are unusable
+  private volatile boolean released = false;
+
+  private LocalChannel(File file, MappedByteBuffer mapped, int capacity,
+      boolean owner) {
+    this.file = file;
+    this.mapped = mapped;
+    this.requests = new MappedRing(mapped, FILE_HEADER, capacity);
+    this.responses = new MappedRing(mapped,
+        FILE_HEADER + MappedRing.sizeOf(capacity), capacity);
+    this.owner = owner;
+  }
+
+  /**
+   * Create a channel file under {@code dir} whose rings hold at least
+   * {@code size} bytes each. On POSIX file systems the directory is made
+   * accessible to its owner only, and the file is readable and writable by
+   * its owner only.
+   *
+   * @param dir the directory of channel files
+   * @param size the minimum capacity of each ring
+   * @return the newly created channel
+   * @throws IOException if the file cannot be created or mapped, or if
+   *           {@code dir} belongs to another user
+   */
+  public static LocalChannel create(File dir, int size) throws IOException {
+    boolean posix = isPosix(dir.toPath().getFileSystem());
+    createDirectory(dir.toPath(), posix);
+    int capacity = MappedRing.roundCapacity(size);
+    File file = new File(dir, FILE_PREFIX + UUID.randomUUID() + FILE_SUFFIX);
+    long length = FILE_HEADER + 2L * MappedRing.sizeOf(capacity);
+
+    if (posix) {
+      Files.createFile(file.toPath(),
+          PosixFilePermissions.asFileAttribute(FILE_PERMISSIONS));
+    } else {
+      Files.createFile(file.toPath());
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(length);
+      MappedByteBuffer mapped =
+          raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+      mapped.putInt(4, capacity);
+      mapped.putInt(0, MAGIC);
+      return new LocalChannel(file, mapped, capacity, true);
+    } catch (IOException e) {
+      file.delete();
+      throw e;
+    }
+  }
+
+  private static boolean isPosix(FileSystem fs) {
+    return fs.supportedFileAttributeViews().contains("posix");
+  }
+
+  private static void createDirectory(Path dir, boolean posix)
+      throws IOException {
+    if (!posix) {
+      Files.createDirectories(dir);
+      return;
+    }
+    if (!Files.isDirectory(dir)) {
+      FileAttribute<Set<PosixFilePermission>> attr =
+          PosixFilePermissions.asFileAttribute(DIR_PERMISSIONS);
+      Files.createDirectories(dir, attr);
+      return;
+    }
+    // Another user could read the rings of a directory it owns
+    UserPrincipal user = dir.getFileSystem().getUserPrincipalLookupService()
+        .lookupPrincipalByName(System.getProperty("user.name"));
+    if (!Files.getOwner(dir).equals(user)) {
+      throw new IOException("Directory " + dir + " is not owned by " + user);
+    }
+    if (!Files.getPosixFilePermissions(dir).equals(DIR_PERMISSIONS)) {
+      Files.setPosixFilePermissions(dir, DIR_PERMISSIONS);
+    }
+  }
+
+  /**
+   * Open a channel file created by the daemon.
+   *
+   * @param path the path of the channel file
+   * @return the opened channel
+   * @throws IOException if the file cannot be mapped or is not a channel
+   */
+  public static LocalChannel open(String path) throws IOException {
+    File file = new File(path);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      MappedByteBuffer mapped = raf.getChannel()
+          .map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+      if (mapped.getInt(0) != MAGIC) {
+        throw new IOException("Not a StarGate channel: " + path);
+      }
+      int capacity = mapped.getInt(4);
+      if (raf.length() != FILE_HEADER + 2L * MappedRing.sizeOf(capacity)) {
+        throw new IOException("Corrupted StarGate channel: " + path);
+      }
+      return new LocalChannel(file, mapped, capacity, false);
+    }
+  }
+
+  public String getPath() {
+    return file.getAbsolutePath();
+  }
+
+  /** The ring carrying requests from the client to the daemon. */
+  MappedRing getRequests() {
+    return requests;
+  }
+
+  /** The ring carrying responses from the daemon to the client. */
+  MappedRing getResponses() {
+    return responses;
+  }
+
+  public boolean isClosed() {
+    return released || requests.isClosed() || responses.isClosed();
+  }
+
+  /**
+   * Close both rings, so that both ends stop waiting, but keep the mapping.
+   * Unlike {@link #close()}, this may be called while another thread is still
+   * using the channel.
+   */
+  public synchronized void shutdown() {
+    if (!released) {
+      requests.close();
+      responses.close();
+    }
+  }
+
+  /**
+   * Close both rings, so that the peer stops waiting, delete the file if this
+   * side created it and release the mapping. Only the thread using the
+   * channel may call it, since the rings are unusable afterwards.
+   */
+  public synchronized void close() {
+    if (released) {
+      return;
+    }
+    requests.close();
+    responses.close();
+    released = true;
+    if (owner && file.exists() && !file.delete()) {
+      warn("Failed to delete channel file {}", file);
+    }
+    if (!MappedRing.unmap(mapped)) {
+      debug("Leaving the mapping of {} to the garbage collector", file);
+    }
+  }
+}
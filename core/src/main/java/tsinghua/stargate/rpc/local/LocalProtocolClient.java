@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.local;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TCompactProtocol;
+
+import tsinghua.stargate.rpc.thrift.ApplicationStarGateProtocolService;
+import tsinghua.stargate.rpc.thrift.message.*;
+
+/**
+ * A Thrift client of {@code ApplicationStarGateProtocolService} talking through
+ * a {@link LocalChannel}. Calls are serialized since a channel carries one
+ * outstanding request at a time.
+ */
+public class LocalProtocolClient
+    extends ApplicationStarGateProtocolService.Client {
+
+  private final LocalTransport transport;
+
+  public LocalProtocolClient(LocalChannel channel, long timeoutMillis) {
+    this(LocalTransport.client(channel, timeoutMillis));
+  }
+
+  private LocalProtocolClient(LocalTransport transport) {
+    super(new TCompactProtocol(transport));
+    this.transport = transport;
+  }
+
+  @Override
+  public synchronized GetNewApplicationResponseThrift getNewApplication(
+      GetNewApplicationRequestThrift request) throws TException {
+    return super.getNewApplication(request);
+  }
+
+  @Override
+  public synchronized SubmitApplicationResponseThrift submitApplication(
+      SubmitApplicationRequestThrift request) throws TException {
+    return super.submitApplication(request);
+  }
+
+  @Override
+  public synchronized GetApplicationReportResponseThrift getApplicationReport(
+      GetApplicationReportRequestThrift request) throws TException {
+    return super.getApplicationReport(request);
+  }
+
+  @Override
+  public synchronized PutBlockDataResponseThrift putBlockData(
+      PutBlockDataRequestThrift request) throws TException {
+    return super.putBlockData(request);
+  }
+
+  @Override
+  public synchronized GetBlockDataResponseThrift getBlockData(
+      GetBlockDataRequestThrift request) throws TException {
+    return super.getBlockData(request);
+  }
+
+  @Override
+  public synchronized OpenLocalChannelResponseThrift openLocalChannel(
+      OpenLocalChannelRequestThrift request) throws TException {
+    return super.openLocalChannel(request);
+  }
+
+  @Override
+  public synchronized GetCardReportsResponseThrift getCardReports(
+      GetCardReportsRequestThrift request) throws TException {
+    return super.getCardReports(request);
+  }
+
+  /**
+   * Whether the channel was closed, by either end or after a timeout. A
+   * closed client fails every call and should be replaced.
+   */
+  public synchronized boolean isClosed() {
+    return !transport.isOpen();
+  }
+
+  public synchronized void close() {
+    transport.close();
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.TProcessor;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TTransportException;
+
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.service.AbstractService;
+import tsinghua.stargate.util.ThreadUtils;
+
+/**
+ * Serves a Thrift processor over {@link LocalChannel shared-memory channels}
+ * to clients on the same host as the {@code StarGateDaemon}.
+ *
+ * <p>
+ * Each channel is served by a dedicated thread that waits on its request ring,
+ * so the number of channels is bounded by the number of RPC worker threads.
+ * Channels whose client stays silent for longer than
+ * {@code stargate.rpc.local.idle.timeout} are closed.
+ */
+public class LocalServer extends AbstractService {
+
+  private final TProcessor processor;
+  private final Map<String, LocalChannel> channels = new ConcurrentHashMap<>();
+
+  private boolean enabled;
+  private File localDir;
+  private int maxChannels;
+  private Semaphore permits;
+  private long idleTimeout;
+  private ExecutorService channelPool;
+
+  public LocalServer(TProcessor processor) {
+    super("LocalServer");
+    this.processor = processor;
+  }
+
+  @Override
+  protected void serviceInit(Configuration conf) throws Exception {
+    info("Init service '{}'", this.getClass().getSimpleName());
+    enabled = conf.getBoolean(NameSpace.RPC_LOCAL_ENABLED,
+        NameSpace.DEFAULT_RPC_LOCAL_ENABLED);
+    localDir =
+        new File(conf.get(NameSpace.LOCAL_DIR, NameSpace.DEFAULT_LOCAL_DIR));
+    maxChannels = conf.getInt(NameSpace.RPC_SERVER_THREAD_WORKER_COUNT,
+        NameSpace.DEFAULT_RPC_SERVER_THREAD_WORKER_COUNT);
+    permits = new Semaphore(maxChannels);
+    idleTimeout = conf.getLong(NameSpace.RPC_LOCAL_IDLE_TIMEOUT,
+        NameSpace.DEFAULT_RPC_LOCAL_IDLE_TIMEOUT);
+    super.serviceInit(conf);
+  }
+
+  @Override
+  protected void serviceStart() throws Exception {
+    channelPool = ThreadUtils.getExecutor()
+        .newDaemonCachedThreadPool("LocalChannel", maxChannels);
+    info("Successfully started service '{}'", this.getClass().getSimpleName());
+    super.serviceStart();
+  }
+
+  @Override
+  protected void serviceStop() throws Exception {
+    // Serving threads release their channels once they see the shutdown
+    for (LocalChannel channel : channels.values()) {
+      channel.shutdown();
+    }
+    if (channelPool != null) {
+      channelPool.shutdownNow();
+    }
+    info("Successfully stopped service '{}'", this.getClass().getSimpleName());
+    super.serviceStop();
+  }
+
+  /**
+   * Create a channel whose rings hold at least {@code capacity} bytes and
+   * start serving it.
+   *
+   * @param capacity the minimum capacity of each ring
+   * @return the path of the channel file, or {@code null} if refused
+   */
+  public String open(int capacity) {
+    if (!enabled || channelPool == null) {
+      return null;
+    }
+    if (!permits.tryAcquire()) {
+      warn("Refusing local channel, {} channels are open", maxChannels);
+      return null;
+    }
+
+    final LocalChannel channel;
+    try {
+      channel = LocalChannel.create(localDir, capacity);
+    } catch (IOException e) {
+      permits.release();
+      warn("Failed to create local channel under " + localDir, e);
+      return null;
+    }
+
+    channels.put(channel.getPath(), channel);
+    try {
+      channelPool.execute(new Runnable() {
+        @Override
+        public void run() {
+          serve(channel);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      channels.remove(channel.getPath());
+      channel.close();
+      permits.release();
+      return null;
+    }
+    info("Opened local channel {}", channel.getPath());
+    return channel.getPath();
+  }
+
+  private void serve(LocalChannel channel) {
+    TProtocol protocol =
+        new TCompactProtocol(LocalTransport.server(channel, idleTimeout));
+    try {
+      while (!channel.isClosed()) {
+        processor.process(protocol, protocol);
+      }
+    } catch (TTransportException e) {
+      debug("Local channel {} ends: {}", channel.getPath(), e.getMessage());
+    } catch (TException e) {
+      warn("Error while serving local channel " + channel.getPath(), e);
+    } finally {
+      channels.remove(channel.getPath());
+      channel.close();
+      permits.release();
+      info("Closed local channel {}", channel.getPath());
+    }
+  }
+}
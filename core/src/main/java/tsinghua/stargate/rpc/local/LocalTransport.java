@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.local;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.thrift.TByteArrayOutputStream;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+/**
+ * A Thrift transport over a {@link LocalChannel}. Every flushed message is
+ * carried as one record of a ring, so the transport needs no extra framing.
+ *
+ * <p>
+ * This is not a zero-copy path: an outbound message is serialized into a heap
+ * buffer and copied into the ring on flush, and an inbound message is copied
+ * out of the mapped memory into the buffers of the Thrift protocol, whose
+ * room in the ring is freed as soon as it is fully read. What it saves over
+ * the socket transport are the system calls and the kernel socket buffers;
+ * block payloads still travel inside the serialized messages.
+ */
+public class LocalTransport extends TTransport {
+
+  private final LocalChannel channel;
+  private final MappedRing in;
+  private final MappedRing out;
+  private final long timeoutNanos;
+
+  private final TByteArrayOutputStream writeBuffer =
+      new TByteArrayOutputStream(1024);
+  private ByteBuffer readBuffer;
+
+  private LocalTransport(LocalChannel channel, MappedRing in, MappedRing out,
+      long timeoutMillis) {
+    this.channel = channel;
+    this.in = in;
+    this.out = out;
+    this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+  }
+
+  /**
+   * Create the client end of {@code channel}.
+   *
+   * @param channel the channel to the daemon
+   * @param timeoutMillis how long to wait for a response
+   * @return the client transport
+   */
+  public static LocalTransport client(LocalChannel channel,
+      long timeoutMillis) {
+    return new LocalTransport(channel, channel.getResponses(),
+        channel.getRequests(), timeoutMillis);
+  }
+
+  /**
+   * Create the daemon end of {@code channel}.
+   *
+   * @param channel the channel to the client
+   * @param timeoutMillis how long to wait for a request before giving up
+   * @return the daemon transport
+   */
+  public static LocalTransport server(LocalChannel channel,
+      long timeoutMillis) {
+    return new LocalTransport(channel, channel.getRequests(),
+        channel.getResponses(), timeoutMillis);
+  }
+
+  @Override
+  public boolean isOpen() {
+    return !channel.isClosed();
+  }
+
+  @Override
+  public void open() throws TTransportException {
+  }
+
+  @Override
+  public void close() {
+    readBuffer = null;
+    channel.close();
+  }
+
+  @Override
+  public int read(byte[] buf, int off, int len) throws TTransportException {
+    if (readBuffer == null) {
+      checkOpen();
+      readBuffer = in.take(timeoutNanos);
+      if (readBuffer == null) {
+        throw fail("No message from " + channel.getPath());
+      }
+    }
+
+    int length = Math.min(len, readBuffer.remaining());
+    readBuffer.get(buf, off, length);
+    if (!readBuffer.hasRemaining()) {
+      readBuffer = null;
+      in.advance();
+    }
+    return length;
+  }
+
+  @Override
+  public void write(byte[] buf, int off, int len) throws TTransportException {
+    writeBuffer.write(buf, off, len);
+  }
+
+  @Override
+  public void flush() throws TTransportException {
+    ByteBuffer message =
+        ByteBuffer.wrap(writeBuffer.get(), 0, writeBuffer.len());
+    writeBuffer.reset();
+    checkOpen();
+    try {
+      if (!out.put(message, timeoutNanos)) {
+        throw fail("Failed to send message through " + channel.getPath());
+      }
+    } catch (IllegalArgumentException e) {
+      throw new TTransportException(e);
+    }
+  }
+
+  private void checkOpen() throws TTransportException {
+    if (channel.isClosed()) {
+      throw new TTransportException(TTransportException.END_OF_FILE,
+          "Channel " + channel.getPath() + " is closed");
+    }
+  }
+
+  /**
+   * Close the channel after a failed read or write. A late response to a
+   * timed-out request would otherwise be taken as the response to the next
+   * one, so a timed-out channel is never reused.
+   */
+  private TTransportException fail(String message) {
+    int type = channel.isClosed() ? TTransportException.END_OF_FILE
+        : TTransportException.TIMED_OUT;
+    close();
+    return new TTransportException(type, message);
+  }
+}
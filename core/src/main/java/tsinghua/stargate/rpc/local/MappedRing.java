@@ -0,0 +1,315 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.local;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import sun.misc.Unsafe;
+
+import tsinghua.stargate.exception.StarGateRuntimeException;
+
+/**
+ * A single-producer single-consumer ring of length-prefixed messages laid out
+ * in a region of a memory-mapped file, so that two processes on the same host
+ * can exchange messages without system calls.
+ *
+ * <p>
+ * The region starts with three cache-line separated header words: the head
+ * (bytes consumed), the tail (bytes produced) and a closed flag. Messages
+ * follow as records of a 4-byte length and the payload, aligned to 8 bytes. A
+ * record never wraps around the end of the ring; the producer pads the end
+ * with a record of length {@code -1} instead.
+ *
+ * <p>
+ * The producer publishes a record by an ordered store of the tail after
+ * writing it, and the consumer frees it by an ordered store of the head, so
+ * that both sides see complete records only.
+ *
+ * <p>
+ * A side waiting on an empty or full ring spins briefly and then parks with
+ * an exponential backoff capped at {@code MAX_PARK_NANOS}, so an idle channel
+ * costs a wakeup per millisecond rather than a busy core.
+ */
+public class MappedRing {
+
+  private static final Unsafe UNSAFE;
+  private static final long ADDRESS_OFFSET;
+
+  private static final int CACHE_LINE = 64;
+  private static final int HEAD_OFFSET = 0;
+  private static final int TAIL_OFFSET = CACHE_LINE;
+  private static final int CLOSED_OFFSET = 2 * CACHE_LINE;
+  static final int HEADER_SIZE = 3 * CACHE_LINE;
+
+  private static final int RECORD_HEADER = 4;
+  private static final int PADDING = -1;
+  private static final int SPIN_TRIES = 1000;
+  private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  static {
+    try {
+      Field field = Unsafe.class.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      UNSAFE = (Unsafe) field.get(null);
+      // Read the address of a direct buffer without sun.nio.ch.DirectBuffer,
+      // which is not exported to applications since JDK 16
+      ADDRESS_OFFSET =
+          UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+    } catch (Exception e) {
+      throw new StarGateRuntimeException(e);
+    }
+  }
+
+  private final MappedByteBuffer mapped;
+  private final ByteBuffer data;
+  private final long address;
+  private final int capacity;
+  private final int mask;
+
+  // Length of the record returned by the last peek, -1 if none
+  private int peekedLength = -1;
+
+  /**
+   * Create a ring over {@code HEADER_SIZE + capacity} bytes of {@code mapped}
+   * starting at {@code offset}.
+   *
+   * @param mapped the memory-mapped file
+   * @param offset the offset of the ring in {@code mapped}, 8-byte aligned
+   * @param capacity the size of the data area, a power of two
+   */
+  MappedRing(MappedByteBuffer mapped, int offset, int capacity) {
+    if (Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException(
+          "Capacity must be a power of two: " + capacity);
+    }
+    this.mapped = mapped;
+    this.address = UNSAFE.getLong(mapped, ADDRESS_OFFSET) + offset;
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+
+    ByteBuffer view = mapped.duplicate();
+    view.position(offset + HEADER_SIZE);
+    view.limit(offset + HEADER_SIZE + capacity);
+    this.data = view.slice();
+  }
+
+  /**
+   * The number of bytes a ring of {@code capacity} occupies in the file.
+   *
+   * @param capacity the size of the data area
+   * @return the size of the ring
+   */
+  static int sizeOf(int capacity) {
+    return HEADER_SIZE + capacity;
+  }
+
+  /**
+   * Round {@code size} up to the next power of two.
+   *
+   * @param size the requested size
+   * @return a power of two not smaller than {@code size}
+   */
+  static int roundCapacity(int size) {
+    int capacity = Integer.highestOneBit(Math.max(size, CACHE_LINE));
+    return capacity < size ? capacity << 1 : capacity;
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Append the remaining bytes of {@code message} if there is room.
+   *
+   * @param message the message to be appended
+   * @return {@code true} if appended, {@code false} if the ring is full
+   */
+  public boolean offer(ByteBuffer message) {
+    int length = message.remaining();
+    int recordLength = align(RECORD_HEADER + length);
+    if (recordLength > capacity) {
+      throw new IllegalArgumentException("Message of " + length
+          + " bytes exceeds the ring of " + capacity + " bytes");
+    }
+
+    long tail = UNSAFE.getLong(address + TAIL_OFFSET);
+    long head = UNSAFE.getLongVolatile(null, address + HEAD_OFFSET);
+    int index = (int) (tail & mask);
+    int toEnd = capacity - index;
+    int padding = recordLength > toEnd ? toEnd : 0;
+    if (tail + padding + recordLength - head > capacity) {
+      return false;
+    }
+
+    if (padding > 0) {
+      data.putInt(index, PADDING);
+      tail += padding;
+      index = 0;
+    }
+    ByteBuffer target = data.duplicate();
+    target.position(index + RECORD_HEADER);
+    target.put(message.duplicate());
+    data.putInt(index, length);
+    UNSAFE.putOrderedLong(null, address + TAIL_OFFSET, tail + recordLength);
+    return true;
+  }
+
+  /**
+   * Append the remaining bytes of {@code message}, waiting for room.
+   *
+   * @param message the message to be appended
+   * @param timeoutNanos the maximum time to wait
+   * @return {@code true} if appended, {@code false} on timeout or close
+   */
+  public boolean put(ByteBuffer message, long timeoutNanos) {
+    long deadline = System.nanoTime() + timeoutNanos;
+    if (isClosed()) {
+      return false;
+    }
+    int tries = 0;
+    while (!offer(message)) {
+      if (isClosed() || System.nanoTime() - deadline > 0) {
+        return false;
+      }
+      idle(++tries);
+    }
+    return true;
+  }
+
+  /**
+   * Return a view of the oldest message without consuming it. The view stays
+   * valid until {@link #advance()} is called.
+   *
+   * @return a read-only view of the oldest message, or {@code null} if empty
+   */
+  public ByteBuffer peek() {
+    long head = UNSAFE.getLong(address + HEAD_OFFSET);
+    while (true) {
+      long tail = UNSAFE.getLongVolatile(null, address + TAIL_OFFSET);
+      if (head == tail) {
+        return null;
+      }
+      int index = (int) (head & mask);
+      int length = data.getInt(index);
+      if (length == PADDING) {
+        head += capacity - index;
+        UNSAFE.putOrderedLong(null, address + HEAD_OFFSET, head);
+        continue;
+      }
+
+      peekedLength = length;
+      ByteBuffer view = data.duplicate();
+      view.position(index + RECORD_HEADER);
+      view.limit(index + RECORD_HEADER + length);
+      return view.slice().asReadOnlyBuffer();
+    }
+  }
+
+  /**
+   * Wait for a message and return a view of it without consuming it.
+   *
+   * @param timeoutNanos the maximum time to wait
+   * @return a read-only view of the oldest message, or {@code null} on timeout
+   *         or close
+   */
+  public ByteBuffer take(long timeoutNanos) {
+    long deadline = System.nanoTime() + timeoutNanos;
+    int tries = 0;
+    ByteBuffer message;
+    while ((message = peek()) == null) {
+      if (isClosed() || System.nanoTime() - deadline > 0) {
+        return null;
+      }
+      idle(++tries);
+    }
+    return message;
+  }
+
+  /** Consume the message returned by the last peek, freeing its room. */
+  public void advance() {
+    if (peekedLength < 0) {
+      throw new IllegalStateException("No message to advance over");
+    }
+    long head = UNSAFE.getLong(address + HEAD_OFFSET);
+    UNSAFE.putOrderedLong(null, address + HEAD_OFFSET,
+        head + align(RECORD_HEADER + peekedLength));
+    peekedLength = -1;
+  }
+
+  /** Mark the ring as closed, waking up both sides. */
+  public void close() {
+    UNSAFE.putIntVolatile(null, address + CLOSED_OFFSET, 1);
+  }
+
+  public boolean isClosed() {
+    return UNSAFE.getIntVolatile(null, address + CLOSED_OFFSET) != 0;
+  }
+
+  MappedByteBuffer getMapped() {
+    return mapped;
+  }
+
+  /**
+   * Release the mapping of {@code mapped} right away instead of waiting for
+   * the garbage collector. No ring over it may be used afterwards.
+   *
+   * @param mapped the memory-mapped file
+   * @return {@code true} if unmapped, {@code false} if left to the collector
+   */
+  static boolean unmap(MappedByteBuffer mapped) {
+    try {
+      try {
+        // JDK 9 and later
+        Method invokeCleaner =
+            Unsafe.class.getMethod("invokeCleaner", ByteBuffer.class);
+        invokeCleaner.invoke(UNSAFE, mapped);
+      } catch (NoSuchMethodException e) {
+        Method cleaner = mapped.getClass().getMethod("cleaner");
+        cleaner.setAccessible(true);
+        Object instance = cleaner.invoke(mapped);
+        if (instance != null) {
+          instance.getClass().getMethod("clean").invoke(instance);
+        }
+      }
+      return true;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return false;
+    }
+  }
+
+  private static int align(int length) {
+    return (length + 7) & ~7;
+  }
+
+  // Spin briefly for low latency, then park for exponentially longer
+  static long idle(int tries) {
+    if (tries <= SPIN_TRIES) {
+      return 0;
+    }
+    int shift = Math.min(tries - SPIN_TRIES - 1, 10);
+    long nanos = Math.min(MIN_PARK_NANOS << shift, MAX_PARK_NANOS);
+    LockSupport.parkNanos(nanos);
+    return nanos;
+  }
+}
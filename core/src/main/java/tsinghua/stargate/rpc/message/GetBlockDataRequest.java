@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message;
+
+import tsinghua.stargate.rpc.ApplicationStarGateProtocol;
+import tsinghua.stargate.util.ReflectionUtils;
+
+/**
+ * The request sent by a client to the {@code StarGateDaemon} to pull one chunk
+ * of a block, e.g. a task result, out of the daemon's in-heap block store.
+ *
+ * @see ApplicationStarGateProtocol#getBlockData(GetBlockDataRequest)
+ */
+public abstract class GetBlockDataRequest {
+
+  public static GetBlockDataRequest newInstance(String path, long offset,
+      int length) {
+    GetBlockDataRequest request =
+        ReflectionUtils.get().getMsg(GetBlockDataRequest.class);
+    request.setPath(path);
+    request.setOffset(offset);
+    request.setLength(length);
+    return request;
+  }
+
+  /**
+   * Get the path identifying the block in the block store.
+   *
+   * @return the path of the block
+   */
+  public abstract String getPath();
+
+  /**
+   * Set the path identifying the block in the block store.
+   *
+   * @param path the path of the block
+   */
+  public abstract void setPath(String path);
+
+  /**
+   * Get the offset in the block of the requested chunk.
+   *
+   * @return the offset of the requested chunk
+   */
+  public abstract long getOffset();
+
+  /**
+   * Set the offset in the block of the requested chunk.
+   *
+   * @param offset the offset of the requested chunk
+   */
+  public abstract void setOffset(long offset);
+
+  /**
+   * Get the maximum number of bytes to be returned.
+   *
+   * @return the maximum length of the requested chunk
+   */
+  public abstract int getLength();
+
+  /**
+   * Set the maximum number of bytes to be returned.
+   *
+   * @param length the maximum length of the requested chunk
+   */
+  public abstract void setLength(int length);
+}
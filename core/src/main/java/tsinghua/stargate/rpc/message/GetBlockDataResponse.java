@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message;
+
+import java.nio.ByteBuffer;
+
+import tsinghua.stargate.rpc.ApplicationStarGateProtocol;
+import tsinghua.stargate.util.ReflectionUtils;
+
+/**
+ * The response sent by the {@code StarGateDaemon} to a client pulling a chunk
+ * of block data. A negative {@code capacity} means the block does not exist.
+ *
+ * @see ApplicationStarGateProtocol#getBlockData(GetBlockDataRequest)
+ */
+public abstract class GetBlockDataResponse {
+
+  public static GetBlockDataResponse newInstance(long capacity,
+      ByteBuffer data) {
+    GetBlockDataResponse response =
+        ReflectionUtils.get().getMsg(GetBlockDataResponse.class);
+    response.setCapacity(capacity);
+    response.setData(data);
+    return response;
+  }
+
+  /**
+   * Get the total size in bytes of the block.
+   *
+   * @return the total size of the block, or -1 if it does not exist
+   */
+  public abstract long getCapacity();
+
+  /**
+   * Set the total size in bytes of the block.
+   *
+   * @param capacity the total size of the block
+   */
+  public abstract void setCapacity(long capacity);
+
+  /**
+   * Get the bytes of the requested chunk.
+   *
+   * @return the bytes of the requested chunk
+   */
+  public abstract ByteBuffer getData();
+
+  /**
+   * Set the bytes of the requested chunk.
+   *
+   * @param data the bytes of the requested chunk
+   */
+  public abstract void setData(ByteBuffer data);
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message;
+
+import tsinghua.stargate.rpc.ApplicationStarGateProtocol;
+import tsinghua.stargate.rpc.message.entity.CardReport;
+import tsinghua.stargate.util.ReflectionUtils;
+
+/**
+ * The request sent by a client to the {@code StarGateDaemon} to get a
+ * {@link CardReport} for each accelerator card of the node, optionally only
+ * for the cards hosting a given workload.
+ *
+ * @see ApplicationStarGateProtocol#getCardReports(GetCardReportsRequest)
+ */
+public abstract class GetCardReportsRequest {
+
+  public static GetCardReportsRequest newInstance(String workload) {
+    GetCardReportsRequest request =
+        ReflectionUtils.get().getMsg(GetCardReportsRequest.class);
+    request.setWorkload(workload);
+    return request;
+  }
+
+  /**
+   * Get the workload the reported cards should host.
+   *
+   * @return the workload, or {@code null} to report all cards
+   */
+  public abstract String getWorkload();
+
+  /**
+   * Set the workload the reported cards should host.
+   *
+   * @param workload the workload, or {@code null} to report all cards
+   */
+  public abstract void setWorkload(String workload);
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message;
+
+import java.util.List;
+
+import tsinghua.stargate.rpc.ApplicationStarGateProtocol;
+import tsinghua.stargate.rpc.message.entity.CardReport;
+import tsinghua.stargate.util.ReflectionUtils;
+
+/**
+ * The response sent by the {@code StarGateDaemon} to a client requesting the
+ * reports of its accelerator cards.
+ *
+ * @see CardReport
+ * @see ApplicationStarGateProtocol#getCardReports(GetCardReportsRequest)
+ */
+public abstract class GetCardReportsResponse {
+
+  public static GetCardReportsResponse newInstance(
+      List<CardReport> cardReports) {
+    GetCardReportsResponse response =
+        ReflectionUtils.get().getMsg(GetCardReportsResponse.class);
+    response.setCardReports(cardReports);
+    return response;
+  }
+
+  /**
+   * Get the {@code CardReport} of each requested card.
+   *
+   * @return the reports of the cards
+   */
+  public abstract List<CardReport> getCardReports();
+
+  /**
+   * Set the {@code CardReport} of each requested card.
+   *
+   * @param cardReports the reports of the cards
+   */
+  public abstract void setCardReports(List<CardReport> cardReports);
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message;
+
+import tsinghua.stargate.rpc.ApplicationStarGateProtocol;
+import tsinghua.stargate.util.ReflectionUtils;
+
+/**
+ * The request sent by a client running on the same host as the
+ * {@code StarGateDaemon} to set up a shared-memory channel.
+ *
+ * @see ApplicationStarGateProtocol#openLocalChannel(OpenLocalChannelRequest)
+ */
+public abstract class OpenLocalChannelRequest {
+
+  public static OpenLocalChannelRequest newInstance(int capacity) {
+    OpenLocalChannelRequest request =
+        ReflectionUtils.get().getMsg(OpenLocalChannelRequest.class);
+    request.setCapacity(capacity);
+    return request;
+  }
+
+  /**
+   * Get the capacity in bytes of each ring of the channel.
+   *
+   * @return the capacity of each ring
+   */
+  public abstract int getCapacity();
+
+  /**
+   * Set the capacity in bytes of each ring of the channel.
+   *
+   * @param capacity the capacity of each ring
+   */
+  public abstract void setCapacity(int capacity);
+}
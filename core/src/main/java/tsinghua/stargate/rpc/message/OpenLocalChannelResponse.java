@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message;
+
+import tsinghua.stargate.rpc.ApplicationStarGateProtocol;
+import tsinghua.stargate.util.ReflectionUtils;
+
+/**
+ * The response sent by the {@code StarGateDaemon} to a client requesting a
+ * shared-memory channel. The response carries the path of the memory-mapped
+ * file backing the channel, or no path if the daemon refuses the channel.
+ *
+ * @see ApplicationStarGateProtocol#openLocalChannel(OpenLocalChannelRequest)
+ */
+public abstract class OpenLocalChannelResponse {
+
+  public static OpenLocalChannelResponse newInstance(String path) {
+    OpenLocalChannelResponse response =
+        ReflectionUtils.get().getMsg(OpenLocalChannelResponse.class);
+    response.setPath(path);
+    return response;
+  }
+
+  /**
+   * Get the path of the memory-mapped file backing the channel.
+   *
+   * @return the path of the channel, or {@code null} if refused
+   */
+  public abstract String getPath();
+
+  /**
+   * Set the path of the memory-mapped file backing the channel.
+   *
+   * @param path the path of the channel
+   */
+  public abstract void setPath(String path);
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message;
+
+import java.nio.ByteBuffer;
+
+import tsinghua.stargate.rpc.ApplicationStarGateProtocol;
+import tsinghua.stargate.util.ReflectionUtils;
+
+/**
+ * The request sent by a client to the {@code StarGateDaemon} to push one chunk
+ * of input bytes into the daemon's in-heap block store.
+ *
+ * <p>
+ * A block is shipped as a sequence of chunks addressed by {@code path}. Every
+ * chunk carries the total {@code capacity} of the block and the
+ * {@code offset} it should be written at; the chunk marked as {@code last}
+ * publishes the assembled block under {@code path}. Chunks of one upload share
+ * an {@code uploadId}, so that concurrent uploads to the same path do not mix.
+ *
+ * @see ApplicationStarGateProtocol#putBlockData(PutBlockDataRequest)
+ */
+public abstract class PutBlockDataRequest {
+
+  public static PutBlockDataRequest newInstance(String path, long offset,
+      long capacity, ByteBuffer data, boolean last) {
+    PutBlockDataRequest request =
+        ReflectionUtils.get().getMsg(PutBlockDataRequest.class);
+    request.setPath(path);
+    request.setOffset(offset);
+    request.setCapacity(capacity);
+    request.setData(data);
+    request.setLast(last);
+    return request;
+  }
+
+  public static PutBlockDataRequest newInstance(String path, String uploadId,
+      long offset, long capacity, ByteBuffer data, boolean last) {
+    PutBlockDataRequest request =
+        newInstance(path, offset, capacity, data, last);
+    request.setUploadId(uploadId);
+    return request;
+  }
+
+  /**
+   * Get the path identifying the block in the block store.
+   *
+   * @return the path of the block
+   */
+  public abstract String getPath();
+
+  /**
+   * Set the path identifying the block in the block store.
+   *
+   * @param path the path of the block
+   */
+  public abstract void setPath(String path);
+
+  /**
+   * Get the offset in the block at which this chunk is written.
+   *
+   * @return the offset of this chunk
+   */
+  public abstract long getOffset();
+
+  /**
+   * Set the offset in the block at which this chunk is written.
+   *
+   * @param offset the offset of this chunk
+   */
+  public abstract void setOffset(long offset);
+
+  /**
+   * Get the total size in bytes of the block.
+   *
+   * @return the total size of the block
+   */
+  public abstract long getCapacity();
+
+  /**
+   * Set the total size in bytes of the block.
+   *
+   * @param capacity the total size of the block
+   */
+  public abstract void setCapacity(long capacity);
+
+  /**
+   * Get the bytes of this chunk.
+   *
+   * @return the bytes of this chunk
+   */
+  public abstract ByteBuffer getData();
+
+  /**
+   * Set the bytes of this chunk.
+   *
+   * @param data the bytes of this chunk
+   */
+  public abstract void setData(ByteBuffer data);
+
+  /**
+   * Whether this chunk is the last one of the block.
+   *
+   * @return {@code true} if this chunk completes the block
+   */
+  public abstract boolean isLast();
+
+  /**
+   * Set whether this chunk is the last one of the block.
+   *
+   * @param last {@code true} if this chunk completes the block
+   */
+  public abstract void setLast(boolean last);
+
+  /**
+   * Get the identifier shared by the chunks of one upload.
+   *
+   * @return the upload identifier, or {@code null} to identify the upload by
+   *         its path
+   */
+  public abstract String getUploadId();
+
+  /**
+   * Set the identifier shared by the chunks of one upload.
+   *
+   * @param uploadId the upload identifier
+   */
+  public abstract void setUploadId(String uploadId);
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message;
+
+import tsinghua.stargate.rpc.ApplicationStarGateProtocol;
+import tsinghua.stargate.util.ReflectionUtils;
+
+/**
+ * The response sent by the {@code StarGateDaemon} to a client on receiving a
+ * chunk of block data.
+ *
+ * @see ApplicationStarGateProtocol#putBlockData(PutBlockDataRequest)
+ */
+public abstract class PutBlockDataResponse {
+
+  public static PutBlockDataResponse newInstance(long received) {
+    PutBlockDataResponse response =
+        ReflectionUtils.get().getMsg(PutBlockDataResponse.class);
+    response.setReceived(received);
+    return response;
+  }
+
+  public static PutBlockDataResponse newInstance(long received,
+      String error) {
+    PutBlockDataResponse response = newInstance(received);
+    response.setError(error);
+    return response;
+  }
+
+  /**
+   * Get the number of bytes of the block received so far.
+   *
+   * @return the number of received bytes
+   */
+  public abstract long getReceived();
+
+  /**
+   * Set the number of bytes of the block received so far.
+   *
+   * @param received the number of received bytes
+   */
+  public abstract void setReceived(long received);
+
+  /**
+   * Get why the daemon refused the chunk.
+   *
+   * @return the error message, or {@code null} if the chunk was written
+   */
+  public abstract String getError();
+
+  /**
+   * Set why the daemon refused the chunk.
+   *
+   * @param error the error message
+   */
+  public abstract void setError(String error);
+}
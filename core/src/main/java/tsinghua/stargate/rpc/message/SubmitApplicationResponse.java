@@ -22,7 +22,8 @@ import tsinghua.stargate.util.ReflectionUtils;
 
 /**
  * The response sent by the {@code StarGateDaemon} to a client on application
- * submission. Currently, this is empty.
+ * submission. A submission rejected by a full queue carries a hint of when to
+ * retry it.
  *
  * @see ApplicationStarGateProtocol#submitApplication(SubmitApplicationRequest)
  */
@@ -44,4 +45,20 @@ public abstract class SubmitApplicationResponse {
    * @param type the <code>ApplicationState</code>
    */
   public abstract void setApplicationState(ApplicationState type);
+
+  /**
+   * Get how long in milliseconds the client should wait before submitting a
+   * rejected application again.
+   *
+   * @return the wait before retrying, 0 if the application was not rejected
+   */
+  public abstract long getRetryAfter();
+
+  /**
+   * Set how long in milliseconds the client should wait before submitting a
+   * rejected application again.
+   *
+   * @param retryAfter the wait before retrying
+   */
+  public abstract void setRetryAfter(long retryAfter);
 }
@@ -16,6 +16,8 @@
 
 package tsinghua.stargate.rpc.message.entity;
 
+import java.util.Map;
+
 import tsinghua.stargate.util.ReflectionUtils;
 
 /**
@@ -113,4 +115,14 @@ public abstract class ApplicationReport {
   public abstract String getDiagnostics();
 
   public abstract void setDiagnostics(String diagnostics);
+
+  /**
+   * Get the time the current task of the application spent in each phase,
+   * from its submission on, e.g. queued in the scheduler or fetching input.
+   *
+   * @return microseconds spent in each phase, by phase name in phase order
+   */
+  public abstract Map<String, Long> getPhaseTimes();
+
+  public abstract void setPhaseTimes(Map<String, Long> phaseTimes);
 }
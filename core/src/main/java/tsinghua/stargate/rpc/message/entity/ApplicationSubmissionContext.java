@@ -110,4 +110,63 @@ public abstract class ApplicationSubmissionContext {
    *          application
    */
   public abstract void setAcceleratorResource(AcceleratorResource resource);
+
+  /**
+   * Get the relative deadline of the submitted application
+   *
+   * @return milliseconds after submission by which the application should be
+   *         done, or 0 if it has no deadline
+   */
+  public abstract long getDeadline();
+
+  /**
+   * Set the relative deadline of the submitted application
+   *
+   * @param deadline milliseconds after submission by which the application
+   *          should be done, non-positive for no deadline
+   */
+  public abstract void setDeadline(long deadline);
+
+  /**
+   * Get the priority class of the submitted application
+   *
+   * @return the priority class, larger is more urgent
+   */
+  public abstract int getPriority();
+
+  /**
+   * Set the priority class of the submitted application
+   *
+   * @param priority the priority class, larger is more urgent
+   */
+  public abstract void setPriority(int priority);
+
+  /**
+   * Get the number of accelerator cores each task of the application asks for
+   *
+   * @return the number of cores, 0 for all free cores serving the workload
+   */
+  public abstract int getCores();
+
+  /**
+   * Set the number of accelerator cores each task of the application asks for
+   *
+   * @param cores the number of cores, 0 for all free cores serving the
+   *          workload
+   */
+  public abstract void setCores(int cores);
+
+  /**
+   * Get the number of accelerator cards each task of the application spans
+   *
+   * @return the number of cards, each task is gang scheduled if more than 1
+   */
+  public abstract int getCards();
+
+  /**
+   * Set the number of accelerator cards each task of the application spans
+   *
+   * @param cards the number of cards, at least 1
+   */
+  public abstract void setCards(int cards);
 }
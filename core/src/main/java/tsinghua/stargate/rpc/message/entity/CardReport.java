@@ -34,6 +34,8 @@ import tsinghua.stargate.util.ReflectionUtils;
  * <li>Used {@link AcceleratorResource} on the node.</li>
  * <li>Total available {@link AcceleratorResource} of the node.</li>
  * <li>Number of running containers on the node.</li>
+ * <li>Number of preemptions and the core time they wasted.</li>
+ * <li>Hardware counters of each core, see {@link CoreReport}.</li>
  * <li>Total accelerator workloads run on the card
  * <li/>
  * </ul>
@@ -96,4 +98,32 @@ public abstract class CardReport {
   public abstract int getNumTasks();
 
   public abstract void setNumTasks(int numContainers);
+
+  /**
+   * Get the <em>number of cores reclaimed</em> from preempted tasks.
+   *
+   * @return <em>number of preemptions</em> on the card
+   */
+  public abstract int getNumPreemptions();
+
+  public abstract void setNumPreemptions(int numPreemptions);
+
+  /**
+   * Get the core time in milliseconds spent draining preempted tasks before
+   * their cores were handed over.
+   *
+   * @return <em>wasted core time</em> of preemptions on the card
+   */
+  public abstract long getPreemptionWastedTime();
+
+  public abstract void setPreemptionWastedTime(long wastedTime);
+
+  /**
+   * Get the hardware counters of each core of the card.
+   *
+   * @return a {@link CoreReport} per core of the card
+   */
+  public abstract List<CoreReport> getCoreReports();
+
+  public abstract void setCoreReports(List<CoreReport> coreReports);
 }
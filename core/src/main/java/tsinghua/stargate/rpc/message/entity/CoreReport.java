@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message.entity;
+
+import tsinghua.stargate.util.ReflectionUtils;
+
+/**
+ * <p>
+ * <code>CoreReport</code> is a summary of the hardware counters of an
+ * accelerator core, reported within the {@link CardReport} of its card.
+ * </p>
+ *
+ * <p>
+ * Counters only grow since the daemon started. Busy time is the time requests
+ * held the core, of which DMA time went to moving data; the rest of the busy
+ * time is compute, and the rest of the wall-clock time is idle.
+ * </p>
+ */
+public abstract class CoreReport {
+
+  public static CoreReport newInstance(int coreId, long busyTime,
+      long dmaTime, long bytesSent, long bytesReceived, long numRequests,
+      long numReprograms) {
+    CoreReport report = ReflectionUtils.get().getMsg(CoreReport.class);
+    report.setCoreId(coreId);
+    report.setBusyTime(busyTime);
+    report.setDmaTime(dmaTime);
+    report.setBytesSent(bytesSent);
+    report.setBytesReceived(bytesReceived);
+    report.setNumRequests(numRequests);
+    report.setNumReprograms(numReprograms);
+    return report;
+  }
+
+  /**
+   * Get the id of the core in its card.
+   *
+   * @return <code>coreId</code> of the core
+   */
+  public abstract int getCoreId();
+
+  public abstract void setCoreId(int coreId);
+
+  /**
+   * Get the nanoseconds requests held the core.
+   *
+   * @return <em>busy time</em> of the core
+   */
+  public abstract long getBusyTime();
+
+  public abstract void setBusyTime(long busyTime);
+
+  /**
+   * Get the nanoseconds spent moving data to and from the core.
+   *
+   * @return <em>DMA time</em> of the core
+   */
+  public abstract long getDmaTime();
+
+  public abstract void setDmaTime(long dmaTime);
+
+  public abstract long getBytesSent();
+
+  public abstract void setBytesSent(long bytesSent);
+
+  public abstract long getBytesReceived();
+
+  public abstract void setBytesReceived(long bytesReceived);
+
+  public abstract long getNumRequests();
+
+  public abstract void setNumRequests(long numRequests);
+
+  /**
+   * Get the number of bitstreams downloaded to the core.
+   *
+   * @return <em>number of reprograms</em> of the core
+   */
+  public abstract long getNumReprograms();
+
+  public abstract void setNumReprograms(long numReprograms);
+}
@@ -181,7 +181,7 @@ public class ApplicationLaunchContextThriftImpl
   @Override
   public void setResources(Map<String, String> resources) {
     if (null == resources) {
-      thrift.unsetEnvironments();
+      thrift.unsetResources();
     } else {
       thrift.setResources(resources);
     }
@@ -16,6 +16,8 @@
 
 package tsinghua.stargate.rpc.message.entity.thrift;
 
+import java.util.Map;
+
 import tsinghua.stargate.rpc.message.entity.ApplicationId;
 import tsinghua.stargate.rpc.message.entity.ApplicationReport;
 import tsinghua.stargate.rpc.message.entity.ApplicationResourceUsageReport;
@@ -108,7 +110,12 @@ public class ApplicationReportThriftImpl extends ApplicationReport {
   @Override
   public void setApplicationResourceUsageReport(
       ApplicationResourceUsageReport resourceUsageReport) {
+    maybeInitThrift();
+    if (resourceUsageReport == null) {
+      thrift.unsetApplicationResourceUsageReportThrift();
+    }
     this.applicationResourceUsageReport = resourceUsageReport;
+    this.reset = true;
   }
 
   @Override
@@ -135,6 +142,20 @@ public class ApplicationReportThriftImpl extends ApplicationReport {
     }
   }
 
+  @Override
+  public Map<String, Long> getPhaseTimes() {
+    return thrift.getPhaseTimes();
+  }
+
+  @Override
+  public void setPhaseTimes(Map<String, Long> phaseTimes) {
+    if (phaseTimes == null) {
+      thrift.unsetPhaseTimes();
+    } else {
+      thrift.setPhaseTimes(phaseTimes);
+    }
+  }
+
   public ApplicationReportThrift getThrift() {
 
     if (!reset) {
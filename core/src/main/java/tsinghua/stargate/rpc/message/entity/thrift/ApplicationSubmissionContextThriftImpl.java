@@ -25,6 +25,8 @@ import tsinghua.stargate.rpc.thrift.message.entity.ApplicationLaunchContextThrif
 import tsinghua.stargate.rpc.thrift.message.entity.ApplicationSubmissionContextThrift;
 import tsinghua.stargate.util.ThriftUtils;
 
+import com.google.common.base.Preconditions;
+
 public class ApplicationSubmissionContextThriftImpl
     extends ApplicationSubmissionContext {
 
@@ -164,6 +166,68 @@ public class ApplicationSubmissionContextThriftImpl
     this.reset = true;
   }
 
+  @Override
+  public long getDeadline() {
+    Preconditions.checkNotNull(thrift);
+    return thrift.isSetDeadline() ? thrift.getDeadline() : 0;
+  }
+
+  @Override
+  public void setDeadline(long deadline) {
+    maybeInitThrift();
+    if (deadline <= 0) {
+      thrift.unsetDeadline();
+    } else {
+      thrift.setDeadline(deadline);
+    }
+  }
+
+  @Override
+  public int getPriority() {
+    Preconditions.checkNotNull(thrift);
+    return thrift.isSetPriority() ? thrift.getPriority() : 0;
+  }
+
+  @Override
+  public void setPriority(int priority) {
+    maybeInitThrift();
+    thrift.setPriority(priority);
+  }
+
+  @Override
+  public int getCores() {
+    Preconditions.checkNotNull(thrift);
+    return thrift.isSetCores() ? thrift.getCores() : 1;
+  }
+
+  @Override
+  public void setCores(int cores) {
+    maybeInitThrift();
+    Preconditions.checkArgument(cores >= 0, "Negative number of cores");
+    if (cores == 1) {
+      thrift.unsetCores();
+    } else {
+      thrift.setCores(cores);
+    }
+  }
+
+  @Override
+  public int getCards() {
+    Preconditions.checkNotNull(thrift);
+    return thrift.isSetCards() ? thrift.getCards() : 1;
+  }
+
+  @Override
+  public void setCards(int cards) {
+    maybeInitThrift();
+    Preconditions.checkArgument(cards >= 1, "A task spans at least one card");
+    if (cards == 1) {
+      thrift.unsetCards();
+    } else {
+      thrift.setCards(cards);
+    }
+  }
+
   private void mergeLocalToThrift() {
     maybeInitThrift();
     if (this.applicationId != null) {
@@ -21,8 +21,10 @@ import java.util.List;
 
 import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
 import tsinghua.stargate.rpc.message.entity.CardReport;
+import tsinghua.stargate.rpc.message.entity.CoreReport;
 import tsinghua.stargate.rpc.thrift.message.entity.AcceleratorResourceThrift;
 import tsinghua.stargate.rpc.thrift.message.entity.CardReportThrift;
+import tsinghua.stargate.rpc.thrift.message.entity.CoreReportThrift;
 import tsinghua.stargate.util.ThriftUtils;
 
 public class CardReportThriftImpl extends CardReport {
@@ -32,6 +34,15 @@ public class CardReportThriftImpl extends CardReport {
 
   private List<AcceleratorResource> usedResources;
   private List<AcceleratorResource> totalResources;
+  private List<CoreReport> coreReports;
+
+  public CardReportThriftImpl(CardReportThrift thrift) {
+    this.thrift = thrift;
+  }
+
+  public CardReportThriftImpl() {
+    this.thrift = new CardReportThrift();
+  }
 
   @Override
   public String getCardId() {
@@ -63,54 +74,38 @@ public class CardReportThriftImpl extends CardReport {
 
   @Override
   public List<AcceleratorResource> getUsedCapability() {
-    if (this.usedResources != null) {
-      return usedResources;
-    } else {
-      usedResources = new ArrayList<>();
-      for (AcceleratorResourceThrift resourceThrift : thrift
-          .getUsedCapability()) {
-        usedResources.add(ThriftUtils.convertFromThriftFormat(resourceThrift));
-      }
-      return usedResources;
+    if (this.usedResources == null) {
+      this.usedResources = convertFromThriftFormat(thrift.getUsedCapability());
     }
+    return this.usedResources;
   }
 
   @Override
   public void setUsedCapability(List<AcceleratorResource> used) {
-    if (used == null || used.isEmpty()) {
-      usedResources.clear();
-      return;
-    } else {
-      usedResources = new ArrayList<>();
-      usedResources.addAll(used);
+    maybeInitThrift();
+    if (used == null) {
+      thrift.unsetUsedCapability();
     }
+    this.usedResources = used;
     this.reset = true;
   }
 
   @Override
   public List<AcceleratorResource> getTotalCapability() {
-    if (this.totalResources != null) {
-      return totalResources;
-    } else {
-      totalResources = new ArrayList<>();
-      for (AcceleratorResourceThrift resourceThrift : thrift
-          .getUsedCapability()) {
-        totalResources.add(ThriftUtils.convertFromThriftFormat(resourceThrift));
-      }
-      return totalResources;
+    if (this.totalResources == null) {
+      this.totalResources =
+          convertFromThriftFormat(thrift.getTotalCapability());
     }
-
+    return this.totalResources;
   }
 
   @Override
   public void setTotalCapability(List<AcceleratorResource> capability) {
-    if (capability == null || capability.isEmpty()) {
-      totalResources.clear();
-      return;
-    } else {
-      totalResources = new ArrayList<>();
-      totalResources.addAll(capability);
+    maybeInitThrift();
+    if (capability == null) {
+      thrift.unsetTotalCapability();
     }
+    this.totalResources = capability;
     this.reset = true;
   }
 
@@ -124,6 +119,49 @@ public class CardReportThriftImpl extends CardReport {
     thrift.setNumTasks(numNumTasks);
   }
 
+  @Override
+  public int getNumPreemptions() {
+    return thrift.getNumPreemptions();
+  }
+
+  @Override
+  public void setNumPreemptions(int numPreemptions) {
+    thrift.setNumPreemptions(numPreemptions);
+  }
+
+  @Override
+  public long getPreemptionWastedTime() {
+    return thrift.getPreemptionWastedTime();
+  }
+
+  @Override
+  public void setPreemptionWastedTime(long wastedTime) {
+    thrift.setPreemptionWastedTime(wastedTime);
+  }
+
+  @Override
+  public List<CoreReport> getCoreReports() {
+    if (this.coreReports == null) {
+      this.coreReports = new ArrayList<>();
+      if (thrift.getCoreReports() != null) {
+        for (CoreReportThrift reportThrift : thrift.getCoreReports()) {
+          this.coreReports.add(new CoreReportThriftImpl(reportThrift));
+        }
+      }
+    }
+    return this.coreReports;
+  }
+
+  @Override
+  public void setCoreReports(List<CoreReport> coreReports) {
+    maybeInitThrift();
+    if (coreReports == null) {
+      thrift.unsetCoreReports();
+    }
+    this.coreReports = coreReports;
+    this.reset = true;
+  }
+
   public CardReportThrift getThrift() {
     if (!reset) {
       return thrift;
@@ -143,19 +181,44 @@ public class CardReportThriftImpl extends CardReport {
     maybeInitThrift();
 
     if (this.usedResources != null) {
-      for (AcceleratorResource resource : usedResources) {
-        thrift.addToUsedCapability(ThriftUtils.convertToThriftFormat(resource));
-      }
+      thrift.setUsedCapability(convertToThriftFormat(this.usedResources));
     }
 
     if (this.totalResources != null) {
-      for (AcceleratorResource resource : totalResources) {
-        thrift.addToUsedCapability(ThriftUtils.convertToThriftFormat(resource));
+      thrift.setTotalCapability(convertToThriftFormat(this.totalResources));
+    }
+
+    if (this.coreReports != null) {
+      List<CoreReportThrift> thrifts = new ArrayList<>(coreReports.size());
+      for (CoreReport report : coreReports) {
+        thrifts.add(((CoreReportThriftImpl) report).getThrift());
       }
+      thrift.setCoreReports(thrifts);
     }
     reset = false;
   }
 
+  private List<AcceleratorResource> convertFromThriftFormat(
+      List<AcceleratorResourceThrift> thrifts) {
+    List<AcceleratorResource> resources = new ArrayList<>();
+    if (thrifts != null) {
+      for (AcceleratorResourceThrift resourceThrift : thrifts) {
+        resources.add(ThriftUtils.convertFromThriftFormat(resourceThrift));
+      }
+    }
+    return resources;
+  }
+
+  private List<AcceleratorResourceThrift> convertToThriftFormat(
+      List<AcceleratorResource> resources) {
+    List<AcceleratorResourceThrift> thrifts =
+        new ArrayList<>(resources.size());
+    for (AcceleratorResource resource : resources) {
+      thrifts.add(ThriftUtils.convertToThriftFormat(resource));
+    }
+    return thrifts;
+  }
+
   @Override
   public int hashCode() {
     return getThrift().hashCode();
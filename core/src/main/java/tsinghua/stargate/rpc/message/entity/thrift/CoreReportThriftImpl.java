@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message.entity.thrift;
+
+import tsinghua.stargate.rpc.message.entity.CoreReport;
+import tsinghua.stargate.rpc.thrift.message.entity.CoreReportThrift;
+
+public class CoreReportThriftImpl extends CoreReport {
+
+  private CoreReportThrift thrift;
+
+  public CoreReportThriftImpl(CoreReportThrift thrift) {
+    this.thrift = thrift;
+  }
+
+  public CoreReportThriftImpl() {
+    this.thrift = new CoreReportThrift();
+  }
+
+  @Override
+  public int getCoreId() {
+    return thrift.getCoreId();
+  }
+
+  @Override
+  public void setCoreId(int coreId) {
+    thrift.setCoreId(coreId);
+  }
+
+  @Override
+  public long getBusyTime() {
+    return thrift.getBusyTime();
+  }
+
+  @Override
+  public void setBusyTime(long busyTime) {
+    thrift.setBusyTime(busyTime);
+  }
+
+  @Override
+  public long getDmaTime() {
+    return thrift.getDmaTime();
+  }
+
+  @Override
+  public void setDmaTime(long dmaTime) {
+    thrift.setDmaTime(dmaTime);
+  }
+
+  @Override
+  public long getBytesSent() {
+    return thrift.getBytesSent();
+  }
+
+  @Override
+  public void setBytesSent(long bytesSent) {
+    thrift.setBytesSent(bytesSent);
+  }
+
+  @Override
+  public long getBytesReceived() {
+    return thrift.getBytesReceived();
+  }
+
+  @Override
+  public void setBytesReceived(long bytesReceived) {
+    thrift.setBytesReceived(bytesReceived);
+  }
+
+  @Override
+  public long getNumRequests() {
+    return thrift.getNumRequests();
+  }
+
+  @Override
+  public void setNumRequests(long numRequests) {
+    thrift.setNumRequests(numRequests);
+  }
+
+  @Override
+  public long getNumReprograms() {
+    return thrift.getNumReprograms();
+  }
+
+  @Override
+  public void setNumReprograms(long numReprograms) {
+    thrift.setNumReprograms(numReprograms);
+  }
+
+  public CoreReportThrift getThrift() {
+    return thrift;
+  }
+
+  @Override
+  public int hashCode() {
+    return getThrift().hashCode();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other == null) {
+      return false;
+    }
+    if (other.getClass().isAssignableFrom(this.getClass())) {
+      return this.getThrift().equals(this.getClass().cast(other).getThrift());
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return getThrift().toString();
+  }
+}
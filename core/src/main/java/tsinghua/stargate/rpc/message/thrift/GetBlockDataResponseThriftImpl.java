@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message.thrift;
+
+import java.nio.ByteBuffer;
+
+import com.google.common.base.Preconditions;
+
+import tsinghua.stargate.rpc.message.GetBlockDataResponse;
+import tsinghua.stargate.rpc.thrift.message.GetBlockDataResponseThrift;
+
+public class GetBlockDataResponseThriftImpl extends GetBlockDataResponse {
+
+  private GetBlockDataResponseThrift thrift;
+
+  public GetBlockDataResponseThriftImpl(GetBlockDataResponseThrift thrift) {
+    this.thrift = thrift;
+  }
+
+  public GetBlockDataResponseThriftImpl() {
+    this.thrift = new GetBlockDataResponseThrift();
+  }
+
+  @Override
+  public long getCapacity() {
+    Preconditions.checkNotNull(thrift);
+    return thrift.getCapacity();
+  }
+
+  @Override
+  public void setCapacity(long capacity) {
+    Preconditions.checkNotNull(thrift);
+    thrift.setCapacity(capacity);
+  }
+
+  @Override
+  public ByteBuffer getData() {
+    Preconditions.checkNotNull(thrift);
+    // Access the field directly, the generated accessors copy the bytes
+    return thrift.data;
+  }
+
+  @Override
+  public void setData(ByteBuffer data) {
+    Preconditions.checkNotNull(thrift);
+    thrift.data = data;
+  }
+
+  public GetBlockDataResponseThrift getThrift() {
+    return thrift;
+  }
+
+  @Override
+  public int hashCode() {
+    return getThrift().hashCode();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other == null) {
+      return false;
+    }
+    if (other.getClass().isAssignableFrom(this.getClass())) {
+      return this.getThrift().equals(this.getClass().cast(other).getThrift());
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return getThrift().toString();
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message.thrift;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tsinghua.stargate.rpc.message.GetCardReportsResponse;
+import tsinghua.stargate.rpc.message.entity.CardReport;
+import tsinghua.stargate.rpc.message.entity.thrift.CardReportThriftImpl;
+import tsinghua.stargate.rpc.thrift.message.GetCardReportsResponseThrift;
+import tsinghua.stargate.rpc.thrift.message.entity.CardReportThrift;
+
+public class GetCardReportsResponseThriftImpl extends GetCardReportsResponse {
+
+  private GetCardReportsResponseThrift thrift;
+  private boolean reset = false;
+  private List<CardReport> cardReports = null;
+
+  public GetCardReportsResponseThriftImpl(
+      GetCardReportsResponseThrift thrift) {
+    this.thrift = thrift;
+  }
+
+  public GetCardReportsResponseThriftImpl() {
+    this.thrift = new GetCardReportsResponseThrift();
+  }
+
+  private void maybeInitThrift() {
+    if (thrift == null) {
+      thrift = new GetCardReportsResponseThrift();
+    }
+  }
+
+  private void mergeLocalToThrift() {
+    maybeInitThrift();
+    if (this.cardReports != null) {
+      List<CardReportThrift> thrifts = new ArrayList<>(cardReports.size());
+      for (CardReport report : cardReports) {
+        thrifts.add(((CardReportThriftImpl) report).getThrift());
+      }
+      thrift.setCardReports(thrifts);
+    }
+    reset = false;
+  }
+
+  @Override
+  public List<CardReport> getCardReports() {
+    if (this.cardReports != null) {
+      return this.cardReports;
+    }
+
+    List<CardReport> reports = new ArrayList<>();
+    if (thrift.isSetCardReports()) {
+      for (CardReportThrift reportThrift : thrift.getCardReports()) {
+        reports.add(new CardReportThriftImpl(reportThrift));
+      }
+    }
+    this.cardReports = reports;
+    return this.cardReports;
+  }
+
+  @Override
+  public void setCardReports(List<CardReport> cardReports) {
+    maybeInitThrift();
+    if (cardReports == null) {
+      thrift.unsetCardReports();
+    }
+    this.cardReports = cardReports;
+    this.reset = true;
+  }
+
+  public GetCardReportsResponseThrift getThrift() {
+    if (!reset) {
+      return thrift;
+    } else {
+      mergeLocalToThrift();
+    }
+    return thrift;
+  }
+
+  @Override
+  public int hashCode() {
+    return getThrift().hashCode();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other == null) {
+      return false;
+    }
+    if (other.getClass().isAssignableFrom(this.getClass())) {
+      return this.getThrift().equals(this.getClass().cast(other).getThrift());
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return getThrift().toString();
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message.thrift;
+
+import com.google.common.base.Preconditions;
+
+import tsinghua.stargate.rpc.message.OpenLocalChannelResponse;
+import tsinghua.stargate.rpc.thrift.message.OpenLocalChannelResponseThrift;
+
+public class OpenLocalChannelResponseThriftImpl
+    extends OpenLocalChannelResponse {
+
+  private OpenLocalChannelResponseThrift thrift;
+
+  public OpenLocalChannelResponseThriftImpl(
+      OpenLocalChannelResponseThrift thrift) {
+    this.thrift = thrift;
+  }
+
+  public OpenLocalChannelResponseThriftImpl() {
+    this.thrift = new OpenLocalChannelResponseThrift();
+  }
+
+  @Override
+  public String getPath() {
+    Preconditions.checkNotNull(thrift);
+    return thrift.getPath();
+  }
+
+  @Override
+  public void setPath(String path) {
+    Preconditions.checkNotNull(thrift);
+    if (path == null) {
+      thrift.unsetPath();
+    } else {
+      thrift.setPath(path);
+    }
+  }
+
+  public OpenLocalChannelResponseThrift getThrift() {
+    return thrift;
+  }
+
+  @Override
+  public int hashCode() {
+    return getThrift().hashCode();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other == null) {
+      return false;
+    }
+    if (other.getClass().isAssignableFrom(this.getClass())) {
+      return this.getThrift().equals(this.getClass().cast(other).getThrift());
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return getThrift().toString();
+  }
+}
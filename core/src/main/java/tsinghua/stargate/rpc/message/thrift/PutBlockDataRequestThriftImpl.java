@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.message.thrift;
+
+import java.nio.ByteBuffer;
+
+import com.google.common.base.Preconditions;
+
+import tsinghua.stargate.rpc.message.PutBlockDataRequest;
+import tsinghua.stargate.rpc.thrift.message.PutBlockDataRequestThrift;
+
+public class PutBlockDataRequestThriftImpl extends PutBlockDataRequest {
+
+  private PutBlockDataRequestThrift thrift;
+
+  public PutBlockDataRequestThriftImpl(PutBlockDataRequestThrift thrift) {
+    this.thrift = thrift;
+  }
+
+  public PutBlockDataRequestThriftImpl() {
+    this.thrift = new PutBlockDataRequestThrift();
+  }
+
+  @Override
+  public String getPath() {
+    Preconditions.checkNotNull(thrift);
+    return thrift.getPath();
+  }
+
+  @Override
+  public void setPath(String path) {
+    Preconditions.checkNotNull(thrift);
+    thrift.setPath(path);
+  }
+
+  @Override
+  public long getOffset() {
+    Preconditions.checkNotNull(thrift);
+    return thrift.getOffset();
+  }
+
+  @Override
+  public void setOffset(long offset) {
+    Preconditions.checkNotNull(thrift);
+    thrift.setOffset(offset);
+  }
+
+  @Override
+  public long getCapacity() {
+    Preconditions.checkNotNull(thrift);
+    return thrift.getCapacity();
+  }
+
+  @Override
+  public void setCapacity(long capacity) {
+    Preconditions.checkNotNull(thrift);
+    thrift.setCapacity(capacity);
+  }
+
+  @Override
+  public ByteBuffer getData() {
+    Preconditions.checkNotNull(thrift);
+    // Access the field directly, the generated accessors copy the bytes
+    return thrift.data;
+  }
+
+  @Override
+  public void setData(ByteBuffer data) {
+    Preconditions.checkNotNull(thrift);
+    thrift.data = data;
+  }
+
+  @Override
+  public boolean isLast() {
+    Preconditions.checkNotNull(thrift);
+    return thrift.isLast();
+  }
+
+  @Override
+  public void setLast(boolean last) {
+    Preconditions.checkNotNull(thrift);
+    thrift.setLast(last);
+  }
+
+  @Override
+  public String getUploadId() {
+    Preconditions.checkNotNull(thrift);
+    return thrift.getUploadId();
+  }
+
+  @Override
+  public void setUploadId(String uploadId) {
+    Preconditions.checkNotNull(thrift);
+    if (uploadId == null) {
+      thrift.unsetUploadId();
+    } else {
+      thrift.setUploadId(uploadId);
+    }
+  }
+
+  public PutBlockDataRequestThrift getThrift() {
+    return thrift;
+  }
+
+  @Override
+  public int hashCode() {
+    return getThrift().hashCode();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other == null) {
+      return false;
+    }
+    if (other.getClass().isAssignableFrom(this.getClass())) {
+      return this.getThrift().equals(this.getClass().cast(other).getThrift());
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return getThrift().toString();
+  }
+}
@@ -110,4 +110,15 @@ public class SubmitApplicationResponseThriftImpl
     this.ApplicationState = type;
     this.reset = true;
   }
+
+  @Override
+  public long getRetryAfter() {
+    return thrift.getRetryAfter();
+  }
+
+  @Override
+  public void setRetryAfter(long retryAfter) {
+    maybeInitThrift();
+    thrift.setRetryAfter(retryAfter);
+  }
 }
@@ -27,7 +27,11 @@ import tsinghua.stargate.rpc.ApplicationStarGateProtocol;
 import tsinghua.stargate.rpc.message.*;
 import tsinghua.stargate.rpc.message.thrift.*;
 import tsinghua.stargate.rpc.thrift.message.GetApplicationReportRequestThrift;
+import tsinghua.stargate.rpc.thrift.message.GetBlockDataRequestThrift;
+import tsinghua.stargate.rpc.thrift.message.GetCardReportsRequestThrift;
 import tsinghua.stargate.rpc.thrift.message.GetNewApplicationRequestThrift;
+import tsinghua.stargate.rpc.thrift.message.OpenLocalChannelRequestThrift;
+import tsinghua.stargate.rpc.thrift.message.PutBlockDataRequestThrift;
 import tsinghua.stargate.rpc.thrift.message.SubmitApplicationRequestThrift;
 import tsinghua.stargate.rpc.workhorse.RpcManager;
 import org.apache.thrift.TException;
@@ -35,7 +39,7 @@ import org.apache.thrift.TException;
 public class ApplicationStarGateProtocolClientThriftImpl
     implements ApplicationStarGateProtocol, Closeable {
 
-  private ApplicationStarGateProtocolThrift proxy;
+  private ApplicationStarGateProtocolService.Iface proxy;
 
   public ApplicationStarGateProtocolClientThriftImpl(long version,
       InetSocketAddress address, Configuration conf) throws IOException {
@@ -47,6 +51,17 @@ public class ApplicationStarGateProtocolClientThriftImpl
         version, address, conf, null, rpcTimeout);
   }
 
+  /**
+   * Create a client over an already connected Thrift client, e.g. one talking
+   * through a shared-memory channel.
+   *
+   * @param proxy the connected Thrift client
+   */
+  public ApplicationStarGateProtocolClientThriftImpl(
+      ApplicationStarGateProtocolService.Iface proxy) {
+    this.proxy = proxy;
+  }
+
   @Override
   public void close() {
   }
@@ -81,4 +96,45 @@ public class ApplicationStarGateProtocolClientThriftImpl
     return new GetApplicationReportResponseThriftImpl(
         proxy.getApplicationReport(requestThrift));
   }
+
+  @Override
+  public PutBlockDataResponse putBlockData(PutBlockDataRequest request)
+      throws StarGateException, IOException, TException {
+    PutBlockDataRequestThrift requestThrift =
+        ((PutBlockDataRequestThriftImpl) request).getThrift();
+    PutBlockDataResponse response = new PutBlockDataResponseThriftImpl(
+        proxy.putBlockData(requestThrift));
+    if (response.getError() != null) {
+      throw new StarGateException(response.getError());
+    }
+    return response;
+  }
+
+  @Override
+  public GetBlockDataResponse getBlockData(GetBlockDataRequest request)
+      throws StarGateException, IOException, TException {
+    GetBlockDataRequestThrift requestThrift =
+        ((GetBlockDataRequestThriftImpl) request).getThrift();
+    return new GetBlockDataResponseThriftImpl(
+        proxy.getBlockData(requestThrift));
+  }
+
+  @Override
+  public OpenLocalChannelResponse openLocalChannel(
+      OpenLocalChannelRequest request)
+      throws StarGateException, IOException, TException {
+    OpenLocalChannelRequestThrift requestThrift =
+        ((OpenLocalChannelRequestThriftImpl) request).getThrift();
+    return new OpenLocalChannelResponseThriftImpl(
+        proxy.openLocalChannel(requestThrift));
+  }
+
+  @Override
+  public GetCardReportsResponse getCardReports(GetCardReportsRequest request)
+      throws StarGateException, IOException, TException {
+    GetCardReportsRequestThrift requestThrift =
+        ((GetCardReportsRequestThriftImpl) request).getThrift();
+    return new GetCardReportsResponseThriftImpl(
+        proxy.getCardReports(requestThrift));
+  }
 }
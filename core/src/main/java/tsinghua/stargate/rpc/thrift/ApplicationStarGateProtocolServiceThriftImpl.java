@@ -86,4 +86,70 @@ public class ApplicationStarGateProtocolServiceThriftImpl
     }
     return null;
   }
+
+  @Override
+  public PutBlockDataResponseThrift putBlockData(
+      PutBlockDataRequestThrift request) throws TException {
+    PutBlockDataRequest putBlockDataRequest =
+        new PutBlockDataRequestThriftImpl(request);
+    PutBlockDataResponse response;
+    try {
+      response = real.putBlockData(putBlockDataRequest);
+    } catch (StarGateException | IOException e) {
+      // Tell the client why the chunk was refused
+      response =
+          PutBlockDataResponse.newInstance(request.getOffset(), e.getMessage());
+    }
+    return ((PutBlockDataResponseThriftImpl) response).getThrift();
+  }
+
+  @Override
+  public GetBlockDataResponseThrift getBlockData(
+      GetBlockDataRequestThrift request) throws TException {
+    GetBlockDataRequest getBlockDataRequest =
+        new GetBlockDataRequestThriftImpl(request);
+    try {
+      GetBlockDataResponse response = real.getBlockData(getBlockDataRequest);
+      return ((GetBlockDataResponseThriftImpl) response).getThrift();
+    } catch (StarGateException e) {
+      e.printStackTrace();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return null;
+  }
+
+  @Override
+  public OpenLocalChannelResponseThrift openLocalChannel(
+      OpenLocalChannelRequestThrift request) throws TException {
+    OpenLocalChannelRequest openLocalChannelRequest =
+        new OpenLocalChannelRequestThriftImpl(request);
+    try {
+      OpenLocalChannelResponse response =
+          real.openLocalChannel(openLocalChannelRequest);
+      return ((OpenLocalChannelResponseThriftImpl) response).getThrift();
+    } catch (StarGateException e) {
+      e.printStackTrace();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return null;
+  }
+
+  @Override
+  public GetCardReportsResponseThrift getCardReports(
+      GetCardReportsRequestThrift request) throws TException {
+    GetCardReportsRequest getCardReportsRequest =
+        new GetCardReportsRequestThriftImpl(request);
+    try {
+      GetCardReportsResponse response =
+          real.getCardReports(getCardReportsRequest);
+      return ((GetCardReportsResponseThriftImpl) response).getThrift();
+    } catch (StarGateException e) {
+      e.printStackTrace();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return null;
+  }
 }
@@ -28,7 +28,7 @@ import java.util.concurrent.TimeUnit;
 import javax.net.SocketFactory;
 
 import org.apache.thrift.TProcessor;
-import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.server.TServer;
 import org.apache.thrift.server.TThreadedSelectorServer;
 import org.apache.thrift.server.TThreadedSelectorServer.Args.AcceptPolicy;
@@ -44,7 +44,9 @@ import tsinghua.stargate.exception.StarGateRuntimeException;
 import tsinghua.stargate.io.RpcIO;
 import tsinghua.stargate.rpc.RpcEngine;
 import tsinghua.stargate.rpc.thrift.ApplicationStarGateProtocolService.Iface;
+import tsinghua.stargate.rpc.wire.WireProcessor;
 import tsinghua.stargate.rpc.workhorse.*;
+import tsinghua.stargate.util.ThreadUtils;
 
 /** A RPC engine for handling the protocols implemented by Thrift. */
 public class ThriftRpcEngine implements RpcEngine {
@@ -169,6 +171,8 @@ public class ThriftRpcEngine implements RpcEngine {
   public static class ThriftServer extends RpcServer {
 
     private int maxFrameLength;
+    private int maxMessageLength;
+    private int compressionThreshold;
     private AcceptPolicy acceptPolicy;
     private int stopTimeoutVal;
     private TimeUnit stopTimeoutUnit;
@@ -184,6 +188,12 @@ public class ThriftRpcEngine implements RpcEngine {
       this.maxFrameLength =
           (int) conf.getLong(NameSpace.RPC_THRIFT_FRAME_LENGTH_MAX,
               NameSpace.DEFAULT_RPC_THRIFT_FRAME_LENGTH_MAX);
+      this.maxMessageLength =
+          (int) conf.getLong(NameSpace.RPC_THRIFT_MESSAGE_LENGTH_MAX,
+              NameSpace.DEFAULT_RPC_THRIFT_MESSAGE_LENGTH_MAX);
+      this.compressionThreshold =
+          conf.getInt(NameSpace.RPC_THRIFT_COMPRESSION_THRESHOLD,
+              NameSpace.DEFAULT_RPC_THRIFT_COMPRESSION_THRESHOLD);
       this.acceptPolicy = FAST_ACCEPT;
       this.stopTimeoutVal = 60;
       this.stopTimeoutUnit = TimeUnit.SECONDS;
@@ -205,15 +215,29 @@ public class ThriftRpcEngine implements RpcEngine {
       // mp.registerProcessor(protocol.getSimpleName(), (TProcessor) processor);
       // }
 
-      // Configure and create a nonblocking tServer
+      // Configure and create a nonblocking tServer. The wire processor picks
+      // the protocol and codec of every frame, so the protocol factory given
+      // here only carries the framed transport.
       TThreadedSelectorServer.Args args =
           new TThreadedSelectorServer.Args(transport)
               .transportFactory(new TFramedTransport.Factory(maxFrameLength))
-              .protocolFactory(new TCompactProtocol.Factory())
-              .processor((TProcessor) processor).acceptPolicy(acceptPolicy)
+              .protocolFactory(new TBinaryProtocol.Factory())
+              .processor(new WireProcessor((TProcessor) processor,
+                  compressionThreshold, maxMessageLength))
+              .acceptPolicy(acceptPolicy)
               .acceptQueueSizePerThread(ioQueueSize).selectorThreads(ioThreads)
               .workerThreads(workerThreads).stopTimeoutVal(stopTimeoutVal)
               .stopTimeoutUnit(stopTimeoutUnit);
+      if (conf.getBoolean(NameSpace.VIRTUAL_THREADS_ENABLED,
+          NameSpace.DEFAULT_VIRTUAL_THREADS_ENABLED)) {
+        if (ThreadUtils.getExecutor().isVirtualThreadSupported()) {
+          args.executorService(ThreadUtils.getExecutor()
+              .newVirtualThreadPerTaskExecutor("ThriftWorker"));
+        } else {
+          warn("Virtual threads are not supported by this JVM, serving RPCs"
+              + " on {} worker threads", workerThreads);
+        }
+      }
       tServer = new TThreadedSelectorServer(args);
     }
 
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.wire;
+
+import java.nio.ByteBuffer;
+
+import org.apache.thrift.transport.TTransportException;
+
+import com.github.luben.zstd.Zstd;
+
+import net.jpountz.lz4.LZ4Factory;
+
+import tsinghua.stargate.exception.StarGateRuntimeException;
+
+/**
+ * Compression applied to whole Thrift frames.
+ *
+ * <p>
+ * A compressed frame starts with a one-byte codec marker and the raw length
+ * as a four-byte integer, followed by the compressed message. The markers
+ * never collide with the first byte of a {@link WireProtocol} message, so
+ * compressed and plain frames can be told apart without any handshake.
+ */
+public enum WireCodec {
+
+  NONE((byte) 0x00) {
+    @Override
+    int maxCompressedLength(int length) {
+      return length;
+    }
+
+    @Override
+    int compress(byte[] src, int off, int len, byte[] dst, int dstOff) {
+      System.arraycopy(src, off, dst, dstOff, len);
+      return len;
+    }
+
+    @Override
+    int decompress(byte[] src, int off, int len, byte[] dst) {
+      System.arraycopy(src, off, dst, 0, len);
+      return len;
+    }
+  },
+
+  LZ4((byte) 0x01) {
+    @Override
+    int maxCompressedLength(int length) {
+      return Lz4Holder.FACTORY.fastCompressor().maxCompressedLength(length);
+    }
+
+    @Override
+    int compress(byte[] src, int off, int len, byte[] dst, int dstOff) {
+      return Lz4Holder.FACTORY.fastCompressor().compress(src, off, len, dst,
+          dstOff, dst.length - dstOff);
+    }
+
+    @Override
+    int decompress(byte[] src, int off, int len, byte[] dst) {
+      // The safe decompressor never reads past len, whatever the frame says
+      return Lz4Holder.FACTORY.safeDecompressor().decompress(src, off, len,
+          dst, 0, dst.length);
+    }
+  },
+
+  ZSTD((byte) 0x02) {
+    @Override
+    int maxCompressedLength(int length) {
+      return (int) Zstd.compressBound(length);
+    }
+
+    @Override
+    int compress(byte[] src, int off, int len, byte[] dst, int dstOff) {
+      return (int) check(Zstd.compressByteArray(dst, dstOff,
+          dst.length - dstOff, src, off, len, ZSTD_LEVEL));
+    }
+
+    @Override
+    int decompress(byte[] src, int off, int len, byte[] dst) {
+      return (int) check(
+          Zstd.decompressByteArray(dst, 0, dst.length, src, off, len));
+    }
+
+    private long check(long size) {
+      if (Zstd.isError(size)) {
+        throw new StarGateRuntimeException(
+            "Zstd failed: " + Zstd.getErrorName(size));
+      }
+      return size;
+    }
+  };
+
+  /** Bytes in front of a compressed message: the marker and raw length. */
+  public static final int HEADER_SIZE = 5;
+
+  private static final int ZSTD_LEVEL = 3;
+
+  private final byte marker;
+
+  WireCodec(byte marker) {
+    this.marker = marker;
+  }
+
+  /**
+   * Get the codec by its configured name, ignoring case.
+   *
+   * @param name the configured name
+   * @return the codec
+   * @throws StarGateRuntimeException if no codec has that name
+   */
+  public static WireCodec of(String name) {
+    for (WireCodec codec : values()) {
+      if (codec.name().equalsIgnoreCase(name.trim())) {
+        return codec;
+      }
+    }
+    throw new StarGateRuntimeException("Unknown compression codec: " + name);
+  }
+
+  /**
+   * Get the codec a frame is compressed with by its first byte.
+   *
+   * @param leadingByte the first byte of a frame
+   * @return {@link #NONE} if the frame is not compressed
+   */
+  public static WireCodec detect(byte leadingByte) {
+    for (WireCodec codec : values()) {
+      if (codec != NONE && codec.marker == leadingByte) {
+        return codec;
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * Encode a message as a frame. Messages shorter than {@code threshold}, and
+   * messages that do not shrink, are left as they are.
+   *
+   * @param src the buffer holding the message
+   * @param off offset of the message in {@code src}
+   * @param len length of the message
+   * @param threshold the smallest message worth compressing
+   * @return the frame
+   */
+  public ByteBuffer encode(byte[] src, int off, int len, int threshold) {
+    if (this == NONE || len < threshold) {
+      return ByteBuffer.wrap(src, off, len);
+    }
+    byte[] dst = new byte[HEADER_SIZE + maxCompressedLength(len)];
+    int compressed = compress(src, off, len, dst, HEADER_SIZE);
+    if (compressed >= len) {
+      return ByteBuffer.wrap(src, off, len);
+    }
+    ByteBuffer frame = ByteBuffer.wrap(dst, 0, HEADER_SIZE + compressed);
+    frame.put(0, marker).putInt(1, len);
+    return frame;
+  }
+
+  /**
+   * Decode a frame into the message it carries.
+   *
+   * @param src the buffer holding the frame
+   * @param off offset of the frame in {@code src}
+   * @param len length of the frame
+   * @param maxLength the largest message accepted
+   * @return the message
+   * @throws TTransportException if the message is larger than
+   *           {@code maxLength} or cannot be decompressed
+   */
+  public static ByteBuffer decode(byte[] src, int off, int len, int maxLength)
+      throws TTransportException {
+    WireCodec codec = len > 0 ? detect(src[off]) : NONE;
+    if (codec == NONE) {
+      return ByteBuffer.wrap(src, off, len);
+    }
+    if (len < HEADER_SIZE) {
+      throw new TTransportException("Truncated " + codec + " frame");
+    }
+    int rawLength = ByteBuffer.wrap(src, off + 1, 4).getInt();
+    if (rawLength < 0 || rawLength > maxLength) {
+      throw new TTransportException("Frame of " + rawLength
+          + " bytes exceeds the maximum of " + maxLength);
+    }
+    byte[] raw = new byte[rawLength];
+    int decompressed;
+    try {
+      decompressed =
+          codec.decompress(src, off + HEADER_SIZE, len - HEADER_SIZE, raw);
+    } catch (RuntimeException e) {
+      throw new TTransportException("Corrupted " + codec + " frame", e);
+    }
+    if (decompressed != rawLength) {
+      throw new TTransportException("Corrupted " + codec + " frame of "
+          + decompressed + " bytes, expected " + rawLength);
+    }
+    return ByteBuffer.wrap(raw);
+  }
+
+  abstract int maxCompressedLength(int length);
+
+  abstract int compress(byte[] src, int off, int len, byte[] dst, int dstOff);
+
+  /**
+   * Decompress {@code len} bytes of {@code src} into {@code dst}.
+   *
+   * @return the number of bytes written to {@code dst}
+   */
+  abstract int decompress(byte[] src, int off, int len, byte[] dst);
+
+  /** Defers loading the LZ4 natives until the codec is first used. */
+  private static class Lz4Holder {
+    static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.wire;
+
+import java.nio.ByteBuffer;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.TProcessor;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolException;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.apache.thrift.transport.TMemoryInputTransport;
+import org.apache.thrift.transport.TTransport;
+
+import tsinghua.stargate.metrics.Histogram;
+import tsinghua.stargate.metrics.MetricsRegistry;
+
+/**
+ * The daemon end of framed connections. Each frame is inspected on its own:
+ * it is decompressed if it carries a {@link WireCodec} marker, and decoded
+ * with the {@link WireProtocol} its first byte belongs to. The response is
+ * written back in the same protocol and, when large enough, with the same
+ * codec, so clients configured differently share one server.
+ *
+ * <p>
+ * The protocols the server hands in are only used for their transports,
+ * which must buffer a whole frame as {@code TFramedTransport} does.
+ */
+public class WireProcessor implements TProcessor {
+
+  private static final Histogram CALL_LATENCY = MetricsRegistry.get()
+      .histogram("stargate_rpc_server_call_latency_us",
+          "Time taken by the daemon to handle an RPC");
+
+  private final TProcessor processor;
+  private final int compressionThreshold;
+  private final int maxMessageLength;
+
+  /**
+   * @param processor the processor handling decoded requests
+   * @param compressionThreshold the smallest response worth compressing
+   * @param maxMessageLength the largest request after decompression
+   */
+  public WireProcessor(TProcessor processor, int compressionThreshold,
+      int maxMessageLength) {
+    this.processor = processor;
+    this.compressionThreshold = compressionThreshold;
+    this.maxMessageLength = maxMessageLength;
+  }
+
+  @Override
+  public boolean process(TProtocol in, TProtocol out) throws TException {
+    TTransport inTrans = in.getTransport();
+    // Pull one byte so the transport loads the frame, then take the rest of
+    // the frame straight out of its buffer.
+    inTrans.readAll(new byte[1], 0, 1);
+    int remaining = inTrans.getBytesRemainingInBuffer();
+    if (remaining < 0) {
+      throw new TProtocolException(
+          "Transport " + inTrans.getClass().getSimpleName()
+              + " does not buffer frames");
+    }
+    byte[] frame = inTrans.getBuffer();
+    int offset = inTrans.getBufferPosition() - 1;
+    inTrans.consumeBuffer(remaining);
+
+    WireCodec codec = WireCodec.detect(frame[offset]);
+    ByteBuffer request =
+        WireCodec.decode(frame, offset, remaining + 1, maxMessageLength);
+    WireProtocol protocol = request.hasRemaining()
+        ? WireProtocol.detect(request.get(request.position())) : null;
+    if (protocol == null) {
+      throw new TProtocolException(TProtocolException.BAD_VERSION,
+          "Unknown wire protocol");
+    }
+
+    TProtocolFactory factory = protocol.getFactory();
+    TMemoryBuffer response = new TMemoryBuffer(1024);
+    long start = System.nanoTime();
+    boolean result;
+    try {
+      result = processor.process(
+          factory.getProtocol(new TMemoryInputTransport(request.array(),
+              request.position(), request.remaining())),
+          factory.getProtocol(response));
+    } finally {
+      CALL_LATENCY.recordSince(start);
+    }
+    if (response.length() == 0) {
+      return result;
+    }
+
+    ByteBuffer reply = codec.encode(response.getArray(), 0, response.length(),
+        compressionThreshold);
+    TTransport outTrans = out.getTransport();
+    outTrans.write(reply.array(), reply.position(), reply.remaining());
+    outTrans.flush();
+    return result;
+  }
+}
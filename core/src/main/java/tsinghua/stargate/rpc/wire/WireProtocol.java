@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.wire;
+
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TJSONProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+
+import tsinghua.stargate.exception.StarGateRuntimeException;
+
+/**
+ * Thrift protocols a client may speak to the daemon. The daemon recognizes
+ * each of them by the first byte of a message, so one server accepts all of
+ * them at once.
+ */
+public enum WireProtocol {
+
+  COMPACT((byte) 0x82, new TCompactProtocol.Factory()),
+  BINARY((byte) 0x80, new TBinaryProtocol.Factory()),
+  JSON((byte) '[', new TJSONProtocol.Factory());
+
+  private final byte leadingByte;
+  private final TProtocolFactory factory;
+
+  WireProtocol(byte leadingByte, TProtocolFactory factory) {
+    this.leadingByte = leadingByte;
+    this.factory = factory;
+  }
+
+  /**
+   * Get the protocol by its configured name, ignoring case.
+   *
+   * @param name the configured name
+   * @return the protocol
+   * @throws StarGateRuntimeException if no protocol has that name
+   */
+  public static WireProtocol of(String name) {
+    for (WireProtocol protocol : values()) {
+      if (protocol.name().equalsIgnoreCase(name.trim())) {
+        return protocol;
+      }
+    }
+    throw new StarGateRuntimeException("Unknown wire protocol: " + name);
+  }
+
+  /**
+   * Get the protocol a message is encoded in by its first byte.
+   *
+   * @param leadingByte the first byte of a message
+   * @return null if no protocol starts with that byte
+   */
+  public static WireProtocol detect(byte leadingByte) {
+    for (WireProtocol protocol : values()) {
+      if (protocol.leadingByte == leadingByte) {
+        return protocol;
+      }
+    }
+    return null;
+  }
+
+  public TProtocolFactory getFactory() {
+    return factory;
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.wire;
+
+import java.nio.ByteBuffer;
+
+import org.apache.thrift.TByteArrayOutputStream;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TMemoryInputTransport;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+/**
+ * The client end of a framed connection to the daemon. Frames are laid out
+ * exactly as by {@link TFramedTransport}, and their content may additionally
+ * be compressed by a {@link WireCodec}.
+ */
+public class WireTransport extends TTransport {
+
+  private final TTransport transport;
+  private final WireCodec codec;
+  private final int compressionThreshold;
+  private final int maxFrameLength;
+  private final int maxMessageLength;
+
+  private final TByteArrayOutputStream writeBuffer =
+      new TByteArrayOutputStream(1024);
+  private final TMemoryInputTransport readBuffer =
+      new TMemoryInputTransport(new byte[0]);
+  private final byte[] frameSize = new byte[4];
+
+  /**
+   * @param transport the underlying socket transport
+   * @param codec the codec applied to outbound frames
+   * @param compressionThreshold the smallest message worth compressing
+   * @param maxFrameLength the largest frame sent or received
+   * @param maxMessageLength the largest message after decompression
+   */
+  public WireTransport(TTransport transport, WireCodec codec,
+      int compressionThreshold, int maxFrameLength, int maxMessageLength) {
+    this.transport = transport;
+    this.codec = codec;
+    this.compressionThreshold = compressionThreshold;
+    this.maxFrameLength = maxFrameLength;
+    this.maxMessageLength = maxMessageLength;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return transport.isOpen();
+  }
+
+  @Override
+  public void open() throws TTransportException {
+    transport.open();
+  }
+
+  @Override
+  public void close() {
+    transport.close();
+  }
+
+  @Override
+  public int read(byte[] buf, int off, int len) throws TTransportException {
+    int got = readBuffer.read(buf, off, len);
+    if (got > 0) {
+      return got;
+    }
+    readFrame();
+    return readBuffer.read(buf, off, len);
+  }
+
+  private void readFrame() throws TTransportException {
+    transport.readAll(frameSize, 0, 4);
+    int size = TFramedTransport.decodeFrameSize(frameSize);
+    if (size < 0 || size > maxFrameLength) {
+      close();
+      throw new TTransportException(TTransportException.CORRUPTED_DATA,
+          "Frame size (" + size + ") larger than max length ("
+              + maxFrameLength + ")!");
+    }
+    byte[] frame = new byte[size];
+    transport.readAll(frame, 0, size);
+    ByteBuffer message = WireCodec.decode(frame, 0, size, maxMessageLength);
+    readBuffer.reset(message.array(), message.position(),
+        message.remaining());
+  }
+
+  @Override
+  public void write(byte[] buf, int off, int len) throws TTransportException {
+    writeBuffer.write(buf, off, len);
+  }
+
+  @Override
+  public void flush() throws TTransportException {
+    ByteBuffer frame = codec.encode(writeBuffer.get(), 0, writeBuffer.len(),
+        compressionThreshold);
+    writeBuffer.reset();
+    if (frame.remaining() > maxFrameLength) {
+      throw new TTransportException("Frame size (" + frame.remaining()
+          + ") larger than max length (" + maxFrameLength + ")!");
+    }
+    TFramedTransport.encodeFrameSize(frame.remaining(), frameSize);
+    transport.write(frameSize, 0, 4);
+    transport.write(frame.array(), frame.position(), frame.remaining());
+    transport.flush();
+  }
+
+  @Override
+  public byte[] getBuffer() {
+    return readBuffer.getBuffer();
+  }
+
+  @Override
+  public int getBufferPosition() {
+    return readBuffer.getBufferPosition();
+  }
+
+  @Override
+  public int getBytesRemainingInBuffer() {
+    return readBuffer.getBytesRemainingInBuffer();
+  }
+
+  @Override
+  public void consumeBuffer(int len) {
+    readBuffer.consumeBuffer(len);
+  }
+}
@@ -35,9 +35,7 @@ import javax.net.SocketFactory;
 import org.apache.hadoop.ipc.RemoteException;
 import org.apache.hadoop.net.NetUtils;
 import org.apache.hadoop.util.Time;
-import org.apache.thrift.protocol.TCompactProtocol;
 import org.apache.thrift.protocol.TProtocol;
-import org.apache.thrift.transport.TFramedTransport;
 import org.apache.thrift.transport.TSocket;
 import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
@@ -48,9 +46,14 @@ import tsinghua.stargate.conf.Configuration;
 import tsinghua.stargate.conf.NameSpace;
 import tsinghua.stargate.exception.StarGateRuntimeException;
 import tsinghua.stargate.io.RpcIO;
+import tsinghua.stargate.metrics.Histogram;
+import tsinghua.stargate.metrics.MetricsRegistry;
 import tsinghua.stargate.rpc.thrift.ApplicationStarGateProtocolService;
 import tsinghua.stargate.rpc.thrift.ThriftRpcEngine;
 import tsinghua.stargate.rpc.thrift.ApplicationStarGateProtocolService.Iface;
+import tsinghua.stargate.rpc.wire.WireCodec;
+import tsinghua.stargate.rpc.wire.WireProtocol;
+import tsinghua.stargate.rpc.wire.WireTransport;
 import tsinghua.stargate.util.ThreadUtils;
 
 /**
@@ -70,6 +73,10 @@ public class RpcClient {
   private static final ThreadLocal<Integer> callId = new ThreadLocal<>();
   /** A variable employed by all clients is used for storing retry counts. */
   private static final ThreadLocal<Integer> retryCount = new ThreadLocal<>();
+  /** Round-trip time of calls, including failed ones. */
+  private static final Histogram CALL_LATENCY = MetricsRegistry.get()
+      .histogram("stargate_rpc_client_call_latency_us",
+          "Round-trip time of RPCs made by clients");
   /** The only {@code Executor} factory for all clients. */
   private final static ClientExecutorFactory CLIENT_EXECUTOR_FACTORY =
       new ClientExecutorFactory();
@@ -168,6 +175,16 @@ public class RpcClient {
    */
   public RpcIO<?, ?> call(RpcManager.RpcType rpcType, RpcIO<?, ?> rpcRequest,
       ConnectionId connectionId) throws IOException {
+    long start = System.nanoTime();
+    try {
+      return doCall(rpcType, rpcRequest, connectionId);
+    } finally {
+      CALL_LATENCY.recordSince(start);
+    }
+  }
+
+  private RpcIO<?, ?> doCall(RpcManager.RpcType rpcType,
+      RpcIO<?, ?> rpcRequest, ConnectionId connectionId) throws IOException {
     final Call call = createCall(rpcType, rpcRequest);
     Connection connection = getConnection(connectionId, call);
     LOG.debug("Achieve the connection: {}", connection);
@@ -408,7 +425,8 @@ public class RpcClient {
    * A {@code ConnectionId} wraps RPC protocols and server addresses. Note: the
    * connections between RPC Client and Server are uniquely identified by
    * <li>{@code protocol} and {@code serverAddress}</li>, i.e.
-   * {@code ConnectionId}.
+   * {@code ConnectionId}. It also carries how the connection is encoded on
+   * the wire, so differently configured proxies get separate connections.
    */
   public static class ConnectionId {
 
@@ -435,6 +453,16 @@ public class RpcClient {
     private final boolean usePing;
     /** How often sends ping to server (in millisecond). */
     private final int pingInterval;
+    /** Thrift protocol spoken on this connection. */
+    private final WireProtocol wireProtocol;
+    /** Compression applied to large frames. */
+    private final WireCodec codec;
+    /** The smallest message worth compressing. */
+    private final int compressionThreshold;
+    /** The largest frame sent or received. */
+    private final int maxFrameLength;
+    /** The largest message after decompression. */
+    private final int maxMessageLength;
 
     public ConnectionId(Class<?> protocol, InetSocketAddress address,
         Configuration conf, int rpcTimeout) {
@@ -451,6 +479,19 @@ public class RpcClient {
       this.usePing = conf.getBoolean(NameSpace.RPC_CLIENT_PING,
           NameSpace.DEFAULT_RPC_CLIENT_PING);
       this.pingInterval = (usePing ? RpcClient.getPingInterval(conf) : 0);
+      this.wireProtocol = WireProtocol.of(conf.get(
+          NameSpace.RPC_THRIFT_PROTOCOL, NameSpace.DEFAULT_RPC_THRIFT_PROTOCOL));
+      this.codec = WireCodec.of(conf.get(NameSpace.RPC_THRIFT_COMPRESSION_CODEC,
+          NameSpace.DEFAULT_RPC_THRIFT_COMPRESSION_CODEC));
+      this.compressionThreshold =
+          conf.getInt(NameSpace.RPC_THRIFT_COMPRESSION_THRESHOLD,
+              NameSpace.DEFAULT_RPC_THRIFT_COMPRESSION_THRESHOLD);
+      this.maxFrameLength =
+          (int) conf.getLong(NameSpace.RPC_THRIFT_FRAME_LENGTH_MAX,
+              NameSpace.DEFAULT_RPC_THRIFT_FRAME_LENGTH_MAX);
+      this.maxMessageLength =
+          (int) conf.getLong(NameSpace.RPC_THRIFT_MESSAGE_LENGTH_MAX,
+              NameSpace.DEFAULT_RPC_THRIFT_MESSAGE_LENGTH_MAX);
     }
 
     /**
@@ -499,6 +540,26 @@ public class RpcClient {
       return pingInterval;
     }
 
+    public WireProtocol getWireProtocol() {
+      return wireProtocol;
+    }
+
+    public WireCodec getCodec() {
+      return codec;
+    }
+
+    public int getCompressionThreshold() {
+      return compressionThreshold;
+    }
+
+    public int getMaxFrameLength() {
+      return maxFrameLength;
+    }
+
+    public int getMaxMessageLength() {
+      return maxMessageLength;
+    }
+
     @Override
     public boolean equals(Object obj) {
       if (obj == this) {
@@ -512,7 +573,12 @@ public class RpcClient {
             && this.maxIdleTime == that.maxIdleTime
             && this.tcpNoDelay == that.tcpNoDelay
             && this.usePing == that.usePing
-            && this.pingInterval == that.pingInterval;
+            && this.pingInterval == that.pingInterval
+            && this.wireProtocol == that.wireProtocol
+            && this.codec == that.codec
+            && this.compressionThreshold == that.compressionThreshold
+            && this.maxFrameLength == that.maxFrameLength
+            && this.maxMessageLength == that.maxMessageLength;
       }
       return false;
     }
@@ -527,6 +593,11 @@ public class RpcClient {
       result = PRIME * result + (tcpNoDelay ? 1231 : 1237);
       result = PRIME * result + (usePing ? 1231 : 1237);
       result = PRIME * result + pingInterval;
+      result = PRIME * result + wireProtocol.hashCode();
+      result = PRIME * result + codec.hashCode();
+      result = PRIME * result + compressionThreshold;
+      result = PRIME * result + maxFrameLength;
+      result = PRIME * result + maxMessageLength;
       return result;
     }
 
@@ -549,7 +620,6 @@ public class RpcClient {
     private final ConnectionId connectionId;
     private final Object sendRequestLock = new Object();
 
-    private int maxFrameLength;
     private final String thriftServiceName;
 
     private InetSocketAddress serverAddress;
@@ -582,9 +652,6 @@ public class RpcClient {
       if (doPing) { // Construct a RPC header with the callId as the ping callId
         pingRequest = new ByteArrayOutputStream();
       }
-      this.maxFrameLength =
-          (int) conf.getLong(NameSpace.RPC_THRIFT_FRAME_LENGTH_MAX,
-              NameSpace.DEFAULT_RPC_THRIFT_FRAME_LENGTH_MAX);
       this.thriftServiceName = connectionId.getProtocol().getSimpleName();
     }
 
@@ -642,10 +709,13 @@ public class RpcClient {
       TSocket socket =
           new TSocket(serverAddress.getAddress().getCanonicalHostName(),
               serverAddress.getPort());
-      TTransport transport = new TFramedTransport(socket, maxFrameLength);
+      TTransport transport = new WireTransport(socket, connectionId.getCodec(),
+          connectionId.getCompressionThreshold(),
+          connectionId.getMaxFrameLength(), connectionId.getMaxMessageLength());
       transport.open();
 
-      TProtocol protocol = new TCompactProtocol(transport);
+      TProtocol protocol =
+          connectionId.getWireProtocol().getFactory().getProtocol(transport);
       // mp = new TMultiplexedProtocol(protocol, thriftServiceName);
 
       thriftClient = new ApplicationStarGateProtocolService.Client(protocol);
@@ -17,8 +17,10 @@
 package tsinghua.stargate.scheduler;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import tsinghua.stargate.Log;
 import tsinghua.stargate.conf.Configuration;
@@ -26,6 +28,7 @@ import tsinghua.stargate.conf.NameSpace;
 import tsinghua.stargate.exception.StarGateRuntimeException;
 import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
 import tsinghua.stargate.rpc.message.entity.Worker;
+import tsinghua.stargate.util.NumaUtils;
 
 import com.google.common.base.Splitter;
 
@@ -40,8 +43,13 @@ public class Accelerator extends Log {
   private int acceleratorIndex;
   private int numCores = 0;
   private Worker worker;
+  private boolean reconfigurable;
+  /** NUMA node of the PCIe root the accelerator is attached to. */
+  private int numaNode;
 
   private List<AcceleratorResource> resourceCapacity = new ArrayList<>();
+  /** Bitstreams loaded at startup, indexed by core id. */
+  private Map<Integer, String> bitstreams = new HashMap<>();
 
   public Accelerator(Configuration conf, String acceleratorId,
       int acceleratorIndex) {
@@ -55,6 +63,9 @@ public class Accelerator extends Log {
       Splitter splitter = Splitter.on(',').trimResults().omitEmptyStrings();
       this.worker = Worker
           .valueOf(conf.get(NameSpace.ACCELERATOR_TYPE_PREFIX + acceleratorId));
+      this.reconfigurable = conf.getBoolean(
+          NameSpace.ACCELERATOR_CORE_RECONFIGURABLE_PREFIX + acceleratorId,
+          NameSpace.DEFAULT_ACCELERATOR_CORE_RECONFIGURABLE);
       Iterator<String> coreIdIterator = splitter
           .split(
               conf.get(NameSpace.ACCELERATOR_CORE_IDS_PREFIX + acceleratorId))
@@ -104,12 +115,22 @@ public class Accelerator extends Log {
             acceleratorId, coreWorkload, coreId, coreMemory, frequency);
         resourceCapacity.add(AcceleratorResource.newInstance(coreWorkload,
             coreMemory, coreId, frequency));
+        String bitstream = conf.get(
+            NameSpace.ACCELERATOR_WORKLOAD_BITSTREAM_PREFIX + coreWorkload);
+        if (bitstream != null) {
+          bitstreams.put(coreId, bitstream);
+        }
         numCores++;
       }
     } catch (Exception e) {
       error("Find invalid accelerator {}", acceleratorId);
       throw new StarGateRuntimeException(e);
     }
+
+    this.numaNode = NumaUtils.getAcceleratorNode(conf, acceleratorId,
+        acceleratorIndex, worker);
+    info("Accelerator {} is attached to NUMA node {}", acceleratorId,
+        numaNode);
   }
 
   public String getAcceleratorId() {
@@ -128,6 +149,22 @@ public class Accelerator extends Log {
     return worker;
   }
 
+  public boolean isReconfigurable() {
+    return reconfigurable;
+  }
+
+  /**
+   * @return the NUMA node of the accelerator, or
+   *         {@link NumaUtils#UNKNOWN_NODE}
+   */
+  public int getNumaNode() {
+    return numaNode;
+  }
+
+  public Map<Integer, String> getBitstreams() {
+    return bitstreams;
+  }
+
   public List<AcceleratorResource> getResourceCapability() {
     return resourceCapacity;
   }
@@ -16,6 +16,11 @@
 
 package tsinghua.stargate.scheduler;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import tsinghua.stargate.io.CoreCounters;
+import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
 import tsinghua.stargate.scheduler.AcceleratorResources;
 import tsinghua.stargate.scheduler.AcceleratorResourcesImpl;
 import tsinghua.stargate.scheduler.SchedulableAccelerator;
@@ -25,11 +30,20 @@ public class AcceleratorReport {
   private final AcceleratorResources used = new AcceleratorResourcesImpl();
   private final AcceleratorResources total = new AcceleratorResourcesImpl();
   private int num = -1;
+  private int numPreemptions;
+  private long preemptionWastedTime;
+  private final List<CoreCounters> coreCounters = new ArrayList<>();
 
   public AcceleratorReport(SchedulableAccelerator accelerator) {
     this.used.addAll(accelerator.getUsedResources());
     this.total.addAll(accelerator.getTotalResources());
     this.num = accelerator.getNumTasks();
+    this.numPreemptions = accelerator.getNumPreemptions();
+    this.preemptionWastedTime = accelerator.getPreemptionWastedTime();
+    for (AcceleratorResource resource : accelerator.getTotalResources()) {
+      coreCounters.add(
+          accelerator.getCoreCounters(resource.getAcceleratorCoreId()));
+    }
   }
 
   public AcceleratorResources getUsed() {
@@ -43,4 +57,17 @@ public class AcceleratorReport {
   public int getNum() {
     return num;
   }
+
+  public int getNumPreemptions() {
+    return numPreemptions;
+  }
+
+  public long getPreemptionWastedTime() {
+    return preemptionWastedTime;
+  }
+
+  /** @return the hardware counters of each core of the card */
+  public List<CoreCounters> getCoreCounters() {
+    return coreCounters;
+  }
 }
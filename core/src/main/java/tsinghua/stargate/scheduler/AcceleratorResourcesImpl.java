@@ -42,6 +42,8 @@ public class AcceleratorResourcesImpl implements AcceleratorResources {
 
   @Override
   public Set<String> getWorkloads() {
+    // Cores may be reprogrammed in place, so never serve a stale view.
+    workloads.clear();
     for (AcceleratorResource resource : resources) {
       workloads.add(resource.getAcceleratorWorkload());
     }
@@ -71,7 +73,7 @@ public class AcceleratorResourcesImpl implements AcceleratorResources {
       return false;
     else {
       Set<String> result = new HashSet<>();
-      result.addAll(workloads);
+      result.addAll(getWorkloads());
       result.retainAll(resources.getWorkloads());
       return result.size() != 0;
     }
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.scheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import tsinghua.stargate.Log;
+import tsinghua.stargate.exception.StarGateRuntimeException;
+
+/**
+ * Loads the queue settings from the allocation file, and loads them again
+ * whenever the file changes, so that shares can be rebalanced between tenants
+ * without restarting the daemon.
+ *
+ * <p>
+ * The file nests {@code queue} elements named relative to their parent, the
+ * top level ones being children of {@code stargate.accelerator}. Leaf queues
+ * are named after the workload and the user application id of their tasks:
+ *
+ * <pre>
+ * &lt;allocations&gt;
+ *   &lt;queue name="loopback"&gt;
+ *     &lt;weight&gt;2.0&lt;/weight&gt;
+ *     &lt;maxShare&gt;6&lt;/maxShare&gt;
+ *     &lt;schedulingPolicy&gt;edf&lt;/schedulingPolicy&gt;
+ *     &lt;queue name="tenant-a"&gt;
+ *       &lt;minShare&gt;2&lt;/minShare&gt;
+ *       &lt;maxRunning&gt;8&lt;/maxRunning&gt;
+ *       &lt;maxPending&gt;32&lt;/maxPending&gt;
+ *     &lt;/queue&gt;
+ *   &lt;/queue&gt;
+ * &lt;/allocations&gt;
+ * </pre>
+ *
+ * <p>
+ * A file that fails to load is reported, and the settings loaded before are
+ * kept until the file is fixed.
+ */
+class AllocationFileLoader extends Log {
+
+  private final File file;
+  private final long reloadInterval;
+  private final FairScheduler scheduler;
+
+  /** Modification time of the file when it was last loaded, -1 if never. */
+  private long lastModified = -1;
+  /** When the file was last checked, -1 if never. */
+  private long lastCheckTime = -1;
+  private volatile Map<String, QueueAllocation> allocations =
+      Collections.emptyMap();
+
+  /**
+   * @param file the allocation file
+   * @param reloadInterval how often in milliseconds to check whether the file
+   *          was modified
+   * @param scheduler the scheduler whose policies the queues may use
+   */
+  AllocationFileLoader(File file, long reloadInterval,
+      FairScheduler scheduler) {
+    this.file = file;
+    this.reloadInterval = reloadInterval;
+    this.scheduler = scheduler;
+  }
+
+  /** Get the settings of all queues in the file, indexed by full name. */
+  Map<String, QueueAllocation> getAllocations() {
+    return allocations;
+  }
+
+  /**
+   * Load the allocation file unless it was not modified since it was loaded
+   * last. The file is checked at most once per reload interval.
+   *
+   * @param now the current time in milliseconds
+   * @return {@code true} if new settings were loaded
+   */
+  synchronized boolean reloadIfModified(long now) {
+    if (lastCheckTime != -1 && now - lastCheckTime < reloadInterval) {
+      return false;
+    }
+    lastCheckTime = now;
+    long modified = file.lastModified();
+    if (modified == lastModified) {
+      return false;
+    }
+
+    // A file that fails to load is tried again, even if it is fixed within
+    // the granularity of its modification time
+    try {
+      allocations = load();
+      lastModified = modified;
+    } catch (IOException | SAXException | ParserConfigurationException
+        | IllegalArgumentException | StarGateRuntimeException e) {
+      error("Failed to load allocation file {}, keep the previous settings",
+          file, e);
+      return false;
+    }
+    info("Loaded settings of {} queues from allocation file {}",
+        allocations.size(), file);
+    return true;
+  }
+
+  private Map<String, QueueAllocation> load()
+      throws IOException, SAXException, ParserConfigurationException {
+    DocumentBuilder builder =
+        DocumentBuilderFactory.newInstance().newDocumentBuilder();
+    Element root = builder.parse(file).getDocumentElement();
+    if (!"allocations".equals(root.getTagName())) {
+      throw new StarGateRuntimeException(
+          "Top-level element of " + file + " is not <allocations>");
+    }
+
+    Map<String, QueueAllocation> loaded = new HashMap<>();
+    loadQueues(root, QueueManager.ACCELERATOR_QUEUE, loaded);
+    return loaded;
+  }
+
+  /**
+   * Load the {@code queue} elements nested in {@code parent}, and all their
+   * descendants.
+   */
+  private void loadQueues(Element parent, String parentName,
+      Map<String, QueueAllocation> loaded) {
+    NodeList nodes = parent.getChildNodes();
+    for (int i = 0; i < nodes.getLength(); i++) {
+      Node node = nodes.item(i);
+      if (!(node instanceof Element)
+          || !"queue".equals(((Element) node).getTagName())) {
+        continue;
+      }
+      Element element = (Element) node;
+      String name = element.getAttribute("name").trim();
+      if (name.isEmpty() || name.contains(".")) {
+        throw new StarGateRuntimeException(
+            "Illegal queue name '" + name + "' under " + parentName);
+      }
+      String fullName = parentName + "." + name;
+      loaded.put(fullName, loadQueue(element, fullName));
+      loadQueues(element, fullName, loaded);
+    }
+  }
+
+  private QueueAllocation loadQueue(Element element, String name) {
+    QueueAllocation allocation = new QueueAllocation();
+    NodeList nodes = element.getChildNodes();
+    for (int i = 0; i < nodes.getLength(); i++) {
+      Node node = nodes.item(i);
+      if (!(node instanceof Element)) {
+        continue;
+      }
+      Element field = (Element) node;
+      String text = field.getTextContent().trim();
+      switch (field.getTagName()) {
+      case "queue":
+        break;
+      case "weight":
+        float weight = Float.parseFloat(text);
+        if (weight <= 0) {
+          throw new StarGateRuntimeException(
+              "Weight of queue " + name + " is not positive");
+        }
+        allocation.setWeight(weight);
+        break;
+      case "minShare":
+        allocation.setMinShare(Integer.parseInt(text));
+        break;
+      case "maxShare":
+        allocation.setMaxShare(Integer.parseInt(text));
+        break;
+      case "schedulingPolicy":
+        allocation.setPolicy(scheduler.createPolicy(text));
+        break;
+      case "maxRunning":
+        allocation.setMaxRunning(Integer.parseInt(text));
+        break;
+      case "maxPending":
+        allocation.setMaxPending(Integer.parseInt(text));
+        break;
+      default:
+        throw new StarGateRuntimeException("Unknown element <"
+            + field.getTagName() + "> in queue " + name);
+      }
+    }
+    return allocation;
+  }
+}
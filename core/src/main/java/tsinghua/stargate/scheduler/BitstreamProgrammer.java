@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.scheduler;
+
+import java.io.IOException;
+
+/**
+ * Downloads a bitstream onto a core of an accelerator card, turning the core
+ * into an accelerator for another workload.
+ */
+public interface BitstreamProgrammer {
+
+  /**
+   * Reprogram a core of an accelerator card.
+   *
+   * @param card the accelerator card owning the core
+   * @param coreId the core to be reprogrammed
+   * @param workload the workload the core will serve afterwards
+   * @param bitstream path of the bitstream implementing the workload
+   * @throws IOException if the bitstream cannot be loaded
+   */
+  void program(SchedulableAccelerator card, int coreId, String workload,
+      String bitstream) throws IOException;
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.scheduler;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+import tsinghua.stargate.util.Clock;
+
+/**
+ * Compare {@link Schedulable} by priority class and earliest deadline first
+ * (EDF), for latency-sensitive applications sharing accelerators with batch
+ * work.
+ *
+ * <p>
+ * Schedulables are ordered as follows:
+ *
+ * <ul>
+ * <li>Schedulables whose waiting time exceeds the starvation threshold come
+ * first, the longest waiting one first. This keeps batch work without a
+ * deadline from starving behind a continuous stream of urgent work.</li>
+ * <li>Higher priority classes come before lower ones.</li>
+ * <li>Within a priority class, earlier deadlines come first; schedulables
+ * without a deadline come last.</li>
+ * <li>Remaining ties are broken by {@link FairShareComparator}.</li>
+ * </ul>
+ *
+ * <p>
+ * Waiting times are taken at the time of the scheduling round given by
+ * {@code roundClock} rather than live, since a schedulable crossing the
+ * starvation threshold in the middle of a sort would make the order
+ * inconsistent.
+ *
+ * <p>
+ * Scheduling in descending order
+ */
+public class DeadlineComparator
+    implements Comparator<Schedulable>, Serializable {
+
+  private static final long serialVersionUID = -2304738611349529145L;
+
+  private final long starvationThreshold;
+  private final Clock roundClock;
+  private final FairShareComparator fairShareComparator =
+      new FairShareComparator();
+
+  /**
+   * @param starvationThreshold waiting time in milliseconds after which a
+   *          schedulable is served ahead of priorities and deadlines
+   * @param roundClock the time of the current scheduling round, which stays
+   *          the same during a round
+   */
+  public DeadlineComparator(long starvationThreshold, Clock roundClock) {
+    this.starvationThreshold = starvationThreshold;
+    this.roundClock = roundClock;
+  }
+
+  @Override
+  public int compare(Schedulable s1, Schedulable s2) {
+    long now = roundClock.getTime();
+    long wait1 = s1.getWaitTime(now);
+    long wait2 = s2.getWaitTime(now);
+    boolean s1Starving = wait1 > starvationThreshold;
+    boolean s2Starving = wait2 > starvationThreshold;
+
+    int res = 0;
+    if (s1Starving && !s2Starving)
+      res = -1;
+    else if (!s1Starving && s2Starving)
+      res = 1;
+    else if (s1Starving)
+      res = Long.compare(wait2, wait1);
+    if (res != 0)
+      return res;
+
+    res = Integer.compare(s2.getPriority(), s1.getPriority());
+    if (res != 0)
+      return res;
+
+    res = Long.compare(s1.getDeadline(), s2.getDeadline());
+    if (res != 0)
+      return res;
+
+    return fairShareComparator.compare(s1, s2);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.scheduler;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import tsinghua.stargate.Log;
+
+/**
+ * A {@link BitstreamProgrammer} that only sleeps for a fixed delay, standing in
+ * for the download time of a real bitstream.
+ */
+public class EmulatedBitstreamProgrammer extends Log
+    implements BitstreamProgrammer {
+
+  private final long delayMs;
+
+  public EmulatedBitstreamProgrammer(long delayMs) {
+    this.delayMs = delayMs;
+  }
+
+  @Override
+  public void program(SchedulableAccelerator card, int coreId, String workload,
+      String bitstream) throws IOException {
+    debug("Emulate programming {} onto core {} of accelerator {} ({} ms)",
+        bitstream, coreId, card.getHardwareId(), delayMs);
+    try {
+      Thread.sleep(delayMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(
+          "Interrupted while programming " + bitstream);
+    }
+  }
+
+  public long getDelayMs() {
+    return delayMs;
+  }
+}
@@ -17,9 +17,15 @@
 
 package tsinghua.stargate.scheduler;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.common.base.Preconditions;
@@ -31,13 +37,15 @@ import tsinghua.stargate.app.UserApp;
 import tsinghua.stargate.conf.Configuration;
 import tsinghua.stargate.conf.NameSpace;
 import tsinghua.stargate.exception.StarGateRuntimeException;
+import tsinghua.stargate.metrics.MetricsRegistry;
 import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
 import tsinghua.stargate.rpc.message.entity.ApplicationId;
 import tsinghua.stargate.rpc.message.entity.ApplicationResourceUsageReport;
 import tsinghua.stargate.service.AbstractService;
 import tsinghua.stargate.task.Task;
 import tsinghua.stargate.task.TaskAddedEvent;
-import tsinghua.stargate.task.TaskImpl;
+import tsinghua.stargate.util.Clock;
+import tsinghua.stargate.util.SystemClock;
 import tsinghua.stargate.util.Utils;
 
 @SuppressWarnings("unchecked")
@@ -46,6 +54,10 @@ public class FairScheduler extends AbstractService
 
   private Configuration conf;
   private DaemonContext context;
+  /** Time source of the scheduler, replaced by the simulator. */
+  private Clock clock = SystemClock.getInstance();
+  /** Time of the last scheduling round, read by time-dependent policies. */
+  private volatile long roundTime = clock.getTime();
 
   /** A heartbeat thread for assigning resources to queues/tasks. */
   private Thread schedulingThread;
@@ -60,10 +72,34 @@ public class FairScheduler extends AbstractService
   /** All accelerator resources in a node. */
   private List<AcceleratorResource> nodeResources = new ArrayList<>();
   private AcceleratorResources maxShare = new AcceleratorResourcesImpl();
+  /**
+   * Workloads served by the cores of this node, taken at the start of every
+   * scheduling round so that comparing schedulables does not walk all cores.
+   */
+  private volatile Set<String> hostedWorkloads = new HashSet<>();
 
   private QueueManager queueManager;
+  /** Policy ordering queues and tasks competing for accelerator cores. */
+  private Comparator<Schedulable> policy = new FairShareComparator();
+  /** Loads the queue settings from the allocation file, if any. */
+  private AllocationFileLoader allocationLoader;
+  /** Reprograms reconfigurable cores when queue pressure justifies it. */
+  private Reconfigurator reconfigurator;
+  /** Places tasks spanning several cards on all of them at once. */
+  private GangScheduler gangScheduler = new GangScheduler(this);
   private ConcurrentHashMap<String, SchedulableTask> tasks =
       new ConcurrentHashMap<>();
+
+  /** Whether waiting tasks may reclaim cores from lower priority ones. */
+  private boolean preemptionEnabled;
+  private int maxPreemptionsPerTask;
+  private int numPreemptions;
+  private int numRequeuedBlocks;
+  private long preemptionWastedTime;
+  /** The least wait suggested to submissions rejected by a full queue. */
+  private long minRetryAfter = NameSpace.DEFAULT_ACCELERATOR_QUEUE_RETRY_AFTER;
+  /** Half-life of the hardware time charged to queues. */
+  private long usageHalfLife = NameSpace.DEFAULT_SCHEDULING_USAGE_HALF_LIFE;
   /** A cache for storing the weights of accelerator cards. */
   private ConcurrentHashMap<String, Float> taskWeights =
       new ConcurrentHashMap<>();
@@ -75,6 +111,20 @@ public class FairScheduler extends AbstractService
     schedulingThread.setName("FairScheduler Thread");
     schedulingThread.setDaemon(true);
     queueManager = new QueueManager(this);
+    MetricsRegistry.get().gauge("stargate_scheduler_tasks",
+        "Tasks held by the scheduler", tasks::size);
+    MetricsRegistry.get().gauge("stargate_scheduler_waiting_tasks",
+        "Tasks waiting for a core", this::getNumWaitingTasks);
+  }
+
+  private long getNumWaitingTasks() {
+    long waiting = 0;
+    for (SchedulableTask task : tasks.values()) {
+      if (!task.isScheduled()) {
+        waiting++;
+      }
+    }
+    return waiting;
   }
 
   @Override
@@ -84,6 +134,49 @@ public class FairScheduler extends AbstractService
     queueManager.init();
     schedulingInterval = conf.getInt(NameSpace.SCHEDULING_INTERVAL,
         NameSpace.DEFAULT_SCHEDULING_INTERVAL);
+    reconfigurator = new Reconfigurator(conf, nodeAccelerators);
+    policy = createPolicy(conf.get(NameSpace.SCHEDULING_POLICY,
+        NameSpace.DEFAULT_SCHEDULING_POLICY));
+    preemptionEnabled = conf.getBoolean(NameSpace.SCHEDULING_PREEMPTION_ENABLED,
+        NameSpace.DEFAULT_SCHEDULING_PREEMPTION_ENABLED);
+    maxPreemptionsPerTask =
+        conf.getInt(NameSpace.SCHEDULING_PREEMPTION_MAX_PER_TASK,
+            NameSpace.DEFAULT_SCHEDULING_PREEMPTION_MAX_PER_TASK);
+    minRetryAfter = conf.getLong(NameSpace.ACCELERATOR_QUEUE_RETRY_AFTER,
+        NameSpace.DEFAULT_ACCELERATOR_QUEUE_RETRY_AFTER);
+    usageHalfLife = conf.getLong(NameSpace.SCHEDULING_USAGE_HALF_LIFE,
+        NameSpace.DEFAULT_SCHEDULING_USAGE_HALF_LIFE);
+
+    String allocationFile = conf.get(NameSpace.SCHEDULING_ALLOCATION_FILE);
+    if (allocationFile != null) {
+      allocationLoader = new AllocationFileLoader(new File(allocationFile),
+          conf.getLong(NameSpace.SCHEDULING_ALLOCATION_RELOAD_INTERVAL,
+              NameSpace.DEFAULT_SCHEDULING_ALLOCATION_RELOAD_INTERVAL),
+          this);
+      reloadAllocations();
+    }
+  }
+
+  /**
+   * Create the policy named {@code name}, i.e. "fair" or "edf".
+   *
+   * @throws StarGateRuntimeException if no policy is named {@code name}
+   */
+  Comparator<Schedulable> createPolicy(String name) {
+    switch (name.trim().toLowerCase()) {
+    case "fair":
+      return new FairShareComparator();
+    case "edf":
+      long starvationThreshold =
+          conf.getLong(NameSpace.SCHEDULING_STARVATION_THRESHOLD,
+              NameSpace.DEFAULT_SCHEDULING_STARVATION_THRESHOLD);
+      info("Use EDF scheduling policy (starvation threshold: {} ms)",
+          starvationThreshold);
+      return new DeadlineComparator(starvationThreshold, this::getRoundTime);
+    default:
+      throw new StarGateRuntimeException("Unknown scheduling policy " + name
+          + ", expected one of fair, edf");
+    }
   }
 
   @Override
@@ -98,6 +191,9 @@ public class FairScheduler extends AbstractService
 
   @Override
   protected void serviceStop() throws Exception {
+    if (reconfigurator != null) {
+      reconfigurator.stop();
+    }
     info("Successfully stopped service '{}'", this.getClass().getSimpleName());
     super.serviceStop();
   }
@@ -119,6 +215,13 @@ public class FairScheduler extends AbstractService
       removeTask(((TaskRemovedSchedulerEvent) event));
       break;
 
+    case TASK_PREEMPTED:
+      if (!(event instanceof TaskPreemptedSchedulerEvent)) {
+        throw new StarGateRuntimeException("Unexpected event: " + event);
+      }
+      requeueTask((TaskPreemptedSchedulerEvent) event);
+      break;
+
     default:
       break;
     }
@@ -135,19 +238,16 @@ public class FairScheduler extends AbstractService
     String taskId = event.getTaskId().getId();
     ApplicationId anmAppId = event.getTaskId().getDaemonAppId();
     if (!acceleratorWorkLoadPreCheck(taskId)) {
-      String message = "Reject " + anmAppId + " submitted by user " + userAppId
-          + " with node no " + Utils.getTaskWorkLoad(taskId) + " accelerator";
-      info(message);
-      context.getDispatcher().getEventHandler()
-          .handle(new DaemonAppRejectedEvent(event.getTaskId().getDaemonAppId(),
-              message));
+      rejectTask(event, "Reject " + anmAppId + " submitted by user "
+          + userAppId + " with node no " + Utils.getTaskWorkLoad(taskId)
+          + " accelerator");
       return;
     }
 
     debug("Assign task {} to a queue", taskId);
 
     UserApp app = context.getUserApps().get(userAppId);
-    TaskImpl task = (TaskImpl) app.getTask(taskId);
+    Task task = app.getTask(taskId);
     String workload = task.getWorkload();
 
     String queueName = Utils.getQueueName(workload, userAppId);
@@ -157,16 +257,40 @@ public class FairScheduler extends AbstractService
     }
     SchedulableLeafQueue leafQueue = queueManager.getLeafQueue(queueName, true);
     SchedulableTask schedulableTask = getSchedulableTask(task, leafQueue, this);
+    if (schedulableTask.getCards() > gangScheduler
+        .getNumHostingCards(workload)) {
+      rejectTask(event, "Reject " + anmAppId + " submitted by user "
+          + userAppId + " spanning " + schedulableTask.getCards()
+          + " cards, more than node accelerators serving " + workload);
+      return;
+    }
+    if (!leafQueue.admitAcceleratorTask(schedulableTask)) {
+      rejectTask(event, "Reject " + anmAppId + " submitted by user "
+          + userAppId + " since queue " + leafQueue.getName()
+          + " is full, retry after " + leafQueue.getRetryAfter(minRetryAfter)
+          + " ms");
+      return;
+    }
+    if (schedulableTask.isPending()) {
+      debug("Park task {} in full queue {}", taskId, leafQueue.getName());
+    }
     tasks.put(schedulableTask.getName(), schedulableTask);
-    leafQueue.addAcceleratorTask(schedulableTask, true);
 
     context.getDispatcher().getEventHandler()
         .handle(new TaskAddedEvent(task.getTaskId()));
   }
 
+  private void rejectTask(TaskAddedSchedulerEvent event, String message) {
+    info(message);
+    ApplicationId daemonAppId = event.getTaskId().getDaemonAppId();
+    context.getDispatcher().getEventHandler()
+        .handle(new DaemonAppRejectedEvent(daemonAppId, message));
+  }
+
   private boolean acceleratorWorkLoadPreCheck(String taskId) {
     String workLoad = Utils.getTaskWorkLoad(taskId);
-    return maxShare.getWorkloads().contains(workLoad);
+    return maxShare.getWorkloads().contains(workLoad)
+        || (reconfigurator != null && reconfigurator.canHost(workLoad));
   }
 
   private SchedulableTask getSchedulableTask(Task task, SchedulableQueue queue,
@@ -186,19 +310,26 @@ public class FairScheduler extends AbstractService
       return;
     }
     task.completed();
-
-    SchedulableAccelerator card =
-        getNodeAccelerators().get(task.getAllocatedHardWareId());
-    if (card == null) {
-      error("No such card:{} is assigned to task:{}.",
-          task.getAllocatedHardWareId(), taskId);
-      return;
-    }
-    card.release(task);
+    releaseCards(task);
 
     context.getUserApps().get(appId).removeTask(task.getName());
   }
 
+  /**
+   * Release the cores of a task on every card it holds cores on.
+   */
+  private void releaseCards(SchedulableTask task) {
+    for (String hardwareId : task.getAllocatedHardWareIds()) {
+      SchedulableAccelerator card = getNodeAccelerators().get(hardwareId);
+      if (card == null) {
+        error("No such card:{} is assigned to task:{}.", hardwareId,
+            task.getName());
+        continue;
+      }
+      card.release(task);
+    }
+  }
+
   /**
    * Remove a task from hooked schedulable queue after accelerator task removed
    * event happens.
@@ -216,6 +347,59 @@ public class FairScheduler extends AbstractService
         queueManager.getLeafQueue(task.getQueue().getName(), false);
     queue.removeRunningTask(task);
     getTasks().remove(taskId);
+    for (SchedulableTask promoted : queue.promotePendingTasks()) {
+      debug("Admit parked task {} from queue {}", promoted.getName(),
+          queue.getName());
+    }
+  }
+
+  /**
+   * Release the core yielded by a preempted task, put the task back to wait in
+   * its leaf queue with its remaining blocks, and grant the core to the task it
+   * was preempted for.
+   *
+   * @param event triggered when a preempted task has yielded its core
+   */
+  private synchronized void requeueTask(TaskPreemptedSchedulerEvent event) {
+    String taskId = event.getTaskId();
+    SchedulableTask task = getTasks().get(taskId);
+    if (task == null) {
+      error("No such task:{} is scheduled.", taskId);
+      return;
+    }
+
+    SchedulableAccelerator card =
+        getNodeAccelerators().get(task.getAllocatedHardWareId());
+    if (card == null) {
+      error("No such card:{} is assigned to task:{}.",
+          task.getAllocatedHardWareId(), taskId);
+      return;
+    }
+
+    SchedulableTask preemptor = task.getPreemptor();
+    releaseCards(task);
+    long drained = task.requeue();
+    card.recordPreemption(drained);
+    numPreemptions++;
+    numRequeuedBlocks += event.getRemainingBlocks();
+    preemptionWastedTime += drained;
+    info(
+        "Requeue preempted task {} with {} blocks left after draining {} ms "
+            + "(preemptions: {}, requeued blocks: {}, wasted: {} ms)",
+        taskId, event.getRemainingBlocks(), drained, numPreemptions,
+        numRequeuedBlocks, preemptionWastedTime);
+
+    if (preemptor != null && tasks.containsKey(preemptor.getName())
+        && !preemptor.isScheduled() && !preemptor.isPending()
+        && hasRoomFor(preemptor)) {
+      preemptor.assignAcceleratorResource(card.getHardwareId());
+    }
+  }
+
+  /** Whether the queue of the task stays within its max share if granted. */
+  private boolean hasRoomFor(SchedulableTask task) {
+    SchedulableQueue queue = task.getQueue();
+    return queue == null || queue.hasRoomFor(1);
   }
 
   // -- Scheduler machinery --
@@ -230,6 +414,36 @@ public class FairScheduler extends AbstractService
     return maxShare;
   }
 
+  /**
+   * Whether some core of this node served the workload at the start of the
+   * current scheduling round.
+   */
+  public boolean hostsWorkload(String workload) {
+    return hostedWorkloads.contains(workload);
+  }
+
+  /**
+   * Whether a card attached to the NUMA node {@code node} has an idle core
+   * serving the workload.
+   */
+  boolean hasIdleCore(int node, String workload) {
+    for (SchedulableAccelerator card : nodeAccelerators.values()) {
+      if (card.getNumaNode() != node) {
+        continue;
+      }
+      for (AcceleratorResource resource : card.getAvailableResources()) {
+        if (resource.getAcceleratorWorkload().equals(workload)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private synchronized void updateHostedWorkloads() {
+    hostedWorkloads = new HashSet<>(maxShare.getWorkloads());
+  }
+
   @Override
   public ConcurrentHashMap<String, SchedulableTask> getTasks() {
     return tasks;
@@ -251,12 +465,74 @@ public class FairScheduler extends AbstractService
     return card == null ? null : new AcceleratorReport(card);
   }
 
+  @Override
+  public long getRetryAfter(String workload, String userAppId) {
+    SchedulableLeafQueue queue = queueManager
+        .getLeafQueue(Utils.getQueueName(workload, userAppId), false);
+    if (queue == null || !queue.isFull(workload)) {
+      return 0;
+    }
+    return queue.getRetryAfter(minRetryAfter);
+  }
+
+  /**
+   * Get the number of cores serving {@code workload} on all cards.
+   */
+  int getNumHostingCores(String workload) {
+    int num = 0;
+    for (SchedulableAccelerator card : nodeAccelerators.values()) {
+      for (AcceleratorResource core : card.getTotalResources()) {
+        if (workload.equals(core.getAcceleratorWorkload())) {
+          num++;
+        }
+      }
+    }
+    return num;
+  }
+
   // -- Instance category --
 
   public Configuration getConf() {
     return conf;
   }
 
+  public Comparator<Schedulable> getPolicy() {
+    return policy;
+  }
+
+  public synchronized int getNumPreemptions() {
+    return numPreemptions;
+  }
+
+  public synchronized int getNumRequeuedBlocks() {
+    return numRequeuedBlocks;
+  }
+
+  public synchronized long getPreemptionWastedTime() {
+    return preemptionWastedTime;
+  }
+
+  public Clock getClock() {
+    return clock;
+  }
+
+  long getRoundTime() {
+    return roundTime;
+  }
+
+  /**
+   * @return half-life in milliseconds of the hardware time charged to queues,
+   *         0 for no decay
+   */
+  long getUsageHalfLife() {
+    return usageHalfLife;
+  }
+
+  public void setClock(Clock clock) {
+    this.clock = clock;
+    this.roundTime = clock.getTime();
+  }
+
   public Float getWeight(String workload) {
     Float weight = taskWeights.get(workload);
     if (weight == null) {
@@ -298,10 +574,117 @@ public class FairScheduler extends AbstractService
       nodeResources.addAll(accelerator.getTotalResources());
     }
     maxShare.addAll(nodeResources);
+    updateHostedWorkloads();
+  }
+
+  /**
+   * Apply the allocation file to the queues if it changed since it was loaded
+   * last. Leaf queues admit parked tasks right away if their limits rose.
+   */
+  synchronized void reloadAllocations() {
+    if (allocationLoader == null
+        || !allocationLoader.reloadIfModified(clock.getTime())) {
+      return;
+    }
+    queueManager.setAllocations(allocationLoader.getAllocations());
+    for (SchedulableQueue queue : queueManager.getLeafQueues()) {
+      SchedulableLeafQueue leafQueue = (SchedulableLeafQueue) queue;
+      for (SchedulableTask promoted : leafQueue.promotePendingTasks()) {
+        debug("Admit parked task {} from queue {}", promoted.getName(),
+            leafQueue.getName());
+      }
+    }
   }
 
-  private synchronized void schedule() {
+  /**
+   * Run one scheduling round. Normally driven by the scheduling thread, the
+   * simulator calls it directly in virtual time.
+   */
+  public synchronized void schedule() {
+    roundTime = clock.getTime();
+    for (SchedulableAccelerator card : nodeAccelerators.values()) {
+      card.chargeBusyTime();
+    }
+    // Cores may have been reprogrammed since the last round
+    updateHostedWorkloads();
+    gangScheduler.schedule();
     queueManager.getRootQueue().assignResources();
+    if (preemptionEnabled) {
+      preemptTasks();
+    }
+    reconfigurator.reconfigure(getWorkloadPressure());
+  }
+
+  /**
+   * Ask running tasks to yield their cores to waiting tasks of a higher
+   * priority that found no free core in this round. Waiting tasks are served
+   * from the highest priority down, each one claims at most one core. Tasks
+   * held back by the max share of their queue do not preempt.
+   */
+  private void preemptTasks() {
+    List<SchedulableTask> waiting = new ArrayList<>();
+    Set<SchedulableTask> claimed = new HashSet<>();
+    for (SchedulableTask task : tasks.values()) {
+      if (task.isPreempting()) {
+        claimed.add(task.getPreemptor());
+      } else if (!task.isScheduled() && !task.isGang() && !task.isPending()
+          && hasRoomFor(task)) {
+        waiting.add(task);
+      }
+    }
+    waiting.removeAll(claimed);
+    waiting.sort(Comparator.comparingInt(SchedulableTask::getPriority)
+        .reversed().thenComparingLong(SchedulableTask::getStartTime));
+
+    for (SchedulableTask task : waiting) {
+      SchedulableTask victim = selectVictim(task);
+      if (victim != null && victim.preempt(task)) {
+        info("Preempt task {} (priority: {}) on accelerator {} for task {} "
+            + "(priority: {})", victim.getName(), victim.getPriority(),
+            victim.getAllocatedHardWareId(), task.getName(),
+            task.getPriority());
+      }
+    }
+  }
+
+  /**
+   * Select the running task to preempt for a waiting task: the lowest priority
+   * one on a core serving the same workload, the most recently started first
+   * since it has done the least work.
+   */
+  private SchedulableTask selectVictim(SchedulableTask waiting) {
+    String workload = waiting.getTask().getWorkload();
+    SchedulableTask victim = null;
+    for (SchedulableTask task : tasks.values()) {
+      if (!task.isScheduled() || task.isPreempting() || task.isGang()
+          || task.getPriority() >= waiting.getPriority()
+          || task.getNumPreemptions() >= maxPreemptionsPerTask
+          || !workload.equals(
+              task.getAllocatedResource().getAcceleratorWorkload())) {
+        continue;
+      }
+      if (victim == null || task.getPriority() < victim.getPriority()
+          || (task.getPriority() == victim.getPriority()
+              && task.getStartTime() > victim.getStartTime())) {
+        victim = task;
+      }
+    }
+    return victim;
+  }
+
+  /**
+   * Accumulate the waiting time of the tasks that could not be assigned to an
+   * accelerator core in this round, grouped by workload.
+   */
+  private Map<String, Long> getWorkloadPressure() {
+    Map<String, Long> pressure = new HashMap<>();
+    for (SchedulableTask task : tasks.values()) {
+      if (!task.isScheduled()) {
+        pressure.merge(task.getTask().getWorkload(),
+            task.getSubmissionDuration(), Long::sum);
+      }
+    }
+    return pressure;
   }
 
   /**
@@ -314,11 +697,16 @@ public class FairScheduler extends AbstractService
       while (!Thread.currentThread().isInterrupted()) {
         try {
           Thread.sleep(schedulingInterval);
+          reloadAllocations();
           schedule();
         } catch (InterruptedException e) {
           // TODO: do some cleanup to make it exit gracefully
           warn("{} has been interrupted.", getName(), e);
           return;
+        } catch (RuntimeException e) {
+          // A failed round must not stop scheduling for good
+          error("Scheduling round failed, retrying in {} ms",
+              schedulingInterval, e);
         }
       }
     }
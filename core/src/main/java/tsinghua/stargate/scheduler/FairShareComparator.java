@@ -32,12 +32,19 @@ import java.util.Comparator;
  * min share.
  *
  * <p>
- * Schedulables above their min share are compared by (runningTasks / weight).
- * If all weights are equal, slots are given to the job with the fewest
+ * Schedulables above their min share are compared by (hardwareTime / weight),
+ * the accelerator time measured by the core counters, so that a queue of short
+ * requests is not charged like one holding its cores busy. Until either has
+ * used any accelerator time, they are compared by (demand / weight). If all
+ * weights are equal, slots are given to the job with the fewest
  * scheduleTasks; otherwise, jobs with more weight get proportionally more
  * slots.
  *
  * <p>
+ * Only counters maintained by the schedulables are read, so a comparison costs
+ * the same however many tasks a queue holds.
+ *
+ * <p>
  * Scheduling in descending order
  */
 public class FairShareComparator
@@ -47,26 +54,6 @@ public class FairShareComparator
 
   private static final long WAIT_MAX_TIME = Long.MAX_VALUE;
 
-  /**
-   * Check whether need to reprogram FPGA or not.
-   *
-   * <p>
-   * If there is no FPGA service in running state matching the requested
-   * service, then StarGate has to reprogram one of the selected FPGAs through
-   * burning a specified bitstream.
-   * 
-   * @param requestResources the resources requested by user
-   * @param systemResources the resources provided by StarGate
-   * @return {@code true} if need to reprogram FPGA, {@code false} otherwise
-   */
-  private boolean checkIfReprogram(AcceleratorResources requestResources,
-      AcceleratorResources systemResources) {
-    if (requestResources.getNum() == 0) {
-      return false;
-    }
-    return systemResources.contain(requestResources);
-  }
-
   @Override
   public int compare(Schedulable s1, Schedulable s2) {
     // Check whether the accelerator task wait too long or not
@@ -74,15 +61,24 @@ public class FairShareComparator
     boolean s2WaitTooLong = s2.getSubmissionDuration() > WAIT_MAX_TIME;
 
     // Check whether reprogram FPGA or not
-    boolean s1Reprogram =
-        checkIfReprogram(s1.askResources(), s1.offerMaxShare());
-    boolean s2Reprogram =
-        checkIfReprogram(s2.askResources(), s2.offerMaxShare());
+    boolean s1Reprogram = s1.needsReprogram();
+    boolean s2Reprogram = s2.needsReprogram();
 
-    // Comparing accelerator workload weight
+    // Comparing accelerator workload weight, by actual usage once measured
     float useToWeightRatio1, useToWeightRatio2;
-    useToWeightRatio1 = s1.askResources().getNum() / s1.getWeight();
-    useToWeightRatio2 = s2.askResources().getNum() / s2.getWeight();
+    long hardwareTime1 = s1.getHardwareTime();
+    long hardwareTime2 = s2.getHardwareTime();
+    if (hardwareTime1 > 0 || hardwareTime2 > 0) {
+      useToWeightRatio1 = hardwareTime1 / s1.getWeight();
+      useToWeightRatio2 = hardwareTime2 / s2.getWeight();
+    } else {
+      useToWeightRatio1 = s1.getDemand() / s1.getWeight();
+      useToWeightRatio2 = s2.getDemand() / s2.getWeight();
+    }
+
+    // Check whether below min share or not
+    boolean s1Needy = s1.getUsage() < s1.getMinShare();
+    boolean s2Needy = s2.getUsage() < s2.getMinShare();
 
     int res = 0;
     if (s1WaitTooLong && !s2WaitTooLong)
@@ -92,6 +88,16 @@ public class FairShareComparator
     if (res != 0)
       return res;
 
+    if (s1Needy && !s2Needy)
+      res = -1;
+    else if (!s1Needy && s2Needy)
+      res = 1;
+    else if (s1Needy && s2Needy)
+      res = (int) Math.signum((float) s1.getUsage() / s1.getMinShare()
+          - (float) s2.getUsage() / s2.getMinShare());
+    if (res != 0)
+      return res;
+
     if (!s1Reprogram && s2Reprogram)
       res = -1;
     else if (s1Reprogram && !s2Reprogram)
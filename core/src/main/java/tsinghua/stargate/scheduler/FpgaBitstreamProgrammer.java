@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.scheduler;
+
+import java.io.IOException;
+
+import tsinghua.stargate.Log;
+import tsinghua.stargate.io.FpgaChannelPool;
+import tsinghua.stargate.io.FpgaDispatcherImpl;
+import tsinghua.stargate.io.ModuleConfig;
+
+/**
+ * A {@link BitstreamProgrammer} that hands the bitstream to the native FPGA
+ * dispatcher through {@link ModuleConfig#getAccelerateBitPath()}.
+ */
+public class FpgaBitstreamProgrammer extends Log
+    implements BitstreamProgrammer {
+
+  @Override
+  public void program(SchedulableAccelerator card, int coreId, String workload,
+      String bitstream) throws IOException {
+    info("Program {} onto core {} of accelerator {}", bitstream, coreId,
+        card.getHardwareId());
+    ModuleConfig config = new BitstreamConfig();
+    config.setType(workload);
+    config.setAccelerateBitPath(bitstream);
+    FpgaChannelPool.get().invalidate(card.getCardId(), coreId);
+    FpgaDispatcherImpl.setConfigOp(card.getCardId(), config);
+  }
+
+  /** A module configuration carrying nothing but the bitstream to load. */
+  private static class BitstreamConfig extends ModuleConfig {
+
+    @Override
+    public void setWriteSize(int size) {
+    }
+
+    @Override
+    public void setReadSize(int size) {
+    }
+
+    @Override
+    public void setInputType(DATATYPE type) {
+    }
+
+    @Override
+    public void setOutputType(DATATYPE type) {
+    }
+
+    @Override
+    public void setReadOverTime(int time) {
+    }
+
+    @Override
+    public void setWriteOverTime(int time) {
+    }
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tsinghua.stargate.scheduler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import tsinghua.stargate.Log;
+import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
+
+/**
+ * Places tasks spanning several accelerator cards. A gang gets one core on each
+ * of its cards at once, or nothing.
+ *
+ * <p>
+ * A gang that can not be placed on idle cores reserves cards and holds back
+ * their cores as they become idle, so that a stream of small tasks can not
+ * starve it. Only one gang holds a reservation at a time, which keeps two gangs
+ * from deadlocking on each other's held cores. Other tasks, gangs included,
+ * backfill every core that is not held for the reservation.
+ */
+class GangScheduler extends Log {
+
+  private final FairScheduler scheduler;
+
+  /** The gang holding the reservation, null if there is none. */
+  private SchedulableTask reservedGang;
+  /** Cards reserved for the gang, each mapped to its held core or null. */
+  private final Map<SchedulableAccelerator, AcceleratorResource> reservation =
+      new LinkedHashMap<>();
+
+  GangScheduler(FairScheduler scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Run one round of gang placement. Called by the scheduler before ordinary
+   * tasks are assigned, so that idle cores of reserved cards go to the gang.
+   */
+  void schedule() {
+    if (reservedGang != null && !isWaiting(reservedGang)) {
+      info("Cancel reservation of gang {}", reservedGang.getName());
+      releaseReservation();
+    }
+
+    SchedulableTask granted = null;
+    if (reservedGang != null) {
+      holdIdleCores();
+      if (!reservation.containsValue(null)) {
+        granted = reservedGang;
+        granted.assignGang(releaseReservation());
+      }
+    }
+
+    for (SchedulableTask gang : getWaitingGangs()) {
+      if (gang == reservedGang || gang == granted) {
+        continue;
+      }
+      Map<SchedulableAccelerator, AcceleratorResource> placement =
+          findPlacement(gang);
+      if (placement != null) {
+        gang.assignGang(placement);
+      } else if (reservedGang == null) {
+        reserve(gang);
+      }
+    }
+  }
+
+  /**
+   * Count the cards that can host a core of the given workload.
+   */
+  int getNumHostingCards(String workload) {
+    int num = 0;
+    for (SchedulableAccelerator card : scheduler.getNodeAccelerators()
+        .values()) {
+      if (hosts(card, workload)) {
+        num++;
+      }
+    }
+    return num;
+  }
+
+  SchedulableTask getReservedGang() {
+    return reservedGang;
+  }
+
+  private boolean isWaiting(SchedulableTask gang) {
+    return !gang.isScheduled() && !gang.isStopped() && !gang.isPending()
+        && scheduler.getTasks().containsKey(gang.getName());
+  }
+
+  /** Whether the queue of the gang stays within its max share if granted. */
+  private boolean hasRoomFor(SchedulableTask gang) {
+    SchedulableQueue queue = gang.getQueue();
+    return queue == null || queue.hasRoomFor(gang.getCards());
+  }
+
+  /**
+   * Waiting gangs from the highest priority down, the oldest first.
+   */
+  private List<SchedulableTask> getWaitingGangs() {
+    List<SchedulableTask> gangs = new ArrayList<>();
+    for (SchedulableTask task : scheduler.getTasks().values()) {
+      if (task.isGang() && isWaiting(task) && hasRoomFor(task)) {
+        gangs.add(task);
+      }
+    }
+    gangs.sort(Comparator.comparingInt(SchedulableTask::getPriority)
+        .reversed().thenComparingLong(SchedulableTask::getStartTime));
+    return gangs;
+  }
+
+  /**
+   * Pick an idle core on each of as many cards as the gang spans, preferring
+   * the cards with the most idle cores for its workload.
+   *
+   * @return the cores to grant, or null if too few cards have an idle core
+   */
+  private Map<SchedulableAccelerator, AcceleratorResource> findPlacement(
+      SchedulableTask gang) {
+    String workload = gang.getTask().getWorkload();
+    List<SchedulableAccelerator> cards = getHostingCards(workload);
+    Map<SchedulableAccelerator, AcceleratorResource> placement =
+        new LinkedHashMap<>();
+    for (SchedulableAccelerator card : cards) {
+      AcceleratorResource core = getIdleCore(card, workload);
+      if (core != null) {
+        placement.put(card, core);
+        if (placement.size() == gang.getCards()) {
+          return placement;
+        }
+      }
+    }
+    return null;
+  }
+
+  private void reserve(SchedulableTask gang) {
+    List<SchedulableAccelerator> cards =
+        getHostingCards(gang.getTask().getWorkload());
+    if (cards.size() < gang.getCards()) {
+      return;
+    }
+    reservedGang = gang;
+    for (SchedulableAccelerator card : cards.subList(0, gang.getCards())) {
+      reservation.put(card, null);
+    }
+    info("Reserve accelerators for gang {} (cards: {})", gang.getName(),
+        gang.getCards());
+    holdIdleCores();
+  }
+
+  private void holdIdleCores() {
+    String workload = reservedGang.getTask().getWorkload();
+    for (SchedulableAccelerator card : reservation.keySet()) {
+      if (reservation.get(card) != null) {
+        continue;
+      }
+      AcceleratorResource core = getIdleCore(card, workload);
+      if (core != null && card.reserve(core)) {
+        reservation.put(card, core);
+      }
+    }
+  }
+
+  /**
+   * Return the held cores to their cards and drop the reservation.
+   *
+   * @return the cores that were held, indexed by card
+   */
+  private Map<SchedulableAccelerator, AcceleratorResource>
+      releaseReservation() {
+    Map<SchedulableAccelerator, AcceleratorResource> held =
+        new LinkedHashMap<>();
+    for (SchedulableAccelerator card : reservation.keySet()) {
+      AcceleratorResource core = reservation.get(card);
+      if (core != null) {
+        card.unreserve(core);
+        held.put(card, core);
+      }
+    }
+    reservation.clear();
+    reservedGang = null;
+    return held;
+  }
+
+  /**
+   * Cards hosting the workload, the ones with the most idle cores for it
+   * first.
+   */
+  private List<SchedulableAccelerator> getHostingCards(String workload) {
+    List<SchedulableAccelerator> cards = new ArrayList<>();
+    for (SchedulableAccelerator card : scheduler.getNodeAccelerators()
+        .values()) {
+      if (hosts(card, workload)) {
+        cards.add(card);
+      }
+    }
+    cards.sort(Comparator.comparingInt(
+        (SchedulableAccelerator card) -> getNumIdleCores(card, workload))
+        .reversed().thenComparing(SchedulableAccelerator::getHardwareId));
+    return cards;
+  }
+
+  private boolean hosts(SchedulableAccelerator card, String workload) {
+    for (AcceleratorResource resource : card.getTotalResources()) {
+      if (workload.equals(resource.getAcceleratorWorkload())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int getNumIdleCores(SchedulableAccelerator card, String workload) {
+    int num = 0;
+    for (AcceleratorResource resource : card.getAvailableResources()) {
+      if (workload.equals(resource.getAcceleratorWorkload())) {
+        num++;
+      }
+    }
+    return num;
+  }
+
+  /**
+   * The idle core of the card with the highest frequency serving the workload.
+   */
+  private AcceleratorResource getIdleCore(SchedulableAccelerator card,
+      String workload) {
+    AcceleratorResource selected = null;
+    for (AcceleratorResource resource : new ArrayList<>(
+        card.getAvailableResources())) {
+      if (workload.equals(resource.getAcceleratorWorkload())
+          && (selected == null || resource
+              .getAcceleratorCoreFrequency() > selected
+                  .getAcceleratorCoreFrequency())) {
+        selected = resource;
+      }
+    }
+    return selected;
+  }
+}
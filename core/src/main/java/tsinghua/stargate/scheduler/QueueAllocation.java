@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.scheduler;
+
+import java.util.Comparator;
+
+/**
+ * The settings of a queue read from the allocation file. Unset settings fall
+ * back to the StarGate configuration, or to no limit at all.
+ */
+class QueueAllocation {
+
+  /** Settings of a queue which is not mentioned by the allocation file. */
+  static final QueueAllocation DEFAULT = new QueueAllocation();
+
+  /** Weight of the queue among its siblings, null for the workload weight. */
+  private Float weight;
+  /** Cores the queue gets ahead of fair sharing while it holds fewer. */
+  private int minShare;
+  /** Cores the queue and its descendants may hold at most. */
+  private int maxShare = Integer.MAX_VALUE;
+  /** Policy ordering the children of the queue, null for the node policy. */
+  private Comparator<Schedulable> policy;
+  /** Admission limits of a leaf queue, null for the configured ones. */
+  private Integer maxRunning;
+  private Integer maxPending;
+
+  Float getWeight() {
+    return weight;
+  }
+
+  void setWeight(Float weight) {
+    this.weight = weight;
+  }
+
+  int getMinShare() {
+    return minShare;
+  }
+
+  void setMinShare(int minShare) {
+    this.minShare = minShare;
+  }
+
+  int getMaxShare() {
+    return maxShare;
+  }
+
+  void setMaxShare(int maxShare) {
+    this.maxShare = maxShare;
+  }
+
+  Comparator<Schedulable> getPolicy() {
+    return policy;
+  }
+
+  void setPolicy(Comparator<Schedulable> policy) {
+    this.policy = policy;
+  }
+
+  Integer getMaxRunning() {
+    return maxRunning;
+  }
+
+  void setMaxRunning(Integer maxRunning) {
+    this.maxRunning = maxRunning;
+  }
+
+  Integer getMaxPending() {
+    return maxPending;
+  }
+
+  void setMaxPending(Integer maxPending) {
+    this.maxPending = maxPending;
+  }
+}
@@ -21,6 +21,8 @@ import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import tsinghua.stargate.Log;
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
 
 /**
  * A manager for multi {@link Schedulable} queues.
@@ -30,7 +32,7 @@ import tsinghua.stargate.Log;
  */
 public class QueueManager extends Log {
 
-  private static final String ACCELERATOR_QUEUE = "stargate.accelerator";
+  static final String ACCELERATOR_QUEUE = "stargate.accelerator";
 
   private SchedulableQueue rootQueue;
 
@@ -41,6 +43,9 @@ public class QueueManager extends Log {
 
   private final FairScheduler scheduler;
 
+  /** Queue settings from the allocation file, indexed by full queue name. */
+  private Map<String, QueueAllocation> allocations = Collections.emptyMap();
+
   QueueManager(FairScheduler scheduler) {
     this.scheduler = scheduler;
   }
@@ -50,6 +55,21 @@ public class QueueManager extends Log {
     queues.put(rootQueue.getName(), rootQueue);
   }
 
+  /**
+   * Replace the allocation file settings of all queues, including those created
+   * later. Queues missing from {@code allocations} lose their settings.
+   *
+   * @param allocations queue settings indexed by full queue name
+   */
+  void setAllocations(Map<String, QueueAllocation> allocations) {
+    synchronized (queues) {
+      this.allocations = allocations;
+      for (SchedulableQueue queue : queues.values()) {
+        applyAllocation(queue);
+      }
+    }
+  }
+
   /**
    * Get a leaf queue by name, creating it if the {@code create} is true. If the
    * queue is not or can not be a leaf queue, i.e. it already exists as a parent
@@ -139,6 +159,7 @@ public class QueueManager extends Log {
       if (parentQueue != null) {
         parentQueue.addChildQueue(newParentQueue);
       }
+      applyAllocation(newParentQueue);
       queues.put(newParentQueue.getName(), newParentQueue);
       parentQueue = newParentQueue;
     }
@@ -146,6 +167,7 @@ public class QueueManager extends Log {
     // Hook the new leaf queue up to parent queue
     SchedulableLeafQueue leafQueue =
         new SchedulableLeafQueue(name, parentQueue, scheduler);
+    applyAllocation(leafQueue);
     if (parentQueue != null) {
       parentQueue.addChildQueue(leafQueue);
     }
@@ -157,6 +179,52 @@ public class QueueManager extends Log {
     return leafQueue;
   }
 
+  /**
+   * Apply the allocation file settings of a queue. A leaf queue not limited by
+   * the file is limited as configured.
+   */
+  private void applyAllocation(SchedulableQueue queue) {
+    QueueAllocation allocation =
+        allocations.getOrDefault(queue.getName(), QueueAllocation.DEFAULT);
+    queue.setAllocation(allocation);
+    if (queue instanceof SchedulableLeafQueue) {
+      String name = queue.getName();
+      Integer maxRunning = allocation.getMaxRunning();
+      Integer maxPending = allocation.getMaxPending();
+      ((SchedulableLeafQueue) queue).setLimits(
+          maxRunning != null ? maxRunning
+              : getLimit(NameSpace.ACCELERATOR_QUEUE_MAX_RUNNING, name,
+                  NameSpace.DEFAULT_ACCELERATOR_QUEUE_MAX_RUNNING),
+          maxPending != null ? maxPending
+              : getLimit(NameSpace.ACCELERATOR_QUEUE_MAX_PENDING, name,
+                  NameSpace.DEFAULT_ACCELERATOR_QUEUE_MAX_PENDING));
+    }
+  }
+
+  /**
+   * Get the admission limit {@code key} of a leaf queue, looking for the key
+   * suffixed with the queue name first, then with each of its parents.
+   *
+   * @param key the limit key
+   * @param name the full name of the leaf queue
+   * @param defaultValue the limit if none is configured
+   * @return the admission limit of the queue
+   */
+  private int getLimit(String key, String name, int defaultValue) {
+    Configuration conf = scheduler.getConf();
+    if (conf == null) {
+      return defaultValue;
+    }
+    String suffix = name.substring(ACCELERATOR_QUEUE.length());
+    while (!suffix.isEmpty()) {
+      if (conf.get(key + suffix) != null) {
+        return conf.getInt(key + suffix, defaultValue);
+      }
+      suffix = suffix.substring(0, suffix.lastIndexOf('.'));
+    }
+    return conf.getInt(key, defaultValue);
+  }
+
   /**
    * Check whether {@code queueName} is valid or not.
    *
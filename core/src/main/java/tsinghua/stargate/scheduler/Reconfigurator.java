@@ -0,0 +1,282 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import tsinghua.stargate.Log;
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
+import tsinghua.stargate.util.ThreadUtils;
+
+/**
+ * Decides when a core of a reconfigurable accelerator has to be reprogrammed
+ * for another workload.
+ *
+ * <p>
+ * Reprogramming an FPGA takes seconds, so tasks are batched onto cores already
+ * configured for their workload whenever possible. A core is reprogrammed only
+ * if no idle core serves a workload and the queue pressure of that workload,
+ * i.e., the accumulated waiting time of its pending tasks, outweighs the
+ * configured reconfiguration cost. The victim is an idle core whose workload
+ * has no pending tasks, preferring workloads served by the most cores.
+ *
+ * <p>
+ * Bitstreams are downloaded asynchronously, at most one per workload at a time.
+ * The outcome is applied to the accelerator on the next call to
+ * {@link #reconfigure(Map)}, so that the resource lists are only mutated by
+ * the scheduling thread.
+ */
+public class Reconfigurator extends Log {
+
+  private final Configuration conf;
+  private final Map<String, SchedulableAccelerator> accelerators;
+  private final BitstreamProgrammer programmer;
+  private final ExecutorService programPool;
+
+  /** Workloads which have a core being reprogrammed for them. */
+  private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+  private final ConcurrentLinkedQueue<Runnable> completions =
+      new ConcurrentLinkedQueue<>();
+  private final Map<String, Long> costs = new ConcurrentHashMap<>();
+
+  public Reconfigurator(Configuration conf,
+      Map<String, SchedulableAccelerator> accelerators) {
+    this(conf, accelerators, createProgrammer(conf));
+  }
+
+  public Reconfigurator(Configuration conf,
+      Map<String, SchedulableAccelerator> accelerators,
+      BitstreamProgrammer programmer) {
+    this.conf = conf;
+    this.accelerators = accelerators;
+    this.programmer = programmer;
+    this.programPool = ThreadUtils.getExecutor()
+        .newDaemonCachedThreadPool("Reconfigurator", accelerators.size() + 1);
+  }
+
+  private static BitstreamProgrammer createProgrammer(Configuration conf) {
+    long delay = conf.getLong(NameSpace.ACCELERATOR_RECONFIG_EMULATED_DELAY,
+        NameSpace.DEFAULT_ACCELERATOR_RECONFIG_EMULATED_DELAY);
+    if (delay >= 0) {
+      return new EmulatedBitstreamProgrammer(delay);
+    }
+    return new FpgaBitstreamProgrammer();
+  }
+
+  /**
+   * Check whether a workload that is not served by any core could be served
+   * after reprogramming.
+   *
+   * @param workload the requested workload
+   * @return {@code true} if a bitstream exists for the workload and at least
+   *         one accelerator is reconfigurable
+   */
+  public boolean canHost(String workload) {
+    if (getBitstream(workload) == null) {
+      return false;
+    }
+    for (SchedulableAccelerator accelerator : accelerators.values()) {
+      if (accelerator.isReconfigurable()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Apply finished reprogramming and start new ones if needed.
+   *
+   * @param pressure accumulated waiting time in milliseconds of the pending
+   *          tasks, indexed by workload
+   */
+  public void reconfigure(Map<String, Long> pressure) {
+    Runnable completion;
+    while ((completion = completions.poll()) != null) {
+      completion.run();
+    }
+
+    List<Map.Entry<String, Long>> demands =
+        new ArrayList<>(pressure.entrySet());
+    Collections.sort(demands,
+        (d1, d2) -> Long.compare(d2.getValue(), d1.getValue()));
+
+    for (Map.Entry<String, Long> demand : demands) {
+      String workload = demand.getKey();
+      if (inFlight.contains(workload) || hasIdleCore(workload)) {
+        continue;
+      }
+
+      long cost = getCost(workload);
+      if (demand.getValue() <= cost) {
+        debug("Defer reprogramming for {} (pressure: {} ms, cost: {} ms)",
+            workload, demand.getValue(), cost);
+        continue;
+      }
+
+      String bitstream = getBitstream(workload);
+      if (bitstream == null) {
+        continue;
+      }
+
+      if (!reprogramVictim(workload, bitstream, pressure)) {
+        debug("No idle reconfigurable core for workload {}", workload);
+      }
+    }
+  }
+
+  private boolean reprogramVictim(String workload, String bitstream,
+      Map<String, Long> pressure) {
+    Map<String, Integer> servingCores = countServingCores();
+
+    SchedulableAccelerator victimCard = null;
+    AcceleratorResource victim = null;
+    int victimShare = -1;
+    for (SchedulableAccelerator accelerator : accelerators.values()) {
+      if (!accelerator.isReconfigurable()) {
+        continue;
+      }
+      for (AcceleratorResource resource : accelerator
+          .getAvailableResources()) {
+        String current = resource.getAcceleratorWorkload();
+        if (current.equals(workload) || pressure.containsKey(current)) {
+          continue;
+        }
+        int share = servingCores.get(current);
+        if (share > victimShare) {
+          victimCard = accelerator;
+          victim = resource;
+          victimShare = share;
+        }
+      }
+    }
+
+    if (victim == null || !victimCard.beginReprogram(victim)) {
+      return false;
+    }
+
+    inFlight.add(workload);
+    try {
+      programPool.submit(
+          new ProgramTask(victimCard, victim, workload, bitstream));
+    } catch (RejectedExecutionException e) {
+      warn("Reconfigurator has been stopped", e);
+      inFlight.remove(workload);
+      victimCard.finishReprogram(victim, victim.getAcceleratorWorkload(),
+          victimCard.getLoadedBitstream(victim.getAcceleratorCoreId()));
+      return false;
+    }
+    return true;
+  }
+
+  private boolean hasIdleCore(String workload) {
+    for (SchedulableAccelerator accelerator : accelerators.values()) {
+      for (AcceleratorResource resource : accelerator
+          .getAvailableResources()) {
+        if (workload.equals(resource.getAcceleratorWorkload())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private Map<String, Integer> countServingCores() {
+    Map<String, Integer> counts = new HashMap<>();
+    for (SchedulableAccelerator accelerator : accelerators.values()) {
+      for (AcceleratorResource resource : accelerator.getTotalResources()) {
+        counts.merge(resource.getAcceleratorWorkload(), 1, Integer::sum);
+      }
+    }
+    return counts;
+  }
+
+  public long getCost(String workload) {
+    Long cost = costs.get(workload);
+    if (cost == null) {
+      cost = conf.getLong(
+          NameSpace.ACCELERATOR_WORKLOAD_RECONFIG_COST_PREFIX + workload,
+          NameSpace.DEFAULT_ACCELERATOR_WORKLOAD_RECONFIG_COST);
+      costs.put(workload, cost);
+    }
+    return cost;
+  }
+
+  public String getBitstream(String workload) {
+    return conf.get(NameSpace.ACCELERATOR_WORKLOAD_BITSTREAM_PREFIX + workload);
+  }
+
+  public boolean isReprogramming(String workload) {
+    return inFlight.contains(workload);
+  }
+
+  public void stop() {
+    programPool.shutdownNow();
+  }
+
+  /** Downloads a bitstream and hands the outcome to the scheduling thread. */
+  private class ProgramTask implements Runnable {
+
+    private final SchedulableAccelerator card;
+    private final AcceleratorResource resource;
+    private final String workload;
+    private final String bitstream;
+
+    ProgramTask(SchedulableAccelerator card, AcceleratorResource resource,
+        String workload, String bitstream) {
+      this.card = card;
+      this.resource = resource;
+      this.workload = workload;
+      this.bitstream = bitstream;
+    }
+
+    @Override
+    public void run() {
+      int coreId = resource.getAcceleratorCoreId();
+      String oldWorkload = resource.getAcceleratorWorkload();
+      String oldBitstream = card.getLoadedBitstream(coreId);
+      long start = System.currentTimeMillis();
+      try {
+        programmer.program(card, coreId, workload, bitstream);
+        info("Reprogrammed core {} of accelerator {} from {} to {} in {} ms",
+            coreId, card.getHardwareId(), oldWorkload, workload,
+            System.currentTimeMillis() - start);
+        completions.add(() -> {
+          card.finishReprogram(resource, workload, bitstream);
+          inFlight.remove(workload);
+        });
+      } catch (Exception e) {
+        error("Failed to reprogram core {} of accelerator {} with {}", coreId,
+            card.getHardwareId(), bitstream, e);
+        completions.add(() -> {
+          card.finishReprogram(resource, oldWorkload, oldBitstream);
+          inFlight.remove(workload);
+        });
+      }
+    }
+  }
+}
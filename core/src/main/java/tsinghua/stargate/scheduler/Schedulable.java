@@ -76,12 +76,69 @@ public interface Schedulable {
    */
   long getSubmissionDuration();
 
+  /**
+   * How long the task has been waiting for an accelerator core; for a queue,
+   * the longest wait among its waiting tasks. 0 if nothing is waiting.
+   */
+  long getWaitTime();
+
+  /**
+   * {@link #getWaitTime()} as of {@code now}, so that a whole scheduling round
+   * sees one consistent set of waiting times.
+   *
+   * @param now the time of the scheduling round in milliseconds
+   */
+  long getWaitTime(long now);
+
+  /**
+   * Absolute time by which the task should be done, {@link Long#MAX_VALUE} if
+   * it has no deadline; for a queue, the earliest deadline among its waiting
+   * tasks.
+   */
+  long getDeadline();
+
+  /**
+   * Priority class of the task, larger is more urgent; for a queue, the
+   * highest priority among its waiting tasks.
+   */
+  int getPriority();
+
   /**
    * A list of services/resources requested by queue/task.
    *
    */
   AcceleratorResources askResources();
 
+  /**
+   * Number of services/resources requested by queue/task, i.e. the size of
+   * {@link #askResources}, maintained as resources are allocated and released
+   * so that comparing schedulables does not have to collect them.
+   */
+  int getDemand();
+
+  /**
+   * Whether an FPGA has to be reprogrammed to serve queue/task, i.e. it
+   * requests some resources and none of the requested workloads is served by
+   * its max share.
+   */
+  boolean needsReprogram();
+
+  /** Number of accelerator cores held by queue/task. */
+  int getUsage();
+
+  /**
+   * Number of cores the queue gets ahead of fair sharing while it holds fewer;
+   * 0 for task.
+   */
+  int getMinShare();
+
+  /**
+   * Nanoseconds of accelerator time used by the queue/task, as measured by
+   * the hardware counters of the cores it held. The usage of a queue decays
+   * over time.
+   */
+  long getHardwareTime();
+
   /**
    * A list of services/resources offered by the max share of queue. Default:
    * all accelerator resources in a node.
@@ -17,10 +17,13 @@
 package tsinghua.stargate.scheduler;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import tsinghua.stargate.Log;
+import tsinghua.stargate.io.CoreCounters;
 import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
 import tsinghua.stargate.rpc.message.entity.Worker;
 import tsinghua.stargate.util.AcceleratorResourceUtils;
@@ -35,8 +38,24 @@ public class SchedulableAccelerator extends Log {
   private List<AcceleratorResource> availableResources = new ArrayList<>();
 
   private List<AcceleratorResource> usedResources = new ArrayList<>();
+  /** Cores allocated on this card, indexed by task name. */
+  private final Map<String, List<AcceleratorResource>> taskResources =
+      new HashMap<>();
+  /** Busy time of the cores of each task when last charged, by task name. */
+  private final Map<String, Long> taskBusyTime = new HashMap<>();
+  /** Idle cores held back for a gang waiting to be scheduled. */
+  private List<AcceleratorResource> reservedResources = new ArrayList<>();
+  /** Cores taken out of service while a new bitstream is downloaded. */
+  private List<AcceleratorResource> reprogrammingResources = new ArrayList<>();
+  /** Bitstream currently loaded on each core, indexed by core id. */
+  private final ConcurrentHashMap<Integer, String> loadedBitstreams =
+      new ConcurrentHashMap<>();
 
   private int numTasks;
+  /** Cores reclaimed from running tasks for higher priority ones. */
+  private int numPreemptions;
+  /** Core time in milliseconds spent draining preempted tasks. */
+  private long preemptionWastedTime;
 
   public SchedulableAccelerator(Accelerator card) {
     this.card = card;
@@ -44,6 +63,7 @@ public class SchedulableAccelerator extends Log {
       totalResources.add(AcceleratorResourceUtils.clone(resource));
       availableResources.add(AcceleratorResourceUtils.clone(resource));
     }
+    loadedBitstreams.putAll(card.getBitstreams());
   }
 
   public synchronized void allocate(SchedulableTask task,
@@ -52,8 +72,15 @@ public class SchedulableAccelerator extends Log {
       return;
     }
 
-    numTasks++;
-    launchedTasks.put(task.getName(), task);
+    if (launchedTasks.put(task.getName(), task) == null) {
+      numTasks++;
+    }
+    taskResources.computeIfAbsent(task.getName(), k -> new ArrayList<>())
+        .add(resource);
+    taskBusyTime.merge(task.getName(),
+        getCoreCounters(resource.getAcceleratorCoreId())
+            .getBusyTime(System.nanoTime()),
+        Long::sum);
 
     deductAvailableResources(resource);
 
@@ -88,19 +115,51 @@ public class SchedulableAccelerator extends Log {
       return;
     }
 
-    AcceleratorResource resource = task.getAllocatedResource();
+    if (null == launchedTasks.remove(task.getName())) {
+      return;
+    }
+    numTasks--;
 
-    if (null != launchedTasks.remove(task.getName())) {
+    // Charge the task with the time its cores were busy on this card
+    long now = System.nanoTime();
+    long busyTime = -taskBusyTime.remove(task.getName());
+    for (AcceleratorResource resource : taskResources
+        .remove(task.getName())) {
+      busyTime +=
+          getCoreCounters(resource.getAcceleratorCoreId()).getBusyTime(now);
       updateResources(resource);
+      info(
+          "Release accelerator {} (workload: {}, core: {}, maxMemory: {}) "
+              + "from task {} (userAppId: {})",
+          getHardwareId(), resource.getAcceleratorWorkload(),
+          resource.getAcceleratorCoreId(),
+          Utils.bytes2String(resource.getAcceleratorCoreMemory()),
+          task.getName(), task.getUserAppId());
     }
+    task.recordHardwareTime(Math.max(busyTime, 0));
+  }
 
-    info(
-        "Release accelerator {} (workload: {}, core: {}, maxMemory: {}) "
-            + "from task {} (userAppId: {})",
-        getHardwareId(), resource.getAcceleratorWorkload(),
-        resource.getAcceleratorCoreId(),
-        Utils.bytes2String(resource.getAcceleratorCoreMemory()),
-        task.getName(), task.getUserAppId());
+  /**
+   * Charge every task running on this card with the time its cores were busy
+   * since last charged, including the requests still running, so that the
+   * usage of a queue reflects its running work.
+   */
+  public synchronized void chargeBusyTime() {
+    long now = System.nanoTime();
+    for (Map.Entry<String, List<AcceleratorResource>> entry : taskResources
+        .entrySet()) {
+      long busyTime = 0;
+      for (AcceleratorResource resource : entry.getValue()) {
+        busyTime +=
+            getCoreCounters(resource.getAcceleratorCoreId()).getBusyTime(now);
+      }
+      long charged = taskBusyTime.get(entry.getKey());
+      if (busyTime > charged) {
+        taskBusyTime.put(entry.getKey(), busyTime);
+        launchedTasks.get(entry.getKey())
+            .recordHardwareTime(busyTime - charged);
+      }
+    }
   }
 
   private synchronized boolean verifyTaskName(String taskId) {
@@ -114,7 +173,128 @@ public class SchedulableAccelerator extends Log {
     }
     availableResources.add(resource);
     usedResources.remove(resource);
-    numTasks--;
+  }
+
+  /**
+   * Hold an idle core back for a gang, so that no other task takes it.
+   *
+   * @param resource an available core of this card
+   * @return {@code true} if the core was idle and is now reserved
+   */
+  public synchronized boolean reserve(AcceleratorResource resource) {
+    if (!availableResources.remove(resource)) {
+      return false;
+    }
+    reservedResources.add(resource);
+    info("Reserve accelerator {} (workload: {}, core: {}) for a gang",
+        getHardwareId(), resource.getAcceleratorWorkload(),
+        resource.getAcceleratorCoreId());
+    return true;
+  }
+
+  /**
+   * Return a core held by {@link #reserve} to the available cores.
+   *
+   * @param resource a reserved core of this card
+   */
+  public synchronized void unreserve(AcceleratorResource resource) {
+    if (reservedResources.remove(resource)) {
+      availableResources.add(resource);
+    }
+  }
+
+  public synchronized List<AcceleratorResource> getReservedResources() {
+    return new ArrayList<>(reservedResources);
+  }
+
+  /**
+   * Take an idle core out of service so that it can be reprogrammed.
+   *
+   * @param resource an available core of this card
+   * @return {@code true} if the core was idle and is now reserved
+   */
+  public synchronized boolean beginReprogram(AcceleratorResource resource) {
+    if (!availableResources.remove(resource)) {
+      return false;
+    }
+    reprogrammingResources.add(resource);
+    info("Reprogram accelerator {} (workload: {}, core: {})", getHardwareId(),
+        resource.getAcceleratorWorkload(), resource.getAcceleratorCoreId());
+    return true;
+  }
+
+  /**
+   * Put a reprogrammed core back into service.
+   *
+   * @param resource the core reserved by {@link #beginReprogram}
+   * @param workload the workload now served by the core
+   * @param bitstream the bitstream now loaded on the core, may be null
+   */
+  public synchronized void finishReprogram(AcceleratorResource resource,
+      String workload, String bitstream) {
+    if (!reprogrammingResources.remove(resource)) {
+      error("Core {} of accelerator {} is not being reprogrammed",
+          resource.getAcceleratorCoreId(), getHardwareId());
+      return;
+    }
+
+    int coreId = resource.getAcceleratorCoreId();
+    for (AcceleratorResource total : totalResources) {
+      if (total.getAcceleratorCoreId() == coreId) {
+        total.setAcceleratorWorkload(workload);
+      }
+    }
+    resource.setAcceleratorWorkload(workload);
+    if (bitstream == null) {
+      loadedBitstreams.remove(coreId);
+    } else {
+      loadedBitstreams.put(coreId, bitstream);
+    }
+    availableResources.add(resource);
+    getCoreCounters(coreId).recordReprogram();
+    info("Accelerator {} (core: {}) now serves workload {}", getHardwareId(),
+        coreId, workload);
+  }
+
+  /**
+   * Account a core of this card reclaimed from a preempted task.
+   *
+   * @param drained how long in milliseconds the core was held after the
+   *          preemption request
+   */
+  public synchronized void recordPreemption(long drained) {
+    numPreemptions++;
+    preemptionWastedTime += drained;
+  }
+
+  public synchronized int getNumPreemptions() {
+    return numPreemptions;
+  }
+
+  public synchronized long getPreemptionWastedTime() {
+    return preemptionWastedTime;
+  }
+
+  /**
+   * Get the hardware counters of a core of this card.
+   *
+   * @param coreId the id of the core
+   * @return the counters of the core
+   */
+  public CoreCounters getCoreCounters(int coreId) {
+    return CoreCounters.get(getCardId(), coreId);
+  }
+
+  public boolean isReconfigurable() {
+    return card.isReconfigurable();
+  }
+
+  public String getLoadedBitstream(int coreId) {
+    return loadedBitstreams.get(coreId);
+  }
+
+  public synchronized List<AcceleratorResource> getReprogrammingResources() {
+    return new ArrayList<>(reprogrammingResources);
   }
 
   public String getHardwareId() {
@@ -129,6 +309,10 @@ public class SchedulableAccelerator extends Log {
     return card.getWorker();
   }
 
+  public int getNumaNode() {
+    return card.getNumaNode();
+  }
+
   public List<AcceleratorResource> getTotalResources() {
     return totalResources;
   }
@@ -24,6 +24,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import tsinghua.stargate.conf.NameSpace;
 import tsinghua.stargate.exception.StarGateRuntimeException;
 import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
 
@@ -39,8 +40,16 @@ public class SchedulableLeafQueue extends SchedulableQueue {
 
   private long startTime = 0;
 
-  private Comparator<Schedulable> fairShareComparator =
-      new FairShareComparator();
+  /** Limit of admitted tasks, 0 for the cores hosting the workload. */
+  private volatile int maxRunning =
+      NameSpace.DEFAULT_ACCELERATOR_QUEUE_MAX_RUNNING;
+  /** Limit of tasks parked beyond {@code maxRunning}. */
+  private volatile int maxPending =
+      NameSpace.DEFAULT_ACCELERATOR_QUEUE_MAX_PENDING;
+
+  /** Exponentially weighted average of how long tasks stay admitted. */
+  private double avgAdmittedDuration;
+  private static final double ADMITTED_DURATION_WEIGHT = 0.2;
 
   private Comparator<String> cardResourceComparator =
       new CoreResourceComparator();
@@ -94,6 +103,145 @@ public class SchedulableLeafQueue extends SchedulableQueue {
     }
   }
 
+  /**
+   * Set the admission limits of this queue. A negative limit disables it.
+   *
+   * @param maxRunning limit of admitted tasks, 0 for the number of cores
+   *          hosting the workload of the queue
+   * @param maxPending limit of tasks parked beyond {@code maxRunning}
+   */
+  void setLimits(int maxRunning, int maxPending) {
+    this.maxRunning = maxRunning;
+    this.maxPending = maxPending;
+  }
+
+  int getMaxRunning(String workload) {
+    if (maxRunning == 0) {
+      return Math.max(1, scheduler.getNumHostingCores(workload));
+    }
+    return maxRunning < 0 ? Integer.MAX_VALUE : maxRunning;
+  }
+
+  int getMaxPending() {
+    return maxPending < 0 ? Integer.MAX_VALUE : maxPending;
+  }
+
+  /**
+   * Whether a new task of {@code workload} could neither be admitted nor
+   * parked.
+   */
+  boolean isFull(String workload) {
+    int limit = getMaxRunning(workload);
+    readLock.lock();
+    try {
+      return runningTasks.size() >= limit
+          && pendingTasks.size() >= getMaxPending();
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Suggest how long a rejected submission should wait before retrying, i.e.
+   * how long it takes on average until one of the admitted tasks leaves.
+   *
+   * @param minRetryAfter the lower bound of the suggestion in milliseconds
+   * @return the suggested wait in milliseconds
+   */
+  long getRetryAfter(long minRetryAfter) {
+    readLock.lock();
+    try {
+      long retryAfter =
+          (long) (avgAdmittedDuration / Math.max(1, runningTasks.size()));
+      return Math.max(minRetryAfter, retryAfter);
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Admit a task if fewer than {@code maxRunning} tasks are admitted, park it
+   * otherwise. A task ordered before a waiting admitted task by the scheduling
+   * policy takes the place of that task, which is parked instead.
+   *
+   * @param task the task to admit
+   * @return {@code false} if the task was rejected since too many tasks are
+   *         parked already
+   */
+  boolean admitAcceleratorTask(SchedulableTask task) {
+    int limit = getMaxRunning(task.getTask().getWorkload());
+    writeLock.lock();
+    try {
+      if (runningTasks.size() < limit) {
+        addAcceleratorTask(task, true);
+      } else if (pendingTasks.size() >= getMaxPending()) {
+        return false;
+      } else {
+        SchedulableTask displaced = getDisplacedTask(task);
+        if (displaced != null) {
+          runningTasks.remove(displaced);
+          addAcceleratorTask(displaced, false);
+          addAcceleratorTask(task, true);
+        } else {
+          addAcceleratorTask(task, false);
+        }
+      }
+      updateDemand(task.getTask().getWorkload(),
+          task.getNumAllocatedResources());
+      return true;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Get the waiting admitted task that {@code task} should replace, i.e. the
+   * last one under the scheduling policy if {@code task} comes before it.
+   */
+  private SchedulableTask getDisplacedTask(SchedulableTask task) {
+    Comparator<Schedulable> policy = getPolicy();
+    SchedulableTask last = null;
+    for (SchedulableTask running : runningTasks) {
+      if (running.isScheduled() || running.isGang()) {
+        continue;
+      }
+      if (last == null || policy.compare(running, last) > 0) {
+        last = running;
+      }
+    }
+    return last != null && policy.compare(task, last) < 0 ? last : null;
+  }
+
+  /**
+   * Admit parked tasks, the first under the scheduling policy first, while
+   * fewer than {@code maxRunning} tasks are admitted.
+   *
+   * @return the admitted tasks
+   */
+  List<SchedulableTask> promotePendingTasks() {
+    List<SchedulableTask> promoted = new ArrayList<>();
+    writeLock.lock();
+    try {
+      if (pendingTasks.isEmpty()) {
+        return promoted;
+      }
+      int limit = getMaxRunning(pendingTasks.get(0).getTask().getWorkload());
+      if (runningTasks.size() >= limit) {
+        return promoted;
+      }
+
+      pendingTasks.sort(getPolicy());
+      while (runningTasks.size() < limit && !pendingTasks.isEmpty()) {
+        SchedulableTask task = pendingTasks.remove(0);
+        addAcceleratorTask(task, true);
+        promoted.add(task);
+      }
+    } finally {
+      writeLock.unlock();
+    }
+    return promoted;
+  }
+
   /**
    * Sort accelerators by available resources.
    */
@@ -139,13 +287,73 @@ public class SchedulableLeafQueue extends SchedulableQueue {
     return totalDuration;
   }
 
+  @Override
+  public long getWaitTime() {
+    long waitTime = 0;
+    readLock.lock();
+    try {
+      for (SchedulableTask task : runningTasks) {
+        waitTime = Math.max(waitTime, task.getWaitTime());
+      }
+    } finally {
+      readLock.unlock();
+    }
+    return waitTime;
+  }
+
+  @Override
+  public long getWaitTime(long now) {
+    long waitTime = 0;
+    readLock.lock();
+    try {
+      for (SchedulableTask task : runningTasks) {
+        waitTime = Math.max(waitTime, task.getWaitTime(now));
+      }
+    } finally {
+      readLock.unlock();
+    }
+    return waitTime;
+  }
+
+  @Override
+  public long getDeadline() {
+    long deadline = Long.MAX_VALUE;
+    readLock.lock();
+    try {
+      for (SchedulableTask task : runningTasks) {
+        if (!task.isScheduled()) {
+          deadline = Math.min(deadline, task.getDeadline());
+        }
+      }
+    } finally {
+      readLock.unlock();
+    }
+    return deadline;
+  }
+
+  @Override
+  public int getPriority() {
+    int priority = Integer.MIN_VALUE;
+    readLock.lock();
+    try {
+      for (SchedulableTask task : runningTasks) {
+        if (!task.isScheduled()) {
+          priority = Math.max(priority, task.getPriority());
+        }
+      }
+    } finally {
+      readLock.unlock();
+    }
+    return priority;
+  }
+
   @Override
   public AcceleratorResources askResources() {
     AcceleratorResources asks = new AcceleratorResourcesImpl();
     readLock.lock();
     try {
       for (SchedulableTask task : runningTasks) {
-        asks.add(task.getAllocatedResource());
+        asks.addAll(task.getAllocatedResources());
       }
       for (SchedulableTask task : pendingTasks) {
         asks.add(task.getAllocatedResource());
@@ -168,7 +376,7 @@ public class SchedulableLeafQueue extends SchedulableQueue {
     writeLock.lock();
     try {
       Collections.shuffle(runningTasks);
-      Collections.sort(runningTasks, fairShareComparator);
+      Collections.sort(runningTasks, getPolicy());
     } finally {
       writeLock.unlock();
     }
@@ -176,6 +384,9 @@ public class SchedulableLeafQueue extends SchedulableQueue {
     readLock.lock();
     try {
       for (SchedulableTask task : runningTasks) {
+        if (!task.isScheduled() && !hasRoomFor(1)) {
+          break;
+        }
         assigned = task.assignAcceleratorResource(cardId);
       }
     } finally {
@@ -204,6 +415,7 @@ public class SchedulableLeafQueue extends SchedulableQueue {
   void addAcceleratorTask(SchedulableTask task, boolean running) {
     writeLock.lock();
     try {
+      task.setPending(!running);
       if (running) {
         runningTasks.add(task);
       } else {
@@ -211,7 +423,7 @@ public class SchedulableLeafQueue extends SchedulableQueue {
       }
 
       if (startTime == 0) {
-        startTime = System.currentTimeMillis();
+        startTime = scheduler.getClock().getTime();
       }
 
     } finally {
@@ -231,13 +443,19 @@ public class SchedulableLeafQueue extends SchedulableQueue {
     writeLock.lock();
     try {
       runnable = runningTasks.remove(task);
-      if (!runnable) {
+      if (runnable) {
+        avgAdmittedDuration += ADMITTED_DURATION_WEIGHT
+            * (task.getAdmittedDuration() - avgAdmittedDuration);
+      } else {
         // removeNonRunnableApp acquires the write lock again, which is fine
         if (!removePendingTask(task)) {
           throw new IllegalStateException("Given task to remove " + task
               + " does not exist in queue " + this);
         }
       }
+      updateDemand(task.getTask().getWorkload(),
+          -task.getNumAllocatedResources());
+      updateUsage(-task.getUsage());
     } finally {
       writeLock.unlock();
     }
@@ -18,7 +18,6 @@ package tsinghua.stargate.scheduler;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -31,8 +30,6 @@ public class SchedulableParentQueue extends SchedulableQueue {
   private Lock readLock = rwLock.readLock();
   private Lock writeLock = rwLock.writeLock();
 
-  private Comparator<Schedulable> comparator = new FairShareComparator();
-
   SchedulableParentQueue(String name, SchedulableParentQueue queue,
       FairScheduler scheduler) {
     super(name, queue, scheduler);
@@ -98,6 +95,62 @@ public class SchedulableParentQueue extends SchedulableQueue {
     return totalDuration;
   }
 
+  @Override
+  public long getWaitTime() {
+    long waitTime = 0;
+    readLock.lock();
+    try {
+      for (SchedulableQueue queue : childQueues) {
+        waitTime = Math.max(waitTime, queue.getWaitTime());
+      }
+    } finally {
+      readLock.unlock();
+    }
+    return waitTime;
+  }
+
+  @Override
+  public long getWaitTime(long now) {
+    long waitTime = 0;
+    readLock.lock();
+    try {
+      for (SchedulableQueue queue : childQueues) {
+        waitTime = Math.max(waitTime, queue.getWaitTime(now));
+      }
+    } finally {
+      readLock.unlock();
+    }
+    return waitTime;
+  }
+
+  @Override
+  public long getDeadline() {
+    long deadline = Long.MAX_VALUE;
+    readLock.lock();
+    try {
+      for (SchedulableQueue queue : childQueues) {
+        deadline = Math.min(deadline, queue.getDeadline());
+      }
+    } finally {
+      readLock.unlock();
+    }
+    return deadline;
+  }
+
+  @Override
+  public int getPriority() {
+    int priority = Integer.MIN_VALUE;
+    readLock.lock();
+    try {
+      for (SchedulableQueue queue : childQueues) {
+        priority = Math.max(priority, queue.getPriority());
+      }
+    } finally {
+      readLock.unlock();
+    }
+    return priority;
+  }
+
   @Override
   public AcceleratorResources askResources() {
     AcceleratorResources asks = new AcceleratorResourcesImpl();
@@ -118,7 +171,7 @@ public class SchedulableParentQueue extends SchedulableQueue {
     writeLock.lock();
     try {
       Collections.shuffle(childQueues);
-      childQueues.sort(comparator);
+      childQueues.sort(getPolicy());
     } finally {
       writeLock.unlock();
     }
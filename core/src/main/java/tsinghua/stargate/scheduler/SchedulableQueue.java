@@ -17,6 +17,10 @@
 
 package tsinghua.stargate.scheduler;
 
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
 import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
 
 public abstract class SchedulableQueue implements Schedulable {
@@ -26,6 +30,19 @@ public abstract class SchedulableQueue implements Schedulable {
   private final SchedulableParentQueue parent;
   FairScheduler scheduler;
 
+  /** Number of resources requested by the tasks of this queue. */
+  private int demand;
+  /** Number of requested resources per workload. */
+  private final Map<String, Integer> demandWorkloads = new HashMap<>();
+  /** Number of cores held by the tasks of this queue. */
+  private int usage;
+  /** Decayed nanoseconds of accelerator time used by the tasks. */
+  private double hardwareTime;
+  private long hardwareTimeUpdated;
+
+  /** Settings from the allocation file. */
+  private volatile QueueAllocation allocation = QueueAllocation.DEFAULT;
+
   SchedulableQueue(String name, SchedulableParentQueue parent,
       FairScheduler scheduler) {
     this.name = name;
@@ -40,6 +57,10 @@ public abstract class SchedulableQueue implements Schedulable {
 
   @Override
   public Float getWeight() {
+    if (allocation.getWeight() != null) {
+      return allocation.getWeight();
+    }
+
     // Extract workload name from this queue name
     String queueName = this.name;
     int startIndex = queueName.indexOf(".") + 1;
@@ -54,6 +75,135 @@ public abstract class SchedulableQueue implements Schedulable {
     return scheduler.getNodeResources();
   }
 
+  @Override
+  public synchronized int getDemand() {
+    return demand;
+  }
+
+  @Override
+  public synchronized boolean needsReprogram() {
+    if (demand == 0) {
+      return false;
+    }
+    for (String workload : demandWorkloads.keySet()) {
+      if (scheduler.hostsWorkload(workload)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public synchronized int getUsage() {
+    return usage;
+  }
+
+  @Override
+  public int getMinShare() {
+    return allocation.getMinShare();
+  }
+
+  @Override
+  public synchronized long getHardwareTime() {
+    decayHardwareTime();
+    return (long) hardwareTime;
+  }
+
+  /**
+   * Check whether this queue and all its ancestors stay within their max share
+   * if given {@code cores} more cores.
+   */
+  synchronized boolean hasRoomFor(int cores) {
+    if (usage + cores > allocation.getMaxShare()) {
+      return false;
+    }
+    return parent == null || parent.hasRoomFor(cores);
+  }
+
+  /**
+   * Get the policy ordering the children of this queue, the scheduler policy
+   * unless the allocation file sets one.
+   */
+  Comparator<Schedulable> getPolicy() {
+    Comparator<Schedulable> policy = allocation.getPolicy();
+    return policy != null ? policy : scheduler.getPolicy();
+  }
+
+  void setAllocation(QueueAllocation allocation) {
+    this.allocation = allocation;
+  }
+
+  /**
+   * Account cores taken or given back by a task of this queue, in this queue
+   * and all its ancestors.
+   *
+   * @param delta the change in the number of cores held by the task
+   */
+  void updateUsage(int delta) {
+    if (delta == 0) {
+      return;
+    }
+    synchronized (this) {
+      usage += delta;
+    }
+    if (parent != null) {
+      parent.updateUsage(delta);
+    }
+  }
+
+  /**
+   * Charge accelerator time used by a task of this queue to this queue and all
+   * its ancestors.
+   *
+   * @param nanos the nanoseconds the cores of the task were busy
+   */
+  void updateHardwareTime(long nanos) {
+    if (nanos <= 0) {
+      return;
+    }
+    synchronized (this) {
+      decayHardwareTime();
+      hardwareTime += nanos;
+    }
+    if (parent != null) {
+      parent.updateHardwareTime(nanos);
+    }
+  }
+
+  // Decay to the start of the round, so that the hardware time stays the same
+  // while the queues are sorted
+  private synchronized void decayHardwareTime() {
+    long now = scheduler.getRoundTime();
+    long halfLife = scheduler.getUsageHalfLife();
+    if (halfLife > 0 && now > hardwareTimeUpdated) {
+      hardwareTime *= Math.pow(0.5,
+          (double) (now - hardwareTimeUpdated) / halfLife);
+    }
+    hardwareTimeUpdated = now;
+  }
+
+  /**
+   * Account resources requested or given back by a task of this queue, in this
+   * queue and all its ancestors.
+   *
+   * @param workload the workload of the task
+   * @param delta the change in the number of resources requested by the task
+   */
+  void updateDemand(String workload, int delta) {
+    if (delta == 0) {
+      return;
+    }
+    synchronized (this) {
+      demand += delta;
+      if (demandWorkloads.merge(workload, delta, Integer::sum) == 0) {
+        demandWorkloads.remove(workload);
+      }
+    }
+    if (parent != null) {
+      parent.updateDemand(workload, delta);
+    }
+  }
+
   /**
    * Helper method to check if the queue should attempt assigning resources.
    *
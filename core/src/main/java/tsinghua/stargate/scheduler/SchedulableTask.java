@@ -16,19 +16,33 @@
 
 package tsinghua.stargate.scheduler;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import tsinghua.stargate.DaemonContext;
 import tsinghua.stargate.Log;
+import tsinghua.stargate.app.DaemonApp;
+import tsinghua.stargate.exception.StarGateException;
 import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
+import tsinghua.stargate.rpc.message.entity.BlockStoreType;
+import tsinghua.stargate.rpc.message.entity.ServiceData;
 import tsinghua.stargate.rpc.message.entity.Worker;
 import tsinghua.stargate.rpc.message.entity.ApplicationResourceUsageReport;
 import tsinghua.stargate.task.Task;
 import tsinghua.stargate.task.TaskAllocatedEvent;
+import tsinghua.stargate.task.TaskPhase;
+import tsinghua.stargate.task.TaskTimeline;
 import tsinghua.stargate.util.AcceleratorResourceUtils;
+import tsinghua.stargate.util.Clock;
+import tsinghua.stargate.util.NumaUtils;
+import tsinghua.stargate.util.PathUtils;
 import tsinghua.stargate.util.ReflectionUtils;
+import tsinghua.stargate.util.SystemClock;
 
 @SuppressWarnings("unchecked")
 public class SchedulableTask extends Log implements Schedulable {
@@ -37,7 +51,22 @@ public class SchedulableTask extends Log implements Schedulable {
 
   private FairScheduler scheduler;
 
+  private Clock clock;
+
   private AcceleratorResource allocatedResource;
+  /** Idle cores taken beside {@code allocatedResource} for data parallelism. */
+  private List<AcceleratorResource> extraResources = new ArrayList<>();
+  /** Number of cores to run on, 0 for all free cores serving the workload. */
+  private int cores = 1;
+  /** Number of cards to span, the task is gang scheduled if more than 1. */
+  private int cards = 1;
+  /** Cores granted on the other cards of a gang, indexed by hardware id. */
+  private Map<String, AcceleratorResource> gangResources =
+      new LinkedHashMap<>();
+  /** NUMA node holding the input of the task, preferred for its cores. */
+  private int numaNode = NumaUtils.UNKNOWN_NODE;
+  /** Nanoseconds the cores of the task were busy on cards it left. */
+  private long hardwareTime;
 
   private SchedulableQueue queue;
 
@@ -47,6 +76,8 @@ public class SchedulableTask extends Log implements Schedulable {
 
   private long startTime;
   private long finishTime;
+  private long deadline = Long.MAX_VALUE;
+  private int priority;
 
   private String allocatedHardWareId;
 
@@ -57,6 +88,15 @@ public class SchedulableTask extends Log implements Schedulable {
   private boolean stopped;
   private boolean completed;
 
+  /** Whether the task is parked in its queue, waiting to be admitted. */
+  private boolean pending;
+  private long admitTime;
+
+  /** The waiting task this task is giving up its core for, if any. */
+  private SchedulableTask preemptor;
+  private long preemptTime;
+  private int numPreemptions;
+
   private AcceleratorResources askResources;
 
   private CoreFrequencyComparator frequencyComparator =
@@ -68,11 +108,45 @@ public class SchedulableTask extends Log implements Schedulable {
     this.scheduler = scheduler;
     this.queue = queue;
     this.task = task;
-    this.startTime = System.currentTimeMillis();
+    this.clock =
+        scheduler == null ? SystemClock.getInstance() : scheduler.getClock();
+    this.startTime = clock.getTime();
     this.allocatedResource =
         AcceleratorResourceUtils.newInstance(task.getWorkload());
     this.isScheduled = false;
     this.askResources = new AcceleratorResourcesImpl();
+
+    DaemonApp app = context == null || task.getTaskId() == null ? null
+        : context.getDaemonApps().get(task.getTaskId().getDaemonAppId());
+    if (app != null) {
+      if (app.getDeadline() > 0) {
+        this.deadline = startTime + app.getDeadline();
+      }
+      this.priority = app.getPriority();
+      this.cores = app.getCores();
+      this.cards = Math.max(1, app.getCards());
+      this.numaNode = findInputNode(app.getInputServiceData());
+    }
+  }
+
+  /**
+   * Find the NUMA node the input of the task was pushed to. Only inputs held
+   * in the memory store of the daemon have a node.
+   */
+  private int findInputNode(ServiceData input) {
+    if (input == null || input.getStoreType() != BlockStoreType.IN_HEAP
+        || context.getBlockManagerService() == null) {
+      return NumaUtils.UNKNOWN_NODE;
+    }
+    try {
+      return context.getBlockManagerService().getBlockManager()
+          .getMemoryStore()
+          .getNumaNode(PathUtils.getPathFromURI(input.getStorePath()));
+    } catch (StarGateException e) {
+      debug("Unknown NUMA node of input {}: {}", input.getStorePath(),
+          e.getMessage());
+      return NumaUtils.UNKNOWN_NODE;
+    }
   }
 
   // -- Schedulable machinery --
@@ -94,7 +168,27 @@ public class SchedulableTask extends Log implements Schedulable {
 
   @Override
   public long getSubmissionDuration() {
-    return System.currentTimeMillis() - this.startTime;
+    return clock.getTime() - this.startTime;
+  }
+
+  @Override
+  public synchronized long getWaitTime() {
+    return isScheduled ? 0 : getSubmissionDuration();
+  }
+
+  @Override
+  public synchronized long getWaitTime(long now) {
+    return isScheduled ? 0 : Math.max(0, now - startTime);
+  }
+
+  @Override
+  public long getDeadline() {
+    return deadline;
+  }
+
+  @Override
+  public int getPriority() {
+    return priority;
   }
 
   @Override
@@ -107,9 +201,60 @@ public class SchedulableTask extends Log implements Schedulable {
     return scheduler.getNodeResources();
   }
 
+  @Override
+  public int getDemand() {
+    return askResources.getNum();
+  }
+
+  @Override
+  public synchronized int getUsage() {
+    return isScheduled ? getNumAllocatedResources() : 0;
+  }
+
+  @Override
+  public int getMinShare() {
+    return 0;
+  }
+
+  @Override
+  public synchronized long getHardwareTime() {
+    return hardwareTime;
+  }
+
+  /**
+   * Charge the task, and its queue, with accelerator time used on a card.
+   *
+   * @param nanos the nanoseconds the cores of the task were busy
+   */
+  void recordHardwareTime(long nanos) {
+    if (nanos <= 0) {
+      return;
+    }
+    synchronized (this) {
+      hardwareTime += nanos;
+    }
+    if (queue != null) {
+      queue.updateHardwareTime(nanos);
+    }
+  }
+
+  @Override
+  public boolean needsReprogram() {
+    return getDemand() != 0 && !scheduler.hostsWorkload(task.getWorkload());
+  }
+
   @Override
   public AcceleratorResource assignAcceleratorResource(String cardId) {
+    if (isGang()) {
+      // Gangs are placed on all their cards at once by the GangScheduler
+      return AcceleratorResourceUtils.none();
+    }
     SchedulableAccelerator card = scheduler.getNodeAccelerators().get(cardId);
+    // Leave a card away from the input to a local one that has a free core
+    if (numaNode != NumaUtils.UNKNOWN_NODE && card.getNumaNode() != numaNode
+        && scheduler.hasIdleCore(numaNode, task.getWorkload())) {
+      return AcceleratorResourceUtils.none();
+    }
 
     List<AcceleratorResource> availableResources = card.getAvailableResources();
     AcceleratorResource selectedResource;
@@ -121,21 +266,103 @@ public class SchedulableTask extends Log implements Schedulable {
       selectedResource = assignCore(availableResources, task.getWorkload());
       card.allocate(this, selectedResource);
       allocatedResource = selectedResource;
+      if (!selectedResource.equals(AcceleratorResourceUtils.none())) {
+        assignExtraCores(card);
+      }
     }
 
     if (!allocatedResource.equals(AcceleratorResourceUtils.none())) {
       askResources.add(allocatedResource);
+      List<Integer> extraCoreIds = new ArrayList<>(extraResources.size());
+      for (AcceleratorResource resource : extraResources) {
+        askResources.add(resource);
+        extraCoreIds.add(resource.getAcceleratorCoreId());
+      }
+      updateQueue(extraResources.size(), 1 + extraResources.size());
       allocatedHardWareId = card.getHardwareId();
       allocatedCardId = card.getCardId();
       worker = card.getWorker();
+      markAllocated();
       context.getDispatcher().getEventHandler()
           .handle(new TaskAllocatedEvent(task.getTaskId(), this.allocatedCardId,
-              allocatedResource.getAcceleratorCoreId(), allocatedResource));
+              allocatedResource.getAcceleratorCoreId(), allocatedResource,
+              extraCoreIds));
     }
 
     return selectedResource;
   }
 
+  /**
+   * Take further idle cores of the same card serving the workload of this
+   * task, up to the number of cores it asked for. A task never waits for extra
+   * cores, it runs on whatever is free when it gets its first core.
+   */
+  private void assignExtraCores(SchedulableAccelerator card) {
+    String workload = task.getWorkload();
+    List<AcceleratorResource> candidates =
+        new ArrayList<>(card.getAvailableResources());
+    Collections.sort(candidates, getFrequencyComparator());
+    for (AcceleratorResource resource : candidates) {
+      if (cores > 0 && extraResources.size() + 1 >= cores) {
+        break;
+      }
+      // Neither take the queue beyond its max share
+      if (queue != null && !queue.hasRoomFor(extraResources.size() + 2)) {
+        break;
+      }
+      if (resource.getAcceleratorWorkload().equals(workload)) {
+        card.allocate(this, resource);
+        extraResources.add(resource);
+      }
+    }
+  }
+
+  /**
+   * Grant this gang one core on each of its cards at once.
+   *
+   * @param placement a core of each card to run on, the first one leading
+   */
+  void assignGang(Map<SchedulableAccelerator, AcceleratorResource> placement) {
+    Map<Integer, Integer> gangCores = new HashMap<>();
+    synchronized (this) {
+      if (isScheduled) {
+        return;
+      }
+      for (SchedulableAccelerator card : placement.keySet()) {
+        AcceleratorResource resource = placement.get(card);
+        card.allocate(this, resource);
+        askResources.add(resource);
+        gangCores.put(card.getCardId(), resource.getAcceleratorCoreId());
+        if (!isScheduled) {
+          allocatedResource = resource;
+          allocatedHardWareId = card.getHardwareId();
+          allocatedCardId = card.getCardId();
+          worker = card.getWorker();
+          isScheduled = true;
+        } else {
+          gangResources.put(card.getHardwareId(), resource);
+        }
+      }
+    }
+    updateQueue(gangResources.size(), 1 + gangResources.size());
+
+    info("Gang schedule task {} on accelerators {} (cores: {})", getName(),
+        getAllocatedHardWareIds(), gangCores);
+    markAllocated();
+    context.getDispatcher().getEventHandler()
+        .handle(new TaskAllocatedEvent(task.getTaskId(), allocatedCardId,
+            allocatedResource.getAcceleratorCoreId(), allocatedResource,
+            Collections.<Integer> emptyList(), gangCores));
+  }
+
+  /** Mark on the timeline of the task that it was granted its cores. */
+  private void markAllocated() {
+    TaskTimeline timeline = task.getTimeline();
+    if (timeline != null) {
+      timeline.mark(TaskPhase.ALLOCATE);
+    }
+  }
+
   private boolean assignAcceleratorPreCheck(
       List<AcceleratorResource> availableResources) {
     if (availableResources == null || availableResources.size() == 0
@@ -190,6 +417,66 @@ public class SchedulableTask extends Log implements Schedulable {
     return allocatedResource;
   }
 
+  /**
+   * Get every core held by this task, the one it was first assigned leading.
+   */
+  public synchronized List<AcceleratorResource> getAllocatedResources() {
+    List<AcceleratorResource> resources =
+        new ArrayList<>(extraResources.size() + 1);
+    resources.add(allocatedResource);
+    resources.addAll(extraResources);
+    resources.addAll(gangResources.values());
+    return resources;
+  }
+
+  /**
+   * Get the number of cores held by this task, or 1 while it waits for its
+   * first core.
+   */
+  synchronized int getNumAllocatedResources() {
+    return 1 + extraResources.size() + gangResources.size();
+  }
+
+  /**
+   * Account the cores this task took or gave back in its queue, i.e. those
+   * beyond its first one in the demand of the queue and all of them in its
+   * usage.
+   */
+  private void updateQueue(int demandDelta, int usageDelta) {
+    if (queue != null) {
+      queue.updateDemand(task.getWorkload(), demandDelta);
+      queue.updateUsage(usageDelta);
+    }
+  }
+
+  /**
+   * Get the hardware ids of every card this task holds cores on.
+   */
+  public synchronized List<String> getAllocatedHardWareIds() {
+    List<String> hardwareIds = new ArrayList<>(gangResources.size() + 1);
+    if (allocatedHardWareId != null) {
+      hardwareIds.add(allocatedHardWareId);
+    }
+    hardwareIds.addAll(gangResources.keySet());
+    return hardwareIds;
+  }
+
+  public int getCards() {
+    return cards;
+  }
+
+  public boolean isGang() {
+    return cards > 1;
+  }
+
+  /**
+   * @return the NUMA node holding the input of the task, or
+   *         {@link NumaUtils#UNKNOWN_NODE}
+   */
+  public int getNumaNode() {
+    return numaNode;
+  }
+
   public ApplicationResourceUsageReport getResourceUsageReport() {
     ApplicationResourceUsageReport report =
         ReflectionUtils.get().getMsg(ApplicationResourceUsageReport.class);
@@ -225,10 +512,89 @@ public class SchedulableTask extends Log implements Schedulable {
 
   public void completed() {
     completed = true;
-    finishTime = System.currentTimeMillis();
+    finishTime = clock.getTime();
     info("Completed {} cost {}s", getName(), (finishTime - startTime) / 1000);
   }
 
+  public synchronized boolean isScheduled() {
+    return isScheduled;
+  }
+
+  /**
+   * Ask the running task to yield its core to a waiting task.
+   *
+   * @param waiting the task that the core will be granted to
+   * @return {@code true} if the running task will yield at its next request
+   *         boundary
+   */
+  synchronized boolean preempt(SchedulableTask waiting) {
+    if (!isScheduled || preemptor != null || completed || !task.preempt()) {
+      return false;
+    }
+    preemptor = waiting;
+    preemptTime = clock.getTime();
+    return true;
+  }
+
+  /**
+   * Put a task that has yielded its core back to the unscheduled state of its
+   * queue, so that it competes for a core again.
+   *
+   * @return how long in milliseconds the core drained after the preemption
+   *         request before it was freed
+   */
+  synchronized long requeue() {
+    long drained = preemptor == null ? 0 : clock.getTime() - preemptTime;
+    numPreemptions++;
+    preemptor = null;
+    updateQueue(-(extraResources.size() + gangResources.size()),
+        isScheduled ? -getNumAllocatedResources() : 0);
+    isScheduled = false;
+    allocatedResource =
+        AcceleratorResourceUtils.newInstance(task.getWorkload());
+    extraResources = new ArrayList<>();
+    gangResources = new LinkedHashMap<>();
+    askResources = new AcceleratorResourcesImpl();
+    return drained;
+  }
+
+  public synchronized boolean isPreempting() {
+    return preemptor != null;
+  }
+
+  synchronized SchedulableTask getPreemptor() {
+    return preemptor;
+  }
+
+  public synchronized int getNumPreemptions() {
+    return numPreemptions;
+  }
+
+  public synchronized boolean isPending() {
+    return pending;
+  }
+
+  /**
+   * Park the task in its queue, or admit it so that it competes for cores.
+   *
+   * @param pending whether the task is parked
+   */
+  synchronized void setPending(boolean pending) {
+    this.pending = pending;
+    if (!pending) {
+      admitTime = clock.getTime();
+    }
+  }
+
+  /**
+   * Get how long the task has been admitted, i.e. not parked.
+   *
+   * @return the admitted time in milliseconds
+   */
+  synchronized long getAdmittedDuration() {
+    return pending ? 0 : clock.getTime() - admitTime;
+  }
+
   public boolean isStopped() {
     return stopped;
   }
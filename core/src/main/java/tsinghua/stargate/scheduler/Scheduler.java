@@ -54,4 +54,15 @@ public interface Scheduler<T1, T2> extends EventHandler<SchedulerEvent> {
    *         not point to a defined node.
    */
   AcceleratorReport getCardReport(String cardId);
+
+  /**
+   * Check whether the queue of {@code workload} submitted by {@code userAppId}
+   * can take another task.
+   *
+   * @param workload the workload of the submission
+   * @param userAppId the user application of the submission
+   * @return 0 if the submission can be taken, otherwise how long in
+   *         milliseconds the submitter should wait before retrying
+   */
+  long getRetryAfter(String workload, String userAppId);
 }
\ No newline at end of file
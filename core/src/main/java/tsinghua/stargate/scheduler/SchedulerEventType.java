@@ -20,5 +20,7 @@ public enum SchedulerEventType {
 
   TASK_ADDED,
 
-  TASK_REMOVED
+  TASK_REMOVED,
+
+  TASK_PREEMPTED
 }
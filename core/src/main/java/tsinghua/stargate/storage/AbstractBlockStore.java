@@ -19,6 +19,7 @@ package tsinghua.stargate.storage;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 
@@ -96,6 +97,42 @@ public abstract class AbstractBlockStore extends Log implements BlockStore {
   protected abstract void writeBytes(String s, ByteBuffer o)
       throws StarGateException;
 
+  @Override
+  public boolean putSegments(BlockId blockId, List<ByteBuffer> segments) {
+    debug("Attempting to write {} segments of block:{}", segments.size(),
+        blockId);
+    try {
+      writeSegments(blockId.getPaths()[0], segments);
+    } catch (StarGateException e) {
+      error("Failed to write block {}", blockId);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Write segments one after another into a path. Stores that can only write
+   * a path at once get the segments gathered into one buffer; those that can
+   * append should write them as they are.
+   */
+  protected void writeSegments(String path, List<ByteBuffer> segments)
+      throws StarGateException {
+    if (segments.size() == 1) {
+      writeBytes(path, segments.get(0));
+      return;
+    }
+    int size = 0;
+    for (ByteBuffer segment : segments) {
+      size += segment.remaining();
+    }
+    ByteBuffer gathered = ByteBuffer.allocateDirect(size);
+    for (ByteBuffer segment : segments) {
+      gathered.put(segment.duplicate());
+    }
+    gathered.flip();
+    writeBytes(path, gathered);
+  }
+
   @Override
   public boolean remove(BlockId blockId) {
     info("Attempting to remove the block {}", blockId);
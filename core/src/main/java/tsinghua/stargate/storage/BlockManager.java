@@ -17,6 +17,8 @@
 package tsinghua.stargate.storage;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 import tsinghua.stargate.api.RecordReader;
 import tsinghua.stargate.api.RecordWriter;
@@ -41,6 +43,19 @@ public interface BlockManager {
    */
   boolean putBlock(Block block) throws StarGateException;
 
+  /**
+   * Stores {@code segments} one after another as the block identified by
+   * {@code blockId}, without gathering them into one buffer first where the
+   * store can append.
+   *
+   * @param blockId the identification of block
+   * @param storeLevel the store level of block
+   * @param segments the segments to be stored, in order
+   * @return {@code true} if successful, {@code false} otherwise
+   */
+  boolean putSegments(BlockId blockId, BlockStoreLevel storeLevel,
+      List<ByteBuffer> segments) throws StarGateException;
+
   /**
    * Retrieves and loads the block identified by {@code blockId} and
    * {@code level}.
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -28,14 +29,27 @@ import tsinghua.stargate.Log;
 import tsinghua.stargate.api.RecordReader;
 import tsinghua.stargate.api.RecordWriter;
 import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
 import tsinghua.stargate.exception.StarGateException;
+import tsinghua.stargate.metrics.Counter;
+import tsinghua.stargate.metrics.MetricsRegistry;
 import tsinghua.stargate.storage.factory.provider.BlockStoreFactoryProvider;
 import tsinghua.stargate.storage.impl.BlockStoreAlluxioImpl;
 import tsinghua.stargate.storage.impl.BlockStoreDiskImpl;
 import tsinghua.stargate.storage.impl.BlockStoreMemoryImpl;
+import tsinghua.stargate.util.NumaUtils;
 
 public class BlockManagerImpl extends Log implements BlockManager {
 
+  private static final Counter HITS = MetricsRegistry.get().counter(
+      "stargate_blocks_get_total", "Block lookups", "result", "hit");
+  private static final Counter MISSES = MetricsRegistry.get().counter(
+      "stargate_blocks_get_total", "Block lookups", "result", "miss");
+  private static final Counter BYTES_READ = MetricsRegistry.get().counter(
+      "stargate_blocks_read_bytes_total", "Bytes of blocks looked up");
+  private static final Counter BYTES_WRITTEN = MetricsRegistry.get().counter(
+      "stargate_blocks_written_bytes_total", "Bytes of blocks stored");
+
   private final Map<BlockId, BlockStoreLevel> blockIds = new HashMap<>();
   private final BlockStoreMemoryImpl memoryStore;
   private final BlockStoreDiskImpl diskStore;
@@ -49,6 +63,14 @@ public class BlockManagerImpl extends Log implements BlockManager {
         .getDiskFactory(conf).getDisk(BlockStore.class, conf);
     alluxioStore = (BlockStoreAlluxioImpl) BlockStoreFactoryProvider
         .getAlluxioFactory(conf).getAlluxio(BlockStore.class, conf);
+    memoryStore.setNumaNodes(NumaUtils.getNumNodes(conf));
+    long memoryCapacity = conf.getLong(NameSpace.STORAGE_MEMORY_CAPACITY,
+        NameSpace.DEFAULT_STORAGE_MEMORY_CAPACITY);
+    memoryStore.setCapacity(memoryCapacity > 0 ? memoryCapacity
+        : Runtime.getRuntime().maxMemory());
+    memoryStore.setUploadTimeout(
+        conf.getLong(NameSpace.STORAGE_MEMORY_UPLOAD_TIMEOUT,
+            NameSpace.DEFAULT_STORAGE_MEMORY_UPLOAD_TIMEOUT));
   }
 
   // -- BlockManager interface --
@@ -77,6 +99,7 @@ public class BlockManagerImpl extends Log implements BlockManager {
       // TODO: must check assignment
       Iterator<Object> blockIter =
           (Iterator) block.getBlocks().values().iterator();
+      BYTES_WRITTEN.add(sizeOf(block.getBlocks()));
       boolean putResult = false;
       switch (storeLevel) {
       case IN_HEAP:
@@ -100,6 +123,32 @@ public class BlockManagerImpl extends Log implements BlockManager {
     }
   }
 
+  @Override
+  public boolean putSegments(BlockId blockId, BlockStoreLevel storeLevel,
+      List<ByteBuffer> segments) throws StarGateException {
+    synchronized (lock) {
+      long size = 0;
+      for (ByteBuffer segment : segments) {
+        size += segment.remaining();
+      }
+      BYTES_WRITTEN.add(size);
+      switch (storeLevel) {
+      case IN_HEAP:
+        return memoryStore.putSegments(blockId, segments);
+
+      case DISK:
+        return diskStore.putSegments(blockId, segments);
+
+      case ALLUXIO:
+        return alluxioStore.putSegments(blockId, segments);
+
+      default:
+        error("Unsupported block store level");
+        return false;
+      }
+    }
+  }
+
   @Override
   public Block getBlock(BlockId blockId, BlockStoreLevel storeLevel)
       throws StarGateException {
@@ -125,6 +174,7 @@ public class BlockManagerImpl extends Log implements BlockManager {
       }
 
       if (blockDataIter == null) {
+        MISSES.inc();
         return null;
       }
 
@@ -136,11 +186,26 @@ public class BlockManagerImpl extends Log implements BlockManager {
         blocks.put(blockData.getLeft(), (ByteBuffer) blockData.getRight());
       }
       blockIds.put(blockId, storeLevel);
+      HITS.inc();
+      BYTES_READ.add(sizeOf(blocks));
 
       return new Block(blockId, storeLevel, blocks);
     }
   }
 
+  private static long sizeOf(Map<String, ByteBuffer> blocks) {
+    long size = 0;
+    if (blocks == null) {
+      return size;
+    }
+    for (ByteBuffer block : blocks.values()) {
+      if (block != null) {
+        size += block.remaining();
+      }
+    }
+    return size;
+  }
+
   @Override
   public boolean contain(BlockId blockId) throws IOException {
     return blockIds.containsKey(blockId);
@@ -17,7 +17,9 @@
 package tsinghua.stargate.storage;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
+import java.util.List;
 
 import tsinghua.stargate.exception.StarGateException;
 
@@ -49,5 +51,16 @@ public interface BlockStore {
   boolean putValues(BlockId blockId, Iterator<Object> values,
       BlockStoreLevel level) throws IOException;
 
+  /**
+   * Write segments one after another into the first path of the block
+   * specified by {@code blockId}.
+   *
+   * @param blockId the block id
+   * @param segments the segments to be written, from the position to the
+   *          limit of each
+   * @return {@code true} if store block successfully, {@code false} otherwise
+   */
+  boolean putSegments(BlockId blockId, List<ByteBuffer> segments);
+
   boolean remove(BlockId blockId) throws StarGateException;
 }
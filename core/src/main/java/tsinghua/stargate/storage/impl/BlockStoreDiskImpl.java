@@ -21,12 +21,14 @@ import static java.nio.file.StandardOpenOption.*;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 
 import com.google.common.base.Preconditions;
@@ -68,6 +70,18 @@ public class BlockStoreDiskImpl extends AbstractBlockStore {
     recordWriter.writeBytes(path, buf);
   }
 
+  @Override
+  protected void writeSegments(String path, List<ByteBuffer> segments)
+      throws StarGateException {
+    if (recordWriter instanceof DefaultRecordWriter) {
+      // Append the segments straight from where they are
+      ((DefaultRecordWriter) recordWriter).writeBytes(path,
+          segments.toArray(new ByteBuffer[0]));
+    } else {
+      super.writeSegments(path, segments);
+    }
+  }
+
   public boolean exists(String path) {
     Path diskPath = Paths.get(path);
     return Files.exists(diskPath);
@@ -230,5 +244,29 @@ public class BlockStoreDiskImpl extends AbstractBlockStore {
         throw new StarGateException(e);
       }
     }
+
+    /** Append buffers to a file with gathering writes. */
+    void writeBytes(String path, ByteBuffer[] bufs) throws StarGateException {
+      Path diskPath = Paths.get(path);
+      Preconditions.checkNotNull(path);
+
+      PathUtils.mkDirRecursively(new File(diskPath.getParent().toString()));
+
+      ByteBuffer[] segments = new ByteBuffer[bufs.length];
+      long size = 0;
+      for (int i = 0; i < bufs.length; i++) {
+        segments[i] = bufs[i].duplicate();
+        size += segments[i].remaining();
+      }
+      try (FileChannel channel = FileChannel.open(diskPath, CREATE, WRITE,
+          APPEND)) {
+        while (size > 0) {
+          size -= channel.write(segments);
+        }
+      } catch (IOException e) {
+        error("disk Failed to write file");
+        throw new StarGateException(e);
+      }
+    }
   }
 }
@@ -17,7 +17,15 @@
 package tsinghua.stargate.storage.impl;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -26,10 +34,20 @@ import org.slf4j.LoggerFactory;
 
 import tsinghua.stargate.api.RecordReader;
 import tsinghua.stargate.api.RecordWriter;
+import tsinghua.stargate.conf.NameSpace;
 import tsinghua.stargate.exception.StarGateException;
 import tsinghua.stargate.storage.AbstractBlockStore;
+import tsinghua.stargate.util.NumaUtils;
 
-/** Memory block store. */
+/**
+ * Memory block store.
+ *
+ * <p>
+ * Blocks are accounted to the NUMA nodes of the host, each new block going to
+ * the node holding the fewest bytes. The JVM offers no way to bind a direct
+ * buffer to a node, so the node of a block is only a placement hint: the
+ * scheduler prefers accelerators attached to the node of a task's input.
+ */
 public class BlockStoreMemoryImpl extends AbstractBlockStore {
 
   private static final Logger LOG =
@@ -40,12 +58,104 @@ public class BlockStoreMemoryImpl extends AbstractBlockStore {
   private LinkedHashMap<String, ByteBuffer> cache =
       new LinkedHashMap(32, 0.75f, true);
 
+  // Blocks being pushed chunk by chunk and not yet published into the cache,
+  // by upload, and the bytes they hold; both guarded by pendingBlocks
+  private final Map<String, Upload> pendingBlocks = new HashMap<>();
+  private long pendingBytes = 0;
+
+  private long capacity = Long.MAX_VALUE;
+  private long uploadTimeoutNanos = TimeUnit.MILLISECONDS
+      .toNanos(NameSpace.DEFAULT_STORAGE_MEMORY_UPLOAD_TIMEOUT);
+
+  // NUMA node of every cached block and bytes held per node, guarded by rwl
+  private final Map<String, Integer> blockNodes = new HashMap<>();
+  private long[] nodeBytes = new long[1];
+
+  /**
+   * Sets the number of NUMA nodes blocks are balanced over.
+   *
+   * @param numNodes the number of NUMA nodes of the host
+   */
+  public void setNumaNodes(int numNodes) {
+    rwl.writeLock().lock();
+    try {
+      nodeBytes = new long[Math.max(numNodes, 1)];
+      blockNodes.clear();
+      for (Map.Entry<String, ByteBuffer> entry : cache.entrySet()) {
+        account(entry.getKey(), entry.getValue());
+      }
+    } finally {
+      rwl.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the NUMA node holding most bytes of the blocks under the
+   * directory {@code dir}.
+   *
+   * @param dir the directory of blocks
+   * @return the NUMA node, or {@link NumaUtils#UNKNOWN_NODE} if there is no
+   *         block under {@code dir}
+   */
+  public int getNumaNode(String dir) {
+    rwl.readLock().lock();
+    try {
+      long[] bytes = new long[nodeBytes.length];
+      boolean found = false;
+      // Iterating does not reorder the access-ordered cache, unlike get
+      for (Map.Entry<String, ByteBuffer> entry : cache.entrySet()) {
+        Integer node = blockNodes.get(entry.getKey());
+        if (node != null && entry.getKey().startsWith(dir)) {
+          bytes[node] += entry.getValue().limit();
+          found = true;
+        }
+      }
+      if (!found) {
+        return NumaUtils.UNKNOWN_NODE;
+      }
+      int node = 0;
+      for (int i = 1; i < bytes.length; i++) {
+        if (bytes[i] > bytes[node]) {
+          node = i;
+        }
+      }
+      return node;
+    } finally {
+      rwl.readLock().unlock();
+    }
+  }
+
+  // Both must be called with the write lock held
+  private void account(String path, ByteBuffer data) {
+    if (data == null) {
+      return;
+    }
+    int node = 0;
+    for (int i = 1; i < nodeBytes.length; i++) {
+      if (nodeBytes[i] < nodeBytes[node]) {
+        node = i;
+      }
+    }
+    nodeBytes[node] += data.limit();
+    blockNodes.put(path, node);
+  }
+
+  private void release(String path, ByteBuffer data) {
+    Integer node = blockNodes.remove(path);
+    if (data != null && node != null) {
+      nodeBytes[node] -= data.limit();
+    }
+  }
+
   @Override
   public ByteBuffer readBytes(String path) throws StarGateException {
     ByteBuffer data = null;
+    // An access-ordered map is structurally modified by get, hence write lock
+    rwl.writeLock().lock();
     try {
       data = cache.get(path);
     } finally {
+      rwl.writeLock().unlock();
     }
     return data;
   }
@@ -53,26 +163,308 @@ public class BlockStoreMemoryImpl extends AbstractBlockStore {
   @Override
   public void writeBytes(String path, ByteBuffer data)
       throws StarGateException {
+    rwl.writeLock().lock();
     try {
-      data = cache.put(path, data);
+      release(path, cache.put(path, data));
+      account(path, data);
     } finally {
+      rwl.writeLock().unlock();
     }
   }
 
   public boolean exists(String path) throws StarGateException {
     boolean isExist = false;
+    rwl.readLock().lock();
     try {
       isExist = cache.containsKey(path);
     } finally {
+      rwl.readLock().unlock();
     }
     return isExist;
   }
 
+  /**
+   * Lists the paths of all cached blocks under the directory {@code dir}.
+   *
+   * @param dir the directory of blocks
+   * @return the sorted paths of blocks under {@code dir}
+   */
+  public String[] list(String dir) {
+    List<String> paths = new ArrayList<>();
+    rwl.readLock().lock();
+    try {
+      for (String path : cache.keySet()) {
+        if (path.startsWith(dir)) {
+          paths.add(path);
+        }
+      }
+    } finally {
+      rwl.readLock().unlock();
+    }
+    String[] sorted = paths.toArray(new String[0]);
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  /**
+   * Sets the bytes the store may hold in blocks and pending uploads before it
+   * refuses new uploads.
+   *
+   * @param capacity the maximum number of bytes
+   */
+  public void setCapacity(long capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Sets how long an upload may go without a chunk before it is dropped.
+   *
+   * @param timeout the timeout in milliseconds
+   */
+  public void setUploadTimeout(long timeout) {
+    this.uploadTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+  }
+
+  /**
+   * Writes a chunk of the block identified by {@code path}.
+   *
+   * @see #writeChunk(String, String, long, long, ByteBuffer, boolean)
+   */
+  public long writeChunk(String path, long offset, long capacity,
+      ByteBuffer chunk, boolean last) throws StarGateException {
+    return writeChunk(path, null, offset, capacity, chunk, last);
+  }
+
+  /**
+   * Writes a chunk of the block identified by {@code path}. The block becomes
+   * visible to readers once its {@code last} chunk has been written, provided
+   * every byte of it has been received.
+   *
+   * <p>
+   * The block is assembled in a direct buffer of {@code capacity} bytes, so
+   * that it can be handed to accelerator channels without another copy. Chunks
+   * may arrive in any order and may be resent, as the block is complete once
+   * its chunks cover every byte of it. Uploads are told apart by {@code uploadId}, and
+   * uploads without a chunk for longer than the upload timeout are dropped.
+   *
+   * @param path the path of the block
+   * @param uploadId the identifier of the upload, {@code null} for the path
+   * @param offset the offset in the block of this chunk
+   * @param capacity the total size of the block
+   * @param chunk the bytes of this chunk
+   * @param last whether this chunk completes the block
+   * @return the end offset of this chunk in the block
+   * @throws StarGateException if the chunk does not fit into the block, the
+   *           block does not fit into the store or is incomplete
+   */
+  public long writeChunk(String path, String uploadId, long offset,
+      long capacity, ByteBuffer chunk, boolean last)
+      throws StarGateException {
+    String key = uploadId == null ? path : uploadId;
+    int length = chunk == null ? 0 : chunk.remaining();
+    if (offset < 0 || offset + length > capacity) {
+      abort(key);
+      throw new StarGateException("Chunk [" + offset + ", "
+          + (offset + length) + ") exceeds block " + path);
+    }
+
+    Upload upload = getUpload(key, path, capacity);
+    if (length > 0) {
+      ByteBuffer target = upload.block.duplicate();
+      target.position((int) offset);
+      target.put(chunk.duplicate());
+    }
+    long received = upload.cover(offset, offset + length);
+
+    if (last) {
+      abort(key);
+      if (received < capacity) {
+        throw new StarGateException("Block " + path + " is incomplete, got "
+            + received + " of " + capacity + " bytes");
+      }
+      writeBytes(path, upload.block);
+      LOG.debug("Received block {} ({} bytes)", path, capacity);
+    }
+    return offset + length;
+  }
+
+  /**
+   * Gets the upload {@code key}, starting it if this is its first chunk.
+   */
+  private Upload getUpload(String key, String path, long capacity)
+      throws StarGateException {
+    synchronized (pendingBlocks) {
+      expireUploads();
+      Upload upload = pendingBlocks.get(key);
+      if (upload != null && upload.path.equals(path)
+          && upload.block.capacity() == capacity) {
+        upload.lastAccess = System.nanoTime();
+        return upload;
+      }
+      if (upload != null) {
+        abort(key);
+      }
+
+      if (capacity > Integer.MAX_VALUE) {
+        throw new StarGateException(
+            "Unsupported block size " + capacity + " of " + path);
+      }
+      long available = this.capacity - getUsedBytes() - pendingBytes;
+      if (capacity > available) {
+        throw new StarGateException("Block " + path + " of " + capacity
+            + " bytes exceeds the " + Math.max(available, 0)
+            + " bytes left in the memory store");
+      }
+      upload = new Upload(path, ByteBuffer.allocateDirect((int) capacity));
+      pendingBlocks.put(key, upload);
+      pendingBytes += capacity;
+      return upload;
+    }
+  }
+
+  private void abort(String key) {
+    synchronized (pendingBlocks) {
+      Upload upload = pendingBlocks.remove(key);
+      if (upload != null) {
+        pendingBytes -= upload.block.capacity();
+      }
+    }
+  }
+
+  // Must be called holding the lock of pendingBlocks
+  private void expireUploads() {
+    long now = System.nanoTime();
+    Iterator<Map.Entry<String, Upload>> it =
+        pendingBlocks.entrySet().iterator();
+    while (it.hasNext()) {
+      Upload upload = it.next().getValue();
+      if (now - upload.lastAccess > uploadTimeoutNanos) {
+        it.remove();
+        pendingBytes -= upload.block.capacity();
+        LOG.warn("Dropped upload of block {} idle for more than {} ms",
+            upload.path, TimeUnit.NANOSECONDS.toMillis(uploadTimeoutNanos));
+      }
+    }
+  }
+
+  private long getUsedBytes() {
+    rwl.readLock().lock();
+    try {
+      long used = 0;
+      for (long bytes : nodeBytes) {
+        used += bytes;
+      }
+      return used;
+    } finally {
+      rwl.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of bytes held by uploads not yet published.
+   *
+   * @return the bytes of pending uploads
+   */
+  public long getPendingBytes() {
+    synchronized (pendingBlocks) {
+      return pendingBytes;
+    }
+  }
+
+  /** A block being pushed chunk by chunk. */
+  private static class Upload {
+    private final String path;
+    private final ByteBuffer block;
+    /** Disjoint ranges of the block received so far, start to end. */
+    private final TreeMap<Long, Long> ranges = new TreeMap<>();
+    private long received = 0;
+    private volatile long lastAccess = System.nanoTime();
+
+    private Upload(String path, ByteBuffer block) {
+      this.path = path;
+      this.block = block;
+    }
+
+    /**
+     * Marks {@code [start, end)} received, merging it with the ranges it
+     * overlaps or touches, so that resent bytes are not counted twice.
+     *
+     * @return the number of distinct bytes received so far
+     */
+    private synchronized long cover(long start, long end) {
+      if (start >= end) {
+        return received;
+      }
+      Map.Entry<Long, Long> before = ranges.floorEntry(start);
+      if (before != null && before.getValue() >= start) {
+        start = before.getKey();
+        end = Math.max(end, before.getValue());
+        received -= before.getValue() - before.getKey();
+        ranges.remove(before.getKey());
+      }
+      Map.Entry<Long, Long> next = ranges.ceilingEntry(start);
+      while (next != null && next.getKey() <= end) {
+        end = Math.max(end, next.getValue());
+        received -= next.getValue() - next.getKey();
+        ranges.remove(next.getKey());
+        next = ranges.ceilingEntry(start);
+      }
+      ranges.put(start, end);
+      received += end - start;
+      return received;
+    }
+  }
+
+  /**
+   * Reads at most {@code length} bytes of the block identified by
+   * {@code path}, starting at {@code offset}. The bytes are copied into a heap
+   * buffer, as required by the Thrift protocols.
+   *
+   * @param path the path of the block
+   * @param offset the offset in the block to read from
+   * @param length the maximum number of bytes to read
+   * @return the bytes read, or {@code null} if the block does not exist
+   * @throws StarGateException if reading the block fails
+   */
+  public ByteBuffer readChunk(String path, long offset, int length)
+      throws StarGateException {
+    ByteBuffer block = readBytes(path);
+    if (block == null) {
+      return null;
+    }
+    ByteBuffer source = block.duplicate();
+    source.position(0);
+    int start = (int) Math.min(Math.max(offset, 0), source.limit());
+    int end = (int) Math.min((long) start + Math.max(length, 0),
+        source.limit());
+    source.position(start);
+    source.limit(end);
+
+    ByteBuffer chunk = ByteBuffer.allocate(end - start);
+    chunk.put(source);
+    chunk.flip();
+    return chunk;
+  }
+
+  /**
+   * Returns the size in bytes of the block identified by {@code path}.
+   *
+   * @param path the path of the block
+   * @return the size of the block, or -1 if it does not exist
+   * @throws StarGateException if reading the block fails
+   */
+  public long size(String path) throws StarGateException {
+    ByteBuffer block = readBytes(path);
+    return block == null ? -1 : block.limit();
+  }
+
   @Override
   public void delete(String path) throws StarGateException {
+    rwl.writeLock().lock();
     try {
-      cache.remove(path);
+      release(path, cache.remove(path));
     } finally {
+      rwl.writeLock().unlock();
     }
   }
 
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import tsinghua.stargate.exception.StarGateException;
+import tsinghua.stargate.util.ThreadUtils;
+
+/**
+ * Runs the partitions of a data-parallel task, one per allocated core, and
+ * writes their results in block order.
+ *
+ * <p>
+ * The first partition runs on the calling thread and its results are written
+ * as they come. Every other partition runs on a thread of its own, and its
+ * results are written as soon as it and all partitions before it are done.
+ * If a partition stops early because the task is preempted, the results of
+ * the partitions after it are dropped and all of their blocks are handed
+ * back, so that the written results always cover a prefix of the blocks.
+ *
+ * @param <R> the type of results
+ */
+class PartitionRunner<R> {
+
+  /** A contiguous run of blocks processed on one core. */
+  interface Partition<R> {
+
+    /**
+     * Process the next request.
+     *
+     * @return its result, or {@code null} once all blocks are processed or
+     *         the task is preempted, and only then
+     * @throws IOException if processing the request failed or produced no
+     *           result
+     */
+    R process() throws IOException;
+
+    /** Whether all blocks of the partition were processed. */
+    boolean isComplete();
+
+    /**
+     * Take the blocks of the partition, in block order.
+     *
+     * @param all whether to take processed blocks as well
+     * @return the blocks left unprocessed, or all blocks if {@code all}
+     */
+    Map<String, ByteBuffer> takeBlocks(boolean all);
+  }
+
+  /** Stores the results of a task. */
+  interface Writer<R> {
+    void write(R result) throws StarGateException;
+  }
+
+  private final List<? extends Partition<R>> partitions;
+  /** Index of the first partition that did not finish, -1 if none. */
+  private int firstIncomplete = -1;
+
+  PartitionRunner(List<? extends Partition<R>> partitions) {
+    this.partitions = partitions;
+  }
+
+  /**
+   * Process all partitions and write their results in block order.
+   *
+   * @param writer stores the results
+   * @return {@code false} if preempted before all blocks were processed
+   * @throws IOException if a partition failed
+   * @throws StarGateException if writing a result failed
+   */
+  boolean run(Writer<R> writer) throws IOException, StarGateException {
+    int n = partitions.size();
+    ExecutorService pool = n > 1 ? ThreadUtils.getExecutor()
+        .newDaemonCachedThreadPool("TaskPartition", n - 1) : null;
+    List<Future<List<R>>> futures = new ArrayList<>();
+    try {
+      for (Partition<R> partition : partitions.subList(1, n)) {
+        futures.add(pool.submit(() -> drain(partition)));
+      }
+
+      R result;
+      while ((result = partitions.get(0).process()) != null) {
+        writer.write(result);
+      }
+      if (!partitions.get(0).isComplete()) {
+        firstIncomplete = 0;
+      }
+      for (int i = 1; i < n; i++) {
+        List<R> results = futures.get(i - 1).get();
+        if (firstIncomplete >= 0) {
+          continue;
+        }
+        for (R r : results) {
+          writer.write(r);
+        }
+        if (!partitions.get(i).isComplete()) {
+          firstIncomplete = i;
+        }
+      }
+      return firstIncomplete < 0;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while processing partitions", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } finally {
+      // Stop the partitions left running after one of them failed
+      for (Future<List<R>> future : futures) {
+        future.cancel(true);
+      }
+      if (pool != null) {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  private List<R> drain(Partition<R> partition) throws IOException {
+    List<R> results = new ArrayList<>();
+    R result;
+    while ((result = partition.process()) != null) {
+      results.add(result);
+    }
+    return results;
+  }
+
+  /**
+   * Take the blocks whose results were not written by {@link #run}, in block
+   * order.
+   */
+  Map<String, ByteBuffer> takeRemaining() {
+    Map<String, ByteBuffer> remaining = new LinkedHashMap<>();
+    if (firstIncomplete >= 0) {
+      for (int i = firstIncomplete; i < partitions.size(); i++) {
+        remaining.putAll(partitions.get(i).takeBlocks(i > firstIncomplete));
+      }
+    }
+    return remaining;
+  }
+}
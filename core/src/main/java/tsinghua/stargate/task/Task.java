@@ -44,4 +44,27 @@ public interface Task extends EventHandler<TaskEvent> {
       RecordReader recordReader);
 
   String getDiagnostics();
+
+  /**
+   * Get the phases the task went through so far.
+   *
+   * @return the timeline of the task
+   */
+  TaskTimeline getTimeline();
+
+  /**
+   * Ask a running task to give up its core at the next request boundary. The
+   * task then exits with {@link TaskState#PREEMPTED} and keeps its remaining
+   * blocks until it is allocated a core again.
+   *
+   * @return {@code true} if the task is running and will yield its core
+   */
+  boolean preempt();
+
+  /**
+   * Get the number of blocks a preempted task has yet to process.
+   *
+   * @return the number of requeued blocks, 0 if the task was not preempted
+   */
+  int getRemainingBlocks();
 }
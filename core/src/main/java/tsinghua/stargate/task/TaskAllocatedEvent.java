@@ -16,6 +16,11 @@
 
 package tsinghua.stargate.task;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
 
 public class TaskAllocatedEvent extends TaskEvent {
@@ -23,13 +28,33 @@ public class TaskAllocatedEvent extends TaskEvent {
   private AcceleratorResource resource;
   private int cardId;
   private int coreId;
+  /** Every allocated core of the card, {@code coreId} first. */
+  private List<Integer> coreIds;
+  /** The core allocated on each card of a gang, indexed by card id. */
+  private Map<Integer, Integer> gangCores;
 
   public TaskAllocatedEvent(TaskId taskId, int cardId, int coreId,
       AcceleratorResource resource) {
+    this(taskId, cardId, coreId, resource, Collections.<Integer> emptyList());
+  }
+
+  public TaskAllocatedEvent(TaskId taskId, int cardId, int coreId,
+      AcceleratorResource resource, List<Integer> extraCoreIds) {
+    this(taskId, cardId, coreId, resource, extraCoreIds,
+        Collections.singletonMap(cardId, coreId));
+  }
+
+  public TaskAllocatedEvent(TaskId taskId, int cardId, int coreId,
+      AcceleratorResource resource, List<Integer> extraCoreIds,
+      Map<Integer, Integer> gangCores) {
     super(TaskEventType.ALLOCATED, taskId);
+    this.gangCores = gangCores;
     this.resource = resource;
     this.cardId = cardId;
     this.coreId = coreId;
+    this.coreIds = new ArrayList<>(extraCoreIds.size() + 1);
+    this.coreIds.add(coreId);
+    this.coreIds.addAll(extraCoreIds);
   }
 
   public AcceleratorResource getResource() {
@@ -43,4 +68,12 @@ public class TaskAllocatedEvent extends TaskEvent {
   int getCardId() {
     return cardId;
   }
+
+  List<Integer> getCoreIds() {
+    return coreIds;
+  }
+
+  Map<Integer, Integer> getGangCores() {
+    return gangCores;
+  }
 }
@@ -39,6 +39,9 @@ public enum TaskEventType {
   /** Task failed. */
   FAILURE,
 
+  /** Task yielded its core and waits to be rescheduled. */
+  PREEMPTED,
+
   /** Successful to complete task. */
   EXITED_WITH_SUCCESS,
 
@@ -35,15 +35,19 @@ import tsinghua.stargate.api.impl.AcceleratorRequestImpl;
 import tsinghua.stargate.app.DaemonAppEvent;
 import tsinghua.stargate.app.DaemonAppEventType;
 import tsinghua.stargate.app.DaemonAppFailedTaskEvent;
-import tsinghua.stargate.classloader.MutableURLClassLoader;
+import tsinghua.stargate.classloader.AppClassLoaderCache;
 import tsinghua.stargate.conf.NameSpace;
 import tsinghua.stargate.event.EventHandler;
 import tsinghua.stargate.exception.StarGateException;
 import tsinghua.stargate.exception.StarGateRuntimeException;
+import tsinghua.stargate.io.CoreCounters;
+import tsinghua.stargate.metrics.Histogram;
+import tsinghua.stargate.metrics.MetricsRegistry;
 import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
 import tsinghua.stargate.rpc.message.entity.ApplicationId;
 import tsinghua.stargate.rpc.message.entity.ServiceData;
 import tsinghua.stargate.rpc.message.entity.Worker;
+import tsinghua.stargate.scheduler.TaskPreemptedSchedulerEvent;
 import tsinghua.stargate.scheduler.TaskRemovedSchedulerEvent;
 import tsinghua.stargate.storage.*;
 import tsinghua.stargate.task.launcher.TaskLauncherEvent;
@@ -60,6 +64,19 @@ import tsinghua.stargate.util.ReflectionUtils;
 @SuppressWarnings("unchecked")
 public class TaskImpl extends Log implements Task {
 
+  /** Time spent by tasks in each state before leaving it. */
+  private static final Map<TaskState, Histogram> STATE_DURATIONS =
+      new EnumMap<>(TaskState.class);
+
+  static {
+    for (TaskState state : TaskState.values()) {
+      STATE_DURATIONS.put(state, MetricsRegistry.get().histogram(
+          "stargate_task_state_duration_us",
+          "Time spent by tasks in a state before leaving it", "state",
+          state.name()));
+    }
+  }
+
   private TaskId taskId;
 
   private DaemonContext context;
@@ -68,6 +85,8 @@ public class TaskImpl extends Log implements Task {
   private String workload;
   private int allocatedCardId = -1;
   private int allocatedCoreId = -1;
+  private List<Integer> allocatedCoreIds = Collections.emptyList();
+  private Map<Integer, Integer> allocatedGangCores = Collections.emptyMap();
   private AcceleratorResource allocatedResource;
 
   private BlockData blockData;
@@ -78,7 +97,16 @@ public class TaskImpl extends Log implements Task {
 
   private final StringBuilder diagnostics;
 
-  private TaskState state;
+  private final TaskTimeline timeline = new TaskTimeline();
+
+  private TaskState state = TaskState.NEW;
+  /** When the task entered its current state, by {@link System#nanoTime()}. */
+  private long stateTime = System.nanoTime();
+
+  /** Set by the scheduler to reclaim the core at the next request boundary. */
+  private volatile boolean preemptRequested = false;
+  /** Blocks left unprocessed by the last preempted run, in arrival order. */
+  private Map<String, ByteBuffer> remainingBlocks;
 
   TaskImpl(DaemonContext context, String userAppId, ApplicationId daemonAppId,
       Worker worker, String workload, Integer index) {
@@ -135,36 +163,81 @@ public class TaskImpl extends Log implements Task {
     return workload;
   }
 
+  @Override
+  public TaskTimeline getTimeline() {
+    return timeline;
+  }
+
+  @Override
+  public synchronized boolean preempt() {
+    if (state != TaskState.RUNNING || preemptRequested) {
+      return false;
+    }
+    preemptRequested = true;
+    return true;
+  }
+
+  @Override
+  public synchronized int getRemainingBlocks() {
+    return remainingBlocks == null ? 0 : remainingBlocks.size();
+  }
+
   @Override
   public TaskState run() {
     info(
         "Start running task {} (userAppId: {}, daemonAppId: {}) on "
-            + "accelerator {} (type: {}, core: {})",
+            + "accelerator {} (type: {}, cores: {})",
         taskId.getId(), taskId.getUserAppId(), taskId.getDaemonAppId(),
-        allocatedCardId, Worker.FPGA, allocatedCoreId);
+        allocatedCardId, Worker.FPGA, allocatedCoreIds);
 
     Map<String, ByteBuffer> dataBlocks = null;
-    try {
-      if (null != blockData.getDataBlock()) {
+    timeline.mark(TaskPhase.RUN);
+    synchronized (this) {
+      setState(TaskState.RUNNING);
+      preemptRequested = false;
+      if (null != remainingBlocks) {
+        // Resume a preempted run from the first block it did not process
+        dataBlocks = remainingBlocks;
+        remainingBlocks = null;
+      } else if (null != blockData.getDataBlock()) {
         dataBlocks = blockData.getDataBlock().getBlocks();
       }
+    }
+    try {
       createProcessor(worker, allocatedCardId, allocatedCoreId,
           dependencies.getSga(), dependencies.getRecordReader());
-      processor.addDataBlocks(dataBlocks)
-          .addExtras(dependencies.getAttachedFiles()).process();
-      state = TaskState.EXITED_WITH_SUCCESS;
+      boolean completed = processor.addDataBlocks(dataBlocks)
+          .addExtras(dependencies.getAttachedFiles())
+          .addCores(allocatedCoreIds).process();
+      synchronized (this) {
+        if (completed) {
+          setState(TaskState.EXITED_WITH_SUCCESS);
+        } else {
+          remainingBlocks = processor.takeRemaining();
+          info("Task {} yields cores {} of accelerator {} with {} blocks left",
+              taskId.getId(), allocatedCoreIds, allocatedCardId,
+              remainingBlocks.size());
+          setState(TaskState.PREEMPTED);
+        }
+      }
     } catch (StarGateException e) {
       error("StarGateApp of task {} is null", taskId.getId());
-      state = TaskState.EXITED_WITH_FAILURE;
+      setState(TaskState.EXITED_WITH_FAILURE);
     } catch (IOException e) {
       error("Failed to process data", e);
-      state = TaskState.EXITED_WITH_FAILURE;
+      setState(TaskState.EXITED_WITH_FAILURE);
     }
 
+    timeline.mark(TaskPhase.EXIT);
     return state;
   }
 
   public void setState(TaskState state) {
+    long now = System.nanoTime();
+    if (this.state != null) {
+      STATE_DURATIONS.get(this.state).record((now - stateTime) / 1000);
+    }
+    this.stateTime = now;
     this.state = state;
   }
 
@@ -188,6 +261,7 @@ public class TaskImpl extends Log implements Task {
       }
       info("Accepting added task {} (userAppId: {}, daemonAppId: {})",
           taskIdStr, userAppId, daemonAppId);
+      timeline.mark(TaskPhase.QUEUE);
       acceptApp(daemonAppId);
       break;
 
@@ -199,7 +273,8 @@ public class TaskImpl extends Log implements Task {
           "Downloading resources for allocated task {} "
               + "(userAppId: {}, anmAppId: {})",
           taskIdStr, userAppId, daemonAppId);
-      state = TaskState.LOCALIZING;
+      setState(TaskState.LOCALIZING);
+      timeline.mark(TaskPhase.LOCALIZE);
       downloadResources((TaskAllocatedEvent) event);
       break;
 
@@ -211,7 +286,7 @@ public class TaskImpl extends Log implements Task {
           taskIdStr, userAppId, daemonAppId);
       boolean success = ((TaskLocalizedEvent) (event)).isLocalState();
       Block dataBlock = ((TaskLocalizedEvent) (event)).getBlock();
-      state = TaskState.LOCALIZED;
+      setState(TaskState.LOCALIZED);
       launchTask(daemonAppId, dataBlock, success);
       break;
 
@@ -221,15 +296,29 @@ public class TaskImpl extends Log implements Task {
       }
       info("Finishing task {} (userAppId: {}, daemonAppId: {})", taskIdStr,
           userAppId, daemonAppId);
+      traceTask();
+      releaseDependencies();
       finishTask(daemonAppId);
       break;
 
+    case PREEMPTED:
+      if (!(event instanceof TaskPreemptedEvent)) {
+        throw new StarGateRuntimeException("Unexpected event: " + event);
+      }
+      info("Requeuing preempted task {} (userAppId: {}, daemonAppId: {})",
+          taskIdStr, userAppId, daemonAppId);
+      timeline.mark(TaskPhase.QUEUE);
+      requeueTask(((TaskPreemptedEvent) event).getRemainingBlocks());
+      break;
+
     case FAILURE:
       info("{} run (userAppId: {}, daemonAppId: {}) failure", taskIdStr,
           userAppId, daemonAppId);
       if (!(event instanceof TaskFailedEvent)) {
         throw new StarGateRuntimeException("Unexpected event: " + event);
       }
+      traceTask();
+      releaseDependencies();
       failedTask(daemonAppId);
       break;
 
@@ -245,6 +334,17 @@ public class TaskImpl extends Log implements Task {
     }
   }
 
+  private void traceTask() {
+    timeline.finish();
+    TaskTracer.get().trace(taskId.getId(), timeline);
+  }
+
+  private void releaseDependencies() {
+    if (null != dependencies) {
+      dependencies.release();
+    }
+  }
+
   private void acceptApp(ApplicationId anmAppId) {
     context.getDispatcher().getEventHandler()
         .handle(new DaemonAppEvent(anmAppId, DaemonAppEventType.TASK_ACCEPTED));
@@ -265,13 +365,21 @@ public class TaskImpl extends Log implements Task {
       DaemonAppEvent event =
           new DaemonAppEvent(allocatedEvent.getTaskId().getDaemonAppId(),
               DaemonAppEventType.TASK_FAILED);
-      state = TaskState.LOCALIZATION_FAILED;
+      setState(TaskState.LOCALIZATION_FAILED);
       context.getDispatcher().getEventHandler().handle(event);
     }
 
     this.allocatedResource = allocatedEvent.getResource();
     this.allocatedCardId = allocatedEvent.getCardId();
     this.allocatedCoreId = allocatedEvent.getCoreId();
+    this.allocatedCoreIds = allocatedEvent.getCoreIds();
+    this.allocatedGangCores = allocatedEvent.getGangCores();
+
+    if (getRemainingBlocks() > 0) {
+      // A preempted task keeps its fetched blocks, relaunch it directly
+      submitToLauncher(context.getDispatcher().getEventHandler());
+      return;
+    }
 
     BlockInfo info = blockData.getDataBlockInfo();
 
@@ -279,7 +387,7 @@ public class TaskImpl extends Log implements Task {
       // Run task directly without fetching and storing data
       ApplicationId daemonAppId = allocatedEvent.getTaskId().getDaemonAppId();
       EventHandler handler = context.getDispatcher().getEventHandler();
-      handler.handle(new TaskLauncherEvent(this));
+      submitToLauncher(handler);
       handler.handle(
           new DaemonAppEvent(daemonAppId, DaemonAppEventType.TASK_RUNNING));
     } else {
@@ -295,7 +403,7 @@ public class TaskImpl extends Log implements Task {
     blockData.setDataBlock(dataBlock);
     if (success) {
       EventHandler handler = context.getDispatcher().getEventHandler();
-      handler.handle(new TaskLauncherEvent(this));
+      submitToLauncher(handler);
       handler.handle(
           new DaemonAppEvent(anmAppId, DaemonAppEventType.TASK_RUNNING));
     } else {
@@ -303,6 +411,11 @@ public class TaskImpl extends Log implements Task {
     }
   }
 
+  private void submitToLauncher(EventHandler handler) {
+    timeline.mark(TaskPhase.LAUNCH);
+    handler.handle(new TaskLauncherEvent(this));
+  }
+
   private void finishTask(ApplicationId anmAppId) {
     EventHandler handler = context.getDispatcher().getEventHandler();
     String userAppId = taskId.getUserAppId();
@@ -314,6 +427,12 @@ public class TaskImpl extends Log implements Task {
         .handle(new DaemonAppEvent(anmAppId, DaemonAppEventType.TASK_FINISHED));
   }
 
+  private void requeueTask(int remaining) {
+    context.getDispatcher().getEventHandler()
+        .handle(new TaskPreemptedSchedulerEvent(taskId.getUserAppId(),
+            taskId.getId(), remaining));
+  }
+
   public class BlockData {
 
     /**
@@ -341,11 +460,17 @@ public class TaskImpl extends Log implements Task {
         userAppId = taskId.getUserAppId();
         taskIdStr = taskId.getId();
 
-        paths = listFiles(PathUtils.getPathFromURI(inSD.getStorePath()));
+        storeLevel = BlockStoreLevel.valueOf(inSD.getStoreType().value());
+        if (storeLevel == BlockStoreLevel.IN_HEAP) {
+          // Blocks pushed by clients through the block data RPC
+          paths = getBlockManager().getMemoryStore()
+              .list(PathUtils.getPathFromURI(inSD.getStorePath()));
+        } else {
+          paths = listFiles(PathUtils.getPathFromURI(inSD.getStorePath()));
+        }
         blockId = new BlockId(daemonAppId, userAppId, taskIdStr, paths);
         isCached = inSD.isCached();
 
-        storeLevel = BlockStoreLevel.valueOf(inSD.getStoreType().value());
         int capacity = (int) inSD.getCapacity();
         dataBlockInfo = new BlockInfo(blockId, isCached, storeLevel, capacity);
       }
@@ -423,6 +548,10 @@ public class TaskImpl extends Log implements Task {
     private ClassLoader classLoader;
     private ClassLoader contextClassLoader =
         Thread.currentThread().getContextClassLoader();
+    /** The cached class loader of the application jars, if any. */
+    private AppClassLoaderCache.Entry cachedClassLoader;
+    /** Instances taken from the pool of the cached class loader. */
+    private final List<StarGateApp> borrowedApps = new ArrayList<>();
 
     private Map<String, ByteBuffer> attachedFiles;
 
@@ -493,18 +622,52 @@ public class TaskImpl extends Log implements Task {
     }
 
     public StarGateApp getSga() throws StarGateException {
-      if (null != sga) {
-        return sga;
+      if (null == sga) {
+        sga = newSga();
       }
+      return sga;
+    }
+
+    /**
+     * Create a StarGateApp that is not shared, so that the partitions of a
+     * data-parallel task do not race on the state of a single instance.
+     */
+    private StarGateApp newSga() throws StarGateException {
       String className = StarGateApp.class.getSimpleName();
       String instanceName = processors.get(className);
-      if (instanceName != null) {
-        sga = (StarGateApp) ReflectionUtils.get().getInstance(instanceName,
-            getClassLoader());
-      } else {
+      if (instanceName == null) {
         throw new StarGateException("StarGateApp can not be null");
       }
-      return sga;
+      ClassLoader loader = getClassLoader();
+      if (null == cachedClassLoader) {
+        return (StarGateApp) ReflectionUtils.get().getInstance(instanceName,
+            loader);
+      }
+      StarGateApp app = cachedClassLoader.borrowApp(instanceName);
+      synchronized (borrowedApps) {
+        borrowedApps.add(app);
+      }
+      return app;
+    }
+
+    /**
+     * Return the application instances and the class loader of the task to
+     * the cache, once the task will not run again.
+     */
+    private void release() {
+      if (null == cachedClassLoader) {
+        return;
+      }
+      String instanceName =
+          processors.get(StarGateApp.class.getSimpleName());
+      synchronized (borrowedApps) {
+        for (StarGateApp app : borrowedApps) {
+          cachedClassLoader.returnApp(instanceName, app);
+        }
+        borrowedApps.clear();
+      }
+      AppClassLoaderCache.get().release(cachedClassLoader);
+      cachedClassLoader = null;
     }
 
     private ClassLoader getClassLoader() {
@@ -532,7 +695,9 @@ public class TaskImpl extends Log implements Task {
 
       URL[] jarUrls = new URL[jarPaths.size()];
       jarPaths.toArray(jarUrls);
-      classLoader = new MutableURLClassLoader(jarUrls, contextClassLoader);
+      cachedClassLoader =
+          AppClassLoaderCache.get().acquire(jarUrls, contextClassLoader);
+      classLoader = cachedClassLoader.getClassLoader();
       return classLoader;
     }
 
@@ -591,10 +756,13 @@ public class TaskImpl extends Log implements Task {
 
     private AcceleratorHandler client;
 
-    private Map<String, ByteBuffer> dataBlocks = new HashMap<>();
+    private Map<String, ByteBuffer> dataBlocks = new LinkedHashMap<>();
     private Map<String, ByteBuffer> extras = new HashMap<>();
+    /** Cores of the card to spread the data blocks over. */
+    private List<Integer> coreIds = new ArrayList<>();
 
-    private ProcessorIterator procIter;
+    private List<ProcessorIterator> partitions;
+    private PartitionRunner<AcceleratorResponse> runner;
 
     private Processor(Worker workerType, int cardId, int coreId,
         StarGateApp sga, RecordReader recordReader) {
@@ -603,6 +771,7 @@ public class TaskImpl extends Log implements Task {
       this.cardId = cardId;
       this.sga = sga;
       this.recordReader = recordReader;
+      this.coreIds.add(coreId);
     }
 
     public Processor addDataBlocks(Map<String, ByteBuffer> dataBlocks) {
@@ -619,46 +788,150 @@ public class TaskImpl extends Log implements Task {
       return this;
     }
 
+    public Processor addCores(List<Integer> coreIds) {
+      if (coreIds != null) {
+        for (Integer id : coreIds) {
+          if (!this.coreIds.contains(id)) {
+            this.coreIds.add(id);
+          }
+        }
+      }
+      return this;
+    }
+
     @Override
     @Nonnull
     public Iterator iterator() {
-      return new ProcessorIterator();
+      return new ProcessorIterator(coreId, dataBlocks);
     }
 
-    private void process() throws IOException, StarGateException {
+    /**
+     * Process data blocks one request at a time on each core. With more than
+     * one core the blocks are partitioned across the cores and processed
+     * concurrently, then the results are stored in block order.
+     *
+     * @return {@code false} if the task was preempted at a request boundary
+     *         before all blocks were processed, {@code true} otherwise
+     */
+    private boolean process() throws IOException, StarGateException {
       setup();
-      while (procIter.hasNext()) {
-        setTaskOutput(new TaskStarGateApp(sga).accelerate(procIter.next()));
+      runner = new PartitionRunner<>(partitions);
+      return runner.run(this::write);
+    }
+
+    /**
+     * Process the next request of a partition, accounting the time it holds
+     * the core to the hardware counters of the core.
+     */
+    private AcceleratorResponse accelerate(StarGateApp app,
+        ProcessorIterator partition) throws IOException {
+      AcceleratorRequest request = partition.next();
+      CoreCounters counters = CoreCounters.get(cardId, partition.coreId);
+      long start = System.nanoTime();
+      counters.startRequest(start);
+      AcceleratorResponse response;
+      try {
+        response = new TaskStarGateApp(app).accelerate(request);
+      } finally {
+        counters.recordRequest(System.nanoTime() - start);
+      }
+      // Null tells the partition runner the partition is done, so a missing
+      // response must fail the task rather than end the partition early
+      if (response == null) {
+        throw new IOException("Application " + app.getClass().getName()
+            + " returned no response on core " + partition.coreId);
+      }
+      return response;
+    }
+
+    /**
+     * Store the results of a request, accounting the time taken to the write
+     * phase of the task.
+     */
+    private void write(AcceleratorResponse response) throws StarGateException {
+      long start = System.nanoTime();
+      try {
+        setTaskOutput(response);
+      } finally {
+        timeline.addWriteTime(System.nanoTime() - start);
       }
     }
 
-    private void setup() throws IOException {
-      procIter = (ProcessorIterator) iterator();
+    private void setup() throws StarGateException {
+      partitions = new ArrayList<>();
       if (dataBlocks.size() == 0) {
+        ProcessorIterator procIter = new ProcessorIterator(coreId, dataBlocks);
         procIter.setEmpty(true);
+        procIter.app = sga;
+        partitions.add(procIter);
       } else {
-        procIter.put(extras);
+        Map<Integer, Map<String, ByteBuffer>> runs = partition();
+        for (Map.Entry<Integer, Map<String, ByteBuffer>> run : runs
+            .entrySet()) {
+          ProcessorIterator procIter =
+              new ProcessorIterator(run.getKey(), run.getValue());
+          procIter.put(extras);
+          // Each further core runs its own instance of the app
+          procIter.app = partitions.isEmpty() ? sga : dependencies.newSga();
+          partitions.add(procIter);
+        }
       }
       // Uncomment for Riffa
 //      client = createAcceleratorClient(Worker.valueOf(workerType.getValue()),
 //          cardId, coreId);
     }
 
+    /**
+     * Split the data blocks into contiguous runs of nearly equal length, one
+     * run per core, so that concatenating the results keeps block order.
+     */
+    private Map<Integer, Map<String, ByteBuffer>> partition() {
+      int n = Math.min(coreIds.size(), dataBlocks.size());
+      int size = dataBlocks.size() / n;
+      int larger = dataBlocks.size() % n;
+
+      Map<Integer, Map<String, ByteBuffer>> runs = new LinkedHashMap<>();
+      Iterator<Map.Entry<String, ByteBuffer>> blocks =
+          dataBlocks.entrySet().iterator();
+      for (int i = 0; i < n; i++) {
+        Map<String, ByteBuffer> run = new LinkedHashMap<>();
+        for (int j = 0; j < size + (i < larger ? 1 : 0); j++) {
+          Map.Entry<String, ByteBuffer> block = blocks.next();
+          run.put(block.getKey(), block.getValue());
+        }
+        runs.put(coreIds.get(i), run);
+      }
+      return runs;
+    }
+
+    /**
+     * Take the blocks whose results were not written, in block order.
+     */
+    private Map<String, ByteBuffer> takeRemaining() {
+      return runner.takeRemaining();
+    }
+
     private AcceleratorHandler createAcceleratorClient(Worker type, int cardId,
         int coreId) throws IOException {
       return AcceleratorClientFactoryProvider.getClientFactory(type)
           .getClient(cardId, coreId);
     }
 
-    public class ProcessorIterator implements Iterator<AcceleratorRequest> {
+    public class ProcessorIterator implements Iterator<AcceleratorRequest>,
+        PartitionRunner.Partition<AcceleratorResponse> {
 
+      private final int coreId;
+      private final Map<String, ByteBuffer> blocks;
       private Iterator<Map.Entry<String, ByteBuffer>> blockIterator;
+      private StarGateApp app;
       private Map<String, ByteBuffer> dataContainer = new LinkedHashMap<>();
       private boolean empty = false;
       String pendingRemovedBlock = null;
 
-      private ProcessorIterator() {
-        this.blockIterator = Processor.this.dataBlocks.entrySet().iterator();
+      private ProcessorIterator(int coreId, Map<String, ByteBuffer> blocks) {
+        this.coreId = coreId;
+        this.blocks = blocks;
+        this.blockIterator = blocks.entrySet().iterator();
       }
 
       private void setEmpty(boolean empty) {
@@ -669,6 +942,45 @@ public class TaskImpl extends Log implements Task {
         this.dataContainer.putAll(value);
       }
 
+      /**
+       * Whether the remaining work can be handed back as blocks. A task without
+       * data blocks runs as a single request and can not be split.
+       */
+      private boolean isSplittable() {
+        return !empty && blockIterator.hasNext();
+      }
+
+      @Override
+      public AcceleratorResponse process() throws IOException {
+        if (!hasNext() || (preemptRequested && isSplittable())) {
+          return null;
+        }
+        return accelerate(app, this);
+      }
+
+      @Override
+      public boolean isComplete() {
+        return !isSplittable();
+      }
+
+      /**
+       * Take the blocks that have not been handed out by {@link #next()}, or
+       * all blocks of the partition if {@code all}.
+       */
+      @Override
+      public Map<String, ByteBuffer> takeBlocks(boolean all) {
+        if (all) {
+          blockIterator = Collections.emptyIterator();
+          return new LinkedHashMap<>(blocks);
+        }
+        Map<String, ByteBuffer> remaining = new LinkedHashMap<>();
+        while (blockIterator.hasNext()) {
+          Map.Entry<String, ByteBuffer> entry = blockIterator.next();
+          remaining.put(entry.getKey(), entry.getValue());
+        }
+        return remaining;
+      }
+
       @Override
       public boolean hasNext() {
         if ((cardId == -1) && (coreId == -1)) {
@@ -691,8 +1003,7 @@ public class TaskImpl extends Log implements Task {
           // Uncomment for Riffa
 //          return new AcceleratorRequestImpl(Processor.this.client, null);
 
-           return new AcceleratorRequestImpl(allocatedCardId, allocatedCoreId,
-           null, recordReader);
+          return newRequest(null);
         }
 
         if (null != pendingRemovedBlock) {
@@ -703,13 +1014,23 @@ public class TaskImpl extends Log implements Task {
         dataContainer.put(entry.getKey(), entry.getValue());
         pendingRemovedBlock = entry.getKey();
 
-        info("Handling block {}", PathUtils.getFilename(entry.getKey()));
+        info("Handling block {} on core {}",
+            PathUtils.getFilename(entry.getKey()), coreId);
 
         // Uncomment for Riffa
 //        return new AcceleratorRequestImpl(Processor.this.client, dataContainer);
 
-         return new AcceleratorRequestImpl(allocatedCardId, allocatedCoreId,
-         dataContainer, recordReader);
+        return newRequest(dataContainer);
+      }
+
+      private AcceleratorRequest newRequest(Map<String, ByteBuffer> buffers) {
+        if (allocatedGangCores.size() > 1) {
+          // Kernels of a gang may talk to the cores granted on other cards
+          return new AcceleratorRequestImpl(cardId, coreId, buffers,
+              recordReader, allocatedGangCores);
+        }
+        return new AcceleratorRequestImpl(cardId, coreId, buffers,
+            recordReader);
       }
 
       @Override
@@ -753,20 +1074,18 @@ public class TaskImpl extends Log implements Task {
       return;
     }
 
-    Map<String, ByteBuffer> buffers = new HashMap<>();
-    String outPath = blockData.getResultBlockPath();
-    debug("create {} result output path:{}", taskId.getDaemonAppId(), outPath);
-    ByteBuffer[] outBuffer =
-        response.getOutputResult().toArray(new ByteBuffer[0]);
-
-    for (int i = 0; i < outBuffer.length; i++) {
-      buffers.put(outPath, outBuffer[i]);
+    Collection<ByteBuffer> segments = response.getOutputResult();
+    if (segments == null || segments.isEmpty()) {
+      return;
     }
+    String outPath = blockData.getResultBlockPath();
+    debug("Write {} result segments of {} to {}", segments.size(),
+        taskId.getDaemonAppId(), outPath);
 
+    // Every segment goes to the result path in order, not just the last one
     BlockId resultId = blockData.getResultBlockInfo().getBlockId();
     BlockStoreLevel level = blockData.getResultBlockInfo().getStoreLevel();
-    Block outPut = new Block(resultId, level, buffers);
-    getBlockManager().putBlock(outPut);
+    getBlockManager().putSegments(resultId, level, new ArrayList<>(segments));
   }
 
   private BlockManager getBlockManager() {
@@ -25,7 +25,9 @@ import com.google.common.base.Preconditions;
 import tsinghua.stargate.DaemonContext;
 import tsinghua.stargate.app.UserApp;
 import tsinghua.stargate.app.UserAppImpl;
+import tsinghua.stargate.classloader.AppClassLoaderCache;
 import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
 import tsinghua.stargate.rpc.message.entity.ApplicationId;
 import tsinghua.stargate.rpc.message.entity.Worker;
 import tsinghua.stargate.service.CompositeService;
@@ -53,6 +55,15 @@ public class TaskManagerImpl extends CompositeService implements TaskManager {
     info("Init service '{}'", this.getClass().getSimpleName());
     context.getDispatcher().register(TaskLauncherEventType.class, taskLauncher);
     addService(taskLauncher);
+    AppClassLoaderCache.get().configure(
+        conf.getInt(NameSpace.TASK_CLASSLOADER_CACHE_SIZE,
+            NameSpace.DEFAULT_TASK_CLASSLOADER_CACHE_SIZE),
+        conf.getInt(NameSpace.TASK_APP_POOL_SIZE,
+            NameSpace.DEFAULT_TASK_APP_POOL_SIZE));
+    String traceFile = conf.get(NameSpace.TASK_TRACE_FILE);
+    if (traceFile != null && !traceFile.isEmpty()) {
+      TaskTracer.get().open(traceFile);
+    }
     super.serviceInit(conf);
   }
 
@@ -64,6 +75,7 @@ public class TaskManagerImpl extends CompositeService implements TaskManager {
 
   @Override
   protected void serviceStop() throws Exception {
+    TaskTracer.get().close();
     info("Successfully stopped service '{}'", this.getClass().getSimpleName());
     super.serviceStop();
   }
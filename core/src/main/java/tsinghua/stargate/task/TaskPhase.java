@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.task;
+
+/**
+ * The phases a task goes through from its submission to its exit, each one
+ * lasting until the next begins. A preempted task goes through the phases
+ * from {@link #QUEUE} again.
+ */
+public enum TaskPhase {
+
+  /** Created, waiting for the scheduler to add it. */
+  SUBMIT,
+
+  /** Added to its queue, waiting for the scheduler to grant it a core. */
+  QUEUE,
+
+  /** Granted a core, waiting for the allocation to be dispatched. */
+  ALLOCATE,
+
+  /** Resolving its dependencies and fetching its input blocks. */
+  LOCALIZE,
+
+  /** Waiting for a thread of the task launcher. */
+  LAUNCH,
+
+  /** Processing requests on the accelerator. */
+  RUN,
+
+  /** Storing results, accumulated over the requests of a run. */
+  WRITE,
+
+  /** Out of the launcher, waiting for its exit to be dispatched. */
+  EXIT;
+
+  /** @return the lower case name of the phase, as shown in traces */
+  public String getName() {
+    return name().toLowerCase();
+  }
+}
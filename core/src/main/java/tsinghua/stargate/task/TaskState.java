@@ -34,5 +34,7 @@ public enum TaskState {
 
   EXITED_WITH_SUCCESS,
 
-  EXITED_WITH_FAILURE
+  EXITED_WITH_FAILURE,
+
+  PREEMPTED
 }
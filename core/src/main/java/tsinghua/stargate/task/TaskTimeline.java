@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link TaskPhase phases} a task went through, timed by the monotonic
+ * clock. Phases are marked by whichever thread moves the task on, i.e. the
+ * dispatcher, the scheduler and the launcher threads.
+ */
+public class TaskTimeline {
+
+  /** Identifies the timeline in traces, one row per task. */
+  private static final AtomicLong NEXT_ID = new AtomicLong();
+
+  private final long id = NEXT_ID.incrementAndGet();
+
+  /** Wall clock and monotonic clock at creation, anchoring traces. */
+  private final long startMicros = System.currentTimeMillis() * 1000;
+  private final long startNanos = System.nanoTime();
+
+  private final List<Mark> marks = new ArrayList<>();
+  private long endTime = -1;
+
+  public TaskTimeline() {
+    marks.add(new Mark(TaskPhase.SUBMIT, startNanos));
+  }
+
+  /**
+   * Begin a phase, ending the current one. Marks past the end of the timeline
+   * are ignored.
+   *
+   * @param phase the phase the task enters
+   */
+  public synchronized void mark(TaskPhase phase) {
+    if (endTime < 0) {
+      marks.add(new Mark(phase, System.nanoTime()));
+    }
+  }
+
+  /**
+   * Account time spent storing results to the current phase.
+   *
+   * @param nanos the time spent writing, in nanoseconds
+   */
+  public synchronized void addWriteTime(long nanos) {
+    marks.get(marks.size() - 1).writeTime += nanos;
+  }
+
+  /** End the current phase and the timeline. */
+  public synchronized void finish() {
+    if (endTime < 0) {
+      endTime = System.nanoTime();
+    }
+  }
+
+  public synchronized boolean isFinished() {
+    return endTime >= 0;
+  }
+
+  /**
+   * Get the time spent in each phase the task went through, summed over its
+   * runs if it was preempted. Results written during a run are counted as
+   * {@link TaskPhase#WRITE} rather than {@link TaskPhase#RUN}, and an
+   * unfinished phase is counted up to now.
+   *
+   * @return microseconds spent in each phase, by phase name in phase order
+   */
+  public synchronized Map<String, Long> getPhaseTimes() {
+    TaskPhase[] phases = TaskPhase.values();
+    long[] nanos = new long[phases.length];
+    boolean[] visited = new boolean[phases.length];
+    for (int i = 0; i < marks.size(); i++) {
+      Mark mark = marks.get(i);
+      long writeTime = Math.min(mark.writeTime, getEnd(i) - mark.time);
+      nanos[mark.phase.ordinal()] += getEnd(i) - mark.time - writeTime;
+      visited[mark.phase.ordinal()] = true;
+      if (writeTime > 0) {
+        nanos[TaskPhase.WRITE.ordinal()] += writeTime;
+        visited[TaskPhase.WRITE.ordinal()] = true;
+      }
+    }
+
+    Map<String, Long> times = new LinkedHashMap<>();
+    for (TaskPhase phase : phases) {
+      if (visited[phase.ordinal()]) {
+        times.put(phase.getName(), nanos[phase.ordinal()] / 1000);
+      }
+    }
+    return times;
+  }
+
+  /**
+   * Write the phases as complete events of the Chrome trace event format, each
+   * followed by a comma and a new line. The writes of a run are drawn as one
+   * span closing the run, as they are interleaved with its requests.
+   *
+   * @param out where to write the events
+   * @param pid the process the events belong to
+   * @param name the name of the task, labelling its row
+   * @throws IOException if writing fails
+   */
+  public synchronized void writeTrace(Appendable out, long pid, String name)
+      throws IOException {
+    out.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":")
+        .append(String.valueOf(pid)).append(",\"tid\":")
+        .append(String.valueOf(id)).append(",\"args\":{\"name\":\"")
+        .append(escape(name)).append("\"}},\n");
+    for (int i = 0; i < marks.size(); i++) {
+      Mark mark = marks.get(i);
+      long end = getEnd(i);
+      long writeTime = Math.min(mark.writeTime, end - mark.time);
+      writeSpan(out, pid, mark.phase, mark.time, end);
+      if (writeTime > 0) {
+        writeSpan(out, pid, TaskPhase.WRITE, end - writeTime, end);
+      }
+    }
+  }
+
+  private void writeSpan(Appendable out, long pid, TaskPhase phase,
+      long start, long end) throws IOException {
+    out.append("{\"name\":\"").append(phase.getName())
+        .append("\",\"cat\":\"task\",\"ph\":\"X\",\"ts\":")
+        .append(String.valueOf(startMicros + (start - startNanos) / 1000))
+        .append(",\"dur\":").append(String.valueOf((end - start) / 1000))
+        .append(",\"pid\":").append(String.valueOf(pid)).append(",\"tid\":")
+        .append(String.valueOf(id)).append("},\n");
+  }
+
+  private long getEnd(int index) {
+    if (index + 1 < marks.size()) {
+      return marks.get(index + 1).time;
+    }
+    return endTime >= 0 ? endTime : System.nanoTime();
+  }
+
+  private static String escape(String text) {
+    StringBuilder escaped = new StringBuilder(text.length());
+    for (char c : text.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        escaped.append('\\').append(c);
+      } else if (c < ' ') {
+        escaped.append(String.format("\\u%04x", (int) c));
+      } else {
+        escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+
+  private static class Mark {
+
+    private final TaskPhase phase;
+    private final long time;
+    private long writeTime;
+
+    Mark(TaskPhase phase, long time) {
+      this.phase = phase;
+      this.time = time;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.task;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import tsinghua.stargate.Log;
+import tsinghua.stargate.util.ThreadUtils;
+
+/**
+ * Appends the {@link TaskTimeline timelines} of finished tasks to a file in
+ * the JSON array form of the Chrome trace event format. The closing bracket
+ * of the array is optional in this form, so the file can be loaded by
+ * chrome://tracing or Perfetto at any time while the daemon appends to it.
+ * Timelines are written by a background thread, so that tracing never blocks
+ * the dispatcher finishing the tasks.
+ * `TaskTracer` class is implemented by employing `The Singleton Pattern`.
+ */
+public final class TaskTracer extends Log {
+
+  private static final TaskTracer SELF = new TaskTracer();
+
+  /** How long closing waits for the queued timelines to be written. */
+  private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+  private final long pid = getPid();
+  private Writer writer;
+  private ThreadPoolExecutor executor;
+
+  // Set by the writing thread once a write fails
+  private volatile boolean failed;
+
+  private TaskTracer() {
+  }
+
+  public static TaskTracer get() {
+    return SELF;
+  }
+
+  /**
+   * Start tracing to a file, replacing it.
+   *
+   * @param path the file to trace to
+   * @throws IOException if the file cannot be created
+   */
+  public synchronized void open(String path) throws IOException {
+    close();
+    writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    writer.write("[\n");
+    writer.flush();
+    failed = false;
+    executor = ThreadUtils.getExecutor().newDaemonCachedThreadPool(
+        "TaskTracer", 1);
+    info("Tracing task phases to {}", path);
+  }
+
+  public synchronized boolean isEnabled() {
+    return writer != null && !failed;
+  }
+
+  /**
+   * Queue the timeline of a task to be appended, if tracing. Tracing stops on
+   * the first failure to write.
+   *
+   * @param name the name of the task
+   * @param timeline the phases of the task
+   */
+  public synchronized void trace(String name, TaskTimeline timeline) {
+    if (!isEnabled()) {
+      return;
+    }
+    Writer out = writer;
+    ThreadPoolExecutor queue = executor;
+    executor.execute(() -> write(out, queue, name, timeline));
+  }
+
+  // Runs on the tracing thread
+  private void write(Writer out, ThreadPoolExecutor queue, String name,
+      TaskTimeline timeline) {
+    if (failed) {
+      return;
+    }
+    try {
+      timeline.writeTrace(out, pid, name);
+      // Flush once the backlog is written rather than after every task
+      if (queue.getQueue().isEmpty()) {
+        out.flush();
+      }
+    } catch (IOException e) {
+      warn("Stop tracing task phases after failing to trace task {}", name, e);
+      failed = true;
+    }
+  }
+
+  /**
+   * Stop tracing, closing the file once the queued timelines are written.
+   */
+  public synchronized void close() {
+    if (writer == null) {
+      return;
+    }
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS,
+          TimeUnit.SECONDS)) {
+        warn("Dropped task timelines not traced within {} seconds",
+            CLOSE_TIMEOUT_SECONDS);
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    try {
+      writer.close();
+    } catch (IOException e) {
+      warn("Failed to close task trace", e);
+    }
+    writer = null;
+    executor = null;
+  }
+
+  /** @return the id of this process, or 0 if the JVM does not tell it */
+  private static long getPid() {
+    String name = ManagementFactory.getRuntimeMXBean().getName();
+    try {
+      return Long.parseLong(name.substring(0, name.indexOf('@')));
+    } catch (RuntimeException e) {
+      return 0;
+    }
+  }
+}
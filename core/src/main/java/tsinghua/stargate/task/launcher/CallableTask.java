@@ -22,6 +22,7 @@ import tsinghua.stargate.DaemonContext;
 import tsinghua.stargate.task.Task;
 import tsinghua.stargate.task.TaskFailedEvent;
 import tsinghua.stargate.task.TaskFinishedEvent;
+import tsinghua.stargate.task.TaskPreemptedEvent;
 import tsinghua.stargate.task.TaskState;
 
 @SuppressWarnings("unchecked")
@@ -41,6 +42,10 @@ public class CallableTask implements Callable<TaskState> {
     if (state == TaskState.EXITED_WITH_SUCCESS) {
       context.getDispatcher().getEventHandler()
           .handle(new TaskFinishedEvent(task.getTaskId()));
+    } else if (state == TaskState.PREEMPTED) {
+      context.getDispatcher().getEventHandler()
+          .handle(new TaskPreemptedEvent(task.getTaskId(),
+              task.getRemainingBlocks()));
     } else {
       String diagnostics = task.getDiagnostics();
       context.getDispatcher().getEventHandler()
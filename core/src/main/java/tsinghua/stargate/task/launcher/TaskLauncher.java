@@ -22,9 +22,9 @@ import tsinghua.stargate.DaemonContext;
 import tsinghua.stargate.conf.Configuration;
 import tsinghua.stargate.conf.NameSpace;
 import tsinghua.stargate.event.EventHandler;
+import tsinghua.stargate.io.FpgaChannelPool;
 import tsinghua.stargate.service.AbstractService;
 import tsinghua.stargate.task.Task;
-import tsinghua.stargate.task.TaskState;
 import tsinghua.stargate.util.ThreadUtils;
 
 public class TaskLauncher extends AbstractService
@@ -33,48 +33,48 @@ public class TaskLauncher extends AbstractService
   private final DaemonContext context;
   private final Configuration conf;
 
-  private final LauncherThread launcherThread;
   private final ExecutorService launchPool;
-  private final BlockingQueue<FutureTask> launchEvents =
-      new LinkedBlockingQueue<>();
 
   public TaskLauncher(DaemonContext context, Configuration conf) {
     super("TaskLauncher");
     this.context = context;
     this.conf = conf;
-    launcherThread = new LauncherThread();
     launchPool = createLaunchPool();
   }
 
   private ExecutorService createLaunchPool() {
     int launchThreads = conf.getInt(NameSpace.TASK_THREAD_COUNT,
         NameSpace.DEFAULT_TASK_THREAD_COUNT);
-    return ThreadUtils.getExecutor().newCachedThreadPool("TaskLauncher",
-        launchThreads, 1L, TimeUnit.HOURS);
+    boolean virtual = conf.getBoolean(NameSpace.VIRTUAL_THREADS_ENABLED,
+        NameSpace.DEFAULT_VIRTUAL_THREADS_ENABLED);
+    ThreadUtils threads = ThreadUtils.getExecutor();
+    if (virtual && !threads.isVirtualThreadSupported()) {
+      warn("Virtual threads are not supported by this JVM, launching tasks"
+          + " on {} platform threads", launchThreads);
+    }
+    return threads.newBlockingTaskExecutor("TaskLauncher", launchThreads,
+        virtual);
   }
 
   @Override
   protected void serviceInit(Configuration conf) throws Exception {
     info("Init service '{}'", this.getClass().getSimpleName());
+    FpgaChannelPool.get()
+        .configure(conf.getInt(NameSpace.ACCELERATOR_CHANNEL_POOL_SIZE,
+            NameSpace.DEFAULT_ACCELERATOR_CHANNEL_POOL_SIZE));
     super.serviceInit(conf);
   }
 
   @Override
   protected void serviceStart() throws Exception {
-    launcherThread.start();
     info("Successfully started service '{}'", this.getClass().getSimpleName());
     super.serviceStart();
   }
 
   @Override
   protected void serviceStop() throws Exception {
-    launcherThread.cancel();
-    try {
-      launcherThread.join();
-    } catch (InterruptedException e) {
-      warn(launcherThread.getName() + " interrupted during join", e);
-    }
     launchPool.shutdownNow();
+    FpgaChannelPool.get().close();
     info("Successfully stopped service '{}'", this.getClass().getSimpleName());
     super.serviceStop();
   }
@@ -97,54 +97,19 @@ public class TaskLauncher extends AbstractService
   }
 
   private void launch(Task task) {
-    launchEvents.add(createFutureTask(task));
+    submit(task);
   }
 
   private void cleanup(Task task) {
-    launchEvents.add(createFutureTask(task));
+    submit(task);
   }
 
-  private FutureTask createFutureTask(Task task) {
-    CallableTask callableTask = new CallableTask(context, task);
-    return new FutureTask<>(callableTask);
-  }
-
-  class LauncherThread extends Thread {
-
-    LauncherThread() {
-      super("Launcher Thread");
-      setDaemon(true);
-    }
-
-    @Override
-    public void run() {
-      while (!Thread.currentThread().isInterrupted()) {
-        FutureTask toLaunch = null;
-        try {
-          toLaunch = launchEvents.take();
-          if (toLaunch != null) {
-            launchPool.submit(toLaunch);
-          }
-        } catch (InterruptedException e) {
-          warn("Interrupted when {} waiting for launching new task", getName());
-          try {
-            if (toLaunch != null) {
-              TaskState state = (TaskState) toLaunch.get();
-              trace("Tracing current running task (state: {})", state);
-            }
-          } catch (InterruptedException ie) {
-            warn("Interrupted when {} trying to get task result", getName());
-          } catch (ExecutionException ee) {
-            error("Running task launched by {} failed to complete computing",
-                getName());
-          }
-          Thread.currentThread().interrupt();
-        }
-      }
-    }
-
-    void cancel() {
-      interrupt();
+  private void submit(Task task) {
+    try {
+      launchPool.submit(new CallableTask(context, task));
+    } catch (RejectedExecutionException e) {
+      warn("Rejected task {} since the launcher is stopping",
+          task.getTaskId());
     }
   }
 }
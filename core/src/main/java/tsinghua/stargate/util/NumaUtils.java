@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.rpc.message.entity.Worker;
+
+/**
+ * This class consists exclusively of static methods that discover the NUMA
+ * topology of the host, i.e. its NUMA nodes and the node each accelerator is
+ * attached to through its PCIe root.
+ *
+ * <p>
+ * On hosts with a single NUMA node, a topology of
+ * {@link NameSpace#ACCELERATOR_NUMA_EMULATED_NODES} nodes can be emulated for
+ * testing locality-aware placement.
+ */
+public final class NumaUtils {
+
+  private static final Logger LOG = LoggerFactory.getLogger(NumaUtils.class);
+
+  /** Node of hardware or memory whose NUMA node is not known. */
+  public static final int UNKNOWN_NODE = -1;
+
+  private static final String SYSFS_NODES = "/sys/devices/system/node";
+  private static final String SYSFS_PCI_DEVICES = "/sys/bus/pci/devices";
+  /** A PCIe location, e.g. 0000:81:00.0, the domain being optional. */
+  private static final Pattern PCI_ADDRESS = Pattern.compile(
+      "(?:([0-9a-fA-F]{4}):)?([0-9a-fA-F]{2}:[0-9a-fA-F]{2}\\.[0-7])");
+
+  private NumaUtils() {
+  }
+
+  /**
+   * Get the number of NUMA nodes of the host, or the number of emulated ones
+   * if configured.
+   *
+   * @param conf StarGate configuration
+   * @return the number of NUMA nodes, at least 1
+   */
+  public static int getNumNodes(Configuration conf) {
+    int emulated = getNumEmulatedNodes(conf);
+    if (emulated > 0) {
+      return emulated;
+    }
+    File[] nodes = new File(SYSFS_NODES)
+        .listFiles((dir, name) -> name.matches("node[0-9]+"));
+    return nodes == null ? 1 : Math.max(1, nodes.length);
+  }
+
+  private static int getNumEmulatedNodes(Configuration conf) {
+    return conf == null ? 0
+        : conf.getInt(NameSpace.ACCELERATOR_NUMA_EMULATED_NODES,
+            NameSpace.DEFAULT_ACCELERATOR_NUMA_EMULATED_NODES);
+  }
+
+  /**
+   * Get the NUMA node an accelerator is attached to, configured, emulated or
+   * discovered from its PCIe location in that order.
+   *
+   * @param conf StarGate configuration
+   * @param acceleratorId the hardware id of the accelerator
+   * @param acceleratorIndex the index of the accelerator in the node
+   * @param worker the type of the accelerator
+   * @return the NUMA node, or {@link #UNKNOWN_NODE}
+   */
+  public static int getAcceleratorNode(Configuration conf, String acceleratorId,
+      int acceleratorIndex, Worker worker) {
+    int node = conf.getInt(NameSpace.ACCELERATOR_NUMA_NODE_PREFIX
+        + acceleratorId, UNKNOWN_NODE);
+    if (node != UNKNOWN_NODE) {
+      return node;
+    }
+    int numNodes = getNumNodes(conf);
+    if (numNodes == 1) {
+      return 0;
+    }
+    if (getNumEmulatedNodes(conf) > 0) {
+      return acceleratorIndex % numNodes;
+    }
+
+    String location =
+        conf.get(NameSpace.ACCELERATOR_PCI_ADDRESS_PREFIX + acceleratorId);
+    if (location == null && worker == Worker.FPGA) {
+      try {
+        location = FpgaUtils.getInfo().getLocationById(acceleratorIndex);
+      } catch (IOException | LinkageError e) {
+        LOG.warn("Failed to get the PCIe location of accelerator {}",
+            acceleratorId, e);
+      }
+    }
+    return location == null ? UNKNOWN_NODE : getPciNode(location);
+  }
+
+  /**
+   * Get the NUMA node of the PCIe device at {@code location}.
+   *
+   * @param location the PCIe location, e.g. 0000:81:00.0 or 81:00.0
+   * @return the NUMA node, or {@link #UNKNOWN_NODE} if the location is
+   *         malformed or the platform does not tell
+   */
+  public static int getPciNode(String location) {
+    Matcher matcher = PCI_ADDRESS.matcher(location);
+    if (!matcher.find()) {
+      return UNKNOWN_NODE;
+    }
+    String domain = matcher.group(1) == null ? "0000" : matcher.group(1);
+    String address = (domain + ":" + matcher.group(2)).toLowerCase();
+    File numaNode = new File(SYSFS_PCI_DEVICES + "/" + address, "numa_node");
+    try {
+      String text = new String(Files.readAllBytes(numaNode.toPath()),
+          StandardCharsets.US_ASCII).trim();
+      return Math.max(UNKNOWN_NODE, Integer.parseInt(text));
+    } catch (IOException | NumberFormatException e) {
+      LOG.debug("No NUMA node known for PCIe device {}", address);
+      return UNKNOWN_NODE;
+    }
+  }
+}
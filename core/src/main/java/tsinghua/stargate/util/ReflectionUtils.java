@@ -116,6 +116,17 @@ public class ReflectionUtils extends Log {
     return result;
   }
 
+  /**
+   * Drop the cached constructors of the classes defined by a class loader, so
+   * that the class loader can be garbage collected once it is closed.
+   *
+   * @param classLoader a class loader that will not be used anymore
+   */
+  public void evict(ClassLoader classLoader) {
+    CLASS_CONSTRUCTOR_CACHE.keySet()
+        .removeIf(clazz -> clazz.getClassLoader() == classLoader);
+  }
+
   /**
    * Get a cached or newly created factory instance.
    *
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.util;
+
+/**
+ * A {@link Clock} backed by {@link System#currentTimeMillis()}.
+ */
+public final class SystemClock implements Clock {
+
+  private static final SystemClock INSTANCE = new SystemClock();
+
+  private SystemClock() {
+  }
+
+  public static SystemClock getInstance() {
+    return INSTANCE;
+  }
+
+  @Override
+  public long getTime() {
+    return System.currentTimeMillis();
+  }
+}
@@ -16,6 +16,9 @@
 
 package tsinghua.stargate.util;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.concurrent.*;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -28,6 +31,41 @@ public class ThreadUtils {
 
   private volatile static ThreadUtils executor;
 
+  /**
+   * {@code Executors.newThreadPerTaskExecutor(ThreadFactory)} bound to a
+   * virtual thread factory builder, or null before Java 21.
+   */
+  private static final MethodHandle NEW_THREAD_PER_TASK_EXECUTOR;
+  private static final MethodHandle OF_VIRTUAL;
+  private static final MethodHandle VIRTUAL_NAME;
+  private static final MethodHandle VIRTUAL_FACTORY;
+
+  static {
+    MethodHandle newExecutor = null;
+    MethodHandle ofVirtual = null;
+    MethodHandle name = null;
+    MethodHandle factory = null;
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      Class<?> builder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+      newExecutor = lookup.findStatic(Executors.class,
+          "newThreadPerTaskExecutor",
+          MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+      ofVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+          MethodType.methodType(builder));
+      name = lookup.findVirtual(builder, "name",
+          MethodType.methodType(builder, String.class, long.class));
+      factory = lookup.findVirtual(builder, "factory",
+          MethodType.methodType(ThreadFactory.class));
+    } catch (ReflectiveOperationException e) {
+      newExecutor = null;
+    }
+    NEW_THREAD_PER_TASK_EXECUTOR = newExecutor;
+    OF_VIRTUAL = ofVirtual;
+    VIRTUAL_NAME = name;
+    VIRTUAL_FACTORY = factory;
+  }
+
   private ThreadUtils() {
   }
 
@@ -85,6 +123,23 @@ public class ThreadUtils {
     return threadPoolExecutor;
   }
 
+  /**
+   * Create a scheduled thread pool of daemon threads. Thread names are
+   * formatted as prefix-ID, where ID is a unique, sequentially assigned
+   * integer.
+   *
+   * @param prefix the prefix of a thread name
+   * @param poolSize the number of threads to keep in the pool
+   * @return a configured {@link ScheduledThreadPoolExecutor} instance
+   */
+  public ScheduledThreadPoolExecutor newDaemonScheduledThreadPool(String prefix,
+      int poolSize) {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+        poolSize, getDaemonThreadFactory(prefix));
+    executor.setRemoveOnCancelPolicy(true);
+    return executor;
+  }
+
   /**
    * Create a thread factory that names threads with a prefix and also sets the
    * threads to daemon.
@@ -125,4 +180,63 @@ public class ThreadUtils {
   private ThreadFactory getThreadFactory(String prefix) {
     return new ThreadFactoryBuilder().setNameFormat(prefix + "-%d").build();
   }
+
+  /**
+   * Whether the running JVM supports virtual threads.
+   *
+   * @return true on Java 21 or later
+   */
+  public boolean isVirtualThreadSupported() {
+    return NEW_THREAD_PER_TASK_EXECUTOR != null;
+  }
+
+  /**
+   * Create an executor that starts a new virtual thread for each task, so the
+   * number of concurrently blocked tasks is not bounded by a pool size.
+   * Thread names are formatted as prefix-ID.
+   *
+   * @param prefix the prefix of a thread name
+   * @return an unbounded virtual-thread-per-task executor
+   * @throws UnsupportedOperationException if the JVM has no virtual threads
+   */
+  public ExecutorService newVirtualThreadPerTaskExecutor(String prefix) {
+    if (!isVirtualThreadSupported()) {
+      throw new UnsupportedOperationException(
+          "Virtual threads require Java 21 or later");
+    }
+    try {
+      Object builder =
+          VIRTUAL_NAME.invoke(OF_VIRTUAL.invoke(), prefix + "-", 0L);
+      ThreadFactory factory = (ThreadFactory) VIRTUAL_FACTORY.invoke(builder);
+      return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(factory);
+    } catch (Throwable t) {
+      throw new UnsupportedOperationException(
+          "Failed to create virtual thread executor", t);
+    }
+  }
+
+  /**
+   * Create an executor for tasks that spend most of their time blocked. With
+   * {@code virtual} set and a JVM that supports it, every task gets its own
+   * virtual thread; otherwise a pool of {@code poolSize} platform threads is
+   * used.
+   *
+   * <p>
+   * Only tasks blocked in Java code benefit from virtual threads. The FPGA
+   * channels issue their JNI DMA calls inside {@code synchronized} sections,
+   * which pin a virtual thread to its carrier thread, so tasks on those I/O
+   * paths still hold a carrier each until the channels stop pinning.
+   *
+   * @param prefix the prefix of a thread name
+   * @param poolSize the number of platform threads in the fallback pool
+   * @param virtual whether to prefer virtual threads
+   * @return a configured {@link ExecutorService} instance
+   */
+  public ExecutorService newBlockingTaskExecutor(String prefix, int poolSize,
+      boolean virtual) {
+    if (virtual && isVirtualThreadSupported()) {
+      return newVirtualThreadPerTaskExecutor(prefix);
+    }
+    return newCachedThreadPool(prefix, poolSize, 1L, TimeUnit.HOURS);
+  }
 }
@@ -125,6 +125,26 @@ public class Utils {
     return InetAddress.getLocalHost();
   }
 
+  /**
+   * Check whether {@code address} belongs to this host.
+   *
+   * @param address the address to be checked
+   * @return {@code true} if {@code address} is a local address
+   */
+  public static boolean isLocalAddress(InetAddress address) {
+    if (address == null) {
+      return false;
+    }
+    if (address.isAnyLocalAddress() || address.isLoopbackAddress()) {
+      return true;
+    }
+    try {
+      return NetworkInterface.getByInetAddress(address) != null;
+    } catch (SocketException e) {
+      return false;
+    }
+  }
+
   /**
    * Obtain a queue name, e.g. stargate.default.workloadId.appId or
    * stargate.accelerator.workloadId.appId.
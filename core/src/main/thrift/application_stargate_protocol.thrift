@@ -22,4 +22,8 @@ service ApplicationStarGateProtocolService {
   message.GetNewApplicationResponseThrift getNewApplication(1: message.GetNewApplicationRequestThrift request)
   message.SubmitApplicationResponseThrift submitApplication(1: message.SubmitApplicationRequestThrift request)
   message.GetApplicationReportResponseThrift getApplicationReport(1: message.GetApplicationReportRequestThrift request)
+  message.PutBlockDataResponseThrift putBlockData(1: message.PutBlockDataRequestThrift request)
+  message.GetBlockDataResponseThrift getBlockData(1: message.GetBlockDataRequestThrift request)
+  message.OpenLocalChannelResponseThrift openLocalChannel(1: message.OpenLocalChannelRequestThrift request)
+  message.GetCardReportsResponseThrift getCardReports(1: message.GetCardReportsRequestThrift request)
 }
@@ -83,6 +83,10 @@ struct ApplicationSubmissionContextThrift {
   2: required ApplicationIdThrift applicationId
   3: required ApplicationLaunchContextThrift applicationLaunchContext
   4: required AcceleratorResourceThrift acceleratorResourceThrift
+  5: optional i64 deadline
+  6: optional i32 priority
+  7: optional i32 cores
+  8: optional i32 cards
 }
 
 struct ApplicationResourceUsageReportThrift {
@@ -99,6 +103,17 @@ struct ApplicationReportThrift {
   5: optional ApplicationResourceUsageReportThrift applicationResourceUsageReportThrift
   6: optional ServiceDataThrift serviceData
   7: optional string diagnostics
+  8: optional map<string, i64> phaseTimes
+}
+
+struct CoreReportThrift {
+  1: required i32 coreId
+  2: optional i64 busyTime
+  3: optional i64 dmaTime
+  4: optional i64 bytesSent
+  5: optional i64 bytesReceived
+  6: optional i64 numRequests
+  7: optional i64 numReprograms
 }
 
 struct CardReportThrift {
@@ -109,4 +124,7 @@ struct CardReportThrift {
   5: optional list<AcceleratorResourceThrift> totalCapability
   6: optional list<AcceleratorResourceThrift> usedCapability
   7: optional list<AcceleratorResourceThrift> availableCapability
+  8: optional i32 numPreemptions
+  9: optional i64 preemptionWastedTime
+  10: optional list<CoreReportThrift> coreReports
 }
\ No newline at end of file
@@ -34,6 +34,7 @@ struct SubmitApplicationRequestThrift {
 
 struct SubmitApplicationResponseThrift {
   1: required entity.ApplicationStateThrift applicationState
+  2: optional i64 retryAfter
 }
 
 struct GetApplicationReportRequestThrift {
@@ -43,3 +44,44 @@ struct GetApplicationReportRequestThrift {
 struct GetApplicationReportResponseThrift {
   1: required entity.ApplicationReportThrift applicationReport
 }
+
+struct PutBlockDataRequestThrift {
+  1: required string path
+  2: required i64 offset
+  3: required i64 capacity
+  4: required binary data
+  5: required bool last
+  6: optional string uploadId
+}
+
+struct PutBlockDataResponseThrift {
+  1: required i64 received
+  2: optional string error
+}
+
+struct GetBlockDataRequestThrift {
+  1: required string path
+  2: required i64 offset
+  3: required i32 length
+}
+
+struct GetBlockDataResponseThrift {
+  1: required i64 capacity
+  2: required binary data
+}
+
+struct OpenLocalChannelRequestThrift {
+  1: required i32 capacity
+}
+
+struct OpenLocalChannelResponseThrift {
+  1: optional string path
+}
+
+struct GetCardReportsRequestThrift {
+  1: optional string workload
+}
+
+struct GetCardReportsResponseThrift {
+  1: required list<entity.CardReportThrift> cardReports
+}
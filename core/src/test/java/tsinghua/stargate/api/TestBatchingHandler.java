@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestBatchingHandler {
+
+  private static ByteBuffer record(String s) {
+    return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String string(ByteBuffer record) {
+    byte[] bytes = new byte[record.remaining()];
+    record.duplicate().get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testFormat() throws Exception {
+    List<ByteBuffer> records =
+        Arrays.asList(record("a"), record(""), record("abcde"));
+    ByteBuffer batch = ByteBuffer.allocate(64);
+    BatchFormat.encode(records, batch);
+    // Every record is padded to a 32-bit word
+    assertEquals(BatchFormat.HEADER_LENGTH + 8 + 4 + 12, batch.position());
+    batch.flip();
+    assertEquals(3, batch.duplicate().order(BatchFormat.ORDER).getInt());
+
+    List<ByteBuffer> decoded = BatchFormat.decode(batch);
+    assertEquals(3, decoded.size());
+    assertEquals("a", string(decoded.get(0)));
+    assertEquals("", string(decoded.get(1)));
+    assertEquals("abcde", string(decoded.get(2)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedBatch() throws Exception {
+    ByteBuffer batch = ByteBuffer.allocate(8).order(BatchFormat.ORDER);
+    batch.putInt(1).putInt(100).flip();
+    BatchFormat.decode(batch);
+  }
+
+  @Test
+  public void testBatchByRecords() throws Exception {
+    EchoHandler echo = new EchoHandler();
+    BatchingHandler batching =
+        new BatchingHandler(echo, 4, 4096, TimeUnit.SECONDS.toMicros(10), 4096);
+    List<CompletableFuture<ByteBuffer>> futures = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      futures.add(batching.submit(record("record-" + i)));
+    }
+    assertEquals(2, echo.batches);
+    for (int i = 0; i < 8; i++) {
+      assertEquals("record-" + i, string(futures.get(i).get()));
+    }
+    batching.close();
+  }
+
+  @Test
+  public void testBatchByBytes() throws Exception {
+    EchoHandler echo = new EchoHandler();
+    // Room for two 8-byte records after the header
+    BatchingHandler batching = new BatchingHandler(echo, 100, 28,
+        TimeUnit.SECONDS.toMicros(10), 4096);
+    batching.submit(record("12345678"));
+    batching.submit(record("12345678"));
+    assertEquals(1, echo.batches);
+    // Larger than a batch, sent on its own
+    CompletableFuture<ByteBuffer> large =
+        batching.submit(record("0123456789abcdefghijklmnopqrstuvwxyz"));
+    assertEquals(2, echo.batches);
+    assertEquals("0123456789abcdefghijklmnopqrstuvwxyz", string(large.get()));
+    batching.close();
+  }
+
+  @Test
+  public void testLinger() throws Exception {
+    EchoHandler echo = new EchoHandler();
+    BatchingHandler batching = new BatchingHandler(echo, 100, 4096,
+        TimeUnit.MILLISECONDS.toMicros(10), 4096);
+    CompletableFuture<ByteBuffer> first = batching.submit(record("first"));
+    CompletableFuture<ByteBuffer> second = batching.submit(record("second"));
+    assertEquals("first", string(first.get(10, TimeUnit.SECONDS)));
+    assertEquals("second", string(second.get(10, TimeUnit.SECONDS)));
+    assertEquals(1, echo.batches);
+    // Lingering batches are sent by the batching handler, not the timer
+    assertTrue(echo.sender.startsWith("BatchSender"));
+    batching.close();
+  }
+
+  @Test
+  public void testHandlerFailure() throws Exception {
+    EchoHandler echo = new EchoHandler();
+    echo.fail = true;
+    BatchingHandler batching = new BatchingHandler(echo, 100, 4096,
+        TimeUnit.MILLISECONDS.toMicros(10), 4096);
+    CompletableFuture<ByteBuffer> first = batching.submit(record("first"));
+    try {
+      first.get(10, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+      batching.close();
+      return;
+    }
+    throw new AssertionError("Expected the batch to fail");
+  }
+
+  @Test
+  public void testMismatchedResponse() throws Exception {
+    EchoHandler echo = new EchoHandler();
+    echo.dropLast = true;
+    BatchingHandler batching = new BatchingHandler(echo, 2, 4096,
+        TimeUnit.SECONDS.toMicros(10), 4096);
+    CompletableFuture<ByteBuffer> first = batching.submit(record("first"));
+    batching.submit(record("second"));
+    try {
+      first.get();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+      return;
+    }
+    throw new AssertionError("Expected the batch to fail");
+  }
+
+  /** Answers every batch with the same records, as a loopback kernel. */
+  private static class EchoHandler implements AcceleratorHandler {
+
+    private ByteBuffer lastBatch;
+    private int batches = 0;
+    private boolean dropLast = false;
+    private boolean fail = false;
+    private String sender;
+
+    @Override
+    public void reset(int cardId, int coreId) {
+    }
+
+    @Override
+    public int send(ByteBuffer data) throws IOException {
+      sender = Thread.currentThread().getName();
+      if (fail) {
+        throw new IllegalStateException("Card is gone");
+      }
+      List<ByteBuffer> records = new ArrayList<>(BatchFormat.decode(data));
+      if (dropLast) {
+        records.remove(records.size() - 1);
+      }
+      lastBatch = ByteBuffer.allocate(data.remaining());
+      BatchFormat.encode(records, lastBatch);
+      lastBatch.flip();
+      batches++;
+      int length = data.remaining();
+      data.position(data.limit());
+      return length;
+    }
+
+    @Override
+    public int receive(ByteBuffer data) {
+      int length = lastBatch.remaining();
+      data.put(lastBatch);
+      return length;
+    }
+
+    @Override
+    public void setOff(int off) {
+    }
+
+    @Override
+    public void setConfigOp(int id, Object obj) {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import tsinghua.stargate.api.impl.AcceleratorResponseImpl;
+
+public class TestResultBuffer {
+
+  @Test
+  public void testTypedViews() {
+    ResultBuffer floats = ResultBuffer.allocateFloats(4);
+    floats.asFloats().put(1.5f).put(2.5f);
+    ByteBuffer bytes = floats.toByteBuffer();
+    assertTrue(bytes.isDirect());
+    assertEquals(ByteOrder.nativeOrder(), bytes.order());
+    assertEquals(8, bytes.remaining());
+    assertEquals(2.5f, bytes.getFloat(4), 0f);
+
+    ResultBuffer longs = ResultBuffer.allocateLongs(2);
+    longs.asLongs().put(42L);
+    assertEquals(42L, longs.toByteBuffer().getLong(0));
+
+    ResultBuffer ints = ResultBuffer.allocateInts(3);
+    ints.asInts().put(new int[] {7, 8, 9});
+    assertEquals(12, ints.toByteBuffer().remaining());
+    assertEquals(9, ints.toByteBuffer().getInt(8));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testWrongView() {
+    ResultBuffer.allocateInts(1).asFloats();
+  }
+
+  @Test
+  public void testResponse() {
+    ResultBuffer labels = ResultBuffer.allocateInts(2);
+    labels.asInts().put(1).put(0);
+    ResultBuffer centroids = ResultBuffer.allocateFloats(1);
+    centroids.asFloats().put(0.5f);
+
+    Collection<ByteBuffer> segments =
+        new AcceleratorResponseImpl(StarGateAppState.SUCCESS, labels,
+            centroids).getOutputResult();
+    assertEquals(2, segments.size());
+    Iterator<ByteBuffer> it = segments.iterator();
+    assertEquals(1, it.next().getInt(0));
+    assertEquals(0.5f, it.next().getFloat(0), 0f);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.classloader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tsinghua.stargate.api.AcceleratorRequest;
+import tsinghua.stargate.api.AcceleratorResponse;
+import tsinghua.stargate.api.StarGateApp;
+
+public class TestAppClassLoaderCache {
+
+  private final AppClassLoaderCache cache = AppClassLoaderCache.get();
+  private final ClassLoader parent = getClass().getClassLoader();
+  private File jar;
+  private File otherJar;
+
+  @Before
+  public void setUp() throws Exception {
+    cache.configure(0, 0);
+    jar = File.createTempFile("app", ".jar");
+    otherJar = File.createTempFile("other", ".jar");
+    Files.write(jar.toPath(), new byte[] {1, 2, 3});
+    Files.write(otherJar.toPath(), new byte[] {4, 5, 6});
+  }
+
+  @After
+  public void tearDown() {
+    cache.configure(0, 0);
+    jar.delete();
+    otherJar.delete();
+  }
+
+  private URL[] urls(File... files) throws Exception {
+    URL[] urls = new URL[files.length];
+    for (int i = 0; i < files.length; i++) {
+      urls[i] = files[i].toURI().toURL();
+    }
+    return urls;
+  }
+
+  @Test
+  public void testReuse() throws Exception {
+    cache.configure(2, 0);
+    AppClassLoaderCache.Entry first = cache.acquire(urls(jar), parent);
+    cache.release(first);
+    AppClassLoaderCache.Entry second = cache.acquire(urls(jar), parent);
+    assertSame(first, second);
+    AppClassLoaderCache.Entry other = cache.acquire(urls(otherJar), parent);
+    assertNotSame(first.getClassLoader(), other.getClassLoader());
+    cache.release(second);
+    cache.release(other);
+  }
+
+  @Test
+  public void testChangedJar() throws Exception {
+    cache.configure(2, 0);
+    AppClassLoaderCache.Entry first = cache.acquire(urls(jar), parent);
+    cache.release(first);
+    Files.write(jar.toPath(), new byte[] {1, 2, 3, 4});
+    AppClassLoaderCache.Entry second = cache.acquire(urls(jar), parent);
+    assertNotSame(first, second);
+    cache.release(second);
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    cache.configure(1, 0);
+    AppClassLoaderCache.Entry inUse = cache.acquire(urls(jar), parent);
+    AppClassLoaderCache.Entry idle = cache.acquire(urls(otherJar), parent);
+    // Neither is evicted while in use
+    assertEquals(2, cache.size());
+    cache.release(idle);
+    assertEquals(1, cache.size());
+    assertSame(inUse, cache.acquire(urls(jar), parent));
+    cache.release(inUse);
+    cache.release(inUse);
+    assertEquals(1, cache.size());
+    AppClassLoaderCache.Entry reloaded =
+        cache.acquire(urls(otherJar), parent);
+    assertNotSame(idle, reloaded);
+    cache.release(reloaded);
+  }
+
+  @Test
+  public void testAppPool() throws Exception {
+    cache.configure(1, 1);
+    AppClassLoaderCache.Entry entry = cache.acquire(urls(jar), parent);
+    String className = EchoApp.class.getName();
+    StarGateApp first = entry.borrowApp(className);
+    StarGateApp second = entry.borrowApp(className);
+    assertNotSame(first, second);
+    entry.returnApp(className, first);
+    entry.returnApp(className, second);
+    assertSame(first, entry.borrowApp(className));
+    assertNotSame(second, entry.borrowApp(className));
+    cache.release(entry);
+  }
+
+  public static class EchoApp implements StarGateApp {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public AcceleratorResponse accelerate(AcceleratorRequest request) {
+      return null;
+    }
+  }
+}
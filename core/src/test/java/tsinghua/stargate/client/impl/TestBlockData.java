@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tsinghua.stargate.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tsinghua.stargate.rpc.ApplicationStarGateProtocol;
+import tsinghua.stargate.rpc.message.GetBlockDataRequest;
+import tsinghua.stargate.rpc.message.GetBlockDataResponse;
+import tsinghua.stargate.rpc.message.PutBlockDataRequest;
+import tsinghua.stargate.rpc.message.PutBlockDataResponse;
+import tsinghua.stargate.storage.impl.BlockStoreMemoryImpl;
+
+public class TestBlockData {
+
+  private static final int CHUNK_SIZE = 16;
+
+  private BlockStoreMemoryImpl memoryStore;
+  private Set<String> uploadIds;
+  private ClientImpl client;
+
+  @Before
+  public void setUp() throws Exception {
+    memoryStore = new BlockStoreMemoryImpl();
+    uploadIds = new HashSet<>();
+
+    // Serve the calls as ClientService does
+    ApplicationStarGateProtocol protocol =
+        mock(ApplicationStarGateProtocol.class);
+    when(protocol.putBlockData(any(PutBlockDataRequest.class)))
+        .thenAnswer(invocation -> {
+          PutBlockDataRequest request =
+              (PutBlockDataRequest) invocation.getArguments()[0];
+          uploadIds.add(request.getUploadId());
+          return PutBlockDataResponse.newInstance(memoryStore.writeChunk(
+              request.getPath(), request.getUploadId(), request.getOffset(),
+              request.getCapacity(), request.getData(), request.isLast()));
+        });
+    when(protocol.getBlockData(any(GetBlockDataRequest.class)))
+        .thenAnswer(invocation -> {
+          GetBlockDataRequest request =
+              (GetBlockDataRequest) invocation.getArguments()[0];
+          long capacity = memoryStore.size(request.getPath());
+          ByteBuffer data = capacity < 0 ? ByteBuffer.allocate(0)
+              : memoryStore.readChunk(request.getPath(), request.getOffset(),
+                  request.getLength());
+          return GetBlockDataResponse.newInstance(capacity, data);
+        });
+    client = new ClientImpl(protocol, CHUNK_SIZE);
+  }
+
+  private static ByteBuffer bytes(int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) i;
+    }
+    return ByteBuffer.wrap(data);
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    for (int length : new int[] {0, 1, CHUNK_SIZE, 5 * CHUNK_SIZE + 3}) {
+      String path = "/block/" + length;
+      client.putBlockData(path, bytes(length));
+      assertEquals(length, memoryStore.size(path));
+      assertEquals(bytes(length), client.getBlockData(path));
+    }
+    assertEquals(0, memoryStore.getPendingBytes());
+  }
+
+  @Test
+  public void testDirectBlock() throws Exception {
+    ByteBuffer block = ByteBuffer.allocateDirect(3 * CHUNK_SIZE);
+    block.put(bytes(3 * CHUNK_SIZE)).flip();
+    client.putBlockData("/block/direct", block);
+    // The caller's buffer is left untouched
+    assertEquals(0, block.position());
+    assertEquals(bytes(3 * CHUNK_SIZE), client.getBlockData("/block/direct"));
+  }
+
+  @Test
+  public void testUploadIds() throws Exception {
+    client.putBlockData("/block/0", bytes(2 * CHUNK_SIZE));
+    client.putBlockData("/block/0", bytes(2 * CHUNK_SIZE));
+    // Every upload gets its own id, shared by all its chunks
+    assertEquals(2, uploadIds.size());
+    assertNull(client.getBlockData("/block/missing"));
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
+import tsinghua.stargate.rpc.message.entity.CardReport;
+
+public class TestDaemonLoad {
+
+  private static final String WORKLOAD = "loopback";
+  private static final Set<String> NONE = Collections.emptySet();
+
+  private static AcceleratorResource core(String workload, int coreId) {
+    AcceleratorResource resource = mock(AcceleratorResource.class);
+    when(resource.getAcceleratorWorkload()).thenReturn(workload);
+    when(resource.getAcceleratorCoreId()).thenReturn(coreId);
+    return resource;
+  }
+
+  /** A card with {@code total} cores of {@code workload}, the first busy. */
+  private static CardReport card(String workload, int total, int busy) {
+    List<AcceleratorResource> totalCores = new ArrayList<>();
+    List<AcceleratorResource> usedCores = new ArrayList<>();
+    for (int i = 0; i < total; i++) {
+      AcceleratorResource core = core(workload, i);
+      totalCores.add(core);
+      if (i < busy) {
+        usedCores.add(core);
+      }
+    }
+    CardReport report = mock(CardReport.class);
+    when(report.getHttpAddress()).thenReturn("127.0.0.1");
+    when(report.getNumTasks()).thenReturn(busy);
+    when(report.getTotalCapability()).thenReturn(totalCores);
+    when(report.getUsedCapability()).thenReturn(usedCores);
+    return report;
+  }
+
+  private static DaemonLoad daemon(String address, CardReport... cards) {
+    return new DaemonLoad(address, Arrays.asList(cards));
+  }
+
+  @Test
+  public void testCountCores() {
+    DaemonLoad load =
+        daemon("localhost:8888", card(WORKLOAD, 4, 1), card("kmeans", 2, 2));
+    assertEquals(4, load.getTotalCores(WORKLOAD));
+    assertEquals(3, load.getFreeCores(WORKLOAD));
+    assertEquals(0, load.getFreeCores("kmeans"));
+    assertEquals(3, load.getFreeCores(null));
+    assertEquals(3, load.getNumTasks());
+    assertTrue(load.isOn("localhost"));
+    assertTrue(load.isOn("127.0.0.1"));
+  }
+
+  @Test
+  public void testSelectFreeCore() {
+    DaemonLoad busy = daemon("localhost:8888", card(WORKLOAD, 2, 2));
+    DaemonLoad idle = daemon("localhost:8889", card(WORKLOAD, 2, 1));
+    DaemonLoad other = daemon("localhost:8890", card("kmeans", 4, 0));
+    List<DaemonLoad> loads = Arrays.asList(busy, idle, other);
+
+    assertEquals(idle, DaemonLoad.select(loads, WORKLOAD, NONE));
+    assertNull(DaemonLoad.select(loads, "unknown", NONE));
+
+    // The idle core is taken until the next reports arrive
+    idle.assign(WORKLOAD);
+    assertEquals(0, idle.getFreeCores(WORKLOAD));
+    assertEquals(busy, DaemonLoad.select(loads, WORKLOAD, NONE));
+  }
+
+  @Test
+  public void testSelectLocalDaemon() {
+    DaemonLoad remote = daemon("localhost:8888", card(WORKLOAD, 4, 0));
+    DaemonLoad local = daemon("localhost:8889", card(WORKLOAD, 4, 3));
+    DaemonLoad full = daemon("localhost:8890", card(WORKLOAD, 4, 4));
+    List<DaemonLoad> loads = Arrays.asList(remote, local, full);
+
+    assertEquals(remote, DaemonLoad.select(loads, WORKLOAD, NONE));
+    assertEquals(local, DaemonLoad.select(loads, WORKLOAD,
+        Collections.singleton("localhost:8889")));
+    // Locality never outweighs an idle core elsewhere
+    assertEquals(remote, DaemonLoad.select(loads, WORKLOAD,
+        Collections.singleton("localhost:8890")));
+  }
+}
@@ -67,6 +67,21 @@ public class TestConf {
     Assert.assertEquals(address.getAddress().getHostAddress(), "0.0.0.0");
   }
 
+  @Test
+  public void testCopy() throws Exception {
+    conf.setInt(NameSpace.RPC_DATA_CHUNK_SIZE, 1024);
+    conf.setBoolean(NameSpace.RPC_LOCAL_ENABLED, true);
+    StarGateConf copy = new StarGateConf(conf);
+    Assert.assertEquals(1024, copy.getInt(NameSpace.RPC_DATA_CHUNK_SIZE, 0));
+    Assert.assertTrue(copy.getBoolean(NameSpace.RPC_LOCAL_ENABLED, false));
+
+    // The copies are independent
+    copy.set(NameSpace.RPC_SERVER_ADDRESS, "10.0.0.1:8888");
+    conf.setInt(NameSpace.RPC_DATA_CHUNK_SIZE, 2048);
+    Assert.assertNull(conf.get(NameSpace.RPC_SERVER_ADDRESS));
+    Assert.assertEquals(1024, copy.getInt(NameSpace.RPC_DATA_CHUNK_SIZE, 0));
+  }
+
   @Test
   public void testAddDefaultResource() throws Exception {
 
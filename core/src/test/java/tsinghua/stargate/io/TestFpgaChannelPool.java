@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class TestFpgaChannelPool {
+
+  private int opened = 0;
+
+  private final FpgaChannelPool pool = new FpgaChannelPool((card, core,
+      config) -> {
+    opened++;
+    return new FakeChannel();
+  });
+
+  private static KMeansConfig newConfig(int row) {
+    KMeansConfig config = new KMeansConfig();
+    config.setType("kmeans");
+    config.setAccelerateBitPath("kmeans.xclbin");
+    config.setRow(row);
+    return config;
+  }
+
+  @Test
+  public void testReuse() throws Exception {
+    pool.configure(4);
+    KMeansConfig config = newConfig(10);
+    FpgaChannel first = pool.lease(0, 1, config);
+    pool.release(first);
+    // The same configuration, changed and changed back in between
+    config.setRow(20);
+    config.setRow(10);
+    assertSame(first, pool.lease(0, 1, config));
+    assertEquals(1, opened);
+
+    FpgaChannel otherCore = pool.lease(0, 2, config);
+    FpgaChannel otherConfig = pool.lease(0, 1, newConfig(20));
+    assertNotSame(first, otherCore);
+    assertNotSame(first, otherConfig);
+    assertEquals(3, opened);
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    pool.configure(1);
+    FpgaChannel first = pool.lease(0, 1, null);
+    FpgaChannel second = pool.lease(0, 2, null);
+    pool.release(first);
+    pool.release(second);
+    assertEquals(1, pool.getIdleCount());
+    assertFalse(first.isOpen());
+    assertTrue(second.isOpen());
+
+    pool.configure(0);
+    assertEquals(0, pool.getIdleCount());
+    assertFalse(second.isOpen());
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    pool.configure(4);
+    FpgaChannel idle = pool.lease(0, 1, null);
+    FpgaChannel leased = pool.lease(0, 1, null);
+    FpgaChannel otherCore = pool.lease(0, 2, null);
+    FpgaChannel otherCard = pool.lease(1, 1, null);
+    pool.release(idle);
+    pool.release(otherCore);
+    pool.release(otherCard);
+
+    pool.invalidate(0, 1);
+    assertFalse(idle.isOpen());
+    assertTrue(otherCore.isOpen());
+    assertTrue(otherCard.isOpen());
+    pool.release(leased);
+    assertFalse(leased.isOpen());
+    assertEquals(2, pool.getIdleCount());
+  }
+
+  @Test
+  public void testClosedChannel() throws Exception {
+    pool.configure(4);
+    FpgaChannel channel = pool.lease(0, 1, null);
+    // As closed by an interrupt while in use
+    channel.close();
+    pool.release(channel);
+    assertEquals(0, pool.getIdleCount());
+  }
+
+  private static class FakeChannel extends FpgaChannel {
+
+    @Override
+    public int read(ByteBuffer dst) {
+      return 0;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      return 0;
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public void setCore(int core) {
+    }
+
+    @Override
+    public void setOff(int off) {
+    }
+
+    @Override
+    public void setLast(boolean last) {
+    }
+
+    @Override
+    public void setReadTimeout(int readTimeout) {
+    }
+
+    @Override
+    public void setWriteTimeout(int writeTimeout) {
+    }
+
+    @Override
+    protected void implCloseChannel() {
+    }
+  }
+}
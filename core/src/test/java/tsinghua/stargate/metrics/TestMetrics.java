@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.conf.StarGateConf;
+
+public class TestMetrics {
+
+  private final MetricsRegistry registry = MetricsRegistry.get();
+
+  @Test
+  public void testHistogramBuckets() {
+    for (long value : new long[] { 0, 7, 8, 15, 16, 17, 1000, 123456789 }) {
+      int bucket = Histogram.bucketOf(value);
+      assertTrue(value <= Histogram.upperBoundOf(bucket));
+      assertTrue(bucket == 0 || value > Histogram.upperBoundOf(bucket - 1));
+    }
+    assertEquals(Long.MAX_VALUE,
+        Histogram.upperBoundOf(Histogram.bucketOf(Long.MAX_VALUE)));
+
+    Histogram histogram = registry.histogram("test_latency_us", "Latency");
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i * 10);
+    }
+    assertEquals(100, histogram.getCount());
+    assertEquals(50500, histogram.getSum());
+    assertEquals(1000, histogram.getMax());
+    // Values are known within an eighth of themselves
+    long p50 = histogram.getValueAtPercentile(50);
+    assertTrue(p50 >= 500 && p50 <= 500 * 9 / 8);
+    assertEquals(1000, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testText() throws Exception {
+    registry.counter("test_requests_total", "Requests", "result", "ok")
+        .add(3);
+    registry.counter("test_requests_total", "Requests", "result", "error")
+        .inc();
+    registry.gauge("test_depth", "Depth", () -> 42);
+
+    StringBuilder text = new StringBuilder();
+    registry.writeText(text);
+    String out = text.toString();
+    assertEquals(1, count(out, "# TYPE test_requests_total counter"));
+    assertTrue(out.contains("test_requests_total{result=\"ok\"} 3\n"));
+    assertTrue(out.contains("test_requests_total{result=\"error\"} 1\n"));
+    assertTrue(out.contains("test_depth 42\n"));
+  }
+
+  @Test
+  public void testService() throws Exception {
+    registry.counter("test_scraped_total", "Scraped").inc();
+    Configuration conf = new StarGateConf();
+    conf.set(NameSpace.METRICS_HTTP_PORT, "0");
+    MetricsService service = new MetricsService(registry);
+    service.init(conf);
+    service.start();
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      assertEquals(1L, server.getAttribute(
+          new ObjectName(MetricsService.OBJECT_NAME), "test_scraped_total"));
+
+      InetSocketAddress address = service.getHttpAddress();
+      URL url = new URL("http://localhost:" + address.getPort() + "/metrics");
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      assertEquals(200, connection.getResponseCode());
+      assertTrue(read(connection.getInputStream())
+          .contains("test_scraped_total 1\n"));
+    } finally {
+      service.stop();
+    }
+  }
+
+  private static int count(String text, String part) {
+    int count = 0;
+    for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+      count++;
+    }
+    return count;
+  }
+
+  private static String read(InputStream in) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    try (InputStream input = in) {
+      for (int n = input.read(buffer); n >= 0; n = input.read(buffer)) {
+        out.write(buffer, 0, n);
+      }
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
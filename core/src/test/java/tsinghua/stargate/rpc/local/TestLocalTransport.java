@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.local;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.apache.thrift.transport.TTransportException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestLocalTransport {
+
+  private File dir;
+  private LocalChannel serverChannel;
+  private LocalChannel clientChannel;
+  private LocalTransport server;
+  private LocalTransport client;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = Files.createTempDirectory("stargate-channel").toFile();
+    serverChannel = LocalChannel.create(dir, 1024);
+    clientChannel = LocalChannel.open(serverChannel.getPath());
+    server = LocalTransport.server(serverChannel, 1000);
+    client = LocalTransport.client(clientChannel, 50);
+  }
+
+  @After
+  public void tearDown() {
+    client.close();
+    server.close();
+    dir.delete();
+  }
+
+  private static byte[] readFully(LocalTransport transport, int length)
+      throws TTransportException {
+    byte[] buf = new byte[length];
+    int off = 0;
+    while (off < length) {
+      off += transport.read(buf, off, length - off);
+    }
+    return buf;
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    byte[] request = "request".getBytes("UTF-8");
+    byte[] response = "a longer response".getBytes("UTF-8");
+    for (int i = 0; i < 100; i++) {
+      // A message written in pieces goes out as one record on flush
+      client.write(request, 0, 3);
+      client.write(request, 3, request.length - 3);
+      client.flush();
+      assertArrayEquals(request, readFully(server, request.length));
+
+      server.write(response, 0, response.length);
+      server.flush();
+      assertArrayEquals(response, readFully(client, response.length));
+    }
+    assertTrue(client.isOpen());
+    assertTrue(server.isOpen());
+  }
+
+  @Test
+  public void testTimeoutClosesChannel() throws Exception {
+    try {
+      readFully(client, 1);
+      fail("Read without a response");
+    } catch (TTransportException e) {
+      assertEquals(TTransportException.TIMED_OUT, e.getType());
+    }
+    // A late response must not be taken for the next one
+    assertFalse(client.isOpen());
+    assertFalse(server.isOpen());
+    try {
+      client.write(new byte[1], 0, 1);
+      client.flush();
+      fail("Wrote through a closed channel");
+    } catch (TTransportException e) {
+      assertEquals(TTransportException.END_OF_FILE, e.getType());
+    }
+  }
+
+  @Test
+  public void testPeerClose() throws Exception {
+    server.close();
+    assertFalse(new File(serverChannel.getPath()).exists());
+    try {
+      readFully(client, 1);
+      fail("Read from a closed channel");
+    } catch (TTransportException e) {
+      assertEquals(TTransportException.END_OF_FILE, e.getType());
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.rpc.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMappedRing {
+
+  private File dir;
+  private LocalChannel channel;
+  private MappedRing ring;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = Files.createTempDirectory("stargate-ring").toFile();
+    channel = LocalChannel.create(dir, 64);
+    ring = channel.getRequests();
+  }
+
+  @After
+  public void tearDown() {
+    channel.close();
+    dir.delete();
+  }
+
+  private static ByteBuffer message(int length, int seed) {
+    ByteBuffer message = ByteBuffer.allocate(length);
+    for (int i = 0; i < length; i++) {
+      message.put((byte) (seed + i));
+    }
+    message.flip();
+    return message;
+  }
+
+  private void assertNext(ByteBuffer expected) {
+    ByteBuffer actual = ring.peek();
+    assertEquals(expected, actual);
+    ring.advance();
+  }
+
+  @Test
+  public void testEmptyAndFull() {
+    assertEquals(64, ring.capacity());
+    assertNull(ring.peek());
+
+    // Records of 4 + 20 bytes take 24 bytes each
+    assertTrue(ring.offer(message(20, 1)));
+    assertTrue(ring.offer(message(20, 2)));
+    // The third needs 16 bytes of padding to wrap, which do not fit
+    assertFalse(ring.offer(message(20, 3)));
+    assertFalse(ring.put(message(20, 3), 0));
+
+    assertNext(message(20, 1));
+    assertTrue(ring.offer(message(20, 3)));
+    assertFalse(ring.offer(message(0, 4)));
+
+    assertNext(message(20, 2));
+    assertNext(message(20, 3));
+    assertNull(ring.peek());
+    assertNull(ring.take(TimeUnit.MILLISECONDS.toNanos(1)));
+  }
+
+  @Test
+  public void testWrapAround() {
+    for (int i = 0; i < 1000; i++) {
+      ByteBuffer first = message(i % 21, i);
+      // Up to 16 bytes of padding and records of 24 and 16 bytes fit
+      ByteBuffer second = message(i % 13, -i);
+      assertTrue(ring.offer(first));
+      assertTrue(ring.offer(second));
+      // The offered buffers are left untouched
+      assertEquals(i % 21, first.remaining());
+      assertNext(message(i % 21, i));
+      assertNext(message(i % 13, -i));
+    }
+    assertNull(ring.peek());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOversize() {
+    ring.offer(message(61, 0));
+  }
+
+  @Test
+  public void testClose() {
+    ring.close();
+    assertTrue(ring.isClosed());
+    assertTrue(channel.isClosed());
+    assertNull(ring.take(TimeUnit.SECONDS.toNanos(10)));
+    assertFalse(ring.put(message(56, 0), TimeUnit.SECONDS.toNanos(10)));
+  }
+
+  @Test
+  public void testIdleBackoff() {
+    assertEquals(0, MappedRing.idle(1));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(1), MappedRing.idle(100000));
+  }
+
+  @Test
+  public void testPermissions() throws Exception {
+    File channels = new File(dir, "channels");
+    LocalChannel other = LocalChannel.create(channels, 64);
+    try {
+      assertEquals("rwx------", PosixFilePermissions
+          .toString(Files.getPosixFilePermissions(channels.toPath())));
+      assertEquals("rw-------", PosixFilePermissions.toString(
+          Files.getPosixFilePermissions(new File(other.getPath()).toPath())));
+    } finally {
+      other.close();
+      channels.delete();
+    }
+  }
+}
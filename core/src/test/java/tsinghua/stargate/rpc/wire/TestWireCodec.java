@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tsinghua.stargate.rpc.wire;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.thrift.transport.TTransportException;
+import org.junit.Test;
+
+public class TestWireCodec {
+
+  private static final int THRESHOLD = 64;
+
+  private static byte[] compressible(int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i % 7);
+    }
+    return data;
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    return Arrays.copyOfRange(buffer.array(), buffer.position(),
+        buffer.limit());
+  }
+
+  private static byte[] decode(ByteBuffer frame, int maxLength)
+      throws TTransportException {
+    return toArray(WireCodec.decode(frame.array(), frame.position(),
+        frame.remaining(), maxLength));
+  }
+
+  @Test
+  public void testRoundTrip() throws TTransportException {
+    // Leave some bytes around the message, as Thrift buffers do
+    byte[] message = compressible(4096);
+    byte[] src = new byte[message.length + 8];
+    System.arraycopy(message, 0, src, 3, message.length);
+
+    for (WireCodec codec : WireCodec.values()) {
+      ByteBuffer frame = codec.encode(src, 3, message.length, THRESHOLD);
+      assertEquals(codec, WireCodec.detect(frame.get(frame.position())));
+      if (codec != WireCodec.NONE) {
+        assertTrue(frame.remaining() < message.length / 4);
+      }
+      assertArrayEquals(message, decode(frame, message.length));
+    }
+  }
+
+  @Test
+  public void testPassThrough() throws TTransportException {
+    byte[] small = compressible(THRESHOLD - 1);
+    byte[] random = new byte[4096];
+    new Random(0).nextBytes(random);
+
+    for (WireCodec codec : WireCodec.values()) {
+      // Below the threshold
+      ByteBuffer frame = codec.encode(small, 0, small.length, THRESHOLD);
+      assertSame(small, frame.array());
+      assertArrayEquals(small, toArray(frame));
+
+      // Does not shrink
+      frame = codec.encode(random, 0, random.length, THRESHOLD);
+      assertSame(random, frame.array());
+      assertArrayEquals(random, decode(frame, random.length));
+    }
+  }
+
+  @Test
+  public void testPlainFrames() throws TTransportException {
+    // A compact message, as sent by clients without compression
+    byte[] message = compressible(256);
+    message[0] = (byte) 0x82;
+    assertEquals(WireCodec.NONE, WireCodec.detect(message[0]));
+    ByteBuffer frame = ByteBuffer.wrap(message);
+    assertArrayEquals(message, decode(frame, 0));
+  }
+
+  @Test
+  public void testOversizeFrame() {
+    byte[] message = compressible(4096);
+    for (WireCodec codec : Arrays.asList(WireCodec.LZ4, WireCodec.ZSTD)) {
+      ByteBuffer frame = codec.encode(message, 0, message.length, THRESHOLD);
+      try {
+        decode(frame, message.length - 1);
+        fail(codec + " frame over the maximum length was decoded");
+      } catch (TTransportException e) {
+        // Expected
+      }
+    }
+  }
+
+  @Test
+  public void testWrongRawLength() {
+    byte[] message = compressible(4096);
+    for (WireCodec codec : Arrays.asList(WireCodec.LZ4, WireCodec.ZSTD)) {
+      for (int delta : new int[] {-1, 1}) {
+        ByteBuffer frame = codec.encode(message, 0, message.length, THRESHOLD);
+        frame.putInt(1, message.length + delta);
+        try {
+          decode(frame, Integer.MAX_VALUE);
+          fail(codec + " frame of the wrong raw length was decoded");
+        } catch (TTransportException e) {
+          // Expected
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTruncatedFrame() {
+    byte[] message = compressible(4096);
+    for (WireCodec codec : Arrays.asList(WireCodec.LZ4, WireCodec.ZSTD)) {
+      ByteBuffer frame = codec.encode(message, 0, message.length, THRESHOLD);
+      frame.limit(frame.limit() - 1);
+      try {
+        decode(frame, message.length);
+        fail("Truncated " + codec + " frame was decoded");
+      } catch (TTransportException e) {
+        // Expected
+      }
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tsinghua.stargate.rpc.wire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.TProcessor;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolException;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.apache.thrift.transport.TMemoryInputTransport;
+import org.junit.Test;
+
+public class TestWireProcessor {
+
+  private static final int THRESHOLD = 64;
+  private static final int MAX_LENGTH = 1 << 20;
+
+  /** Replies to every call with its own payload. */
+  private static final TProcessor ECHO = (in, out) -> {
+    TMessage call = in.readMessageBegin();
+    String payload = in.readString();
+    in.readMessageEnd();
+    out.writeMessageBegin(
+        new TMessage(call.name, TMessageType.REPLY, call.seqid));
+    out.writeString(payload);
+    out.writeMessageEnd();
+    out.getTransport().flush();
+    return true;
+  };
+
+  /**
+   * Sends {@code payload} in {@code protocol} and {@code codec} through a
+   * {@link WireProcessor}, as the daemon's framed server would.
+   *
+   * @return the reply frame
+   */
+  private static ByteBuffer call(WireProtocol protocol, WireCodec codec,
+      String payload) throws TException {
+    TMemoryBuffer request = new TMemoryBuffer(1024);
+    TestWireTransport.writeMessage(
+        protocol.getFactory().getProtocol(request), payload);
+    ByteBuffer frame =
+        codec.encode(request.getArray(), 0, request.length(), THRESHOLD);
+
+    TMemoryBuffer socket = new TMemoryBuffer(1024);
+    TFramedTransport in = new TFramedTransport(socket);
+    in.write(frame.array(), frame.position(), frame.remaining());
+    in.flush();
+    TMemoryBuffer reply = new TMemoryBuffer(1024);
+    WireProcessor processor = new WireProcessor(ECHO, THRESHOLD, MAX_LENGTH);
+    assertTrue(processor.process(new TCompactProtocol(in),
+        new TCompactProtocol(new TFramedTransport(reply))));
+
+    return ByteBuffer.wrap(reply.getArray(), 4, reply.length() - 4);
+  }
+
+  @Test
+  public void testRoundTrip() throws TException {
+    for (WireProtocol protocol : WireProtocol.values()) {
+      for (WireCodec codec : WireCodec.values()) {
+        for (int length : new int[] {0, 16 * THRESHOLD}) {
+          String payload = TestWireTransport.payload(length);
+          ByteBuffer frame = call(protocol, codec, payload);
+          // Replies are compressed as their request was
+          WireCodec replyCodec = WireCodec.detect(frame.get(4));
+          assertEquals(length == 0 ? WireCodec.NONE : codec, replyCodec);
+
+          ByteBuffer reply = WireCodec.decode(frame.array(), 4,
+              frame.remaining(), MAX_LENGTH);
+          TProtocol in = protocol.getFactory()
+              .getProtocol(new TMemoryInputTransport(reply.array(),
+                  reply.position(), reply.remaining()));
+          TMessage message = in.readMessageBegin();
+          assertEquals(TMessageType.REPLY, message.type);
+          assertEquals(payload, in.readString());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testUnknownProtocol() throws TException {
+    TMemoryBuffer socket = new TMemoryBuffer(1024);
+    TFramedTransport in = new TFramedTransport(socket);
+    in.write(new byte[] {0x7f, 0, 0, 0});
+    in.flush();
+    WireProcessor processor = new WireProcessor(ECHO, THRESHOLD, MAX_LENGTH);
+    try {
+      processor.process(new TCompactProtocol(in),
+          new TCompactProtocol(new TMemoryBuffer(16)));
+      fail("Message of an unknown protocol was processed");
+    } catch (TProtocolException e) {
+      assertEquals(TProtocolException.BAD_VERSION, e.getType());
+    }
+  }
+}
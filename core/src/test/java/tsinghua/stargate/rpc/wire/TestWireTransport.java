@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tsinghua.stargate.rpc.wire;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.Test;
+
+public class TestWireTransport {
+
+  private static final int THRESHOLD = 64;
+  private static final int MAX_LENGTH = 1 << 20;
+
+  static String payload(int length) {
+    StringBuilder builder = new StringBuilder(length);
+    while (builder.length() < length) {
+      builder.append("stargate ");
+    }
+    return builder.substring(0, length);
+  }
+
+  static void writeMessage(TProtocol out, String payload) throws TException {
+    out.writeMessageBegin(new TMessage("echo", TMessageType.CALL, 7));
+    out.writeString(payload);
+    out.writeMessageEnd();
+    out.getTransport().flush();
+  }
+
+  static String readMessage(TProtocol in) throws TException {
+    TMessage message = in.readMessageBegin();
+    assertEquals("echo", message.name);
+    assertEquals(7, message.seqid);
+    String payload = in.readString();
+    in.readMessageEnd();
+    return payload;
+  }
+
+  private static byte[] toArray(TMemoryBuffer buffer) {
+    return Arrays.copyOf(buffer.getArray(), buffer.length());
+  }
+
+  private static WireTransport transport(TTransport socket, WireCodec codec) {
+    return new WireTransport(socket, codec, THRESHOLD, MAX_LENGTH,
+        MAX_LENGTH);
+  }
+
+  @Test
+  public void testRoundTrip() throws TException {
+    for (WireProtocol protocol : WireProtocol.values()) {
+      for (WireCodec codec : WireCodec.values()) {
+        for (int length : new int[] {0, THRESHOLD / 2, 16 * THRESHOLD}) {
+          TMemoryBuffer socket = new TMemoryBuffer(1024);
+          String payload = payload(length);
+          writeMessage(protocol.getFactory()
+              .getProtocol(transport(socket, codec)), payload);
+          // Twice, so the second frame is read after the first one drained
+          writeMessage(protocol.getFactory()
+              .getProtocol(transport(socket, codec)), payload);
+
+          TProtocol in = protocol.getFactory()
+              .getProtocol(transport(socket, WireCodec.NONE));
+          assertEquals(payload, readMessage(in));
+          assertEquals(payload, readMessage(in));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPlainFrames() throws TException {
+    // Without compression frames are those of a framed transport
+    for (WireProtocol protocol : WireProtocol.values()) {
+      String payload = payload(16 * THRESHOLD);
+      TMemoryBuffer wire = new TMemoryBuffer(1024);
+      writeMessage(protocol.getFactory()
+          .getProtocol(transport(wire, WireCodec.NONE)), payload);
+      TMemoryBuffer framed = new TMemoryBuffer(1024);
+      writeMessage(protocol.getFactory()
+          .getProtocol(new TFramedTransport(framed)), payload);
+      assertArrayEquals(toArray(framed), toArray(wire));
+
+      // And the other way round
+      assertEquals(payload, readMessage(protocol.getFactory()
+          .getProtocol(transport(framed, WireCodec.ZSTD))));
+    }
+  }
+
+  @Test
+  public void testOversizeFrame() throws TException {
+    TMemoryBuffer socket = new TMemoryBuffer(1024);
+    writeMessage(WireProtocol.COMPACT.getFactory()
+        .getProtocol(transport(socket, WireCodec.LZ4)), payload(4096));
+    // The frame is small, the message it inflates to is not
+    TProtocol in = WireProtocol.COMPACT.getFactory().getProtocol(
+        new WireTransport(socket, WireCodec.NONE, THRESHOLD, MAX_LENGTH,
+            1024));
+    try {
+      readMessage(in);
+      fail("Message over the maximum length was read");
+    } catch (TTransportException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testOversizeWrite() throws TException {
+    TMemoryBuffer socket = new TMemoryBuffer(1024);
+    TProtocol out = WireProtocol.COMPACT.getFactory().getProtocol(
+        new WireTransport(socket, WireCodec.NONE, THRESHOLD, 1024,
+            MAX_LENGTH));
+    try {
+      writeMessage(out, payload(4096));
+      fail("Frame over the maximum length was written");
+    } catch (TTransportException e) {
+      assertEquals(0, socket.length());
+    }
+  }
+}
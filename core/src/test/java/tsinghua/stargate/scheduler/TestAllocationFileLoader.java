@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestAllocationFileLoader {
+
+  private static final String LOOPBACK = "stargate.accelerator.loopback";
+  private static final String TENANT = LOOPBACK + ".tenant-a";
+
+  private FairScheduler scheduler;
+  private File file;
+  private AllocationFileLoader loader;
+
+  @Before
+  public void setUp() throws IOException {
+    scheduler = new FairScheduler(null);
+    file = File.createTempFile("stargate-allocation", ".xml");
+    loader = new AllocationFileLoader(file, 1000, scheduler);
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  private void write(String content, long modified) throws IOException {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    assertTrue(file.setLastModified(modified));
+  }
+
+  @Test
+  public void testReload() throws IOException {
+    long modified = file.lastModified() + 10000;
+    write("<allocations><queue name=\"loopback\">"
+        + "<weight>2.0</weight><maxShare>4</maxShare>"
+        + "<schedulingPolicy>fair</schedulingPolicy>"
+        + "<queue name=\"tenant-a\"><weight>3.0</weight>"
+        + "<minShare>1</minShare><maxRunning>8</maxRunning></queue>"
+        + "</queue></allocations>", modified);
+
+    assertTrue(loader.reloadIfModified(0));
+    Map<String, QueueAllocation> allocations = loader.getAllocations();
+    assertEquals(2, allocations.size());
+    assertEquals(2.0f, allocations.get(LOOPBACK).getWeight(), 0);
+    assertEquals(4, allocations.get(LOOPBACK).getMaxShare());
+    assertTrue(allocations.get(LOOPBACK).getPolicy() != null);
+    assertEquals(1, allocations.get(TENANT).getMinShare());
+    assertEquals(Integer.valueOf(8), allocations.get(TENANT).getMaxRunning());
+    assertNull(allocations.get(TENANT).getMaxPending());
+
+    // Not checked again within the reload interval
+    write("<allocations/>", modified + 1000);
+    assertFalse(loader.reloadIfModified(500));
+
+    // A broken file keeps the previous settings
+    write("<allocations><queue name=\"loopback\"><weight>heavy</weight>"
+        + "</queue></allocations>", modified + 2000);
+    assertFalse(loader.reloadIfModified(2000));
+    assertEquals(allocations, loader.getAllocations());
+
+    // and is loaded once fixed, even without a new modification time
+    write("<allocations><queue name=\"loopback\"><weight>1.0</weight>"
+        + "</queue></allocations>", modified + 2000);
+    assertTrue(loader.reloadIfModified(3000));
+    assertEquals(1.0f, loader.getAllocations().get(LOOPBACK).getWeight(), 0);
+
+    write("<allocations><queue name=\"loopback\"/></allocations>",
+        modified + 4000);
+    assertTrue(loader.reloadIfModified(4000));
+    assertEquals(1, loader.getAllocations().size());
+    assertFalse(loader.reloadIfModified(6000));
+  }
+
+  @Test
+  public void testApplyAllocations() throws IOException {
+    write("<allocations><queue name=\"loopback\"><maxShare>4</maxShare>"
+        + "<queue name=\"tenant-a\"><weight>3.0</weight>"
+        + "<minShare>1</minShare></queue></queue></allocations>",
+        file.lastModified() + 10000);
+    assertTrue(loader.reloadIfModified(0));
+
+    QueueManager queueManager = new QueueManager(scheduler);
+    queueManager.init();
+    queueManager.setAllocations(loader.getAllocations());
+    SchedulableLeafQueue queue =
+        queueManager.getLeafQueue("loopback.tenant-a", true);
+    assertEquals(3.0f, queue.getWeight(), 0);
+    assertEquals(1, queue.getMinShare());
+    assertTrue(queue.hasRoomFor(4));
+    // The max share of the parent applies to its children
+    assertFalse(queue.hasRoomFor(5));
+
+    queue.updateUsage(4);
+    assertEquals(4, queue.getParent().getUsage());
+    assertFalse(queue.hasRoomFor(1));
+
+    // Settings disappear with the queue from the file
+    queueManager.setAllocations(Collections.emptyMap());
+    assertEquals(0, queue.getMinShare());
+    assertTrue(queue.hasRoomFor(1));
+  }
+}
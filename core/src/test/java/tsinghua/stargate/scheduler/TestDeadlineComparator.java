@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestDeadlineComparator {
+
+  private static final long STARVATION_THRESHOLD = 10000;
+
+  private final DeadlineComparator comparator =
+      new DeadlineComparator(STARVATION_THRESHOLD, () -> 0L);
+
+  private Schedulable schedulable(String name, int priority, long deadline,
+      long waitTime) {
+    Schedulable s = mock(Schedulable.class);
+    when(s.getName()).thenReturn(name);
+    when(s.getPriority()).thenReturn(priority);
+    when(s.getDeadline()).thenReturn(deadline);
+    when(s.getWaitTime()).thenReturn(waitTime);
+    when(s.getWaitTime(anyLong())).thenReturn(waitTime);
+    when(s.getSubmissionDuration()).thenReturn(waitTime);
+    when(s.getWeight()).thenReturn(1.0f);
+    when(s.askResources()).thenReturn(new AcceleratorResourcesImpl());
+    when(s.offerMaxShare()).thenReturn(new AcceleratorResourcesImpl());
+    return s;
+  }
+
+  @Test
+  public void testEarliestDeadlineFirst() {
+    Schedulable batch = schedulable("batch", 0, Long.MAX_VALUE, 100);
+    Schedulable late = schedulable("late", 0, 5000, 100);
+    Schedulable early = schedulable("early", 0, 1000, 100);
+
+    List<Schedulable> order =
+        new ArrayList<>(Arrays.asList(batch, late, early));
+    Collections.sort(order, comparator);
+    assertEquals(Arrays.asList(early, late, batch), order);
+  }
+
+  @Test
+  public void testPriorityBeforeDeadline() {
+    Schedulable online = schedulable("online", 1, Long.MAX_VALUE, 100);
+    Schedulable batch = schedulable("batch", 0, 1000, 100);
+    assertTrue(comparator.compare(online, batch) < 0);
+  }
+
+  @Test
+  public void testStarvationProtection() {
+    Schedulable online = schedulable("online", 1, 1000, 100);
+    Schedulable starving =
+        schedulable("batch", 0, Long.MAX_VALUE, STARVATION_THRESHOLD + 1);
+    Schedulable older =
+        schedulable("older", 0, Long.MAX_VALUE, STARVATION_THRESHOLD + 500);
+
+    List<Schedulable> order =
+        new ArrayList<>(Arrays.asList(online, starving, older));
+    Collections.sort(order, comparator);
+    assertEquals(Arrays.asList(older, starving, online), order);
+  }
+
+  @Test
+  public void testWaitTimeOfRound() {
+    long[] roundTime = {STARVATION_THRESHOLD};
+    DeadlineComparator comparator =
+        new DeadlineComparator(STARVATION_THRESHOLD, () -> roundTime[0]);
+    Schedulable online = schedulable("online", 1, 1000, 0);
+    // Waiting since time 0, its live waiting time keeps growing
+    Schedulable batch = schedulable("batch", 0, Long.MAX_VALUE, 0);
+    when(batch.getWaitTime(anyLong()))
+        .thenAnswer(invocation -> invocation.getArguments()[0]);
+    when(batch.getWaitTime()).thenReturn(Long.MAX_VALUE);
+
+    assertTrue(comparator.compare(online, batch) < 0);
+    roundTime[0]++;
+    assertTrue(comparator.compare(online, batch) > 0);
+  }
+}
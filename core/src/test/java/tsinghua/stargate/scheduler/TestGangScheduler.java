@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tsinghua.stargate.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.conf.StarGateConf;
+import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
+import tsinghua.stargate.task.Task;
+
+public class TestGangScheduler {
+
+  private static final String WORKLOAD = "loopback";
+
+  private FairScheduler scheduler;
+  private GangScheduler gangScheduler;
+
+  @Before
+  public void setUp() {
+    Configuration conf = new StarGateConf();
+    scheduler = new FairScheduler(null);
+    for (int i = 0; i < 3; i++) {
+      String cardId = "fpga-gang-" + i;
+      conf.set(NameSpace.ACCELERATOR_TYPE_PREFIX + cardId, "FPGA");
+      conf.set(NameSpace.ACCELERATOR_CORE_IDS_PREFIX + cardId, "0");
+      conf.set(NameSpace.ACCELERATOR_CORE_WORKLOADS_PREFIX + cardId, WORKLOAD);
+      conf.set(NameSpace.ACCELERATOR_CORE_MEMORY_PREFIX + cardId, "64");
+      conf.set(NameSpace.ACCELERATOR_CORE_FREQUENCY_PREFIX + cardId, "200");
+      scheduler.getNodeAccelerators().put(cardId,
+          new SchedulableAccelerator(new Accelerator(conf, cardId, i)));
+    }
+    gangScheduler = new GangScheduler(scheduler);
+  }
+
+  private SchedulableTask mockTask(String name, int cards) {
+    Task task = mock(Task.class);
+    when(task.getWorkload()).thenReturn(WORKLOAD);
+    SchedulableTask schedulableTask = mock(SchedulableTask.class);
+    when(schedulableTask.getName()).thenReturn(name);
+    when(schedulableTask.getTask()).thenReturn(task);
+    when(schedulableTask.getCards()).thenReturn(cards);
+    when(schedulableTask.isGang()).thenReturn(cards > 1);
+    scheduler.getTasks().put(name, schedulableTask);
+    return schedulableTask;
+  }
+
+  private SchedulableAccelerator card(int i) {
+    return scheduler.getNodeAccelerators().get("fpga-gang-" + i);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testPlaceOnIdleCores() {
+    SchedulableTask gang = mockTask("gang", 2);
+    gangScheduler.schedule();
+
+    ArgumentCaptor<Map> placement = ArgumentCaptor.forClass(Map.class);
+    verify(gang).assignGang(placement.capture());
+    assertEquals(2, placement.getValue().size());
+    assertNull(gangScheduler.getReservedGang());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testReserveUntilAllCardsAreIdle() {
+    SchedulableTask small = mockTask("small", 1);
+    AcceleratorResource busy = card(0).getAvailableResources().get(0);
+    card(0).allocate(small, busy);
+
+    SchedulableTask gang = mockTask("gang", 3);
+    gangScheduler.schedule();
+    verify(gang, never()).assignGang(any(Map.class));
+    assertTrue(gang == gangScheduler.getReservedGang());
+
+    // Idle cores of reserved cards are held back from backfilling tasks
+    assertEquals(0, card(1).getAvailableResources().size());
+    assertEquals(1, card(1).getReservedResources().size());
+    assertEquals(1, card(2).getReservedResources().size());
+
+    card(0).release(small);
+    gangScheduler.schedule();
+
+    ArgumentCaptor<Map> placement = ArgumentCaptor.forClass(Map.class);
+    verify(gang).assignGang(placement.capture());
+    assertEquals(3, placement.getValue().size());
+    assertNull(gangScheduler.getReservedGang());
+    assertEquals(0, card(1).getReservedResources().size());
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.conf.StarGateConf;
+import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
+
+public class TestReconfigurator {
+
+  private static final String CARD = "fpga-reconfigurable";
+  private static final long DELAY = 100;
+
+  private Configuration conf;
+  private SchedulableAccelerator card;
+  private Reconfigurator reconfigurator;
+
+  @Before
+  public void setUp() {
+    conf = new StarGateConf();
+    conf.set(NameSpace.ACCELERATOR_TYPE_PREFIX + CARD, "FPGA");
+    conf.set(NameSpace.ACCELERATOR_CORE_IDS_PREFIX + CARD, "0,1");
+    conf.set(NameSpace.ACCELERATOR_CORE_WORKLOADS_PREFIX + CARD,
+        "loopback,loopback");
+    conf.set(NameSpace.ACCELERATOR_CORE_MEMORY_PREFIX + CARD, "64,64");
+    conf.set(NameSpace.ACCELERATOR_CORE_FREQUENCY_PREFIX + CARD, "200,200");
+    conf.setBoolean(NameSpace.ACCELERATOR_CORE_RECONFIGURABLE_PREFIX + CARD,
+        true);
+    conf.set(NameSpace.ACCELERATOR_WORKLOAD_BITSTREAM_PREFIX + "loopback",
+        "/opt/bitstreams/loopback.bit");
+    conf.set(NameSpace.ACCELERATOR_WORKLOAD_BITSTREAM_PREFIX + "kmeans",
+        "/opt/bitstreams/kmeans.bit");
+    conf.set(NameSpace.ACCELERATOR_WORKLOAD_RECONFIG_COST_PREFIX + "kmeans",
+        "1000");
+    conf.set(NameSpace.ACCELERATOR_RECONFIG_EMULATED_DELAY,
+        String.valueOf(DELAY));
+
+    card = new SchedulableAccelerator(new Accelerator(conf, CARD, 0));
+    Map<String, SchedulableAccelerator> cards = new ConcurrentHashMap<>();
+    cards.put(CARD, card);
+    reconfigurator = new Reconfigurator(conf, cards);
+  }
+
+  @After
+  public void tearDown() {
+    reconfigurator.stop();
+  }
+
+  @Test(timeout = 10000)
+  public void testCanHost() {
+    assertTrue(reconfigurator.canHost("kmeans"));
+    assertFalse(reconfigurator.canHost("imageCaption"));
+  }
+
+  @Test(timeout = 10000)
+  public void testDeferUntilPressureExceedsCost() {
+    reconfigurator.reconfigure(Collections.singletonMap("kmeans", 500L));
+    assertFalse(reconfigurator.isReprogramming("kmeans"));
+    assertEquals(2, card.getAvailableResources().size());
+  }
+
+  @Test(timeout = 10000)
+  public void testReprogramIdleCore() throws InterruptedException {
+    reconfigurator.reconfigure(Collections.singletonMap("kmeans", 1500L));
+    assertTrue(reconfigurator.isReprogramming("kmeans"));
+    assertEquals(1, card.getAvailableResources().size());
+    assertEquals(1, card.getReprogrammingResources().size());
+
+    // Only one core is reprogrammed per workload at a time.
+    reconfigurator.reconfigure(Collections.singletonMap("kmeans", 3000L));
+    assertEquals(1, card.getReprogrammingResources().size());
+
+    while (reconfigurator.isReprogramming("kmeans")) {
+      Thread.sleep(DELAY);
+      reconfigurator.reconfigure(Collections.<String, Long> emptyMap());
+    }
+
+    assertEquals(2, card.getAvailableResources().size());
+    int kmeansCores = 0;
+    for (AcceleratorResource resource : card.getTotalResources()) {
+      if ("kmeans".equals(resource.getAcceleratorWorkload())) {
+        kmeansCores++;
+        assertEquals("/opt/bitstreams/kmeans.bit",
+            card.getLoadedBitstream(resource.getAcceleratorCoreId()));
+      }
+    }
+    assertEquals(1, kmeansCores);
+
+    // An idle core now serves kmeans, so pressure is absorbed by batching.
+    reconfigurator.reconfigure(Collections.singletonMap("kmeans", 5000L));
+    assertFalse(reconfigurator.isReprogramming("kmeans"));
+  }
+
+  @Test(timeout = 10000)
+  public void testKeepCoresOfPendingWorkloads() {
+    Map<String, Long> pressure = new ConcurrentHashMap<>();
+    pressure.put("kmeans", 5000L);
+    pressure.put("loopback", 10L);
+    reconfigurator.reconfigure(pressure);
+    assertFalse(reconfigurator.isReprogramming("kmeans"));
+  }
+}
@@ -16,11 +16,26 @@
 
 package tsinghua.stargate.scheduler;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 
 import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
 import tsinghua.stargate.conf.StarGateConf;
+import tsinghua.stargate.io.CoreCounters;
+import tsinghua.stargate.rpc.message.entity.AcceleratorResource;
+import tsinghua.stargate.rpc.message.entity.ApplicationId;
+import tsinghua.stargate.task.Task;
+import tsinghua.stargate.task.TaskId;
+import tsinghua.stargate.task.TaskImpl;
 
 public class TestSchedulableAccelerator {
 
@@ -40,4 +55,108 @@ public class TestSchedulableAccelerator {
     System.out.println(accelerator1.getResourceCapability());
     System.out.println(accelerator2.getResourceCapability());
   }
+
+  private SchedulableAccelerator newCard(String cardId, int index) {
+    conf.set(NameSpace.ACCELERATOR_TYPE_PREFIX + cardId, "FPGA");
+    conf.set(NameSpace.ACCELERATOR_CORE_IDS_PREFIX + cardId, "0,1,2");
+    conf.set(NameSpace.ACCELERATOR_CORE_WORKLOADS_PREFIX + cardId,
+        "loopback,loopback,loopback");
+    conf.set(NameSpace.ACCELERATOR_CORE_MEMORY_PREFIX + cardId, "64,64,64");
+    conf.set(NameSpace.ACCELERATOR_CORE_FREQUENCY_PREFIX + cardId,
+        "200,200,200");
+    return new SchedulableAccelerator(new Accelerator(conf, cardId, index));
+  }
+
+  @Test
+  public void testDataParallelAllocation() {
+    SchedulableAccelerator card = newCard("fpga-parallel", 0);
+
+    List<AcceleratorResource> cores =
+        new ArrayList<>(card.getAvailableResources().subList(0, 2));
+    SchedulableTask task = mock(SchedulableTask.class);
+    when(task.getName()).thenReturn("task_loopback_0");
+    for (AcceleratorResource core : cores) {
+      card.allocate(task, core);
+    }
+
+    // One task holds two cores of the card
+    assertEquals(1, card.getNumTasks());
+    assertEquals(2, card.getUsedResources().size());
+    assertEquals(1, card.getAvailableResources().size());
+
+    card.release(task);
+    assertEquals(0, card.getNumTasks());
+    assertEquals(0, card.getUsedResources().size());
+    assertEquals(3, card.getAvailableResources().size());
+  }
+
+  @Test
+  public void testHardwareTime() {
+    SchedulableAccelerator card = newCard("fpga-counters", 5);
+    Task task = mock(TaskImpl.class);
+    TaskId taskId = mock(TaskId.class);
+    when(taskId.getId()).thenReturn("task_loopback_1");
+    when(taskId.getDaemonAppId()).thenReturn(mock(ApplicationId.class));
+    when(task.getTaskId()).thenReturn(taskId);
+    when(task.getWorkload()).thenReturn("loopback");
+    SchedulableTask schedulableTask = new SchedulableTask(null, null, null,
+        task);
+
+    // Time cores were busy before the task got them is not charged to it
+    CoreCounters core0 = card.getCoreCounters(0);
+    CoreCounters core1 = card.getCoreCounters(1);
+    core0.recordRequest(100);
+    List<AcceleratorResource> cores =
+        new ArrayList<>(card.getAvailableResources().subList(0, 2));
+    for (AcceleratorResource core : cores) {
+      card.allocate(schedulableTask, core);
+    }
+    core0.recordRequest(1000);
+    core1.recordRequest(500);
+    core1.recordSend(4096, 20);
+    card.release(schedulableTask);
+    assertEquals(1500, schedulableTask.getHardwareTime());
+
+    AcceleratorReport report = new AcceleratorReport(card);
+    assertEquals(3, report.getCoreCounters().size());
+    assertEquals(1100, report.getCoreCounters().get(0).getBusyTime());
+    assertEquals(2, report.getCoreCounters().get(0).getNumRequests());
+    assertEquals(4096, report.getCoreCounters().get(1).getBytesSent());
+    assertEquals(20, report.getCoreCounters().get(1).getDmaTime());
+  }
+
+  @Test
+  public void testChargeRunningTask() {
+    SchedulableAccelerator card = newCard("fpga-running", 6);
+    Task task = mock(TaskImpl.class);
+    TaskId taskId = mock(TaskId.class);
+    when(taskId.getId()).thenReturn("task_loopback_2");
+    when(taskId.getDaemonAppId()).thenReturn(mock(ApplicationId.class));
+    when(task.getTaskId()).thenReturn(taskId);
+    when(task.getWorkload()).thenReturn("loopback");
+    SchedulableTask schedulableTask = new SchedulableTask(null, null, null,
+        task);
+
+    AcceleratorResource core = card.getAvailableResources().get(0);
+    CoreCounters counters = card.getCoreCounters(core.getAcceleratorCoreId());
+    card.allocate(schedulableTask, core);
+
+    // Finished requests are charged while the task still holds the core
+    counters.recordRequest(1000);
+    card.chargeBusyTime();
+    assertEquals(1000, schedulableTask.getHardwareTime());
+    card.chargeBusyTime();
+    assertEquals(1000, schedulableTask.getHardwareTime());
+
+    // So is the running request, up to now
+    long start = System.nanoTime() - 5000;
+    counters.startRequest(start);
+    card.chargeBusyTime();
+    assertTrue(schedulableTask.getHardwareTime() >= 6000);
+
+    // Nothing is charged twice once the request finishes
+    counters.recordRequest(System.nanoTime() - start);
+    card.release(schedulableTask);
+    assertEquals(counters.getBusyTime(), schedulableTask.getHardwareTime());
+  }
 }
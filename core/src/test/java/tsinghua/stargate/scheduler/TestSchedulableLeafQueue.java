@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tsinghua.stargate.task.Task;
+import tsinghua.stargate.task.TaskImpl;
+import tsinghua.stargate.util.SystemClock;
+
+public class TestSchedulableLeafQueue {
+
+  private static final String WORKLOAD = "loopback";
+
+  private FairScheduler scheduler;
+  private SchedulableLeafQueue queue;
+  /** Order of the tasks under the scheduling policy, lower first. */
+  private Map<Schedulable, Integer> ranks = new HashMap<>();
+
+  @Before
+  public void setUp() {
+    scheduler = mock(FairScheduler.class);
+    when(scheduler.getClock()).thenReturn(SystemClock.getInstance());
+    Comparator<Schedulable> policy = Comparator.comparing(ranks::get);
+    when(scheduler.getPolicy()).thenReturn(policy);
+    queue = new SchedulableLeafQueue("stargate.accelerator.loopback.app",
+        null, scheduler);
+  }
+
+  private SchedulableTask newTask(int rank) {
+    Task task = mock(TaskImpl.class);
+    when(task.getWorkload()).thenReturn(WORKLOAD);
+    SchedulableTask schedulableTask =
+        new SchedulableTask(null, scheduler, queue, task);
+    ranks.put(schedulableTask, rank);
+    return schedulableTask;
+  }
+
+  @Test
+  public void testAdmission() {
+    queue.setLimits(2, 2);
+    SchedulableTask first = newTask(1);
+    SchedulableTask second = newTask(1);
+    SchedulableTask parked = newTask(1);
+
+    assertTrue(queue.admitAcceleratorTask(first));
+    assertTrue(queue.admitAcceleratorTask(second));
+    assertTrue(queue.admitAcceleratorTask(parked));
+    assertFalse(first.isPending());
+    assertTrue(parked.isPending());
+    assertEquals(2, queue.getNumRunnableApps());
+    assertEquals(1, queue.getNumNoRunnableApps());
+    assertFalse(queue.isFull(WORKLOAD));
+
+    // An urgent task takes the place of a waiting admitted one
+    SchedulableTask urgent = newTask(0);
+    assertTrue(queue.admitAcceleratorTask(urgent));
+    assertFalse(urgent.isPending());
+    assertEquals(2, queue.getNumRunnableApps());
+    assertEquals(2, queue.getNumNoRunnableApps());
+    assertTrue(queue.isFull(WORKLOAD));
+
+    // Beyond the parked limit submissions are rejected with a hint
+    assertFalse(queue.admitAcceleratorTask(newTask(0)));
+    assertTrue(queue.getRetryAfter(1000) >= 1000);
+
+    queue.removeRunningTask(urgent);
+    List<SchedulableTask> promoted = queue.promotePendingTasks();
+    assertEquals(1, promoted.size());
+    assertFalse(promoted.get(0).isPending());
+    assertEquals(2, queue.getNumRunnableApps());
+    assertEquals(1, queue.getNumNoRunnableApps());
+  }
+
+  @Test
+  public void testDemand() {
+    queue.setLimits(1, 1);
+    SchedulableTask first = newTask(1);
+    SchedulableTask parked = newTask(1);
+    assertFalse(queue.needsReprogram());
+
+    queue.admitAcceleratorTask(first);
+    queue.admitAcceleratorTask(parked);
+    assertEquals(2, queue.getDemand());
+    assertEquals(queue.askResources().getNum(), queue.getDemand());
+    assertTrue(queue.needsReprogram());
+    when(scheduler.hostsWorkload(WORKLOAD)).thenReturn(true);
+    assertFalse(queue.needsReprogram());
+
+    queue.removeRunningTask(first);
+    assertEquals(1, queue.getDemand());
+    queue.removeRunningTask(parked);
+    assertEquals(0, queue.getDemand());
+  }
+
+  @Test
+  public void testUnlimitedAdmission() {
+    queue.setLimits(-1, -1);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(queue.admitAcceleratorTask(newTask(i)));
+    }
+    assertEquals(100, queue.getNumRunnableApps());
+    assertFalse(queue.isFull(WORKLOAD));
+  }
+}
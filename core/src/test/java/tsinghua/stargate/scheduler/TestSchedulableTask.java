@@ -16,8 +16,12 @@
 
 package tsinghua.stargate.scheduler;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
@@ -55,4 +59,34 @@ public class TestSchedulableTask {
     assertTrue(assignResource.getAcceleratorCoreFrequency() == 200);
     System.out.println(resourceList);
   }
+
+  @Test
+  public void testPreemptAndRequeue() {
+    Task task = mock(TaskImpl.class);
+    when(task.getWorkload()).thenReturn("Kmeans");
+    when(task.preempt()).thenReturn(true);
+    SchedulableTask running = new SchedulableTask(null, null, null, task);
+    SchedulableTask waiting = new SchedulableTask(null, null, null, task);
+
+    // A task holding no core has nothing to yield
+    assertFalse(running.preempt(waiting));
+    verify(task, never()).preempt();
+
+    List<AcceleratorResource> resourceList = new ArrayList<>();
+    resourceList.add(AcceleratorResource.newInstance("Kmeans", 128, 0, 200));
+    running.assignCore(resourceList, "Kmeans");
+    assertTrue(running.isScheduled());
+
+    assertTrue(running.preempt(waiting));
+    assertTrue(running.isPreempting());
+    assertTrue(waiting == running.getPreemptor());
+    // Only one preemption may be in flight for a task
+    assertFalse(running.preempt(waiting));
+
+    assertTrue(running.requeue() >= 0);
+    assertFalse(running.isScheduled());
+    assertFalse(running.isPreempting());
+    assertEquals(1, running.getNumPreemptions());
+    assertEquals(0, running.askResources().getNum());
+  }
 }
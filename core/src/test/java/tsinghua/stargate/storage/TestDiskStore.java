@@ -16,8 +16,14 @@
 
 package tsinghua.stargate.storage;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
 import tsinghua.stargate.conf.Configuration;
 import tsinghua.stargate.conf.StarGateConf;
 import tsinghua.stargate.exception.StarGateException;
@@ -61,4 +67,22 @@ public class TestDiskStore {
   public void testDelete() throws StarGateException {
     diskStore.delete("D:\\tmp\\tmp.txt");
   }
+
+  @Test
+  public void testSegments() throws Exception {
+    File file = File.createTempFile("result", ".bin");
+    try {
+      BlockId blockId = new BlockId(null, "app", "task", file.getPath());
+      ByteBuffer direct = ByteBuffer.allocateDirect(2);
+      direct.put((byte) 3).put((byte) 4).flip();
+      assertTrue(diskStore.putSegments(blockId,
+          Arrays.asList(ByteBuffer.wrap(new byte[] {1, 2}), direct)));
+      assertEquals(Arrays.toString(new byte[] {1, 2, 3, 4}),
+          Arrays.toString(Files.readAllBytes(file.toPath())));
+      // The segments are left as they were
+      assertEquals(2, direct.remaining());
+    } finally {
+      file.delete();
+    }
+  }
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.conf.StarGateConf;
+import tsinghua.stargate.exception.StarGateException;
+import tsinghua.stargate.rpc.message.entity.Worker;
+import tsinghua.stargate.storage.impl.BlockStoreMemoryImpl;
+import tsinghua.stargate.util.NumaUtils;
+
+public class TestMemoryStore {
+
+  private BlockStoreMemoryImpl memoryStore;
+  private Configuration conf;
+
+  @Before
+  public void setUp() throws Exception {
+    conf = new StarGateConf();
+    conf.set(NameSpace.ACCELERATOR_NUMA_EMULATED_NODES, "2");
+    memoryStore = new BlockStoreMemoryImpl();
+    memoryStore.setNumaNodes(NumaUtils.getNumNodes(conf));
+  }
+
+  @Test
+  public void testEmulatedTopology() {
+    assertEquals(2, NumaUtils.getNumNodes(conf));
+    assertEquals(0, NumaUtils.getAcceleratorNode(conf, "fpga0", 0,
+        Worker.FPGA));
+    assertEquals(1, NumaUtils.getAcceleratorNode(conf, "fpga1", 1,
+        Worker.FPGA));
+    conf.set(NameSpace.ACCELERATOR_NUMA_NODE_PREFIX + "fpga1", "0");
+    assertEquals(0, NumaUtils.getAcceleratorNode(conf, "fpga1", 1,
+        Worker.FPGA));
+  }
+
+  @Test
+  public void testNumaNodes() throws StarGateException {
+    assertEquals(NumaUtils.UNKNOWN_NODE, memoryStore.getNumaNode("/a"));
+
+    // Blocks go to the node holding the fewest bytes
+    memoryStore.writeBytes("/a/0", ByteBuffer.allocate(100));
+    memoryStore.writeBytes("/b/0", ByteBuffer.allocate(10));
+    memoryStore.writeBytes("/b/1", ByteBuffer.allocate(10));
+    assertEquals(0, memoryStore.getNumaNode("/a"));
+    assertEquals(1, memoryStore.getNumaNode("/b"));
+
+    // Chunked blocks are placed once published
+    ByteBuffer chunk = ByteBuffer.wrap(new byte[8]);
+    memoryStore.writeChunk("/c/0", 0, 16, chunk, false);
+    assertEquals(NumaUtils.UNKNOWN_NODE, memoryStore.getNumaNode("/c"));
+    memoryStore.writeChunk("/c/0", 8, 16, chunk, true);
+    assertEquals(1, memoryStore.getNumaNode("/c"));
+
+    // Deleted blocks no longer count
+    memoryStore.delete("/a/0");
+    memoryStore.writeBytes("/d/0", ByteBuffer.allocate(10));
+    assertEquals(0, memoryStore.getNumaNode("/d"));
+  }
+
+  @Test
+  public void testSegments() throws StarGateException {
+    BlockId blockId = new BlockId(null, "app", "task", "/result/0");
+    memoryStore.putSegments(blockId,
+        Arrays.asList(ByteBuffer.wrap(new byte[] {1, 2}),
+            ByteBuffer.wrap(new byte[] {3}), ByteBuffer.allocate(0)));
+    assertEquals(ByteBuffer.wrap(new byte[] {1, 2, 3}),
+        memoryStore.readBytes("/result/0"));
+  }
+
+  private static ByteBuffer bytes(int from, int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (from + i);
+    }
+    return ByteBuffer.wrap(data);
+  }
+
+  @Test
+  public void testChunkRoundTrip() throws StarGateException {
+    for (int offset = 0; offset < 100; offset += 30) {
+      int length = Math.min(30, 100 - offset);
+      assertEquals(offset + length, memoryStore.writeChunk("/e/0", "u", offset,
+          100, bytes(offset, length), offset + length == 100));
+    }
+    assertEquals(100, memoryStore.size("/e/0"));
+    assertEquals(0, memoryStore.getPendingBytes());
+    assertEquals(bytes(0, 40), memoryStore.readChunk("/e/0", 0, 40));
+    assertEquals(bytes(40, 60), memoryStore.readChunk("/e/0", 40, 100));
+    assertEquals(0, memoryStore.readChunk("/e/0", 100, 10).remaining());
+  }
+
+  @Test
+  public void testChunksOutOfOrder() throws StarGateException {
+    memoryStore.writeChunk("/e/0", "u", 50, 100, bytes(50, 50), false);
+    assertFalse(memoryStore.exists("/e/0"));
+    memoryStore.writeChunk("/e/0", "u", 0, 100, bytes(0, 50), true);
+    assertEquals(bytes(0, 100), memoryStore.readBytes("/e/0"));
+  }
+
+  @Test
+  public void testChunkResent() throws StarGateException {
+    memoryStore.writeChunk("/e/0", "u", 0, 100, bytes(0, 50), false);
+    // A retried chunk counts once, so the block still misses its tail
+    memoryStore.writeChunk("/e/0", "u", 0, 100, bytes(0, 50), false);
+    memoryStore.writeChunk("/e/0", "u", 20, 100, bytes(20, 40), false);
+    try {
+      memoryStore.writeChunk("/e/0", "u", 0, 100, bytes(0, 10), true);
+      fail("Incomplete block was published");
+    } catch (StarGateException e) {
+      assertFalse(memoryStore.exists("/e/0"));
+    }
+
+    memoryStore.writeChunk("/e/0", "u", 60, 100, bytes(60, 30), false);
+    memoryStore.writeChunk("/e/0", "u", 0, 100, bytes(0, 60), false);
+    memoryStore.writeChunk("/e/0", "u", 85, 100, bytes(85, 15), true);
+    assertEquals(bytes(0, 100), memoryStore.readBytes("/e/0"));
+  }
+
+  @Test
+  public void testChunkPastCapacity() throws StarGateException {
+    memoryStore.writeChunk("/e/0", "u", 0, 100, bytes(0, 50), false);
+    try {
+      memoryStore.writeChunk("/e/0", "u", 90, 100, bytes(90, 20), false);
+      fail("Chunk past the capacity was accepted");
+    } catch (StarGateException e) {
+      // The upload is dropped with its bytes
+      assertEquals(0, memoryStore.getPendingBytes());
+    }
+    try {
+      memoryStore.writeChunk("/e/0", "u", 50, 100, bytes(50, 50), true);
+      fail("Incomplete block was published");
+    } catch (StarGateException e) {
+      assertFalse(memoryStore.exists("/e/0"));
+    }
+  }
+
+  @Test
+  public void testConcurrentUploads() throws StarGateException {
+    memoryStore.writeChunk("/e/0", "u1", 0, 4, bytes(0, 2), false);
+    memoryStore.writeChunk("/e/0", "u2", 0, 6, bytes(10, 3), false);
+    memoryStore.writeChunk("/e/0", "u1", 2, 4, bytes(2, 2), true);
+    assertEquals(bytes(0, 4), memoryStore.readBytes("/e/0"));
+    memoryStore.writeChunk("/e/0", "u2", 3, 6, bytes(13, 3), true);
+    assertEquals(bytes(10, 6), memoryStore.readBytes("/e/0"));
+  }
+
+  @Test
+  public void testUploadCapacity() throws StarGateException {
+    memoryStore.setCapacity(100);
+    memoryStore.writeBytes("/e/0", ByteBuffer.allocate(40));
+    memoryStore.writeChunk("/e/1", "u1", 0, 50, bytes(0, 10), false);
+    try {
+      memoryStore.writeChunk("/e/2", "u2", 0, 20, bytes(0, 10), false);
+      fail("Upload past the store capacity was accepted");
+    } catch (StarGateException e) {
+      assertEquals(50, memoryStore.getPendingBytes());
+    }
+    try {
+      memoryStore.writeChunk("/e/3", "u3", 0, 1L << 32, bytes(0, 10), false);
+      fail("Upload of more than 2 GB was accepted");
+    } catch (StarGateException e) {
+      assertNull(memoryStore.readBytes("/e/3"));
+    }
+  }
+
+  @Test
+  public void testUploadTimeout() throws Exception {
+    memoryStore.setUploadTimeout(10);
+    memoryStore.writeChunk("/e/0", "u1", 0, 100, bytes(0, 50), false);
+    Thread.sleep(50);
+    // Any later chunk sweeps the idle upload
+    memoryStore.writeChunk("/e/1", "u2", 0, 10, bytes(0, 5), false);
+    assertEquals(10, memoryStore.getPendingBytes());
+    try {
+      memoryStore.writeChunk("/e/0", "u1", 50, 100, bytes(50, 50), true);
+      fail("Expired upload was published");
+    } catch (StarGateException e) {
+      assertFalse(memoryStore.exists("/e/0"));
+    }
+  }
+}
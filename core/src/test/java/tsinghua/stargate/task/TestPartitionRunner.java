@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class TestPartitionRunner {
+
+  /** Processes its blocks until {@code stopAfter} of them are processed. */
+  private static class FakePartition
+      implements PartitionRunner.Partition<String> {
+
+    private final Map<String, ByteBuffer> blocks = new LinkedHashMap<>();
+    private final Iterator<String> names;
+    private final int stopAfter;
+    private final CountDownLatch await;
+    private int processed = 0;
+
+    FakePartition(int first, int count, int stopAfter, CountDownLatch await) {
+      for (int i = first; i < first + count; i++) {
+        blocks.put("block-" + i, ByteBuffer.allocate(0));
+      }
+      this.names = new ArrayList<>(blocks.keySet()).iterator();
+      this.stopAfter = stopAfter;
+      this.await = await;
+    }
+
+    @Override
+    public String process() throws IOException {
+      if (processed == 0 && await != null) {
+        try {
+          await.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      }
+      if (processed >= stopAfter || !names.hasNext()) {
+        return null;
+      }
+      processed++;
+      return "result-of-" + names.next();
+    }
+
+    @Override
+    public boolean isComplete() {
+      return !names.hasNext();
+    }
+
+    @Override
+    public Map<String, ByteBuffer> takeBlocks(boolean all) {
+      Map<String, ByteBuffer> taken = new LinkedHashMap<>();
+      List<String> keys = new ArrayList<>(blocks.keySet());
+      for (String key : all ? keys : keys.subList(processed, keys.size())) {
+        taken.put(key, blocks.get(key));
+      }
+      return taken;
+    }
+  }
+
+  private static List<String> results(int first, int last) {
+    List<String> results = new ArrayList<>();
+    for (int i = first; i <= last; i++) {
+      results.add("result-of-block-" + i);
+    }
+    return results;
+  }
+
+  @Test
+  public void testBlockOrder() throws Exception {
+    // The second partition finishes before the first one starts
+    CountDownLatch secondDone = new CountDownLatch(1);
+    FakePartition first = new FakePartition(0, 3, 3, secondDone);
+    FakePartition second = new FakePartition(3, 3, 3, null) {
+      @Override
+      public String process() throws IOException {
+        String result = super.process();
+        if (result == null) {
+          secondDone.countDown();
+        }
+        return result;
+      }
+    };
+
+    List<String> written = new ArrayList<>();
+    PartitionRunner<String> runner =
+        new PartitionRunner<>(Arrays.asList(first, second));
+    assertTrue(runner.run(written::add));
+    assertEquals(results(0, 5), written);
+    assertTrue(runner.takeRemaining().isEmpty());
+  }
+
+  @Test
+  public void testPreemptTwoPartitions() throws Exception {
+    // Preempted after two blocks of the first and all of the second
+    FakePartition first = new FakePartition(0, 4, 2, null);
+    FakePartition second = new FakePartition(4, 4, 4, null);
+
+    List<String> written = new ArrayList<>();
+    PartitionRunner<String> runner =
+        new PartitionRunner<>(Arrays.asList(first, second));
+    assertFalse(runner.run(written::add));
+    // Only the prefix of the blocks is written, the rest is handed back
+    assertEquals(results(0, 1), written);
+    assertEquals(
+        Arrays.asList("block-2", "block-3", "block-4", "block-5", "block-6",
+            "block-7"),
+        new ArrayList<>(runner.takeRemaining().keySet()));
+  }
+
+  @Test
+  public void testPreemptLastPartition() throws Exception {
+    FakePartition first = new FakePartition(0, 2, 2, null);
+    FakePartition second = new FakePartition(2, 3, 1, null);
+
+    List<String> written = new ArrayList<>();
+    PartitionRunner<String> runner =
+        new PartitionRunner<>(Arrays.asList(first, second));
+    assertFalse(runner.run(written::add));
+    assertEquals(results(0, 2), written);
+    assertEquals(Arrays.asList("block-3", "block-4"),
+        new ArrayList<>(runner.takeRemaining().keySet()));
+  }
+
+  @Test(expected = IOException.class)
+  public void testFailure() throws Exception {
+    FakePartition first = new FakePartition(0, 2, 2, null);
+    FakePartition failing = new FakePartition(2, 2, 2, null) {
+      @Override
+      public String process() throws IOException {
+        throw new IOException("Failed on the accelerator");
+      }
+    };
+    new PartitionRunner<>(Arrays.asList(first, failing))
+        .run(result -> {
+        });
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TestTaskTimeline {
+
+  @Test
+  public void testPhaseTimes() throws Exception {
+    TaskTimeline timeline = new TaskTimeline();
+    timeline.mark(TaskPhase.QUEUE);
+    timeline.mark(TaskPhase.RUN);
+    Thread.sleep(20);
+    timeline.addWriteTime(5000000);
+    timeline.mark(TaskPhase.EXIT);
+    // Preempted, runs again
+    timeline.mark(TaskPhase.QUEUE);
+    timeline.mark(TaskPhase.RUN);
+    timeline.finish();
+    timeline.mark(TaskPhase.EXIT);
+
+    Map<String, Long> times = timeline.getPhaseTimes();
+    assertEquals(Arrays.asList("submit", "queue", "run", "write", "exit"),
+        new ArrayList<>(times.keySet()));
+    assertEquals(5000, (long) times.get("write"));
+    assertTrue(times.get("run") >= 15000);
+    assertTrue(timeline.isFinished());
+  }
+
+  @Test
+  public void testTrace() throws Exception {
+    TaskTimeline timeline = new TaskTimeline();
+    timeline.mark(TaskPhase.RUN);
+    timeline.addWriteTime(1000);
+    timeline.finish();
+
+    StringBuilder trace = new StringBuilder();
+    timeline.writeTrace(trace, 42, "task \"1\"");
+    String[] events = trace.toString().split("\n");
+    assertEquals(4, events.length);
+    assertTrue(events[0].contains("\"ph\":\"M\""));
+    assertTrue(events[0].contains("\"name\":\"task \\\"1\\\"\""));
+    assertTrue(events[1].startsWith("{\"name\":\"submit\""));
+    assertTrue(events[2].startsWith("{\"name\":\"run\""));
+    assertTrue(events[3].startsWith("{\"name\":\"write\""));
+    for (String event : events) {
+      assertTrue(event.contains("\"pid\":42"));
+      assertTrue(event.endsWith("},"));
+    }
+  }
+
+  @Test
+  public void testTracer() throws Exception {
+    File file = File.createTempFile("stargate-trace", ".json");
+    TaskTracer tracer = TaskTracer.get();
+    try {
+      tracer.open(file.getPath());
+      for (int i = 0; i < 3; i++) {
+        TaskTimeline timeline = new TaskTimeline();
+        timeline.mark(TaskPhase.RUN);
+        timeline.finish();
+        tracer.trace("task_" + i, timeline);
+      }
+      // Closing writes what is still queued
+      tracer.close();
+      assertFalse(tracer.isEnabled());
+
+      List<String> lines =
+          Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+      assertEquals("[", lines.get(0));
+      // Metadata, submit and run events of every task, in order
+      assertEquals(1 + 3 * 3, lines.size());
+      assertTrue(lines.get(1).contains("\"name\":\"task_0\""));
+      assertTrue(lines.get(7).contains("\"name\":\"task_2\""));
+    } finally {
+      tracer.close();
+      file.delete();
+    }
+  }
+}
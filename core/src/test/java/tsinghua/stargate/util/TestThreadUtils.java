@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tsinghua.stargate.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestThreadUtils {
+
+  private final ThreadUtils threads = ThreadUtils.getExecutor();
+
+  /** Run a task and return the thread it ran on. */
+  private static Thread runOn(ExecutorService executor) throws Exception {
+    try {
+      return executor.submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static boolean isVirtual(Thread thread) throws Exception {
+    try {
+      return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    } catch (NoSuchMethodException e) {
+      // Before Java 21 every thread is a platform thread
+      return false;
+    }
+  }
+
+  @Test
+  public void testVirtualThreadSupport() throws Exception {
+    boolean expected;
+    try {
+      Thread.class.getMethod("ofVirtual");
+      expected = true;
+    } catch (NoSuchMethodException e) {
+      expected = false;
+    }
+    assertEquals(expected, threads.isVirtualThreadSupported());
+  }
+
+  @Test
+  public void testPlatformThreads() throws Exception {
+    ExecutorService executor =
+        threads.newBlockingTaskExecutor("Blocking", 2, false);
+    assertTrue(executor instanceof ThreadPoolExecutor);
+    assertEquals(2, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+    Thread thread = runOn(executor);
+    assertFalse(isVirtual(thread));
+    assertTrue(thread.getName().startsWith("Blocking-"));
+  }
+
+  @Test
+  public void testVirtualThreads() throws Exception {
+    ExecutorService executor =
+        threads.newBlockingTaskExecutor("Blocking", 2, true);
+    boolean supported = threads.isVirtualThreadSupported();
+    // Without virtual threads the pool of platform threads is kept
+    assertEquals(!supported, executor instanceof ThreadPoolExecutor);
+    Thread thread = runOn(executor);
+    assertEquals(supported, isVirtual(thread));
+    assertTrue(thread.getName().startsWith("Blocking-"));
+
+    if (supported) {
+      thread = runOn(threads.newVirtualThreadPerTaskExecutor("Virtual"));
+      assertTrue(isVirtual(thread));
+      assertTrue(thread.getName().startsWith("Virtual-"));
+    } else {
+      try {
+        threads.newVirtualThreadPerTaskExecutor("Virtual");
+        fail("Virtual thread executor created without virtual threads");
+      } catch (UnsupportedOperationException e) {
+        // Expected
+      }
+    }
+  }
+}
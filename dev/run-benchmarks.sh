@@ -0,0 +1,74 @@
+#!/usr/bin/env bash
+
+#
+# Copyright 2017 The Tsinghua University
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Runs the JMH benchmarks and stores the results as JSON, named after the
+# current commit, so that runs on different commits can be compared.
+#
+# Usage: dev/run-benchmarks.sh [JMH options] [benchmark regexps]
+#
+#   BENCH_RESULTS_DIR  where to store results, defaults to benchmarks/results
+#   BENCH_REBUILD      rebuild the benchmarks jar even if it exists
+
+if [ -z "${STARGATE_HOME}" ]; then
+  export STARGATE_HOME="$(cd "`dirname "$0"`"/..; pwd)"
+fi
+
+BENCH_JAR="${STARGATE_HOME}/benchmarks/target/benchmarks.jar"
+RESULTS_DIR="${BENCH_RESULTS_DIR:-${STARGATE_HOME}/benchmarks/results}"
+NATIVE_LIB_PATH="${STARGATE_HOME}/core/src/main/native/out"
+
+# Find the java binary
+if [ -n "${JAVA_HOME}" ]; then
+  RUNNER="${JAVA_HOME}/bin/java"
+else
+  if [ `command -v java` ]; then
+    RUNNER="java"
+  else
+    echo "JAVA_HOME is not set" >&2
+    exit 1
+  fi
+fi
+
+if [ ! -f "${BENCH_JAR}" ] || [ -n "${BENCH_REBUILD}" ]; then
+  (cd "${STARGATE_HOME}" && \
+    mvn -B -q -Pbenchmarks -pl benchmarks -am package -DskipTests) || exit 1
+fi
+
+# Name the results after the commit, marking runs on uncommitted changes
+COMMIT="$(cd "${STARGATE_HOME}" && git rev-parse --short HEAD 2>/dev/null)"
+COMMIT="${COMMIT:-unknown}"
+if [ -n "$(cd "${STARGATE_HOME}" && git status --porcelain -uno 2>/dev/null)" ]
+then
+  COMMIT="${COMMIT}-dirty"
+fi
+mkdir -p "${RESULTS_DIR}"
+RESULT_FILE="${RESULTS_DIR}/${COMMIT}-$(date +%Y%m%d%H%M%S).json"
+
+# The io benchmarks run against a loopback dispatcher but still load the JNI
+# library of the daemon, skip them if it was not built
+EXCLUDES=()
+if ! ls "${NATIVE_LIB_PATH}"/libio.* > /dev/null 2>&1; then
+  echo "No JNI library in ${NATIVE_LIB_PATH}, skipping IOBenchmark" >&2
+  EXCLUDES=(-e IOBenchmark)
+fi
+
+"${RUNNER}" -jar "${BENCH_JAR}" \
+  -jvmArgsAppend "-Djava.library.path=${NATIVE_LIB_PATH}" \
+  -rf json -rff "${RESULT_FILE}" "${EXCLUDES[@]}" "$@" || exit 1
+
+echo "Results stored in ${RESULT_FILE}"
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.examples;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import tsinghua.stargate.api.AcceleratorRequest;
+import tsinghua.stargate.api.AcceleratorResponse;
+import tsinghua.stargate.api.StarGateApp;
+import tsinghua.stargate.api.StarGateAppState;
+import tsinghua.stargate.api.impl.AcceleratorResponseImpl;
+
+/**
+ * A loopback job which emulates its accelerator instead of talking to a card,
+ * so that daemons without cards can be loaded with realistic jobs.
+ *
+ * <p>
+ * Each request holds its core for a fixed service time, given in microseconds
+ * by the {@code stargate.loadgen.service-us} system property of the daemon
+ * (1000 by default), plus the time a 1 GB/s DMA engine would take to move
+ * the input both ways. The input blocks are echoed back as results.
+ */
+public class EmulatedLoopback implements StarGateApp {
+
+  private static final long serialVersionUID = 9528L;
+
+  private static final long SERVICE_NANOS = TimeUnit.MICROSECONDS
+      .toNanos(Long.getLong("stargate.loadgen.service-us", 1000));
+  /** Nanoseconds to move a byte to the card or back at 1 GB/s. */
+  private static final double NANOS_PER_BYTE = 1.0;
+
+  @Override
+  public AcceleratorResponse accelerate(AcceleratorRequest request)
+      throws IOException {
+    List<ByteBuffer> results = new ArrayList<>();
+    long bytes = 0;
+    Map<String, ByteBuffer> input = request.getInputData();
+    if (input != null) {
+      for (ByteBuffer block : input.values()) {
+        bytes += block.remaining();
+        results.add(block.duplicate());
+      }
+    }
+
+    long deadline =
+        System.nanoTime() + SERVICE_NANOS + (long) (2 * bytes * NANOS_PER_BYTE);
+    long left;
+    while ((left = deadline - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(left);
+    }
+    return new AcceleratorResponseImpl(StarGateAppState.SUCCESS, results);
+  }
+}
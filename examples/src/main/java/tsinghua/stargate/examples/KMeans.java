@@ -37,6 +37,16 @@ import tsinghua.stargate.util.FpgaUtils;
 import tsinghua.stargate.util.PathUtils;
 import tsinghua.stargate.util.Utils;
 
+/**
+ * Clusters the points under {@code SOURCE_PATH} on an FPGA.
+ *
+ * <p>
+ * The result under {@code RESULT_PATH} is binary, all native-order 32-bit
+ * floats: the label of each of the first 100 points, followed by the
+ * coordinates of the {@code MIN_CLUSTERS} centroids, centroid by centroid,
+ * one per input column. Pass {@code --text} to write the formatted text of
+ * {@link TextKMeans} instead.
+ */
 public class KMeans implements StarGateApp {
 
   private static final String PROJECT_ROOT = PathUtils.root();
@@ -69,12 +79,14 @@ public class KMeans implements StarGateApp {
   private static final int MIN_CLUSTERS = 5;
   private static final int MAX_CLUSTERS = 5;
   private static final float THRESHOLD = 0.01f;
+  private static final int LABELS = 100;
 
   public static void main(String[] args) {
+    boolean text = Arrays.asList(args).contains("--text");
     StarGateConf sgConf = new StarGateConf().setAppName("KMeans")
         .setWorker(Worker.FPGA).setWorkload("kmeans")
-        .setProcessor(getProcessors()).setInSD(getInSD()).setOutSD(getOutSD())
-        .setResource(Utils.getExampleJar());
+        .setProcessor(getProcessors(text)).setInSD(getInSD())
+        .setOutSD(getOutSD()).setResource(Utils.getExampleJar());
 
     StarGateContext sgc = new StarGateContext(sgConf);
     try {
@@ -84,10 +96,11 @@ public class KMeans implements StarGateApp {
     }
   }
 
-  private static Map<String, String> getProcessors() {
+  private static Map<String, String> getProcessors(boolean text) {
     Map<String, String> processors = new HashMap<>();
     processors.put(StarGateApp.class.getSimpleName(),
-        KMeans.class.getCanonicalName());
+        text ? Utils.getClassName(TextKMeans.class)
+            : KMeans.class.getCanonicalName());
     processors.put(RecordReader.class.getSimpleName(),
         Utils.getClassName(KMeansRR.class));
     return processors;
@@ -128,41 +141,18 @@ public class KMeans implements StarGateApp {
     // Send prepared data to simulation environment or hardware.
     ah.send(sndBuf);
 
-    // Receive the computing result of kmeans.
+    // Receive the computing result of kmeans: a count, 100 labels, a count
+    // and the centroid coordinates, all floats.
     int numbers = params.getMinNclusters() * params.getRow() * 4;
-    // 700
-    System.out.println("\nnumbers = " + numbers + "\n");
-    ByteBuffer rcvBuf = ByteBuffer.allocate(4 + 400 + 4 + numbers);
-    FloatBuffer floatBuf =
-        rcvBuf.order(ByteOrder.nativeOrder()).asFloatBuffer();
+    ByteBuffer rcvBuf =
+        ByteBuffer.allocateDirect(4 + LABELS * 4 + 4 + numbers)
+            .order(ByteOrder.nativeOrder());
     ah.receive(rcvBuf);
 
-    // Format and print results.
-    StringBuilder sb = new StringBuilder();
-    sb.append("\n################ label ################\n");
-    // 404.0
-    System.out.println("floatBuf.get(0) = " + floatBuf.get(0));
-    for (int i = 0; i < 100; i++) {
-      if ((i != 0) && (i % 10 == 0)) {
-        sb.append('\n');
-      }
-      sb.append(floatBuf.get(1 + i) + " ");
-    }
-    sb.append('\n');
-    sb.append(
-        "\n################ Centroid Coordinates ################\n");
-    for (int i = 0; i < params.getMinNclusters(); i++) {
-      sb.append(i + ": ");
-      for (int j = 0; j < params.getRow(); j++) {
-        sb.append(floatBuf.get(1 + 100 + 1 + i * params.getRow() + j) + " ");
-      }
-      sb.append('\n');
-    }
-    System.out.println(sb.toString());
-
-    // Prepare response for output to `RESULT_PATH`
-    List<ByteBuffer> bufs = new ArrayList<>();
-    bufs.add(ByteBuffer.wrap(sb.toString().getBytes()));
+    ByteBuffer labels = segment(rcvBuf, 4, LABELS * 4);
+    ByteBuffer centroids = segment(rcvBuf, 4 + LABELS * 4 + 4, numbers);
+    List<ByteBuffer> bufs =
+        output(labels, centroids, params.getMinNclusters(), params.getRow());
 
     // Close handler
     ah.close();
@@ -170,6 +160,32 @@ public class KMeans implements StarGateApp {
     return new AcceleratorResponseImpl(StarGateAppState.SUCCESS, bufs);
   }
 
+  /**
+   * Prepare the result for output to `RESULT_PATH`.
+   *
+   * @param labels the labels of the points, native-order floats
+   * @param centroids the coordinates of the centroids, native-order floats
+   * @param clusters the number of centroids
+   * @param dims the number of coordinates of a centroid
+   * @return the segments of the result
+   */
+  protected List<ByteBuffer> output(ByteBuffer labels, ByteBuffer centroids,
+      int clusters, int dims) {
+    // Hand the segments of the received buffer over as they are, without
+    // copying or formatting them.
+    List<ByteBuffer> bufs = new ArrayList<>();
+    bufs.add(labels);
+    bufs.add(centroids);
+    return bufs;
+  }
+
+  private static ByteBuffer segment(ByteBuffer buf, int offset, int length) {
+    ByteBuffer segment = buf.duplicate();
+    segment.limit(offset + length);
+    segment.position(offset);
+    return segment.slice().order(ByteOrder.nativeOrder());
+  }
+
   private void setParams(int rowNum, int colNum) {
     params.setType(TYPE);
     params.setWriteOverTime(TIMEOUT);
@@ -184,6 +200,38 @@ public class KMeans implements StarGateApp {
     params.setAccelerateBitPath(BITSTREAM_PATH);
   }
 
+  /** Writes the result of {@link KMeans} as formatted text. */
+  public static class TextKMeans extends KMeans {
+
+    @Override
+    protected List<ByteBuffer> output(ByteBuffer labels, ByteBuffer centroids,
+        int clusters, int dims) {
+      FloatBuffer labelBuf = labels.asFloatBuffer();
+      FloatBuffer centroidBuf = centroids.asFloatBuffer();
+      StringBuilder sb = new StringBuilder();
+      sb.append("\n################ label ################\n");
+      for (int i = 0; i < labelBuf.limit(); i++) {
+        if ((i != 0) && (i % 10 == 0)) {
+          sb.append('\n');
+        }
+        sb.append(labelBuf.get(i) + " ");
+      }
+      sb.append('\n');
+      sb.append(
+          "\n################ Centroid Coordinates ################\n");
+      for (int i = 0; i < clusters; i++) {
+        sb.append(i + ": ");
+        for (int j = 0; j < dims; j++) {
+          sb.append(centroidBuf.get(i * dims + j) + " ");
+        }
+        sb.append('\n');
+      }
+      List<ByteBuffer> bufs = new ArrayList<>();
+      bufs.add(ByteBuffer.wrap(sb.toString().getBytes()));
+      return bufs;
+    }
+  }
+
   public static class KMeansRR implements RecordReader {
 
     private Map<Long, Long> row2Bytes = new LinkedHashMap<>();
@@ -0,0 +1,439 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.examples;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import tsinghua.stargate.Log;
+import tsinghua.stargate.StarGateContext;
+import tsinghua.stargate.api.StarGateApp;
+import tsinghua.stargate.conf.StarGateConf;
+import tsinghua.stargate.exception.StarGateException;
+import tsinghua.stargate.exception.StarGateRuntimeException;
+import tsinghua.stargate.rpc.message.entity.ApplicationReport;
+import tsinghua.stargate.rpc.message.entity.Worker;
+import tsinghua.stargate.util.ThreadUtils;
+import tsinghua.stargate.util.Utils;
+
+/**
+ * Open-loop load generator for a local StarGateDaemon.
+ *
+ * <p>
+ * Jobs running {@link EmulatedLoopback} are submitted through
+ * {@link StarGateContext} at the given arrival rates, one rate per step of the
+ * run, whether or not the daemon keeps up. The submission latency of a job is
+ * measured from the time it was due, so that a daemon slowing down the
+ * submitting threads does not hide its own latency. Every reporting interval a
+ * line gives the submission latency percentiles, the completion throughput and,
+ * if the daemon serves its metrics over HTTP, the depth of its dispatcher
+ * queue and the number of tasks waiting in its scheduler.
+ *
+ * <p>
+ * Start the daemon with cards serving the {@code loopback} workload and with
+ * {@code stargate.metrics.http.port} set, then run e.g. {@code bin/stargate
+ * loadgen --rates 10,50,100 --metrics-url http://localhost:9091/metrics}.
+ */
+public class LoadGenerator extends Log {
+
+  private static final double[] PERCENTILES = {50, 90, 99};
+  private static final String DISPATCHER_QUEUE =
+      "stargate_dispatcher_queue_depth";
+  private static final String SCHEDULER_WAITING =
+      "stargate_scheduler_waiting_tasks";
+
+  private final List<Double> rates;
+  private final long stepNanos;
+  private final boolean poisson;
+  private final String workload;
+  private final long pollMillis;
+  private final long reportMillis;
+  private final long drainMillis;
+  private final String metricsUrl;
+  private final Random random;
+  private final PrintStream out;
+
+  private final ThreadPoolExecutor submitters;
+  private final ScheduledExecutorService timers =
+      new ScheduledThreadPoolExecutor(2);
+  private final Map<String, String> resources = Utils.getExampleJar();
+
+  private final Queue<Job> inFlight = new ConcurrentLinkedQueue<>();
+  /** Submission latencies of the current interval, in microseconds. */
+  private volatile Queue<Long> intervalLatencies =
+      new ConcurrentLinkedQueue<>();
+  private final Queue<Long> submitLatencies = new ConcurrentLinkedQueue<>();
+  private final Queue<Long> completionLatencies =
+      new ConcurrentLinkedQueue<>();
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder intervalCompleted = new LongAdder();
+
+  private volatile double offeredRate;
+  private long startTime;
+  private long lastCompletionTime;
+
+  LoadGenerator(List<Double> rates, long stepSeconds, boolean poisson,
+      String workload, int numSubmitters, long pollMillis, long reportMillis,
+      long drainSeconds, String metricsUrl, long seed, PrintStream out) {
+    this.rates = rates;
+    this.stepNanos = TimeUnit.SECONDS.toNanos(stepSeconds);
+    this.poisson = poisson;
+    this.workload = workload;
+    this.pollMillis = pollMillis;
+    this.reportMillis = reportMillis;
+    this.drainMillis = TimeUnit.SECONDS.toMillis(drainSeconds);
+    this.metricsUrl = metricsUrl;
+    this.random = new Random(seed);
+    this.out = out;
+    this.submitters = ThreadUtils.getExecutor()
+        .newDaemonCachedThreadPool("LoadGenerator", numSubmitters);
+  }
+
+  /**
+   * Offer every arrival rate in turn, then wait for the jobs in flight to
+   * finish and print a summary.
+   */
+  void run() throws InterruptedException {
+    startTime = System.nanoTime();
+    out.println("time_s offered_per_s submitted_per_s submit_p50_ms "
+        + "submit_p99_ms submit_max_ms completed_per_s failed in_flight "
+        + "dispatcher_queue scheduler_waiting");
+    timers.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis,
+        TimeUnit.MILLISECONDS);
+    timers.scheduleAtFixedRate(this::report, reportMillis, reportMillis,
+        TimeUnit.MILLISECONDS);
+
+    generate();
+    offeredRate = 0;
+
+    long drainEnd = System.currentTimeMillis() + drainMillis;
+    while ((!inFlight.isEmpty() || isSubmitting())
+        && System.currentTimeMillis() < drainEnd) {
+      Thread.sleep(pollMillis);
+    }
+    timers.shutdownNow();
+    submitters.shutdownNow();
+    report();
+    printSummary();
+  }
+
+  private void generate() {
+    long next = System.nanoTime();
+    for (double rate : rates) {
+      info("Offering {} jobs/s for {} s", rate,
+          TimeUnit.NANOSECONDS.toSeconds(stepNanos));
+      offeredRate = rate;
+      long end = next + stepNanos;
+      while ((next += interarrival(rate)) < end) {
+        long left;
+        while ((left = next - System.nanoTime()) > 0) {
+          LockSupport.parkNanos(left);
+        }
+        final long due = next;
+        submitters.execute(() -> submit(due));
+      }
+      next = end;
+    }
+  }
+
+  private long interarrival(double rate) {
+    double seconds = poisson ? -Math.log(1 - random.nextDouble()) / rate
+        : 1 / rate;
+    return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+  }
+
+  private boolean isSubmitting() {
+    return submitters.getActiveCount() > 0
+        || !submitters.getQueue().isEmpty();
+  }
+
+  private void submit(long due) {
+    StarGateContext context = new StarGateContext(newJob());
+    try {
+      context.submit();
+    } catch (StarGateException | StarGateRuntimeException e) {
+      debug("Failed to submit a job: {}", e.getMessage());
+      rejected.increment();
+      return;
+    }
+    long latency = (System.nanoTime() - due) / 1000;
+    intervalLatencies.add(latency);
+    submitLatencies.add(latency);
+    submitted.increment();
+    inFlight.add(new Job(context, due));
+  }
+
+  private StarGateConf newJob() {
+    Map<String, String> processor = new HashMap<>();
+    processor.put(StarGateApp.class.getSimpleName(),
+        EmulatedLoopback.class.getCanonicalName());
+    return new StarGateConf().setAppName("LoadGenerator")
+        .setWorker(Worker.FPGA).setWorkload(workload).setProcessor(processor)
+        .setResource(resources);
+  }
+
+  /** Poll the reports of the jobs in flight, retiring the finished ones. */
+  private void poll() {
+    for (Iterator<Job> it = inFlight.iterator(); it.hasNext();) {
+      Job job = it.next();
+      ApplicationReport report;
+      try {
+        report = job.context.getApplicationReport();
+      } catch (StarGateException | StarGateRuntimeException e) {
+        debug("Failed to poll a job: {}", e.getMessage());
+        continue;
+      }
+      if (report == null) {
+        continue;
+      }
+      switch (report.getApplicationState()) {
+      case FINISHED:
+        lastCompletionTime = System.nanoTime();
+        completionLatencies.add((lastCompletionTime - job.due) / 1000);
+        completed.increment();
+        intervalCompleted.increment();
+        it.remove();
+        break;
+      case FAILED:
+      case KILLED:
+        failed.increment();
+        it.remove();
+        break;
+      default:
+        break;
+      }
+    }
+  }
+
+  private void report() {
+    Queue<Long> latencies = intervalLatencies;
+    intervalLatencies = new ConcurrentLinkedQueue<>();
+    long[] sorted = toSortedArray(latencies);
+    double seconds = reportMillis / 1000.0;
+    Map<String, Long> metrics = scrape();
+
+    out.printf("%.1f %.1f %.1f %.3f %.3f %.3f %.1f %d %d %s %s%n",
+        (System.nanoTime() - startTime) / 1e9, offeredRate,
+        sorted.length / seconds, percentile(sorted, 50) / 1000.0,
+        percentile(sorted, 99) / 1000.0, percentile(sorted, 100) / 1000.0,
+        intervalCompleted.sumThenReset() / seconds, failed.sum(),
+        inFlight.size(), format(metrics.get(DISPATCHER_QUEUE)),
+        format(metrics.get(SCHEDULER_WAITING)));
+  }
+
+  /**
+   * Read the gauges of the daemon from its metrics endpoint.
+   *
+   * @return the value of each sample by its name and labels, empty if the
+   *         endpoint is not set or can not be reached
+   */
+  private Map<String, Long> scrape() {
+    Map<String, Long> metrics = new HashMap<>();
+    if (metricsUrl == null) {
+      return metrics;
+    }
+    try {
+      URLConnection connection = new URL(metricsUrl).openConnection();
+      connection.setConnectTimeout((int) reportMillis);
+      connection.setReadTimeout((int) reportMillis);
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+          connection.getInputStream(), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          int space = line.lastIndexOf(' ');
+          if (line.startsWith("#") || space < 0) {
+            continue;
+          }
+          try {
+            metrics.put(line.substring(0, space),
+                Long.parseLong(line.substring(space + 1)));
+          } catch (NumberFormatException e) {
+            // Not a gauge, e.g. +Inf
+          }
+        }
+      }
+    } catch (IOException e) {
+      debug("Failed to scrape {}: {}", metricsUrl, e.getMessage());
+    }
+    return metrics;
+  }
+
+  private void printSummary() {
+    long[] submits = toSortedArray(submitLatencies);
+    long[] completions = toSortedArray(completionLatencies);
+    double makespan = (Math.max(lastCompletionTime, startTime) - startTime)
+        / 1e9;
+    out.printf("Jobs: %d submitted, %d rejected, %d completed, %d failed, "
+        + "%d unfinished%n", submitted.sum(), rejected.sum(), completed.sum(),
+        failed.sum(), inFlight.size());
+    out.printf("Throughput: %.3f jobs/s%n",
+        makespan > 0 ? completed.sum() / makespan : 0.0);
+    out.printf("Submission latency (ms): %s%n", formatLatencies(submits));
+    out.printf("Completion latency (ms): %s%n", formatLatencies(completions));
+  }
+
+  private static long[] toSortedArray(Iterable<Long> values) {
+    List<Long> list = new ArrayList<>();
+    for (Long value : values) {
+      list.add(value);
+    }
+    long[] array = new long[list.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = list.get(i);
+    }
+    Arrays.sort(array);
+    return array;
+  }
+
+  /** Nearest-rank percentile of sorted values, 0 if there are none. */
+  private static long percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+    return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+  }
+
+  private static String formatLatencies(long[] sorted) {
+    StringBuilder builder = new StringBuilder();
+    for (double p : PERCENTILES) {
+      builder.append('p').append((int) p).append('=')
+          .append(String.format("%.3f", percentile(sorted, p) / 1000.0))
+          .append(' ');
+    }
+    builder.append("max=")
+        .append(String.format("%.3f", percentile(sorted, 100) / 1000.0));
+    builder.append(" (n=").append(sorted.length).append(')');
+    return builder.toString();
+  }
+
+  private static String format(Long value) {
+    return value == null ? "-" : String.valueOf(value);
+  }
+
+  private static class Job {
+
+    private final StarGateContext context;
+    /** When the job was due to arrive, by {@link System#nanoTime()}. */
+    private final long due;
+
+    Job(StarGateContext context, long due) {
+      this.context = context;
+      this.due = due;
+    }
+  }
+
+  private static void printUsage() {
+    System.err.println("Usage: LoadGenerator [--rates <jobs/s>[,<jobs/s>...]]"
+        + " [--step-seconds <s>] [--fixed] [--workload <workload>]"
+        + " [--submitters <n>] [--poll-ms <ms>] [--report-ms <ms>]"
+        + " [--drain-seconds <s>] [--metrics-url <url>] [--seed <seed>]");
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    List<Double> rates = Collections.singletonList(10.0);
+    long stepSeconds = 30;
+    boolean poisson = true;
+    String workload = "loopback";
+    int numSubmitters = 64;
+    long pollMillis = 200;
+    long reportMillis = 1000;
+    long drainSeconds = 60;
+    String metricsUrl = null;
+    long seed = 42;
+
+    try {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+        case "--rates":
+          rates = new ArrayList<>();
+          for (String rate : args[++i].split(",")) {
+            rates.add(Double.parseDouble(rate));
+          }
+          break;
+        case "--step-seconds":
+          stepSeconds = Long.parseLong(args[++i]);
+          break;
+        case "--fixed":
+          poisson = false;
+          break;
+        case "--workload":
+          workload = args[++i];
+          break;
+        case "--submitters":
+          numSubmitters = Integer.parseInt(args[++i]);
+          break;
+        case "--poll-ms":
+          pollMillis = Long.parseLong(args[++i]);
+          break;
+        case "--report-ms":
+          reportMillis = Long.parseLong(args[++i]);
+          break;
+        case "--drain-seconds":
+          drainSeconds = Long.parseLong(args[++i]);
+          break;
+        case "--metrics-url":
+          metricsUrl = args[++i];
+          break;
+        case "--seed":
+          seed = Long.parseLong(args[++i]);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+      printUsage();
+      System.exit(1);
+    }
+    for (double rate : rates) {
+      if (rate <= 0) {
+        printUsage();
+        System.exit(1);
+      }
+    }
+
+    new LoadGenerator(rates, stepSeconds, poisson, workload, numSubmitters,
+        pollMillis, reportMillis, drainSeconds, metricsUrl, seed, System.out)
+            .run();
+    System.exit(0);
+  }
+}
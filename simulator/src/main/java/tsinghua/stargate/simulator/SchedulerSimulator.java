@@ -0,0 +1,303 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.simulator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import tsinghua.stargate.Log;
+import tsinghua.stargate.app.UserApp;
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.conf.StarGateConf;
+import tsinghua.stargate.event.Event;
+import tsinghua.stargate.event.EventHandler;
+import tsinghua.stargate.rpc.message.entity.ApplicationId;
+import tsinghua.stargate.scheduler.FairScheduler;
+import tsinghua.stargate.scheduler.SchedulableAccelerator;
+import tsinghua.stargate.scheduler.SchedulableTask;
+import tsinghua.stargate.scheduler.TaskAddedSchedulerEvent;
+import tsinghua.stargate.scheduler.TaskRemovedSchedulerEvent;
+import tsinghua.stargate.task.TaskAllocatedEvent;
+import tsinghua.stargate.task.TaskId;
+
+/**
+ * Discrete-event simulator of the {@link FairScheduler}.
+ *
+ * <p>
+ * The real scheduler, its queues and its accelerators are driven by a task
+ * trace in virtual time: tasks arrive at their traced time, a scheduling round
+ * runs every {@code stargate.scheduling.interval} milliseconds while tasks are
+ * waiting, and an allocated task holds its core for its traced duration. The
+ * accelerator topology is read from {@code stargate-core.xml} or the file
+ * given by {@code --conf}, so scheduling policies can be compared offline.
+ *
+ * <p>
+ * Reprogramming of reconfigurable accelerators runs in wall-clock time and is
+ * therefore not simulated.
+ */
+public class SchedulerSimulator extends Log implements EventHandler<Event> {
+
+  private final Configuration conf;
+  private final VirtualClock clock = new VirtualClock();
+  private final SimulatedContext context;
+  private final FairScheduler scheduler;
+  private final long interval;
+
+  private final PriorityQueue<SimulationEvent> events = new PriorityQueue<>();
+  private final Map<String, TaskRecord> records = new HashMap<>();
+  private long sequence;
+  private int arrivals;
+  private boolean tickPending;
+  /** Tasks which have arrived but have not been assigned a core yet. */
+  private int waiting;
+  private int allocatedInRound;
+
+  public SchedulerSimulator(Configuration conf) {
+    this.conf = conf;
+    this.context = new SimulatedContext(this);
+    this.scheduler = new FairScheduler(context);
+    scheduler.setClock(clock);
+    context.setScheduler(scheduler);
+    scheduler.loadResources(conf);
+    scheduler.init(conf);
+    interval = Math.max(1, conf.getInt(NameSpace.SCHEDULING_INTERVAL,
+        NameSpace.DEFAULT_SCHEDULING_INTERVAL));
+  }
+
+  /**
+   * Replay a trace until every accepted task has finished, or until no waiting
+   * task can ever be assigned a core.
+   *
+   * @param trace tasks sorted by arrival time
+   * @return the metrics of the run
+   */
+  public SimulationReport run(List<TraceEntry> trace) {
+    long begin = System.currentTimeMillis();
+    List<TaskRecord> submitted = new ArrayList<>(trace.size());
+    for (TraceEntry entry : trace) {
+      TaskRecord record = new TaskRecord(entry);
+      submitted.add(record);
+      push(entry.getArrivalTime(), SimulationEventType.ARRIVAL, record);
+    }
+
+    SimulationEvent event;
+    while ((event = events.poll()) != null) {
+      clock.advanceTo(event.time);
+      switch (event.type) {
+      case ARRIVAL:
+        arrive(event.record);
+        break;
+      case COMPLETION:
+        complete(event.record);
+        break;
+      case SCHEDULE:
+        tick();
+        break;
+      default:
+        break;
+      }
+    }
+    scheduler.stop();
+
+    Map<String, Integer> cardCores = new HashMap<>();
+    for (SchedulableAccelerator card : scheduler.getNodeAccelerators()
+        .values()) {
+      cardCores.put(card.getHardwareId(), card.getTotalResources().size());
+    }
+    info("Simulated {} tasks ({} ms virtual) in {} ms", trace.size(),
+        clock.getTime(), System.currentTimeMillis() - begin);
+    return new SimulationReport(submitted, cardCores);
+  }
+
+  private void arrive(TaskRecord record) {
+    TraceEntry entry = record.getEntry();
+    int index = arrivals++;
+    ApplicationId appId = ApplicationId.newInstance(0, index);
+    TaskId taskId =
+        new TaskId(entry.getUserAppId(), appId, entry.getWorkload(), index);
+
+    UserApp app = context.getUserApps().get(entry.getUserAppId());
+    if (app == null) {
+      app = new SimulatedUserApp(entry.getUserAppId());
+      context.getUserApps().put(entry.getUserAppId(), app);
+    }
+    ((SimulatedUserApp) app)
+        .addTask(new SimulatedTask(taskId, entry.getWorkload()));
+    record.submit(taskId.getId());
+    records.put(taskId.getId(), record);
+
+    scheduler.handle(new TaskAddedSchedulerEvent(taskId));
+    if (!scheduler.getTasks().containsKey(taskId.getId())) {
+      record.reject();
+      return;
+    }
+    waiting++;
+    ensureTick();
+  }
+
+  private void complete(TaskRecord record) {
+    record.finish(clock.getTime());
+    records.remove(record.getTaskId());
+    scheduler.handle(new TaskRemovedSchedulerEvent(
+        record.getEntry().getUserAppId(), record.getTaskId()));
+    ensureTick();
+  }
+
+  private void tick() {
+    tickPending = false;
+    allocatedInRound = 0;
+    scheduler.schedule();
+    if (allocatedInRound == 0 && events.isEmpty() && waiting > 0) {
+      warn("{} tasks can never be assigned a core, stop at {} ms", waiting,
+          clock.getTime());
+      return;
+    }
+    ensureTick();
+  }
+
+  private void ensureTick() {
+    if (!tickPending && waiting > 0) {
+      push((clock.getTime() / interval + 1) * interval,
+          SimulationEventType.SCHEDULE, null);
+      tickPending = true;
+    }
+  }
+
+  private void push(long time, SimulationEventType type, TaskRecord record) {
+    events.add(new SimulationEvent(time, sequence++, type, record));
+  }
+
+  /** Receives the events the scheduler dispatches to the rest of a daemon. */
+  @Override
+  public void handle(Event event) {
+    if (!(event instanceof TaskAllocatedEvent)) {
+      return;
+    }
+    TaskAllocatedEvent allocated = (TaskAllocatedEvent) event;
+    String taskId = allocated.getTaskId().getId();
+    TaskRecord record = records.get(taskId);
+    SchedulableTask task = scheduler.getTasks().get(taskId);
+    record.start(clock.getTime(), task.getAllocatedHardWareId(),
+        allocated.getResource().getAcceleratorCoreId());
+    waiting--;
+    allocatedInRound++;
+    push(clock.getTime() + record.getEntry().getDuration(),
+        SimulationEventType.COMPLETION, record);
+  }
+
+  public Configuration getConf() {
+    return conf;
+  }
+
+  private enum SimulationEventType {
+    ARRIVAL, SCHEDULE, COMPLETION
+  }
+
+  private static class SimulationEvent
+      implements Comparable<SimulationEvent> {
+
+    private final long time;
+    private final long sequence;
+    private final SimulationEventType type;
+    private final TaskRecord record;
+
+    SimulationEvent(long time, long sequence, SimulationEventType type,
+        TaskRecord record) {
+      this.time = time;
+      this.sequence = sequence;
+      this.type = type;
+      this.record = record;
+    }
+
+    @Override
+    public int compareTo(SimulationEvent other) {
+      int res = Long.compare(time, other.time);
+      return res != 0 ? res : Long.compare(sequence, other.sequence);
+    }
+  }
+
+  private static void printUsage() {
+    System.err.println("Usage: SchedulerSimulator [--conf <stargate-core.xml>]"
+        + " (--trace <file> | --workload <workload:rate:mean-ms[:user]>..."
+        + " [--tasks <n>] [--seed <seed>]) [--dump-trace <file>]");
+  }
+
+  public static void main(String[] args) throws IOException {
+    Configuration conf = new StarGateConf();
+    Path tracePath = null;
+    Path dumpPath = null;
+    List<String> specs = new ArrayList<>();
+    int numTasks = 10000;
+    long seed = 42;
+
+    try {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+        case "--conf":
+          conf.addResource(Paths.get(args[++i]));
+          break;
+        case "--trace":
+          tracePath = Paths.get(args[++i]);
+          break;
+        case "--workload":
+          specs.add(args[++i]);
+          break;
+        case "--tasks":
+          numTasks = Integer.parseInt(args[++i]);
+          break;
+        case "--seed":
+          seed = Long.parseLong(args[++i]);
+          break;
+        case "--dump-trace":
+          dumpPath = Paths.get(args[++i]);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+      printUsage();
+      System.exit(1);
+    }
+
+    if ((tracePath == null) == specs.isEmpty()) {
+      printUsage();
+      System.exit(1);
+    }
+
+    List<TraceEntry> trace = tracePath != null ? Traces.load(tracePath)
+        : Traces.synthesize(specs, numTasks, seed);
+    if (dumpPath != null) {
+      try (Writer writer =
+          Files.newBufferedWriter(dumpPath, StandardCharsets.UTF_8)) {
+        Traces.write(trace, writer);
+      }
+    }
+
+    new SchedulerSimulator(conf).run(trace).print(System.out);
+  }
+}
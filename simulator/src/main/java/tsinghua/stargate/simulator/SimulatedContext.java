@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.simulator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import tsinghua.stargate.DaemonContext;
+import tsinghua.stargate.app.DaemonApp;
+import tsinghua.stargate.app.UserApp;
+import tsinghua.stargate.client.ClientService;
+import tsinghua.stargate.event.Dispatcher;
+import tsinghua.stargate.event.Event;
+import tsinghua.stargate.event.EventHandler;
+import tsinghua.stargate.rpc.message.entity.ApplicationId;
+import tsinghua.stargate.scheduler.Scheduler;
+import tsinghua.stargate.storage.BlockManagerService;
+import tsinghua.stargate.task.TaskManager;
+
+/**
+ * The daemon context seen by a simulated scheduler. Events are delivered
+ * synchronously to a single handler, the simulator, and services not involved
+ * in scheduling are absent.
+ */
+class SimulatedContext implements DaemonContext, Dispatcher {
+
+  private final EventHandler<Event> handler;
+  private final Map<String, UserApp> userApps = new HashMap<>();
+  private final ConcurrentHashMap<ApplicationId, DaemonApp> daemonApps =
+      new ConcurrentHashMap<>();
+  private Scheduler scheduler;
+
+  SimulatedContext(EventHandler<Event> handler) {
+    this.handler = handler;
+  }
+
+  void setScheduler(Scheduler scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  // -- Dispatcher machinery --
+
+  @Override
+  public EventHandler getEventHandler() {
+    return handler;
+  }
+
+  @Override
+  public void register(Class<? extends Enum> eventType,
+      EventHandler eventHandler) {
+    throw new UnsupportedOperationException(
+        "Simulated dispatcher has a single handler");
+  }
+
+  // -- DaemonContext machinery --
+
+  @Override
+  public Dispatcher getDispatcher() {
+    return this;
+  }
+
+  @Override
+  public Scheduler getScheduler() {
+    return scheduler;
+  }
+
+  @Override
+  public BlockManagerService getBlockManagerService() {
+    return null;
+  }
+
+  @Override
+  public TaskManager getTaskManager() {
+    return null;
+  }
+
+  @Override
+  public Map<String, UserApp> getUserApps() {
+    return userApps;
+  }
+
+  @Override
+  public ConcurrentHashMap<ApplicationId, DaemonApp> getDaemonApps() {
+    return daemonApps;
+  }
+
+  @Override
+  public ClientService getClientService() {
+    return null;
+  }
+}
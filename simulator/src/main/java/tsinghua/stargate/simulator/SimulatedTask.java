@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.simulator;
+
+import java.util.Map;
+
+import tsinghua.stargate.api.RecordReader;
+import tsinghua.stargate.api.StarGateApp;
+import tsinghua.stargate.rpc.message.entity.ServiceData;
+import tsinghua.stargate.rpc.message.entity.Worker;
+import tsinghua.stargate.task.Task;
+import tsinghua.stargate.task.TaskEvent;
+import tsinghua.stargate.task.TaskId;
+import tsinghua.stargate.task.TaskState;
+import tsinghua.stargate.task.TaskTimeline;
+
+/**
+ * A task that only carries the identity seen by the scheduler. Its execution
+ * is modelled by the simulator as holding a core for the traced duration.
+ */
+class SimulatedTask implements Task {
+
+  private final TaskId taskId;
+  private final TaskTimeline timeline = new TaskTimeline();
+  private final String workload;
+
+  SimulatedTask(TaskId taskId, String workload) {
+    this.taskId = taskId;
+    this.workload = workload;
+  }
+
+  @Override
+  public String getWorkload() {
+    return workload;
+  }
+
+  @Override
+  public TaskId getTaskId() {
+    return taskId;
+  }
+
+  @Override
+  public void handle(TaskEvent event) {
+  }
+
+  @Override
+  public TaskState run() {
+    throw new UnsupportedOperationException("Simulated task " + taskId.getId());
+  }
+
+  @Override
+  public void createBlockData(ServiceData inSD, ServiceData outSD) {
+    throw new UnsupportedOperationException("Simulated task " + taskId.getId());
+  }
+
+  @Override
+  public void createDependencies(Map<String, String> launchResources,
+      Map<String, String> launchEnvironments,
+      Map<String, String> launchProcessors) {
+    throw new UnsupportedOperationException("Simulated task " + taskId.getId());
+  }
+
+  @Override
+  public void createProcessor(Worker worker, int cardId, int coreId,
+      StarGateApp sga, RecordReader recordReader) {
+    throw new UnsupportedOperationException("Simulated task " + taskId.getId());
+  }
+
+  @Override
+  public String getDiagnostics() {
+    return null;
+  }
+
+  /** A simulated task runs as one request and has no boundary to yield at. */
+  @Override
+  public boolean preempt() {
+    return false;
+  }
+
+  @Override
+  public int getRemainingBlocks() {
+    return 0;
+  }
+
+  @Override
+  public TaskTimeline getTimeline() {
+    return timeline;
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.simulator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import tsinghua.stargate.app.UserApp;
+import tsinghua.stargate.task.Task;
+
+/**
+ * A user application of the simulation, tracking its submitted tasks.
+ */
+class SimulatedUserApp implements UserApp {
+
+  private final String userAppId;
+  private final Map<String, Task> tasks = new HashMap<>();
+
+  SimulatedUserApp(String userAppId) {
+    this.userAppId = userAppId;
+  }
+
+  void addTask(Task task) {
+    tasks.put(task.getTaskId().getId(), task);
+  }
+
+  @Override
+  public String getUserAppId() {
+    return userAppId;
+  }
+
+  @Override
+  public String getApplicationState() {
+    return "RUNNING";
+  }
+
+  @Override
+  public void startTask(Task task) {
+    throw new UnsupportedOperationException("Simulated app " + userAppId);
+  }
+
+  @Override
+  public Task getTask(String taskId) {
+    return tasks.get(taskId);
+  }
+
+  @Override
+  public void removeTask(String taskId) {
+    tasks.remove(taskId);
+  }
+}
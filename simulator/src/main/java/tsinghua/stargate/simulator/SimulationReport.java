@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.simulator;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Metrics of a simulation run.
+ *
+ * <ul>
+ * <li>throughput: completed tasks per virtual second over the makespan</li>
+ * <li>utilization: busy core time over the core time offered by all
+ * accelerators during the makespan</li>
+ * <li>queueing delay: time from submission until a core is assigned</li>
+ * <li>fairness: Jain's index over the mean slowdown of each user application,
+ * 1 meaning all applications are slowed down equally</li>
+ * </ul>
+ */
+public class SimulationReport {
+
+  private static final double[] PERCENTILES = {50, 90, 99};
+
+  private final int numCores;
+  private int submitted;
+  private int completed;
+  private int rejected;
+  private int unfinished;
+  private long makespan;
+  private double throughput;
+  private double utilization;
+  private double fairness;
+  private long[] delays;
+  private final Map<String, long[]> workloadDelays = new TreeMap<>();
+  private final Map<String, Double> cardUtilization = new TreeMap<>();
+
+  SimulationReport(Collection<TaskRecord> records,
+      Map<String, Integer> cardCores) {
+    int cores = 0;
+    for (int n : cardCores.values()) {
+      cores += n;
+    }
+    this.numCores = cores;
+
+    long begin = Long.MAX_VALUE;
+    long end = Long.MIN_VALUE;
+    long busy = 0;
+    List<Long> allDelays = new ArrayList<>();
+    Map<String, List<Long>> delaysByWorkload = new TreeMap<>();
+    Map<String, Long> busyByCard = new TreeMap<>();
+    Map<String, double[]> slowdownByUser = new TreeMap<>();
+
+    for (TaskRecord record : records) {
+      submitted++;
+      if (record.isRejected()) {
+        rejected++;
+        continue;
+      }
+      if (!record.isFinished()) {
+        unfinished++;
+        continue;
+      }
+      completed++;
+
+      TraceEntry entry = record.getEntry();
+      begin = Math.min(begin, entry.getArrivalTime());
+      end = Math.max(end, record.getFinishTime());
+      long service = record.getFinishTime() - record.getStartTime();
+      busy += service;
+      busyByCard.merge(record.getHardwareId(), service, Long::sum);
+
+      allDelays.add(record.getQueueingDelay());
+      delaysByWorkload
+          .computeIfAbsent(entry.getWorkload(), w -> new ArrayList<>())
+          .add(record.getQueueingDelay());
+
+      double[] slowdown = slowdownByUser
+          .computeIfAbsent(entry.getUserAppId(), u -> new double[2]);
+      slowdown[0] += record.getSlowdown();
+      slowdown[1]++;
+    }
+
+    makespan = completed == 0 ? 0 : end - begin;
+    if (makespan > 0) {
+      throughput = completed * 1000.0 / makespan;
+      utilization = (double) busy / ((double) numCores * makespan);
+      for (Map.Entry<String, Integer> card : cardCores.entrySet()) {
+        Long cardBusy = busyByCard.get(card.getKey());
+        cardUtilization.put(card.getKey(), cardBusy == null ? 0.0
+            : (double) cardBusy / ((double) card.getValue() * makespan));
+      }
+    }
+
+    delays = toSortedArray(allDelays);
+    for (Map.Entry<String, List<Long>> e : delaysByWorkload.entrySet()) {
+      workloadDelays.put(e.getKey(), toSortedArray(e.getValue()));
+    }
+
+    double sum = 0;
+    double sumOfSquares = 0;
+    for (double[] slowdown : slowdownByUser.values()) {
+      double mean = slowdown[0] / slowdown[1];
+      sum += mean;
+      sumOfSquares += mean * mean;
+    }
+    fairness = slowdownByUser.isEmpty() ? 1.0
+        : sum * sum / (slowdownByUser.size() * sumOfSquares);
+  }
+
+  private static long[] toSortedArray(List<Long> values) {
+    long[] array = new long[values.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = values.get(i);
+    }
+    Arrays.sort(array);
+    return array;
+  }
+
+  /** Nearest-rank percentile of sorted values, 0 if there are none. */
+  static long percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+    return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+  }
+
+  public void print(PrintStream out) {
+    out.printf("Tasks: %d submitted, %d completed, %d rejected, "
+        + "%d unfinished%n", submitted, completed, rejected, unfinished);
+    out.printf("Cores: %d%n", numCores);
+    out.printf("Makespan: %.3f s%n", makespan / 1000.0);
+    out.printf("Throughput: %.3f tasks/s%n", throughput);
+    out.printf("Core utilization: %.2f%%%n", utilization * 100);
+    for (Map.Entry<String, Double> card : cardUtilization.entrySet()) {
+      out.printf("  %s: %.2f%%%n", card.getKey(), card.getValue() * 100);
+    }
+    out.printf("Queueing delay (ms): %s%n", formatDelays(delays));
+    for (Map.Entry<String, long[]> workload : workloadDelays.entrySet()) {
+      out.printf("  %s: %s%n", workload.getKey(),
+          formatDelays(workload.getValue()));
+    }
+    out.printf("Fairness (Jain's index of slowdown): %.4f%n", fairness);
+  }
+
+  private static String formatDelays(long[] sorted) {
+    StringBuilder builder = new StringBuilder();
+    for (double p : PERCENTILES) {
+      builder.append('p').append((int) p).append('=')
+          .append(percentile(sorted, p)).append(' ');
+    }
+    builder.append("max=").append(percentile(sorted, 100));
+    builder.append(" (n=").append(sorted.length).append(')');
+    return builder.toString();
+  }
+
+  public int getSubmitted() {
+    return submitted;
+  }
+
+  public int getCompleted() {
+    return completed;
+  }
+
+  public int getRejected() {
+    return rejected;
+  }
+
+  public int getUnfinished() {
+    return unfinished;
+  }
+
+  public long getMakespan() {
+    return makespan;
+  }
+
+  public double getThroughput() {
+    return throughput;
+  }
+
+  public double getUtilization() {
+    return utilization;
+  }
+
+  public double getFairness() {
+    return fairness;
+  }
+
+  public long getDelayPercentile(double percentile) {
+    return percentile(delays, percentile);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.simulator;
+
+/**
+ * The simulated life cycle of one traced task, in virtual milliseconds.
+ */
+public class TaskRecord {
+
+  private final TraceEntry entry;
+  private String taskId;
+  private boolean rejected;
+  private long startTime = -1;
+  private long finishTime = -1;
+  private String hardwareId;
+  private int coreId = -1;
+
+  TaskRecord(TraceEntry entry) {
+    this.entry = entry;
+  }
+
+  void submit(String taskId) {
+    this.taskId = taskId;
+  }
+
+  void reject() {
+    rejected = true;
+  }
+
+  void start(long time, String hardwareId, int coreId) {
+    this.startTime = time;
+    this.hardwareId = hardwareId;
+    this.coreId = coreId;
+  }
+
+  void finish(long time) {
+    this.finishTime = time;
+  }
+
+  public TraceEntry getEntry() {
+    return entry;
+  }
+
+  public String getTaskId() {
+    return taskId;
+  }
+
+  public boolean isRejected() {
+    return rejected;
+  }
+
+  public boolean isStarted() {
+    return startTime >= 0;
+  }
+
+  public boolean isFinished() {
+    return finishTime >= 0;
+  }
+
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public long getFinishTime() {
+    return finishTime;
+  }
+
+  public String getHardwareId() {
+    return hardwareId;
+  }
+
+  public int getCoreId() {
+    return coreId;
+  }
+
+  /** Time spent in the queues before an accelerator core was assigned. */
+  public long getQueueingDelay() {
+    return startTime - entry.getArrivalTime();
+  }
+
+  /** Response time relative to the service time, at least 1. */
+  public double getSlowdown() {
+    return (double) (finishTime - entry.getArrivalTime())
+        / Math.max(1, entry.getDuration());
+  }
+}
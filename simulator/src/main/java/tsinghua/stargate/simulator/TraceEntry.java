@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.simulator;
+
+/**
+ * One task of a workload trace.
+ */
+public class TraceEntry implements Comparable<TraceEntry> {
+
+  private final long arrivalTime;
+  private final String userAppId;
+  private final String workload;
+  private final long duration;
+
+  /**
+   * @param arrivalTime virtual submission time in milliseconds
+   * @param userAppId the user application submitting the task
+   * @param workload the accelerator workload requested by the task
+   * @param duration time in milliseconds the task holds an accelerator core
+   */
+  public TraceEntry(long arrivalTime, String userAppId, String workload,
+      long duration) {
+    if (workload.contains("_")) {
+      throw new IllegalArgumentException(
+          "Workload must not contain '_': " + workload);
+    }
+    this.arrivalTime = arrivalTime;
+    this.userAppId = userAppId;
+    this.workload = workload;
+    this.duration = duration;
+  }
+
+  public long getArrivalTime() {
+    return arrivalTime;
+  }
+
+  public String getUserAppId() {
+    return userAppId;
+  }
+
+  public String getWorkload() {
+    return workload;
+  }
+
+  public long getDuration() {
+    return duration;
+  }
+
+  @Override
+  public int compareTo(TraceEntry other) {
+    return Long.compare(arrivalTime, other.arrivalTime);
+  }
+
+  @Override
+  public String toString() {
+    return arrivalTime + "," + userAppId + "," + workload + "," + duration;
+  }
+}
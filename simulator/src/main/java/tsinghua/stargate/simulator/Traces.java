@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.simulator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.base.Splitter;
+
+/**
+ * Loads recorded task traces and generates synthetic ones.
+ *
+ * <p>
+ * A recorded trace is a CSV file with one task per line:
+ * {@code arrival-ms,user-app,workload,duration-ms}. Empty lines and lines
+ * starting with {@code #} are ignored.
+ *
+ * <p>
+ * A synthetic trace is described by one or more workload specifications
+ * {@code workload:rate:mean-duration-ms[:user-app]}, where rate is the number
+ * of task arrivals per second. Arrivals follow a Poisson process and
+ * durations an exponential distribution.
+ */
+public final class Traces {
+
+  private static final Splitter COMMA = Splitter.on(',').trimResults();
+  private static final Splitter COLON = Splitter.on(':').trimResults();
+
+  private Traces() {
+  }
+
+  public static List<TraceEntry> load(Path file) throws IOException {
+    List<TraceEntry> trace = new ArrayList<>();
+    try (BufferedReader reader =
+        Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      int lineNo = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNo++;
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        List<String> fields = COMMA.splitToList(line);
+        if (fields.size() != 4) {
+          throw new IOException(
+              file + ":" + lineNo + ": expected 4 fields but got " + line);
+        }
+        try {
+          trace.add(new TraceEntry(Long.parseLong(fields.get(0)),
+              fields.get(1), fields.get(2), Long.parseLong(fields.get(3))));
+        } catch (IllegalArgumentException e) {
+          throw new IOException(file + ":" + lineNo + ": " + e.getMessage(),
+              e);
+        }
+      }
+    }
+    Collections.sort(trace);
+    return trace;
+  }
+
+  public static void write(List<TraceEntry> trace, Writer writer)
+      throws IOException {
+    writer.write("# arrival-ms,user-app,workload,duration-ms\n");
+    for (TraceEntry entry : trace) {
+      writer.write(entry.toString());
+      writer.write('\n');
+    }
+    writer.flush();
+  }
+
+  /**
+   * Generate a synthetic trace.
+   *
+   * @param specs workload specifications, see the class comment
+   * @param numTasks total number of tasks to generate
+   * @param seed seed of the random generator, making runs repeatable
+   * @return the trace sorted by arrival time
+   */
+  public static List<TraceEntry> synthesize(List<String> specs, int numTasks,
+      long seed) {
+    if (specs.isEmpty()) {
+      throw new IllegalArgumentException("No workload specification");
+    }
+
+    int numSpecs = specs.size();
+    String[] workloads = new String[numSpecs];
+    String[] users = new String[numSpecs];
+    double[] rates = new double[numSpecs];
+    double[] durations = new double[numSpecs];
+    double totalRate = 0;
+    for (int i = 0; i < numSpecs; i++) {
+      List<String> fields = COLON.splitToList(specs.get(i));
+      if (fields.size() < 3 || fields.size() > 4) {
+        throw new IllegalArgumentException(
+            "Invalid workload specification: " + specs.get(i));
+      }
+      workloads[i] = fields.get(0);
+      rates[i] = Double.parseDouble(fields.get(1));
+      durations[i] = Double.parseDouble(fields.get(2));
+      users[i] = fields.size() == 4 ? fields.get(3) : "userApp-" + i;
+      totalRate += rates[i];
+    }
+
+    // Superpose the per-workload Poisson processes: draw the next arrival of
+    // the merged process, then pick its workload proportionally to the rates.
+    Random random = new Random(seed);
+    List<TraceEntry> trace = new ArrayList<>(numTasks);
+    double now = 0;
+    for (int n = 0; n < numTasks; n++) {
+      now += exponential(random, 1000.0 / totalRate);
+      double pick = random.nextDouble() * totalRate;
+      int i = 0;
+      while (i < numSpecs - 1 && pick >= rates[i]) {
+        pick -= rates[i];
+        i++;
+      }
+      long duration = Math.max(1, Math.round(exponential(random,
+          durations[i])));
+      trace.add(new TraceEntry(Math.round(now), users[i], workloads[i],
+          duration));
+    }
+    return trace;
+  }
+
+  private static double exponential(Random random, double mean) {
+    return -mean * Math.log(1 - random.nextDouble());
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.simulator;
+
+import tsinghua.stargate.util.Clock;
+
+/**
+ * A {@link Clock} that only moves when the simulator advances it.
+ */
+public class VirtualClock implements Clock {
+
+  private long now;
+
+  @Override
+  public long getTime() {
+    return now;
+  }
+
+  void advanceTo(long time) {
+    if (time < now) {
+      throw new IllegalArgumentException(
+          "Cannot move virtual time back from " + now + " to " + time);
+    }
+    now = time;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 The Tsinghua University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tsinghua.stargate.simulator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tsinghua.stargate.conf.Configuration;
+import tsinghua.stargate.conf.NameSpace;
+import tsinghua.stargate.conf.StarGateConf;
+
+public class TestSchedulerSimulator {
+
+  private static final String CARD = "fpga-simulated";
+
+  private Configuration conf;
+
+  @Before
+  public void setUp() {
+    conf = new StarGateConf();
+    conf.set(NameSpace.ACCELERATOR_IDS, CARD);
+    conf.set(NameSpace.ACCELERATOR_TYPE_PREFIX + CARD, "FPGA");
+    conf.set(NameSpace.ACCELERATOR_CORE_IDS_PREFIX + CARD, "0,1");
+    conf.set(NameSpace.ACCELERATOR_CORE_WORKLOADS_PREFIX + CARD,
+        "kmeans,kmeans");
+    conf.set(NameSpace.ACCELERATOR_CORE_MEMORY_PREFIX + CARD, "64,64");
+    conf.set(NameSpace.ACCELERATOR_CORE_FREQUENCY_PREFIX + CARD, "200,200");
+    conf.set(NameSpace.SCHEDULING_INTERVAL, "100");
+  }
+
+  @Test(timeout = 30000)
+  public void testVirtualTime() {
+    List<TraceEntry> trace = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      trace.add(new TraceEntry(0, "userApp-" + (i % 2), "kmeans", 1000));
+    }
+    trace.add(new TraceEntry(0, "userApp-0", "loopback", 1000));
+
+    SimulationReport report = new SchedulerSimulator(conf).run(trace);
+
+    assertEquals(5, report.getSubmitted());
+    assertEquals(4, report.getCompleted());
+    assertEquals(1, report.getRejected());
+    assertEquals(0, report.getUnfinished());
+    // Two rounds of two tasks: 100..1100 and 1200..2200.
+    assertEquals(2200, report.getMakespan());
+    assertEquals(100, report.getDelayPercentile(50));
+    assertEquals(1200, report.getDelayPercentile(99));
+    assertEquals(4000.0 / (2 * 2200), report.getUtilization(), 1e-9);
+  }
+
+  @Test
+  public void testSyntheticTraceIsRepeatable() {
+    List<String> specs = Arrays.asList("kmeans:5:200", "loopback:1:50:user");
+    List<TraceEntry> trace1 = Traces.synthesize(specs, 100, 7);
+    List<TraceEntry> trace2 = Traces.synthesize(specs, 100, 7);
+    assertEquals(100, trace1.size());
+    assertEquals(trace1.toString(), trace2.toString());
+  }
+
+  @Test
+  public void testPercentile() {
+    long[] sorted = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+    assertEquals(5, SimulationReport.percentile(sorted, 50));
+    assertEquals(9, SimulationReport.percentile(sorted, 90));
+    assertEquals(10, SimulationReport.percentile(sorted, 99));
+    assertEquals(0, SimulationReport.percentile(new long[0], 50));
+  }
+}